@@ -0,0 +1,151 @@
+package net.tavda.hydraulic;
+
+import net.tavda.hydraulic.service.CalculationRequest;
+import net.tavda.hydraulic.service.CalculationServer;
+import net.tavda.hydraulic.service.CalculationService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Нагрузочное испытание {@link CalculationService} открытой моделью: запросы отправляются с заданной частотой
+ * независимо от ответов, задержка отсчитывается от запланированного времени отправки, поэтому очередь
+ * из-за медленных ответов не скрывается. Каждый запрос обрабатывается в своём потоке, как в веб-сервере.
+ * <p>
+ * Аргументы: частота, запросов/с (10000); длительность, с (10); количество различных запросов (1000);
+ * http - запросы через {@link CalculationServer} вместо прямых вызовов.
+ * На Java 21+ запросы обрабатываются в виртуальных потоках, иначе - в пуле потоков.
+ * Для сервера включается {@code sun.net.httpserver.nodelay}, см. {@link CalculationServer}.
+ * <pre>
+ * java -cp bench/target/benchmarks.jar net.tavda.hydraulic.CalculationServiceLoad 10000 10 1000 http
+ * </pre>
+ */
+public class CalculationServiceLoad {
+
+    public static void main(String[] args) throws Exception {
+        int rate = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int keys = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        boolean http = args.length > 3 && "http".equals(args[3]);
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        ExecutorService handlers = handlers();
+        ExecutorService batches = Executors.newSingleThreadExecutor();
+        CalculationService service = new CalculationService(PipelineCalculator.getInstance(Precision.STRICT), batches);
+        CalculationServer server = http
+                ? new CalculationServer(service, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), handlers)
+                : null;
+        System.out.printf(Locale.ROOT, "rate=%d/s, duration=%ds, keys=%d, %s, handlers=%s%n",
+                rate, seconds, keys, http ? "http" : "in-process", handlers.getClass().getSimpleName());
+
+        // Разогрев на четверти длительности, затем измерение
+        run(service, server, handlers, rate, Math.max(1, seconds / 4), keys, 1);
+        Report report = run(service, server, handlers, rate, seconds, keys, 2);
+        long requests = service.getRequests();
+        System.out.printf(Locale.ROOT, "sent=%d, achieved=%.0f/s, errors=%d%n",
+                report.sent, report.sent / (report.nanos / 1e9), report.errors.sum());
+        System.out.printf(Locale.ROOT, "latency, us: p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                report.latency.getValueAt(0.5) / 1e3, report.latency.getValueAt(0.9) / 1e3,
+                report.latency.getValueAt(0.99) / 1e3, report.latency.getValueAt(0.999) / 1e3, report.latency.getMax() / 1e3);
+        System.out.printf(Locale.ROOT, "service: requests=%d, coalesced=%d, computed=%d, batches=%d (%.1f per batch), rejected=%d%n",
+                requests, service.getCoalesced(), service.getComputed(), service.getBatches(),
+                (double) service.getComputed() / Math.max(1, service.getBatches()), service.getRejected());
+
+        if (server != null) {
+            server.close();
+        }
+        handlers.shutdown();
+        batches.shutdown();
+    }
+
+    private static ExecutorService handlers() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static final class Report {
+        final QuantileSketch latency = new QuantileSketch(0.01);
+        final LongAdder errors = new LongAdder();
+        long sent;
+        long nanos;
+
+        synchronized void record(long latency) {
+            this.latency.record(latency);
+        }
+
+        synchronized long received() {
+            return latency.getCount() + errors.sum();
+        }
+    }
+
+    private static Report run(CalculationService service, CalculationServer server, ExecutorService handlers,
+                              int rate, int seconds, int keys, long seed) throws InterruptedException {
+        Report report = new Report();
+        SplittableRandom random = new SplittableRandom(seed);
+        long interval = 1_000_000_000L / rate;
+        long total = (long) rate * seconds;
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long scheduled = start + i * interval;
+            long delay = scheduled - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            // Ввод в форму: небольшое число различных сочетаний, часть повторяется одновременно
+            int key = random.nextInt(keys);
+            double consumption = 1 + key % 100;
+            double diameter = 50 + 10 * (key / 100 % 20);
+            handlers.execute(() -> {
+                try {
+                    if (server != null) {
+                        get(server.getPort(), consumption, diameter);
+                    } else {
+                        service.submit(CalculationRequest.formulas(consumption, 95, 70, diameter, 150, 0.5, 3)).join();
+                    }
+                    report.record(System.nanoTime() - scheduled);
+                } catch (Exception e) {
+                    report.errors.increment();
+                }
+            });
+        }
+        report.sent = total;
+        report.nanos = System.nanoTime() - start;
+        // Дождаться ответов на отправленные запросы
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (report.received() < total && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return report;
+    }
+
+    private static void get(int port, double consumption, double diameter) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + port + "/formulas?consumption=" + consumption
+                + "&tempIn=95&tempOut=70&diameter=" + diameter + "&length=150&roughness=0.5&sumLocalResist=3");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        if (connection.getResponseCode() != 200) {
+            throw new IOException("Status " + connection.getResponseCode());
+        }
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[1024];
+            while (in.read(buffer) > 0) {
+                // Ответ дочитывается, чтобы соединение вернулось в пул
+            }
+        }
+    }
+}
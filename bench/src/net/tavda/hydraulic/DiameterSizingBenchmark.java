@@ -0,0 +1,63 @@
+package net.tavda.hydraulic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подбор диаметров 100000 участков {@link DiameterSizing} по формулам с ограничениями скорости и удельных потерь,
+ * время на весь пакет
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DiameterSizingBenchmark {
+    private static final int SIZE = 100000;
+    @Param({"ALTSHUL", "COLEBROOK_WHITE"})
+    public FrictionModel friction;
+    private final double[] consumption = new double[SIZE];
+    private final double[] tempIn = new double[SIZE];
+    private final double[] tempOut = new double[SIZE];
+    private final double[] length = new double[SIZE];
+    private final double[] roughness = new double[SIZE];
+    private final double[] sumLocalResist = new double[SIZE];
+    private final int[] out = new int[SIZE];
+    private DiameterSizing sizing;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(2);
+        for (int i = 0; i < SIZE; i++) {
+            consumption[i] = Math.exp(random.nextDouble() * 10 - 4);
+            tempIn[i] = 70 + random.nextInt(60);
+            tempOut[i] = 40 + random.nextInt(30);
+            length[i] = 10 + random.nextDouble() * 500;
+            roughness[i] = 0.5;
+            sumLocalResist[i] = random.nextDouble() * 5;
+        }
+        sizing = new DiameterSizing();
+        sizing.setMaxSpeed(2);
+        sizing.setMaxSpecificLoss(100);
+        sizing.setCalculator(new PipelineCalculator(Precision.STRICT, WaterProperties.exact(), friction));
+    }
+
+    @Benchmark
+    public int[] size() {
+        sizing.size(consumption, tempIn, tempOut, length, roughness, sumLocalResist, out);
+        return out;
+    }
+}
@@ -0,0 +1,67 @@
+package net.tavda.hydraulic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость одного вычисления к-та трения в турбулентном режиме для каждой формулы.
+ * cold - без начального приближения, warm - с λ, отличающимся на 1% (как между итерациями расчёта сети)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrictionModelBenchmark {
+    private static final int SIZE = 1024;
+
+    @Param({"ALTSHUL", "COLEBROOK_WHITE", "SWAMEE_JAIN", "HAALAND"})
+    public FrictionModel model;
+    private final double[] reynoldsNumber = new double[SIZE];
+    private final double[] relativeRoughness = new double[SIZE];
+    private final double[] previous = new double[SIZE];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        for (int i = 0; i < SIZE; i++) {
+            reynoldsNumber[i] = 4000 * Math.pow(10, 4 * random.nextDouble());
+            relativeRoughness[i] = Math.pow(10, -5 + 3 * random.nextDouble());
+            previous[i] = 1.01 * FrictionModel.COLEBROOK_WHITE.lambda(reynoldsNumber[i], relativeRoughness[i], 0, false);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double cold() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += model.lambda(reynoldsNumber[i], relativeRoughness[i], 0, false);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double warm() {
+        double sum = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += model.lambda(reynoldsNumber[i], relativeRoughness[i], previous[i], false);
+        }
+        return sum;
+    }
+}
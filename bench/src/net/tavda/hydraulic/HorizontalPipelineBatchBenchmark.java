@@ -0,0 +1,66 @@
+package net.tavda.hydraulic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетный расчёт 2^20 участков {@link HorizontalPipelineBatch} по формулам на 1/2/4/8 потоках, время на весь пакет
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HorizontalPipelineBatchBenchmark {
+    private static final int SIZE = 1 << 20;
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+    private HorizontalPipelineBatch batch;
+    private PipelineColumns columns;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        double[] consumption = new double[SIZE], tempIn = new double[SIZE], tempOut = new double[SIZE], diameter = new double[SIZE],
+                length = new double[SIZE], roughness = new double[SIZE], sumLocalResist = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            // Расходы от 0.01 до 100 т/ч: все три режима течения
+            consumption[i] = 0.01 * Math.pow(10, 4.0 * (i % 1000) / 1000);
+            tempIn[i] = 60 + i % 50;
+            tempOut[i] = 40 + i % 30;
+            diameter[i] = 15 + 5 * (i % 40);
+            length[i] = 10 + i % 500;
+            roughness[i] = 0.01 * (1 + i % 7);
+            sumLocalResist[i] = 0.5 * (i % 5);
+        }
+        batch = new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist);
+        pool = new ForkJoinPool(threads);
+        batch.setPool(pool);
+        columns = new PipelineColumns(SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public PipelineColumns calcFormulas() {
+        batch.calcFormulas(columns);
+        return columns;
+    }
+}
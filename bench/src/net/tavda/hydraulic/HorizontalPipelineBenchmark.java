@@ -0,0 +1,128 @@
+package net.tavda.hydraulic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки расчёта горизонтального участка: конструкторы, calcFormulas по режимам течения, calcSNiP по материалам,
+ * расчёт {@link PipelineCalculator} в переиспользуемый {@link PipelineResult}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HorizontalPipelineBenchmark {
+
+    /**
+     * Исходные данные участка Ду100, 95/70 °C
+     */
+    @State(Scope.Thread)
+    public static class Input {
+        public double consumption = 20;
+        public double tempIn = 95;
+        public double tempOut = 70;
+        public double diameter = 100;
+        public double length = 100;
+        public double roughness = 1;
+        public double sumLocalResist = 1.89;
+        public int material = 0;
+        public final PipelineCalculator calculator = PipelineCalculator.getInstance(Precision.STRICT);
+        public final PipelineResult result = new PipelineResult();
+    }
+
+    /**
+     * Участок с расходом, соответствующим режиму течения
+     */
+    @State(Scope.Thread)
+    public static class Regime {
+        /**
+         * laminar - Re ≈ 1900, transitional - Re ≈ 3000, turbulent - Re ≈ 216000
+         */
+        @Param({"laminar", "transitional", "turbulent"})
+        public String regime;
+        @Param({"STRICT", "FAST"})
+        public Precision precision;
+        public HorizontalPipeline pipeline;
+
+        @Setup
+        public void setup() {
+            double consumption;
+            switch (regime) {
+                case "laminar":
+                    consumption = 0.18;
+                    break;
+                case "transitional":
+                    consumption = 0.28;
+                    break;
+                default:
+                    consumption = 20;
+            }
+            pipeline = new HorizontalPipeline(consumption, 95, 70, 100, 100, 1, 1.89);
+            pipeline.setPrecision(precision);
+        }
+    }
+
+    /**
+     * Участок из материала по СНиП
+     */
+    @State(Scope.Thread)
+    public static class Material {
+        @Param({"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11"})
+        public int material;
+        @Param({"STRICT", "FAST"})
+        public Precision precision;
+        public HorizontalPipeline pipeline;
+
+        @Setup
+        public void setup() {
+            pipeline = new HorizontalPipeline(20, 95, 70, 100, 100, material);
+            pipeline.setPrecision(precision);
+        }
+    }
+
+    @Benchmark
+    public HorizontalPipeline constructorFormulas(Input in) {
+        return new HorizontalPipeline(in.consumption, in.tempIn, in.tempOut, in.diameter, in.length, in.roughness, in.sumLocalResist);
+    }
+
+    @Benchmark
+    public HorizontalPipeline constructorSNiP(Input in) {
+        return new HorizontalPipeline(in.consumption, in.tempIn, in.tempOut, in.diameter, in.length, in.material);
+    }
+
+    @Benchmark
+    public double calculatorFormulas(Input in) {
+        in.calculator.calcFormulas(in.consumption, in.tempIn, in.tempOut, in.diameter, in.length, in.roughness, in.sumLocalResist, in.result);
+        return in.result.getPressureLossPa();
+    }
+
+    @Benchmark
+    public double calculatorSNiP(Input in) {
+        in.calculator.calcSNiP(in.consumption, in.tempIn, in.tempOut, in.diameter, in.length, in.material, in.result);
+        return in.result.getPressureLossPa();
+    }
+
+    @Benchmark
+    public double calcFormulas(Regime state) {
+        state.pipeline.calcFormulas();
+        return state.pipeline.getPressureLossPa();
+    }
+
+    @Benchmark
+    public double calcSNiP(Material state) {
+        state.pipeline.calcSNiP();
+        return state.pipeline.getPressureLossPa();
+    }
+}
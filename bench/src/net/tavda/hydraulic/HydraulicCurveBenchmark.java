@@ -0,0 +1,74 @@
+package net.tavda.hydraulic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Характеристика ΔP(G) на сетке из 256 расходов: {@link HydraulicCurve} против расчёта каждой точки
+ * {@link PipelineCalculator}, время на всю сетку
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HydraulicCurveBenchmark {
+    @Param({"STRICT", "FAST"})
+    public Precision precision;
+    @Param({"ALTSHUL", "COLEBROOK_WHITE"})
+    public FrictionModel friction;
+    private PipelineCalculator calculator;
+    private HydraulicCurve curve;
+    private final double[] flows = HydraulicCurve.grid(0.5, 60, 256);
+    private final double[] out = new double[256];
+    private final PipelineResult result = new PipelineResult();
+
+    @Setup
+    public void setup() {
+        calculator = new PipelineCalculator(precision, WaterProperties.exact(), friction);
+        curve = new HydraulicCurve(calculator);
+    }
+
+    @Benchmark
+    public double[] curveFormulas() {
+        curve.calcFormulas(flows, 95, 70, 100, 150, 0.5, 3, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] pointsFormulas() {
+        for (int i = 0; i < flows.length; i++) {
+            result.frictionCoefficient = 0;
+            calculator.calcFormulas(flows[i], 95, 70, 100, 150, 0.5, 3, result);
+            out[i] = result.getPressureLossPa();
+        }
+        return out;
+    }
+
+    @Benchmark
+    public double[] curveSNiP() {
+        curve.calcSNiP(flows, 95, 70, 100, 150, 4, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] pointsSNiP() {
+        for (int i = 0; i < flows.length; i++) {
+            calculator.calcSNiP(flows[i], 95, 70, 100, 150, 4, result);
+            out[i] = result.getPressureLossPa();
+        }
+        return out;
+    }
+}
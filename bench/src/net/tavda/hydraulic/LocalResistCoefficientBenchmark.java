@@ -0,0 +1,137 @@
+package net.tavda.hydraulic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки методов {@link LocalResistCoefficient}, исходные данные как в LocalResistCoefficientTest
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LocalResistCoefficientBenchmark {
+    @Param({"STRICT", "FAST"})
+    public Precision precision;
+    private LocalResistCoefficient instance;
+    private LocalResistCoefficient tabulated;
+    private double[] openings;
+    public double small = 50;
+    public double large = 100;
+    public double diaphragm = 94;
+    public double delta = 6;
+    public double alpha = 90;
+    public double radius = 40;
+    public double lambda = 0.036;
+    public double gap = 0.01;
+    public double opening = 40;
+
+    @Setup
+    public void setup() {
+        instance = new LocalResistCoefficient(precision);
+        tabulated = new LocalResistCoefficient(precision, true);
+        openings = new double[1024];
+        for (int i = 0; i < openings.length; i++) {
+            openings[i] = large * (i + 1) / openings.length;
+        }
+    }
+
+    @Benchmark
+    public double calcExpand() {
+        return instance.calcExpand(small, large);
+    }
+
+    @Benchmark
+    public double calcExpandNarrow() {
+        return instance.calcExpand(large, small);
+    }
+
+    @Benchmark
+    public double calcDiaphragm() {
+        return instance.calcDiaphragm(large, diaphragm);
+    }
+
+    @Benchmark
+    public double calcDiaphragmDiff() {
+        return instance.calcDiaphragmDiff(small, 40, 30);
+    }
+
+    @Benchmark
+    public double calcWelded() {
+        return instance.calcWelded(large, delta);
+    }
+
+    @Benchmark
+    public double calcTurn() {
+        return instance.calcTurn(alpha);
+    }
+
+    @Benchmark
+    public double calcTurnSmooth() {
+        return instance.calcTurnSmooth(alpha, 20, radius, lambda);
+    }
+
+    @Benchmark
+    public double calcGradual() {
+        return instance.calcGradual(alpha, small, large);
+    }
+
+    @Benchmark
+    public double calcGradualNarrow() {
+        return instance.calcGradual(alpha, large, small);
+    }
+
+    @Benchmark
+    public double calcValve() {
+        return instance.calcValve(large, gap);
+    }
+
+    @Benchmark
+    public double calcGradualTable() {
+        return tabulated.calcGradual(alpha, small, large);
+    }
+
+    @Benchmark
+    public double calcValveOpening() {
+        return instance.calcValve(large, opening);
+    }
+
+    @Benchmark
+    public double calcValveTable() {
+        return tabulated.calcValve(large, opening);
+    }
+
+    /**
+     * Перебор открытия задвижки от 1/1024 до полного, время на 1024 вызова
+     */
+    @Benchmark
+    public double valveSweep() {
+        double sum = 0;
+        for (double a : openings) {
+            sum += instance.calcValve(large, a);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double valveSweepTable() {
+        double sum = 0;
+        for (double a : openings) {
+            sum += tabulated.calcValve(large, a);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,76 @@
+package net.tavda.hydraulic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общий для потоков {@link PipelineCache} на 4096 записей против расчёта без кэша, явная и неявная формулы трения. Запросы неравномерны:
+ * участок выбирается как keys·u^3, u равномерно на [0, 1), поэтому малая часть участков запрашивается часто
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class PipelineCacheBenchmark {
+    @Param({"4096", "65536"})
+    public int keys;
+    @Param({"LRU", "TINY_LFU"})
+    public PipelineCache.Eviction eviction;
+    @Param({"ALTSHUL", "COLEBROOK_WHITE"})
+    public FrictionModel friction;
+    private PipelineCalculator calculator;
+    private PipelineCache cache;
+
+    @Setup
+    public void setup() {
+        calculator = new PipelineCalculator(Precision.STRICT, WaterProperties.exact(), friction);
+        cache = new PipelineCache(calculator, 4096, PipelineCache.DEFAULT_QUANTUM_BITS, eviction);
+    }
+
+    @State(Scope.Thread)
+    public static class Request {
+        final PipelineResult result = new PipelineResult();
+        long seed = System.nanoTime() | 1;
+        int key;
+
+        void next(int keys) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 7;
+            seed ^= seed << 17;
+            double u = (seed >>> 11) * 0x1.0p-53;
+            key = (int) (keys * u * u * u);
+        }
+    }
+
+    @Benchmark
+    public PipelineResult cached(Request r) {
+        r.next(keys);
+        int key = r.key;
+        cache.calcFormulas(0.5 + (key & 255), 95, 70, 50 + 5 * (key >>> 8 & 15), 10 + (key >>> 12), 0.5, 3, r.result);
+        return r.result;
+    }
+
+    @Benchmark
+    public PipelineResult direct(Request r) {
+        r.next(keys);
+        int key = r.key;
+        r.result.frictionCoefficient = 0;
+        calculator.calcFormulas(0.5 + (key & 255), 95, 70, 50 + 5 * (key >>> 8 & 15), 10 + (key >>> 12), 0.5, 3, r.result);
+        return r.result;
+    }
+}
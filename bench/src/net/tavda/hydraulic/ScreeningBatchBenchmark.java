@@ -0,0 +1,99 @@
+package net.tavda.hydraulic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакет участков по формулам: {@link HorizontalPipelineBatch} в double против {@link ScreeningBatch} в float
+ * скалярно и векторами, время на весь пакет. Перед замерами выводятся число элементов вектора
+ * и наибольшая относительная погрешность потерь давления в float
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class ScreeningBatchBenchmark {
+    @Param({"4096", "1048576"})
+    public int size;
+    private HorizontalPipelineBatch strict;
+    private HorizontalPipelineBatch fast;
+    private PipelineColumns columns;
+    private ScreeningBatch scalar;
+    private ScreeningBatch vector;
+    private float[] speed;
+    private float[] loss;
+
+    @Setup
+    public void setup() {
+        double[] consumption = new double[size], tempIn = new double[size], tempOut = new double[size], diameter = new double[size],
+                length = new double[size], roughness = new double[size], sumLocalResist = new double[size];
+        float[][] f = new float[7][size];
+        for (int i = 0; i < size; i++) {
+            // Расходы от 0.01 до 100 т/ч: все три режима течения
+            consumption[i] = 0.01 * Math.pow(10, 4.0 * (i % 1000) / 1000);
+            tempIn[i] = 60 + i % 50;
+            tempOut[i] = 40 + i % 30;
+            diameter[i] = 15 + 5 * (i % 40);
+            length[i] = 10 + i % 500;
+            roughness[i] = 0.01 * (1 + i % 7);
+            sumLocalResist[i] = 0.5 * (i % 5);
+            double[] row = {consumption[i], tempIn[i], tempOut[i], diameter[i], length[i], roughness[i], sumLocalResist[i]};
+            for (int c = 0; c < 7; c++) {
+                f[c][i] = (float) row[c];
+            }
+        }
+        strict = new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist);
+        fast = new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist);
+        fast.setPrecision(Precision.FAST);
+        columns = new PipelineColumns(size);
+        scalar = new ScreeningBatch(f[0], f[1], f[2], f[3], f[4], f[5], f[6]);
+        scalar.setVectorized(false);
+        vector = new ScreeningBatch(f[0], f[1], f[2], f[3], f[4], f[5], f[6]);
+        if (!vector.isVectorized()) {
+            throw new IllegalStateException("Vector API is not available");
+        }
+        speed = new float[size];
+        loss = new float[size];
+        vector.calcFormulas(speed, loss);
+        System.out.printf(Locale.ROOT, "%nScreeningBatch: lanes %d, float vs double max relative error %.3g%n",
+                vector.getLanes(), vector.maxRelativeError(loss, Math.max(1, size / 65536)));
+    }
+
+    @Benchmark
+    public PipelineColumns doubleStrict() {
+        strict.calcFormulas(columns);
+        return columns;
+    }
+
+    @Benchmark
+    public PipelineColumns doubleFast() {
+        fast.calcFormulas(columns);
+        return columns;
+    }
+
+    @Benchmark
+    public float[] floatScalar() {
+        scalar.calcFormulas(speed, loss);
+        return loss;
+    }
+
+    @Benchmark
+    public float[] floatVector() {
+        vector.calcFormulas(speed, loss);
+        return loss;
+    }
+}
@@ -0,0 +1,71 @@
+package net.tavda.hydraulic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость получения вязкости и плотности воды: расчёт по формулам, кэш точных значений и таблица.
+ * temperatures - количество различных температур в потоке запросов (как в подающей/обратной магистрали)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WaterPropertiesBenchmark {
+    private static final int SIZE = 1024;
+
+    @Param({"exact", "cache", "table"})
+    public String mode;
+    @Param({"4", "1024"})
+    public int temperatures;
+    private WaterProperties water;
+    private double[] temp;
+
+    @Setup
+    public void setup() {
+        switch (mode) {
+            case "cache":
+                water = WaterProperties.cache(64);
+                break;
+            case "table":
+                water = WaterProperties.table(0.1);
+                break;
+            default:
+                water = WaterProperties.exact();
+        }
+        Random random = new Random(1);
+        double[] distinct = new double[temperatures];
+        for (int i = 0; i < temperatures; i++) {
+            distinct[i] = 40 + 80 * random.nextDouble();
+        }
+        temp = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            temp[i] = distinct[random.nextInt(temperatures)];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public double lookup() {
+        double sum = 0;
+        for (double t : temp) {
+            sum += water.viscosity(t) + water.density(t);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,95 @@
+package net.tavda.hydraulic;
+
+/**
+ * Наблюдатель за расчётами для сбора метрик.
+ * Подключается к {@link PipelineCalculator}, {@link HorizontalPipeline}, {@link HorizontalPipelineBatch}
+ * и решателю сети; без наблюдателя время не измеряется и режимы не подсчитываются.
+ * Методы вызываются из потоков расчёта, в том числе параллельно, и не должны выделять память.
+ * По умолчанию методы ничего не делают.
+ */
+public interface CalculationListener {
+    /**
+     * Ламинарный режим, Re &lt;= 2320
+     */
+    int LAMINAR = 0;
+    /**
+     * Переходная зона, 2320 &lt; Re &lt;= 4000
+     */
+    int TRANSITIONAL = 1;
+    /**
+     * Турбулентный режим, Re &gt; 4000
+     */
+    int TURBULENT = 2;
+    /**
+     * Количество режимов течения
+     */
+    int REGIMES = 3;
+
+    /**
+     * @param reynoldsNumber Число Рейнольдса
+     * @return Режим течения, ветвь формулы к-та гидравлического трения
+     */
+    static int regime(double reynoldsNumber) {
+        if (reynoldsNumber <= 2320) {
+            return LAMINAR;
+        } else if (reynoldsNumber <= 4000) {
+            return TRANSITIONAL;
+        }
+        return TURBULENT;
+    }
+
+    /**
+     * Расчёт одного участка по формулам теоретической гидравлики
+     * @param regime Режим течения
+     * @param nanos Время расчёта, нс
+     */
+    default void formulas(int regime, long nanos) {
+    }
+
+    /**
+     * Расчёт одного участка по СНиП
+     * @param material Материал труб
+     * @param nanos Время расчёта, нс
+     */
+    default void snip(int material, long nanos) {
+    }
+
+    /**
+     * Расчёт части пакета участков
+     * @param snip Расчёт по СНиП
+     * @param rows Количество участков
+     * @param nanos Время расчёта, нс
+     */
+    default void batch(boolean snip, int rows, long nanos) {
+    }
+
+    /**
+     * Количество участков пакета по режимам течения при расчёте по формулам
+     */
+    default void regimes(int laminar, int transitional, int turbulent) {
+    }
+
+    /**
+     * Количество участков пакета из одного материала при расчёте по СНиП
+     * @param material Материал труб
+     * @param count Количество участков
+     */
+    default void material(int material, int count) {
+    }
+
+    /**
+     * Расчёт или пересчёт сети
+     * @param iterations Количество итераций
+     * @param converged Сошёлся ли расчёт
+     * @param nanos Время расчёта, нс
+     */
+    default void solved(int iterations, boolean converged, long nanos) {
+    }
+
+    /**
+     * Обращение к кэшу результатов
+     * @param hit Результат найден в кэше
+     */
+    default void cache(boolean hit) {
+    }
+}
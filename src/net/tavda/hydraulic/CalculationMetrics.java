@@ -0,0 +1,212 @@
+package net.tavda.hydraulic;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Сбор метрик расчётов: количество участков по режимам течения и материалам СНиП,
+ * гистограммы времени расчётов и количества итераций расчёта сети, попадания в кэш.
+ * Запись не выделяет память, один экземпляр можно подключить к расчётам в любом числе потоков.
+ */
+public class CalculationMetrics implements CalculationListener {
+    private static final int SOLVES = 0;
+    private static final int FAILED_SOLVES = 1;
+    private static final int CACHE_HITS = 2;
+    private static final int CACHE_MISSES = 3;
+    private static final int BATCH_ROWS = 4;
+
+    private final AtomicLongArray regimes = new AtomicLongArray(REGIMES);
+    private final AtomicLongArray materials = new AtomicLongArray(PipeMaterials.MAX_MATERIALS);
+    private final AtomicLongArray counters = new AtomicLongArray(5);
+    private final Histogram formulasNanos = new Histogram();
+    private final Histogram snipNanos = new Histogram();
+    private final Histogram batchNanos = new Histogram();
+    private final Histogram solveNanos = new Histogram();
+    private final Histogram iterations = new Histogram();
+
+    @Override
+    public void formulas(int regime, long nanos) {
+        regimes.incrementAndGet(regime);
+        formulasNanos.record(nanos);
+    }
+
+    @Override
+    public void snip(int material, long nanos) {
+        materials.incrementAndGet(material);
+        snipNanos.record(nanos);
+    }
+
+    @Override
+    public void batch(boolean snip, int rows, long nanos) {
+        counters.addAndGet(BATCH_ROWS, rows);
+        batchNanos.record(nanos);
+    }
+
+    @Override
+    public void regimes(int laminar, int transitional, int turbulent) {
+        regimes.addAndGet(LAMINAR, laminar);
+        regimes.addAndGet(TRANSITIONAL, transitional);
+        regimes.addAndGet(TURBULENT, turbulent);
+    }
+
+    @Override
+    public void material(int material, int count) {
+        materials.addAndGet(material, count);
+    }
+
+    @Override
+    public void solved(int iterations, boolean converged, long nanos) {
+        counters.incrementAndGet(converged ? SOLVES : FAILED_SOLVES);
+        this.iterations.record(iterations);
+        solveNanos.record(nanos);
+    }
+
+    @Override
+    public void cache(boolean hit) {
+        counters.incrementAndGet(hit ? CACHE_HITS : CACHE_MISSES);
+    }
+
+    /**
+     * @param regime Режим течения, см. {@link CalculationListener#regime(double)}
+     * @return Количество участков, рассчитанных по формулам в режиме
+     */
+    public long getRegimeCount(int regime) {
+        return regimes.get(regime);
+    }
+
+    /**
+     * @param material Материал труб
+     * @return Количество участков из материала, рассчитанных по СНиП
+     */
+    public long getMaterialCount(int material) {
+        return materials.get(material);
+    }
+
+    /**
+     * @return Наибольшее количество материалов СНиП, {@link PipeMaterials#MAX_MATERIALS}
+     */
+    public int getMaterials() {
+        return materials.length();
+    }
+
+    /**
+     * @return Время расчёта одного участка по формулам, нс
+     */
+    public Histogram getFormulasNanos() {
+        return formulasNanos;
+    }
+
+    /**
+     * @return Время расчёта одного участка по СНиП, нс
+     */
+    public Histogram getSNiPNanos() {
+        return snipNanos;
+    }
+
+    /**
+     * @return Время расчёта части пакета, нс
+     */
+    public Histogram getBatchNanos() {
+        return batchNanos;
+    }
+
+    /**
+     * @return Количество участков, рассчитанных пакетами
+     */
+    public long getBatchRows() {
+        return counters.get(BATCH_ROWS);
+    }
+
+    /**
+     * @return Время расчёта сети, нс
+     */
+    public Histogram getSolveNanos() {
+        return solveNanos;
+    }
+
+    /**
+     * @return Количество итераций расчёта сети
+     */
+    public Histogram getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return Количество сошедшихся расчётов сети
+     */
+    public long getSolves() {
+        return counters.get(SOLVES);
+    }
+
+    /**
+     * @return Количество несошедшихся расчётов сети
+     */
+    public long getFailedSolves() {
+        return counters.get(FAILED_SOLVES);
+    }
+
+    /**
+     * @return Количество попаданий в кэш
+     */
+    public long getCacheHits() {
+        return counters.get(CACHE_HITS);
+    }
+
+    /**
+     * @return Количество промахов кэша
+     */
+    public long getCacheMisses() {
+        return counters.get(CACHE_MISSES);
+    }
+
+    /**
+     * @return Доля попаданий в кэш, 0 - если обращений не было
+     */
+    public double getCacheHitRate() {
+        long hits = getCacheHits();
+        long total = hits + getCacheMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Обнулить метрики
+     */
+    public void reset() {
+        for (int i = 0; i < regimes.length(); i++) {
+            regimes.set(i, 0);
+        }
+        for (int i = 0; i < materials.length(); i++) {
+            materials.set(i, 0);
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        formulasNanos.reset();
+        snipNanos.reset();
+        batchNanos.reset();
+        solveNanos.reset();
+        iterations.reset();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("regimes: laminar=").append(getRegimeCount(LAMINAR))
+                .append(" transitional=").append(getRegimeCount(TRANSITIONAL))
+                .append(" turbulent=").append(getRegimeCount(TURBULENT)).append('\n');
+        sb.append("materials:");
+        for (int m = 0; m < materials.length(); m++) {
+            long count = getMaterialCount(m);
+            if (count != 0) {
+                sb.append(' ').append(m).append('=').append(count);
+            }
+        }
+        sb.append('\n');
+        sb.append("formulas, ns: ").append(formulasNanos).append('\n');
+        sb.append("snip, ns: ").append(snipNanos).append('\n');
+        sb.append("batch, ns: ").append(batchNanos).append(" rows=").append(getBatchRows()).append('\n');
+        sb.append("network, ns: ").append(solveNanos).append(" failed=").append(getFailedSolves()).append('\n');
+        sb.append("iterations: ").append(iterations).append('\n');
+        sb.append("cache: hits=").append(getCacheHits()).append(" misses=").append(getCacheMisses());
+        return sb.toString();
+    }
+}
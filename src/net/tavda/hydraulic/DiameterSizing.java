@@ -0,0 +1,321 @@
+package net.tavda.hydraulic;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Подбор наименьшего диаметра из сортамента, при котором участок удовлетворяет ограничениям
+ * по скорости воды, удельным потерям давления и потерям давления на участке.
+ * <p>
+ * Скорость и потери давления убывают с ростом диаметра, поэтому допустимые диаметры образуют
+ * хвост сортамента и наименьший из них находится делением пополам: 1 + log2(n) расчётов
+ * участка вместо n при переборе. Участки с нулевым расходом получают наименьший диаметр.
+ * <p>
+ * Пакетный подбор делится на части и выполняется параллельно, если задан пул потоков,
+ * результат не зависит от числа потоков. Настройки не должны меняться во время подбора.
+ */
+public class DiameterSizing {
+    /**
+     * Номер диаметра, если ограничениям не удовлетворяет ни один диаметр сортамента
+     */
+    public static final int NONE = -1;
+    /**
+     * Порог параллельного подбора по умолчанию, участков
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1024;
+
+    private static final double[] STANDARD = {
+            15, 20, 25, 32, 40, 50, 65, 80, 100, 125, 150, 200, 250, 300, 350,
+            400, 450, 500, 600, 700, 800, 900, 1000, 1200, 1400};
+
+    private final double[] diameters;
+    private PipelineCalculator calculator = PipelineCalculator.getInstance(Precision.STRICT);
+    private PipelineCache cache;
+    private double maxSpeed = Double.POSITIVE_INFINITY;
+    private double maxSpecificLoss = Double.POSITIVE_INFINITY;
+    private double maxPressureLoss = Double.POSITIVE_INFINITY;
+    private ForkJoinPool pool;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    /**
+     * Подбор по ряду условных проходов Ду15-Ду1400, которые принимаются за внутренние диаметры
+     */
+    public DiameterSizing() {
+        this(STANDARD);
+    }
+
+    /**
+     * @param diameters Внутренние диаметры сортамента по возрастанию, мм; массив копируется
+     */
+    public DiameterSizing(double[] diameters) {
+        if (diameters.length == 0) {
+            throw new IllegalArgumentException("Empty diameter catalogue");
+        }
+        for (int i = 0; i < diameters.length; i++) {
+            if (!(diameters[i] > 0) || i > 0 && !(diameters[i] > diameters[i - 1])) {
+                throw new IllegalArgumentException("Diameter " + diameters[i] + " at " + i + " is not positive and ascending");
+            }
+        }
+        this.diameters = diameters.clone();
+    }
+
+    /**
+     * @return Количество диаметров сортамента
+     */
+    public int size() {
+        return diameters.length;
+    }
+
+    /**
+     * @param index Номер диаметра в сортаменте
+     * @return Внутренний диаметр, мм
+     */
+    public double getDiameter(int index) {
+        return diameters[index];
+    }
+
+    /**
+     * Установить расчёт участков, по умолчанию {@link PipelineCalculator#getInstance(Precision)} для {@link Precision#STRICT}
+     * @param calculator Расчёт участков
+     */
+    public void setCalculator(PipelineCalculator calculator) {
+        this.calculator = calculator;
+    }
+
+    /**
+     * Установить кэш результатов расчёта участков, по умолчанию нет. Участки рассчитывает
+     * {@link PipelineCache#getCalculator()}, расчёт {@link #setCalculator(PipelineCalculator)} не используется.
+     * Полезен, когда одни и те же участки подбираются многократно
+     * @param cache Кэш, null - расчёт без кэша
+     */
+    public void setCache(PipelineCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Установить наибольшую скорость воды, по умолчанию не ограничена
+     * @param maxSpeed Скорость, м/с
+     */
+    public void setMaxSpeed(double maxSpeed) {
+        this.maxSpeed = checkLimit(maxSpeed);
+    }
+
+    /**
+     * Установить наибольшие удельные потери давления на трение, по умолчанию не ограничены.
+     * При расчёте по СНиП - потери давления на участке, отнесённые к длине
+     * @param maxSpecificLoss Удельные потери, Па/м
+     */
+    public void setMaxSpecificLoss(double maxSpecificLoss) {
+        this.maxSpecificLoss = checkLimit(maxSpecificLoss);
+    }
+
+    /**
+     * Установить наибольшие потери давления на участке, по умолчанию не ограничены
+     * @param maxPressureLoss Потери давления, Па
+     */
+    public void setMaxPressureLoss(double maxPressureLoss) {
+        this.maxPressureLoss = checkLimit(maxPressureLoss);
+    }
+
+    private static double checkLimit(double limit) {
+        if (!(limit > 0)) {
+            throw new IllegalArgumentException("Limit " + limit + " <= 0");
+        }
+        return limit;
+    }
+
+    /**
+     * Установить пул потоков для параллельного подбора
+     * @param pool Пул потоков, null - последовательный подбор
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Установить порог параллельного подбора: меньшие пакеты и части пакета считаются последовательно
+     * @param parallelThreshold Порог, участков
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 1) {
+            throw new IllegalArgumentException("Parallel threshold " + parallelThreshold + " < 1");
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Подобрать диаметр участка для расчёта по формулам теоретической гидравлики
+     * @param consumption Расход воды через трубопровод, т/ч, знак не учитывается
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param length Длина трубопровода, м
+     * @param roughness Экв. шероховатость внутр. поверхностей труб, мм
+     * @param sumLocalResist Сумма к-тов местных сопротивлений
+     * @return Номер диаметра в сортаменте или {@link #NONE}
+     */
+    public int size(double consumption, double tempIn, double tempOut, double length, double roughness, double sumLocalResist) {
+        return size(consumption, tempIn, tempOut, length, roughness, sumLocalResist, new PipelineResult());
+    }
+
+    /**
+     * Подобрать диаметр участка для расчёта по СНиП
+     * @param consumption Расход воды через трубопровод, т/ч, знак не учитывается
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param length Длина трубопровода, м
+     * @param material Материал труб, см. {@link HorizontalPipeline#HorizontalPipeline(double, double, double, double, double, int)}
+     * @return Номер диаметра в сортаменте или {@link #NONE}
+     */
+    public int sizeSNiP(double consumption, double tempIn, double tempOut, double length, int material) {
+        return sizeSNiP(consumption, tempIn, tempOut, length, material, new PipelineResult());
+    }
+
+    /**
+     * Подобрать диаметры участков для расчёта по формулам теоретической гидравлики.
+     * Столбцы как у {@link HorizontalPipelineBatch}, элемент i относится к участку i
+     * @param consumption Расход воды через трубопровод, т/ч, знак не учитывается
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param length Длина трубопровода, м
+     * @param roughness Экв. шероховатость внутр. поверхностей труб, мм
+     * @param sumLocalResist Сумма к-тов местных сопротивлений
+     * @param out Номера диаметров в сортаменте или {@link #NONE}
+     */
+    public void size(double[] consumption, double[] tempIn, double[] tempOut, double[] length, double[] roughness, double[] sumLocalResist, int[] out) {
+        int n = consumption.length;
+        checkSize(n, tempIn.length, tempOut.length, length.length, roughness.length, sumLocalResist.length, out.length);
+        run(new Columns(consumption, tempIn, tempOut, length, roughness, sumLocalResist, null, out), n);
+    }
+
+    /**
+     * Подобрать диаметры участков для расчёта по СНиП
+     * @param consumption Расход воды через трубопровод, т/ч, знак не учитывается
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param length Длина трубопровода, м
+     * @param material Материал труб
+     * @param out Номера диаметров в сортаменте или {@link #NONE}
+     */
+    public void sizeSNiP(double[] consumption, double[] tempIn, double[] tempOut, double[] length, int[] material, int[] out) {
+        int n = consumption.length;
+        checkSize(n, tempIn.length, tempOut.length, length.length, material.length, out.length);
+        run(new Columns(consumption, tempIn, tempOut, length, null, null, material, out), n);
+    }
+
+    private static void checkSize(int size, int... lengths) {
+        for (int length : lengths) {
+            if (length != size) {
+                throw new IllegalArgumentException("Column length " + length + " != " + size);
+            }
+        }
+    }
+
+    private void run(Columns columns, int n) {
+        if (pool != null && n > parallelThreshold) {
+            pool.invoke(new RangeTask((from, to) -> size(columns, from, to), parallelThreshold, 0, n));
+        } else {
+            size(columns, 0, n);
+        }
+    }
+
+    private void size(Columns c, int from, int to) {
+        PipelineResult result = new PipelineResult();
+        for (int i = from; i < to; i++) {
+            c.out[i] = c.material == null
+                    ? size(c.consumption[i], c.tempIn[i], c.tempOut[i], c.length[i], c.roughness[i], c.sumLocalResist[i], result)
+                    : sizeSNiP(c.consumption[i], c.tempIn[i], c.tempOut[i], c.length[i], c.material[i], result);
+        }
+    }
+
+    private int size(double consumption, double tempIn, double tempOut, double length, double roughness, double sumLocalResist, PipelineResult r) {
+        double g = Math.abs(consumption);
+        if (g == 0) {
+            return 0;
+        }
+        // Начальное приближение к-та трения не переносится с другого участка
+        r.frictionCoefficient = 0;
+        int lo = 0;
+        int hi = diameters.length - 1;
+        formulas(g, tempIn, tempOut, diameters[hi], length, roughness, sumLocalResist, r);
+        if (!fits(r, Hydraulics.pa(r.getFrictionLoss()))) {
+            return NONE;
+        }
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            formulas(g, tempIn, tempOut, diameters[mid], length, roughness, sumLocalResist, r);
+            if (fits(r, Hydraulics.pa(r.getFrictionLoss()))) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    private int sizeSNiP(double consumption, double tempIn, double tempOut, double length, int material, PipelineResult r) {
+        double g = Math.abs(consumption);
+        if (g == 0) {
+            return 0;
+        }
+        int lo = 0;
+        int hi = diameters.length - 1;
+        snip(g, tempIn, tempOut, diameters[hi], length, material, r);
+        if (!fits(r, Hydraulics.pa(Hydraulics.snipLoss(r.getHydraulicResistance(), 1)))) {
+            return NONE;
+        }
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            snip(g, tempIn, tempOut, diameters[mid], length, material, r);
+            if (fits(r, Hydraulics.pa(Hydraulics.snipLoss(r.getHydraulicResistance(), 1)))) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    private void formulas(double consumption, double tempIn, double tempOut, double diameter, double length, double roughness, double sumLocalResist, PipelineResult r) {
+        if (cache != null) {
+            cache.calcFormulas(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist, r);
+        } else {
+            calculator.calcFormulas(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist, r);
+        }
+    }
+
+    private void snip(double consumption, double tempIn, double tempOut, double diameter, double length, int material, PipelineResult r) {
+        if (cache != null) {
+            cache.calcSNiP(consumption, tempIn, tempOut, diameter, length, material, r);
+        } else {
+            calculator.calcSNiP(consumption, tempIn, tempOut, diameter, length, material, r);
+        }
+    }
+
+    private boolean fits(PipelineResult r, double specificLoss) {
+        return r.getSpeed() <= maxSpeed && specificLoss <= maxSpecificLoss && r.getPressureLossPa() <= maxPressureLoss;
+    }
+
+    /**
+     * Столбцы пакетного подбора
+     */
+    private static final class Columns {
+        final double[] consumption;
+        final double[] tempIn;
+        final double[] tempOut;
+        final double[] length;
+        final double[] roughness;
+        final double[] sumLocalResist;
+        final int[] material;
+        final int[] out;
+
+        Columns(double[] consumption, double[] tempIn, double[] tempOut, double[] length, double[] roughness, double[] sumLocalResist, int[] material, int[] out) {
+            this.consumption = consumption;
+            this.tempIn = tempIn;
+            this.tempOut = tempOut;
+            this.length = length;
+            this.roughness = roughness;
+            this.sumLocalResist = sumLocalResist;
+            this.material = material;
+            this.out = out;
+        }
+    }
+}
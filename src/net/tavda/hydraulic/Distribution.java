@@ -0,0 +1,155 @@
+package net.tavda.hydraulic;
+
+import java.util.SplittableRandom;
+
+/**
+ * Распределение неопределённой исходной величины для {@link UncertaintyAnalysis}. Объект неизменяем.
+ * Нормальное распределение не ограничено снизу: для величин, которые не могут быть отрицательными,
+ * при большом разбросе лучше подходит логнормальное или треугольное
+ */
+public abstract class Distribution {
+    Distribution() {
+    }
+
+    /**
+     * @param value Значение
+     * @return Величина без разброса
+     */
+    public static Distribution fixed(double value) {
+        return new Distribution() {
+            @Override
+            double sample(SplittableRandom random) {
+                return value;
+            }
+
+            @Override
+            public double getMean() {
+                return value;
+            }
+        };
+    }
+
+    /**
+     * @param min Наименьшее значение
+     * @param max Наибольшее значение
+     * @return Равномерное распределение на [min, max)
+     */
+    public static Distribution uniform(double min, double max) {
+        if (!(max >= min)) {
+            throw new IllegalArgumentException("Max " + max + " < min " + min);
+        }
+        return new Distribution() {
+            @Override
+            double sample(SplittableRandom random) {
+                return min + (max - min) * random.nextDouble();
+            }
+
+            @Override
+            public double getMean() {
+                return (min + max) / 2;
+            }
+        };
+    }
+
+    /**
+     * @param mean Среднее значение
+     * @param deviation Среднеквадратичное отклонение
+     * @return Нормальное распределение
+     */
+    public static Distribution normal(double mean, double deviation) {
+        if (!(deviation >= 0)) {
+            throw new IllegalArgumentException("Deviation " + deviation + " < 0");
+        }
+        return new Distribution() {
+            @Override
+            double sample(SplittableRandom random) {
+                return mean + deviation * gaussian(random);
+            }
+
+            @Override
+            public double getMean() {
+                return mean;
+            }
+        };
+    }
+
+    /**
+     * @param median Медиана, больше нуля
+     * @param sigma Среднеквадратичное отклонение логарифма величины
+     * @return Логнормальное распределение
+     */
+    public static Distribution logNormal(double median, double sigma) {
+        if (!(median > 0)) {
+            throw new IllegalArgumentException("Median " + median + " <= 0");
+        }
+        if (!(sigma >= 0)) {
+            throw new IllegalArgumentException("Sigma " + sigma + " < 0");
+        }
+        double mu = Math.log(median);
+        return new Distribution() {
+            @Override
+            double sample(SplittableRandom random) {
+                return Math.exp(mu + sigma * gaussian(random));
+            }
+
+            @Override
+            public double getMean() {
+                return median * Math.exp(sigma * sigma / 2);
+            }
+        };
+    }
+
+    /**
+     * @param min Наименьшее значение
+     * @param mode Наиболее вероятное значение
+     * @param max Наибольшее значение
+     * @return Треугольное распределение
+     */
+    public static Distribution triangular(double min, double mode, double max) {
+        if (!(min <= mode && mode <= max)) {
+            throw new IllegalArgumentException("Mode " + mode + " outside [" + min + ", " + max + "]");
+        }
+        double split = max > min ? (mode - min) / (max - min) : 0;
+        return new Distribution() {
+            @Override
+            double sample(SplittableRandom random) {
+                double u = random.nextDouble();
+                return u < split
+                        ? min + Math.sqrt(u * (max - min) * (mode - min))
+                        : max - Math.sqrt((1 - u) * (max - min) * (max - mode));
+            }
+
+            @Override
+            public double getMean() {
+                return (min + mode + max) / 3;
+            }
+        };
+    }
+
+    /**
+     * Стандартная нормальная величина полярным методом Марсальи, вторая величина пары не используется,
+     * чтобы выборка зависела только от состояния генератора
+     */
+    static double gaussian(SplittableRandom random) {
+        double u;
+        double v;
+        double s;
+        do {
+            u = 2 * random.nextDouble() - 1;
+            v = 2 * random.nextDouble() - 1;
+            s = u * u + v * v;
+        } while (s >= 1 || s == 0);
+        return u * Math.sqrt(-2 * Math.log(s) / s);
+    }
+
+    /**
+     * @param random Генератор случайных чисел
+     * @return Случайное значение
+     */
+    abstract double sample(SplittableRandom random);
+
+    /**
+     * @return Математическое ожидание
+     */
+    public abstract double getMean();
+}
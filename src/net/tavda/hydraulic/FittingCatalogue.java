@@ -0,0 +1,255 @@
+package net.tavda.hydraulic;
+
+import java.util.Arrays;
+
+/**
+ * Каталог местных сопротивлений. Каждое различное местное сопротивление (вид и параметры)
+ * хранится один раз под своим номером, его коэффициент рассчитывается {@link LocalResistCoefficient}
+ * при первом добавлении. Повторное добавление того же сопротивления возвращает прежний номер без расчёта.
+ * <p>
+ * Данные хранятся столбцами в открытой хеш-таблице, добавление не создаёт объектов.
+ * Добавление не потокобезопасно, чтение коэффициентов после заполнения каталога - потокобезопасно.
+ */
+public class FittingCatalogue {
+    private static final int COEFFICIENT = 0;
+    private static final int EXPAND = 1;
+    private static final int DIAPHRAGM = 2;
+    private static final int DIAPHRAGM_DIFF = 3;
+    private static final int WELDED = 4;
+    private static final int TURN = 5;
+    private static final int TURN_SMOOTH = 6;
+    private static final int GRADUAL = 7;
+    private static final int VALVE = 8;
+    private static final int PARAMS = 4;
+
+    private final LocalResistCoefficient local;
+    private int size;
+    private int[] kind = new int[16];
+    private double[] params = new double[16 * PARAMS];
+    private double[] coefficient = new double[16];
+    private int[] table = new int[32];
+
+    public FittingCatalogue() {
+        this(Precision.STRICT);
+    }
+
+    /**
+     * @param precision Режим вычисления степеней при расчёте коэффициентов
+     */
+    public FittingCatalogue(Precision precision) {
+        this(new LocalResistCoefficient(precision));
+    }
+
+    /**
+     * @param local Расчёт коэффициентов, например по таблицам {@link LocalResistCoefficient#LocalResistCoefficient(Precision, boolean)}
+     */
+    public FittingCatalogue(LocalResistCoefficient local) {
+        this.local = local;
+    }
+
+    /**
+     * @return Количество различных местных сопротивлений
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param fitting Номер местного сопротивления
+     * @return Коэффициент местного сопротивления
+     */
+    public double getCoefficient(int fitting) {
+        if (fitting < 0 || fitting >= size) {
+            throw new IndexOutOfBoundsException("Fitting " + fitting + " outside [0, " + size + ")");
+        }
+        return coefficient[fitting];
+    }
+
+    /**
+     * Коэффициенты всех местных сопротивлений по номерам. Массив может быть больше {@link #size()}
+     * и заменяется при росте каталога.
+     * @return Коэффициенты местных сопротивлений
+     */
+    double[] coefficients() {
+        return coefficient;
+    }
+
+    /**
+     * Местное сопротивление с известным коэффициентом, например из справочника
+     * @param zeta Коэффициент местного сопротивления
+     * @return Номер местного сопротивления
+     */
+    public int coefficient(double zeta) {
+        return add(COEFFICIENT, zeta, 0, 0, 0);
+    }
+
+    /**
+     * Внезапное расширение или сужение, см. {@link LocalResistCoefficient#calcExpand(double, double)}
+     * @param d1 диаметр до расширения/сужения
+     * @param d2 диаметр после расширения/сужения
+     * @return Номер местного сопротивления
+     */
+    public int expand(double d1, double d2) {
+        return add(EXPAND, d1, d2, 0, 0);
+    }
+
+    /**
+     * Диафрагма на трубе постоянного сечения, см. {@link LocalResistCoefficient#calcDiaphragm(double, double)}
+     * @param dt диаметр трубы
+     * @param dd диаметр диафрагмы
+     * @return Номер местного сопротивления
+     */
+    public int diaphragm(double dt, double dd) {
+        return add(DIAPHRAGM, dt, dd, 0, 0);
+    }
+
+    /**
+     * Диафрагма на входе в трубу другого диаметра, см. {@link LocalResistCoefficient#calcDiaphragmDiff(double, double, double)}
+     * @param d1 диаметр трубы на входе
+     * @param d2 диаметр трубы на выходе
+     * @param dd диаметр диафрагмы
+     * @return Номер местного сопротивления
+     */
+    public int diaphragmDiff(double d1, double d2, double dd) {
+        return add(DIAPHRAGM_DIFF, d1, d2, dd, 0);
+    }
+
+    /**
+     * Сварной стык, см. {@link LocalResistCoefficient#calcWelded(double, double)}
+     * @param dt диаметр трубы
+     * @param delta высота сварного стыка
+     * @return Номер местного сопротивления
+     */
+    public int welded(double dt, double delta) {
+        return add(WELDED, dt, delta, 0, 0);
+    }
+
+    /**
+     * Поворот трубы (резкий), см. {@link LocalResistCoefficient#calcTurn(double)}
+     * @param alpha угол между осями труб
+     * @return Номер местного сопротивления
+     */
+    public int turn(double alpha) {
+        return add(TURN, alpha, 0, 0, 0);
+    }
+
+    /**
+     * Поворот трубы (плавный), см. {@link LocalResistCoefficient#calcTurnSmooth(double, double, double, double)}
+     * @param alpha угол между осями труб
+     * @param dt диаметр трубы
+     * @param r радиус поворота трубы
+     * @param lambda к-т гидравлического трения
+     * @return Номер местного сопротивления
+     */
+    public int turnSmooth(double alpha, double dt, double r, double lambda) {
+        return add(TURN_SMOOTH, alpha, dt, r, lambda);
+    }
+
+    /**
+     * Постепенное расширение или сужение, см. {@link LocalResistCoefficient#calcGradual(double, double, double)}
+     * @param alpha угол конуса сужения
+     * @param d1 диаметр на входе
+     * @param d2 диаметр на выходе
+     * @return Номер местного сопротивления
+     */
+    public int gradual(double alpha, double d1, double d2) {
+        return add(GRADUAL, alpha, d1, d2, 0);
+    }
+
+    /**
+     * Задвижка, см. {@link LocalResistCoefficient#calcValve(double, double)}.
+     * Задвижка, открытая на 40%, имеет высоту щели 0.4*dt.
+     * @param dt диаметр трубы
+     * @param a высота щели задвижки
+     * @return Номер местного сопротивления
+     */
+    public int valve(double dt, double a) {
+        return add(VALVE, dt, a, 0, 0);
+    }
+
+    private int add(int k, double p0, double p1, double p2, double p3) {
+        int mask = table.length - 1;
+        for (int slot = hash(k, p0, p1, p2, p3) & mask; ; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < 0) {
+                id = insert(k, p0, p1, p2, p3);
+                table[slot] = id + 1;
+                if (2 * size > table.length) {
+                    rehash();
+                }
+                return id;
+            }
+            int base = id * PARAMS;
+            if (kind[id] == k && same(params[base], p0) && same(params[base + 1], p1)
+                    && same(params[base + 2], p2) && same(params[base + 3], p3)) {
+                return id;
+            }
+        }
+    }
+
+    private static int hash(int k, double p0, double p1, double p2, double p3) {
+        long h = k;
+        h = h * 31 + Double.doubleToLongBits(p0);
+        h = h * 31 + Double.doubleToLongBits(p1);
+        h = h * 31 + Double.doubleToLongBits(p2);
+        h = h * 31 + Double.doubleToLongBits(p3);
+        return (int) ((h * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    private static boolean same(double a, double b) {
+        return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+    }
+
+    private int insert(int k, double p0, double p1, double p2, double p3) {
+        if (size == kind.length) {
+            kind = Arrays.copyOf(kind, 2 * size);
+            params = Arrays.copyOf(params, 2 * size * PARAMS);
+            coefficient = Arrays.copyOf(coefficient, 2 * size);
+        }
+        int id = size++;
+        kind[id] = k;
+        params[id * PARAMS] = p0;
+        params[id * PARAMS + 1] = p1;
+        params[id * PARAMS + 2] = p2;
+        params[id * PARAMS + 3] = p3;
+        coefficient[id] = calc(k, p0, p1, p2, p3);
+        return id;
+    }
+
+    private double calc(int k, double p0, double p1, double p2, double p3) {
+        switch (k) {
+            case COEFFICIENT:
+                return p0;
+            case EXPAND:
+                return local.calcExpand(p0, p1);
+            case DIAPHRAGM:
+                return local.calcDiaphragm(p0, p1);
+            case DIAPHRAGM_DIFF:
+                return local.calcDiaphragmDiff(p0, p1, p2);
+            case WELDED:
+                return local.calcWelded(p0, p1);
+            case TURN:
+                return local.calcTurn(p0);
+            case TURN_SMOOTH:
+                return local.calcTurnSmooth(p0, p1, p2, p3);
+            case GRADUAL:
+                return local.calcGradual(p0, p1, p2);
+            default:
+                return local.calcValve(p0, p1);
+        }
+    }
+
+    private void rehash() {
+        int[] t = new int[2 * table.length];
+        int mask = t.length - 1;
+        for (int id = 0; id < size; id++) {
+            int base = id * PARAMS;
+            int slot = hash(kind[id], params[base], params[base + 1], params[base + 2], params[base + 3]) & mask;
+            while (t[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            t[slot] = id + 1;
+        }
+        table = t;
+    }
+}
@@ -0,0 +1,232 @@
+package net.tavda.hydraulic;
+
+import java.util.Arrays;
+
+/**
+ * Перечни местных сопротивлений участков трубопровода и суммы их коэффициентов.
+ * Местные сопротивления добавляются в текущий участок с количеством одинаковых сопротивлений,
+ * {@link #endSegment()} завершает участок. Коэффициенты берутся из общего {@link FittingCatalogue},
+ * поэтому одинаковые сопротивления рассчитываются один раз на весь перечень.
+ * <p>
+ * Перечни всех участков хранятся в общих массивах, сумма по участкам считается за один проход
+ * и может записываться прямо в столбец сумм к-тов местных сопротивлений {@link HorizontalPipelineBatch}.
+ * <pre>
+ * FittingList fittings = new FittingList(new FittingCatalogue());
+ * double sumLocalResist = fittings.welded(12, 100, 2).turnSmooth(3, 90, 100, 150, 0.02).valve(1, 100, 40).sum();
+ * </pre>
+ */
+public class FittingList {
+    private final FittingCatalogue catalogue;
+    private int[] fitting = new int[64];
+    private int[] count = new int[64];
+    private int size;
+    private int[] segmentEnd = new int[16];
+    private int segmentCount;
+
+    /**
+     * @param catalogue Каталог местных сопротивлений, может использоваться несколькими перечнями
+     */
+    public FittingList(FittingCatalogue catalogue) {
+        this.catalogue = catalogue;
+    }
+
+    /**
+     * @return Каталог местных сопротивлений
+     */
+    public FittingCatalogue getCatalogue() {
+        return catalogue;
+    }
+
+    /**
+     * Добавить в текущий участок местные сопротивления из каталога
+     * @param count Количество
+     * @param fitting Номер местного сопротивления в каталоге
+     * @return Этот перечень
+     */
+    public FittingList add(int count, int fitting) {
+        if (fitting < 0 || fitting >= catalogue.size()) {
+            throw new IndexOutOfBoundsException("Fitting " + fitting + " outside [0, " + catalogue.size() + ")");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Fitting count " + count + " < 0");
+        }
+        if (size == this.fitting.length) {
+            this.fitting = Arrays.copyOf(this.fitting, 2 * size);
+            this.count = Arrays.copyOf(this.count, 2 * size);
+        }
+        this.fitting[size] = fitting;
+        this.count[size] = count;
+        size++;
+        return this;
+    }
+
+    /**
+     * Местные сопротивления с известным коэффициентом, см. {@link FittingCatalogue#coefficient(double)}
+     * @param count Количество
+     * @param zeta Коэффициент местного сопротивления
+     * @return Этот перечень
+     */
+    public FittingList coefficient(int count, double zeta) {
+        return add(count, catalogue.coefficient(zeta));
+    }
+
+    /**
+     * Внезапные расширения или сужения, см. {@link FittingCatalogue#expand(double, double)}
+     * @param count Количество
+     * @param d1 диаметр до расширения/сужения
+     * @param d2 диаметр после расширения/сужения
+     * @return Этот перечень
+     */
+    public FittingList expand(int count, double d1, double d2) {
+        return add(count, catalogue.expand(d1, d2));
+    }
+
+    /**
+     * Диафрагмы на трубе постоянного сечения, см. {@link FittingCatalogue#diaphragm(double, double)}
+     * @param count Количество
+     * @param dt диаметр трубы
+     * @param dd диаметр диафрагмы
+     * @return Этот перечень
+     */
+    public FittingList diaphragm(int count, double dt, double dd) {
+        return add(count, catalogue.diaphragm(dt, dd));
+    }
+
+    /**
+     * Диафрагмы на входе в трубу другого диаметра, см. {@link FittingCatalogue#diaphragmDiff(double, double, double)}
+     * @param count Количество
+     * @param d1 диаметр трубы на входе
+     * @param d2 диаметр трубы на выходе
+     * @param dd диаметр диафрагмы
+     * @return Этот перечень
+     */
+    public FittingList diaphragmDiff(int count, double d1, double d2, double dd) {
+        return add(count, catalogue.diaphragmDiff(d1, d2, dd));
+    }
+
+    /**
+     * Сварные стыки, см. {@link FittingCatalogue#welded(double, double)}
+     * @param count Количество
+     * @param dt диаметр трубы
+     * @param delta высота сварного стыка
+     * @return Этот перечень
+     */
+    public FittingList welded(int count, double dt, double delta) {
+        return add(count, catalogue.welded(dt, delta));
+    }
+
+    /**
+     * Резкие повороты, см. {@link FittingCatalogue#turn(double)}
+     * @param count Количество
+     * @param alpha угол между осями труб
+     * @return Этот перечень
+     */
+    public FittingList turn(int count, double alpha) {
+        return add(count, catalogue.turn(alpha));
+    }
+
+    /**
+     * Плавные повороты, см. {@link FittingCatalogue#turnSmooth(double, double, double, double)}
+     * @param count Количество
+     * @param alpha угол между осями труб
+     * @param dt диаметр трубы
+     * @param r радиус поворота трубы
+     * @param lambda к-т гидравлического трения
+     * @return Этот перечень
+     */
+    public FittingList turnSmooth(int count, double alpha, double dt, double r, double lambda) {
+        return add(count, catalogue.turnSmooth(alpha, dt, r, lambda));
+    }
+
+    /**
+     * Постепенные расширения или сужения, см. {@link FittingCatalogue#gradual(double, double, double)}
+     * @param count Количество
+     * @param alpha угол конуса сужения
+     * @param d1 диаметр на входе
+     * @param d2 диаметр на выходе
+     * @return Этот перечень
+     */
+    public FittingList gradual(int count, double alpha, double d1, double d2) {
+        return add(count, catalogue.gradual(alpha, d1, d2));
+    }
+
+    /**
+     * Задвижки, см. {@link FittingCatalogue#valve(double, double)}
+     * @param count Количество
+     * @param dt диаметр трубы
+     * @param a высота щели задвижки
+     * @return Этот перечень
+     */
+    public FittingList valve(int count, double dt, double a) {
+        return add(count, catalogue.valve(dt, a));
+    }
+
+    /**
+     * @return Сумма к-тов местных сопротивлений текущего (не завершённого) участка
+     */
+    public double sum() {
+        return sum(catalogue.coefficients(), segmentCount == 0 ? 0 : segmentEnd[segmentCount - 1], size);
+    }
+
+    /**
+     * Завершить текущий участок, следующие местные сопротивления относятся к новому участку
+     * @return Номер завершённого участка
+     */
+    public int endSegment() {
+        if (segmentCount == segmentEnd.length) {
+            segmentEnd = Arrays.copyOf(segmentEnd, 2 * segmentCount);
+        }
+        segmentEnd[segmentCount] = size;
+        return segmentCount++;
+    }
+
+    /**
+     * @return Количество завершённых участков
+     */
+    public int segmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * @return Суммы к-тов местных сопротивлений завершённых участков
+     */
+    public double[] sums() {
+        double[] out = new double[segmentCount];
+        sums(out);
+        return out;
+    }
+
+    /**
+     * Рассчитать суммы к-тов местных сопротивлений завершённых участков
+     * @param out Суммы по номерам участков, размером не меньше количества участков
+     */
+    public void sums(double[] out) {
+        if (out.length < segmentCount) {
+            throw new IllegalArgumentException("Output length " + out.length + " < " + segmentCount);
+        }
+        final double[] zeta = catalogue.coefficients();
+        int from = 0;
+        for (int s = 0; s < segmentCount; s++) {
+            int to = segmentEnd[s];
+            out[s] = sum(zeta, from, to);
+            from = to;
+        }
+    }
+
+    private double sum(double[] zeta, int from, int to) {
+        final int[] f = fitting, n = count;
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += n[i] * zeta[f[i]];
+        }
+        return sum;
+    }
+
+    /**
+     * Удалить все участки, каталог сохраняется
+     */
+    public void clear() {
+        size = 0;
+        segmentCount = 0;
+    }
+}
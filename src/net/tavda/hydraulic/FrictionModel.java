@@ -0,0 +1,161 @@
+package net.tavda.hydraulic;
+
+import static java.lang.Math.log;
+import static java.lang.Math.log10;
+import static java.lang.Math.pow;
+import static java.lang.Math.sqrt;
+
+/**
+ * Формула к-та гидравлического трения в турбулентном режиме (Re &gt; 4000).
+ * Ламинарный режим и переходная зона считаются одинаково для всех формул.
+ */
+public enum FrictionModel {
+    /**
+     * Формула Альтшуля λ = 0.11·(68/Re + k/d)^0.25
+     */
+    ALTSHUL {
+        @Override
+        double lambda(double reynoldsNumber, double relativeRoughness, double start, boolean fast) {
+            double x = 68 / reynoldsNumber + relativeRoughness;
+            return 0.11 * (fast ? sqrt(sqrt(x)) : pow(x, 0.25));
+        }
+
+        @Override
+        public double slope(double reynoldsNumber, double relativeRoughness, double lambda) {
+            double a = 68 / reynoldsNumber;
+            return -0.25 * a / (a + relativeRoughness);
+        }
+
+        @Override
+        public double roughnessSlope(double reynoldsNumber, double relativeRoughness, double lambda) {
+            return 0.25 / (68 / reynoldsNumber + relativeRoughness);
+        }
+    },
+    /**
+     * Уравнение Коулбрука-Уайта 1/√λ = -2·lg(k/(3.7·d) + 2.51/(Re·√λ)), решается методом Ньютона относительно 1/√λ.
+     * Начальное приближение - λ предыдущего расчёта участка, если оно правдоподобно, иначе формула Хааланда.
+     * Итерации продолжаются до относительного изменения 1/√λ не более 10^-9: сходимость квадратичная,
+     * поэтому следующая поправка была бы меньше точности double. Обычно 2-3 итерации; тёплый старт
+     * избавляет от вычисления формулы Хааланда, а при изменении λ менее 0.1% - и от одной итерации
+     */
+    COLEBROOK_WHITE {
+        @Override
+        double lambda(double reynoldsNumber, double relativeRoughness, double start, boolean fast) {
+            double a = relativeRoughness / 3.7;
+            double b = 2.51 / reynoldsNumber;
+            double x = start > MIN_START && start < MAX_START ? 1 / sqrt(start) : haaland(reynoldsNumber, relativeRoughness);
+            for (int i = 0; i < MAX_ITERATIONS; i++) {
+                double y = a + b * x;
+                double c = TWO_BY_LN10 * b / y;
+                double dx = (x + 2 * log10(y)) / (1 + c);
+                x -= dx;
+                if (Math.abs(dx) <= 1e-9 * x) {
+                    break;
+                }
+            }
+            return 1 / (x * x);
+        }
+
+        @Override
+        public double slope(double reynoldsNumber, double relativeRoughness, double lambda) {
+            double b = 2.51 / reynoldsNumber;
+            double c = TWO_BY_LN10 * b / (relativeRoughness / 3.7 + b / sqrt(lambda));
+            return -2 * c / (1 + c);
+        }
+
+        @Override
+        public double roughnessSlope(double reynoldsNumber, double relativeRoughness, double lambda) {
+            double b = 2.51 / reynoldsNumber;
+            double x = 1 / sqrt(lambda);
+            double y = relativeRoughness / 3.7 + b * x;
+            double c = TWO_BY_LN10 * b / y;
+            return 2 * TWO_BY_LN10 / (3.7 * y * (1 + c) * x);
+        }
+    },
+    /**
+     * Явная формула Свами-Джейна λ = 0.25/lg²(k/(3.7·d) + 5.74/Re^0.9)
+     */
+    SWAMEE_JAIN {
+        @Override
+        double lambda(double reynoldsNumber, double relativeRoughness, double start, boolean fast) {
+            double l = log10(relativeRoughness / 3.7 + 5.74 / pow(reynoldsNumber, 0.9));
+            return 0.25 / (l * l);
+        }
+
+        @Override
+        public double slope(double reynoldsNumber, double relativeRoughness, double lambda) {
+            double a = relativeRoughness / 3.7;
+            double c = 5.74 / pow(reynoldsNumber, 0.9);
+            return 1.8 * c / ((a + c) * log(a + c));
+        }
+
+        @Override
+        public double roughnessSlope(double reynoldsNumber, double relativeRoughness, double lambda) {
+            double y = relativeRoughness / 3.7 + 5.74 / pow(reynoldsNumber, 0.9);
+            return -2 / (3.7 * y * log(y));
+        }
+    },
+    /**
+     * Явная формула Хааланда 1/√λ = -1.8·lg((k/(3.7·d))^1.11 + 6.9/Re)
+     */
+    HAALAND {
+        @Override
+        double lambda(double reynoldsNumber, double relativeRoughness, double start, boolean fast) {
+            double x = haaland(reynoldsNumber, relativeRoughness);
+            return 1 / (x * x);
+        }
+
+        @Override
+        public double slope(double reynoldsNumber, double relativeRoughness, double lambda) {
+            double a = pow(relativeRoughness / 3.7, 1.11);
+            double c = 6.9 / reynoldsNumber;
+            return -2 * 1.8 / LN10 * c / (a + c) * sqrt(lambda);
+        }
+
+        @Override
+        public double roughnessSlope(double reynoldsNumber, double relativeRoughness, double lambda) {
+            double a = pow(relativeRoughness / 3.7, 1.11);
+            // da/d(k/d) = 1.11/3.7·(k/d/3.7)^0.11, конечна и при нулевой шероховатости
+            double da = 1.11 / 3.7 * pow(relativeRoughness / 3.7, 0.11);
+            return 2 * 1.8 / LN10 * sqrt(lambda) * da / (a + 6.9 / reynoldsNumber);
+        }
+    };
+
+    private static final double LN10 = log(10);
+    private static final double TWO_BY_LN10 = 2 / LN10;
+    private static final double MIN_START = 0.005;
+    private static final double MAX_START = 0.2;
+    private static final int MAX_ITERATIONS = 20;
+
+    private static double haaland(double reynoldsNumber, double relativeRoughness) {
+        return -1.8 * log10(pow(relativeRoughness / 3.7, 1.11) + 6.9 / reynoldsNumber);
+    }
+
+    /**
+     * К-т гидравлического трения в турбулентном режиме
+     * @param reynoldsNumber Число Рейнольдса
+     * @param relativeRoughness Относительная шероховатость k/d
+     * @param start Начальное приближение для неявных формул (λ предыдущего расчёта участка или 0)
+     * @param fast Упрощённое вычисление степеней, см. {@link Precision#FAST}
+     */
+    abstract double lambda(double reynoldsNumber, double relativeRoughness, double start, boolean fast);
+
+    /**
+     * Логарифмическая производная d(ln λ)/d(ln Re) в турбулентном режиме, нужна для линеаризации ΔP(G)
+     * @param reynoldsNumber Число Рейнольдса
+     * @param relativeRoughness Относительная шероховатость k/d
+     * @param lambda К-т гидравлического трения при этом числе Рейнольдса
+     * @return Производная
+     */
+    public abstract double slope(double reynoldsNumber, double relativeRoughness, double lambda);
+
+    /**
+     * Производная d(ln λ)/d(k/d) в турбулентном режиме, нужна для чувствительности потерь к шероховатости.
+     * Производная по самой относительной шероховатости, а не по её логарифму, конечна и при k = 0
+     * @param reynoldsNumber Число Рейнольдса
+     * @param relativeRoughness Относительная шероховатость k/d
+     * @param lambda К-т гидравлического трения при этих числе Рейнольдса и шероховатости
+     * @return Производная
+     */
+    public abstract double roughnessSlope(double reynoldsNumber, double relativeRoughness, double lambda);
+}
@@ -0,0 +1,125 @@
+package net.tavda.hydraulic;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма неотрицательных целых значений (времени в нс, количества итераций) с логарифмически-линейными
+ * интервалами: значения до 64 хранятся точно, далее каждая октава делится на 32 интервала,
+ * то есть относительная погрешность не больше 1/32.
+ * Запись не выделяет память и допускает параллельные вызовы.
+ */
+public final class Histogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    static int bucket(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        return shift * SUB + (int) (value >>> shift);
+    }
+
+    /**
+     * @return Наибольшее значение интервала
+     */
+    static long highest(int bucket) {
+        if (bucket < 2 * SUB) {
+            return bucket;
+        }
+        int shift = bucket / SUB - 1;
+        long mantissa = bucket - shift * SUB;
+        return (mantissa << shift) + (1L << shift) - 1;
+    }
+
+    /**
+     * Записать значение, отрицательные считаются нулём
+     * @param value Значение
+     */
+    public void record(long value) {
+        counts.incrementAndGet(bucket(Math.max(0, value)));
+    }
+
+    /**
+     * @return Количество записанных значений
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return Среднее значение с точностью интервалов, 0 - если значений нет
+     */
+    public double getMean() {
+        long count = 0;
+        double sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            if (c != 0) {
+                count += c;
+                sum += c * (double) highest(i);
+            }
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * @param quantile Квантиль, от 0 до 1
+     * @return Наибольшее значение интервала, в который попадает квантиль, 0 - если значений нет
+     */
+    public long getValueAt(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Quantile " + quantile + " outside [0, 1]");
+        }
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        int last = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            if (c != 0) {
+                seen += c;
+                last = i;
+                if (seen >= rank) {
+                    return highest(i);
+                }
+            }
+        }
+        // Значения записаны во время обхода
+        return highest(last);
+    }
+
+    /**
+     * @return Наибольшее записанное значение с точностью интервала, 0 - если значений нет
+     */
+    public long getMax() {
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+            if (counts.get(i) != 0) {
+                return highest(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Удалить записанные значения
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + " mean=" + Math.round(getMean()) + " p50=" + getValueAt(0.5)
+                + " p99=" + getValueAt(0.99) + " max=" + getMax();
+    }
+}
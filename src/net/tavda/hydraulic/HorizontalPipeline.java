@@ -1,12 +1,20 @@
 package net.tavda.hydraulic;
 
-import static java.lang.Math.PI;
-import static java.lang.Math.pow;
-
 /**
- * Гидравлический расчёт горизонтального участка трубопровода
+ * Гидравлический расчёт горизонтального участка трубопровода.
+ * Хранит исходные данные и результаты последнего расчёта, расчёт выполняет {@link PipelineCalculator}
  */
 public class HorizontalPipeline {
+    /**
+     * Изменённые исходные данные, от которых зависят этапы пересчёта
+     */
+    private static final int PROPERTIES = 1;
+    private static final int FLOW = 2;
+    private static final int FRICTION = 4;
+    private static final int LOSS = 8;
+    private static final int SNIP = 16;
+    private static final int ALL = PROPERTIES | FLOW | FRICTION | LOSS | SNIP;
+
     private double consumption;
     private double tempIn;
     private double tempOut;
@@ -15,40 +23,11 @@ public class HorizontalPipeline {
     private double roughness;
     private double sumLocalResist;
     private int material = -1;
-    /**
-     * Свойства материала
-     */
-    private final double[][] material_props = {
-            {0.226, 1.000, 15.900, 0.810, 0.684},
-            {0.284, 1.000, 14.400, 0.734, 2.360},
-            {0.300, 1.000, 17.900, 0.912, 0.867},
-            {0.300, 1.000, 21.000, 1.070, 0.000},
-            {0.190, 1.000, 11.000, 0.561, 3.510},
-            {0.190, 1.000, 15.740, 0.802, 3.510},
-            {0.190, 1.000, 13.850, 0.706, 3.510},
-            {0.190, 1.000, 11.000, 0.561, 3.510},
-            {0.190, 1.000, 15.740, 0.802, 3.510},
-            {0.190, 1.000, 13.850, 0.706, 3.510},
-            {0.226, 0.000, 13.440, 0.685, 1.000},
-            {0.226, 0.000, 14.610, 0.754, 1.000},
-    };
-
-    private double averageTemp;
-    private double viscosity;
-    private double averageDensity;
-    private double consumptionLitersPerMinute;
-    private double speed;
-    private double reynoldsNumber;
-    private double frictionCoefficient;
-    private double frictionLoss;
-    private double pressureFrictionLossKgPerSm2;
-    private double pressureFrictionLossPa;
-    private double pressureLocalResistLossKgPerSm2;
-    private double pressureLocalResistLossPa;
-    private double pressureLossKgPerSm2;
-    private double pressureLossPa;
-    private double pipelineResistance;
-    private double hydraulicResistance;
+    private PipelineCalculator calculator = PipelineCalculator.getInstance(Precision.STRICT);
+
+    private final PipelineResult result = new PipelineResult();
+    private int dirty = ALL;
+    private boolean snip;
 
     /**
      * Проведение расчёта по формулам теоретической гидравлики
@@ -90,7 +69,9 @@ public class HorizontalPipeline {
      *       8 - Стальные и чугунные с внутр. цементно-песчаным покр., нанесенным методом набрызга с последующим заглаживанием<br>
      *       9 - Стальные и чугунные с внутр. цементно-песчаным покр., нанесенным методом  центрифугирования<br>
      *      10 - Пластмассовые<br>
-     *      11 - Стеклянные
+     *      11 - Стеклянные<br>
+     *      12 - Неновые стальные и неновые чугунные, строка 2 или 3 по скорости<br>
+     *      Далее - материалы, добавленные {@link PipeMaterials#register(PipeMaterial)}
      */
     public HorizontalPipeline(double consumption, double tempIn, double tempOut, double diameter, double length, int material) {
         this.consumption = consumption;
@@ -102,46 +83,55 @@ public class HorizontalPipeline {
         calcSNiP();
     }
 
-    private void calcGeneric() {
-        averageTemp=(tempIn+tempOut)/2;
-        viscosity = 0.0178 / (1.0 + (0.0337 * averageTemp) + (0.000221 * averageTemp * averageTemp));
-        averageDensity = (((-0.003 * averageTemp * averageTemp) - (0.1511 * averageTemp)) + 1003.1) / 1000;
-        consumptionLitersPerMinute = (consumption / averageDensity / 60) * 1000;
-        speed = (4 * consumption) / averageDensity / PI / pow(this.diameter / 1000, 2.0) / 3600;
-        reynoldsNumber = ((speed * diameter) / viscosity) * 10;
-    }
-
     /**
      * Провести расчёт по формулам теоретической гидравлики
      */
     public void calcFormulas() {
-        calcGeneric();
-        if (reynoldsNumber <= 2320) {
-            frictionCoefficient = 64 / reynoldsNumber;
-        } else if (reynoldsNumber <= 4000) {
-            frictionCoefficient = 0.0000147 * reynoldsNumber;
-        } else {
-            frictionCoefficient = 0.11 * pow(68 / reynoldsNumber + roughness / diameter, 0.25);
-        }
-        frictionLoss = frictionCoefficient * pow(speed, 2) * averageDensity / 2 / 9.81 / diameter * 100;
-        pressureFrictionLossKgPerSm2 = length * frictionLoss;
-        pressureFrictionLossPa = pressureFrictionLossKgPerSm2 * 9.81 * 10000;
-        pressureLocalResistLossKgPerSm2 = sumLocalResist * pow(speed, 2) * averageDensity * 1000 / 2 / 9.81 / 10000;
-        pressureLocalResistLossPa = pressureLocalResistLossKgPerSm2 * 9.81 * 10000;
-        pressureLossKgPerSm2 = pressureFrictionLossKgPerSm2 + pressureLocalResistLossKgPerSm2;
-        pressureLossPa = pressureLossKgPerSm2 * 9.81 * 10000;
-        pipelineResistance = pressureLossPa / pow(consumption, 2);
+        calculator.calcFormulas(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist, result);
+        dirty = 0;
+        snip = false;
     }
 
     /**
      * Провести расчёт по СНиП
      */
     public void calcSNiP() {
-        calcGeneric();
-        double[] material_prop = material_props[material];
-        hydraulicResistance = material_prop[3] / 1000 * pow(material_prop[1] + material_prop[4] / speed, material_prop[0]) / pow(this.diameter / 1000, material_prop[0] + 1) * pow(speed, 2);
-        pressureLossKgPerSm2 = hydraulicResistance * length / 10;
-        pressureLossPa = pressureLossKgPerSm2 * 9.81 * 10000;
+        calculator.calcSNiP(consumption, tempIn, tempOut, diameter, length, material, result);
+        dirty = 0;
+        snip = true;
+    }
+
+    /**
+     * Пересчитать только величины, зависящие от изменённых после последнего расчёта исходных данных,
+     * тем же способом (по формулам или по СНиП), что и последний расчёт.
+     * Например, после изменения длины пересчитываются только потери давления, после изменения шероховатости -
+     * к-т трения и потери. Результат совпадает с полным расчётом побитово
+     */
+    public void recalc() {
+        int changed = dirty;
+        if (changed == 0) {
+            return;
+        }
+        if ((changed & PROPERTIES) != 0) {
+            calculator.calcProperties(tempIn, tempOut, result);
+            changed |= FLOW;
+        }
+        if ((changed & FLOW) != 0) {
+            calculator.calcFlow(consumption, diameter, result);
+            changed |= FRICTION | SNIP;
+        }
+        if (snip) {
+            if ((changed & SNIP) != 0) {
+                calculator.calcHydraulicResistance(material, diameter, result);
+            }
+            calculator.calcSNiPLoss(length, result);
+        } else {
+            if ((changed & FRICTION) != 0) {
+                calculator.calcFriction(roughness, diameter, result);
+            }
+            calculator.calcLoss(consumption, length, sumLocalResist, result);
+        }
+        dirty = 0;
     }
 
     /**
@@ -150,6 +140,7 @@ public class HorizontalPipeline {
      */
     public void setConsumption(double consumption) {
         this.consumption = consumption;
+        dirty |= FLOW;
     }
 
     /**
@@ -158,6 +149,7 @@ public class HorizontalPipeline {
      */
     public void setTempIn(double tempIn) {
         this.tempIn = tempIn;
+        dirty |= PROPERTIES;
     }
 
     /**
@@ -166,6 +158,7 @@ public class HorizontalPipeline {
      */
     public void setTempOut(double tempOut) {
         this.tempOut = tempOut;
+        dirty |= PROPERTIES;
     }
 
     /**
@@ -174,6 +167,7 @@ public class HorizontalPipeline {
      */
     public void setDiameter(double diameter) {
         this.diameter = diameter;
+        dirty |= FLOW;
     }
 
     /**
@@ -182,6 +176,7 @@ public class HorizontalPipeline {
      */
     public void setLength(double length) {
         this.length = length;
+        dirty |= LOSS;
     }
 
     /**
@@ -190,6 +185,7 @@ public class HorizontalPipeline {
      */
     public void setRoughness(double roughness) {
         this.roughness = roughness;
+        dirty |= FRICTION;
     }
 
     /**
@@ -198,6 +194,7 @@ public class HorizontalPipeline {
      */
     public void setSumLocalResist(double sumLocalResist) {
         this.sumLocalResist = sumLocalResist;
+        dirty |= LOSS;
     }
 
     /**
@@ -205,118 +202,163 @@ public class HorizontalPipeline {
      * @param material Материал труб:
      */
     public void setMaterial(int material) {
+        PipeMaterials.check(PipeMaterials.constants(), material);
         this.material = material;
+        dirty |= SNIP;
+    }
+
+    /**
+     * Установить режим вычисления степеней, по умолчанию {@link Precision#STRICT}
+     * @param precision Режим вычисления
+     */
+    public void setPrecision(Precision precision) {
+        calculator = new PipelineCalculator(precision, calculator.getWaterProperties(), calculator.getFrictionModel(), calculator.getListener());
+        dirty = ALL;
+    }
+
+    /**
+     * Установить источник свойств воды, по умолчанию {@link WaterProperties#exact()}
+     * @param water Свойства воды
+     */
+    public void setWaterProperties(WaterProperties water) {
+        calculator = new PipelineCalculator(calculator.getPrecision(), water, calculator.getFrictionModel(), calculator.getListener());
+        dirty = ALL;
+    }
+
+    /**
+     * Установить формулу к-та гидравлического трения в турбулентном режиме, по умолчанию {@link FrictionModel#ALTSHUL}
+     * @param friction Формула к-та гидравлического трения
+     */
+    public void setFrictionModel(FrictionModel friction) {
+        calculator = new PipelineCalculator(calculator.getPrecision(), calculator.getWaterProperties(), friction, calculator.getListener());
+        dirty = ALL;
+    }
+
+    /**
+     * Установить наблюдателя за расчётами {@link #calcFormulas()} и {@link #calcSNiP()}, по умолчанию нет.
+     * Частичный пересчёт {@link #recalc()} не измеряется
+     * @param listener Наблюдатель, null - без измерений
+     */
+    public void setListener(CalculationListener listener) {
+        calculator = new PipelineCalculator(calculator.getPrecision(), calculator.getWaterProperties(), calculator.getFrictionModel(), listener);
     }
 
     /**
      * @return Средняя температура воды, градусов цельсия
      */
     public double getAverageTemp() {
-        return averageTemp;
+        return result.averageTemp;
     }
 
     /**
      * @return Кинематический к-т вязкости воды (при t_ср), см^2/с
      */
     public double getViscosity() {
-        return viscosity;
+        return result.viscosity;
     }
 
     /**
      * @return Средняя плотность воды (при t_ср), т/м^3
      */
     public double getAverageDensity() {
-        return averageDensity;
+        return result.averageDensity;
     }
 
     /**
      * @return Расход воды через трубопровод, л/мин
      */
     public double getConsumptionLitersPerMinute() {
-        return consumptionLitersPerMinute;
+        return result.consumptionLitersPerMinute;
     }
 
     /**
      * @return Скорость воды, м/с
      */
     public double getSpeed() {
-        return speed;
+        return result.speed;
     }
 
     /**
      * @return Число Рейнольдса
      */
     public double getReynoldsNumber() {
-        return reynoldsNumber;
+        return result.reynoldsNumber;
     }
 
     /**
      * @return К-т гидравлического трения
      */
     public double getFrictionCoefficient() {
-        return frictionCoefficient;
+        return result.frictionCoefficient;
     }
 
     /**
      * @return Удельные потери давления на трение, кг/(см^2*м)
      */
     public double getFrictionLoss() {
-       return frictionLoss;
+        return result.frictionLoss;
     }
 
     /**
      * @return Потери давления на трение, кг/см^2
      */
     public double getPressureFrictionLossKgPerSm2() {
-        return pressureFrictionLossKgPerSm2;
+        return result.pressureFrictionLossKgPerSm2;
     }
 
     /**
      * @return Потери давления на трение, Па
      */
     public double getPressureFrictionLossPa() {
-        return pressureFrictionLossPa;
+        return result.pressureFrictionLossPa;
     }
 
     /**
      * @return Потери давления в местных сопротивлениях, кг/см^2
      */
     public double getPressureLocalResistLossKgPerSm2() {
-        return pressureLocalResistLossKgPerSm2;
+        return result.pressureLocalResistLossKgPerSm2;
     }
 
     /**
      * @return Потери давления в местных сопротивлениях, Па
      */
     public double getPressureLocalResistLossPa() {
-        return pressureLocalResistLossPa;
+        return result.pressureLocalResistLossPa;
     }
 
     /**
      * @return Потери давления в трубопроводе, кг/см^2
      */
     public double getPressureLossKgPerSm2() {
-       return pressureLossKgPerSm2;
+        return result.pressureLossKgPerSm2;
     }
 
     /**
      * @return Потери давления в трубопроводе, Па
      */
     public double getPressureLossPa() {
-        return pressureLossPa;
+        return result.pressureLossPa;
     }
 
     /**
      * @return Характеристика гидравлического сопротивления трубопровода, Па/(т/ч)
      */
     public double getPipelineResistance() {
-        return pipelineResistance;
+        return result.pipelineResistance;
     }
 
     /**
      * @return Коэффициент гидравлического сопротивления по СНИП
      */
     public double getHydraulicResistance() {
-        return hydraulicResistance;
+        return result.hydraulicResistance;
+    }
+
+    /**
+     * @return Результаты последнего расчёта
+     */
+    public PipelineResult getResult() {
+        return result;
     }
 }
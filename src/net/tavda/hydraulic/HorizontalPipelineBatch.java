@@ -0,0 +1,363 @@
+package net.tavda.hydraulic;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Пакетный гидравлический расчёт горизонтальных участков трубопровода.
+ * Исходные данные задаются столбцами (элемент i каждого массива относится к участку i),
+ * результаты записываются в {@link PipelineColumns} без создания объектов на каждый участок.
+ * Результаты совпадают побитово с результатами {@link HorizontalPipeline}.
+ * Массивы исходных данных не копируются: их можно изменять между расчётами.
+ * <p>
+ * Если задан пул потоков, пакет размером не меньше порога делится пополам до порога
+ * и части считаются параллельно. Каждый участок считается тем же кодом и пишется в свой элемент,
+ * поэтому результат побитово совпадает с последовательным при любом числе потоков.
+ */
+public class HorizontalPipelineBatch {
+    /**
+     * Порог параллельного расчёта по умолчанию, участков
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 8192;
+
+    private final int size;
+    private final double[] consumption;
+    private final double[] tempIn;
+    private final double[] tempOut;
+    private final double[] diameter;
+    private final double[] length;
+    private final double[] roughness;
+    private final double[] sumLocalResist;
+    private final int[] material;
+    /**
+     * Счётчики участков по материалам для наблюдателя; занимаются на время подсчёта, чтобы не выделять память
+     */
+    private final AtomicReference<int[]> materialCounts;
+    private Precision precision = Precision.STRICT;
+    private WaterProperties water = WaterProperties.exact();
+    private FrictionModel friction = FrictionModel.ALTSHUL;
+    private ForkJoinPool pool;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private CalculationListener listener;
+
+    /**
+     * Пакет для расчёта по формулам теоретической гидравлики
+     * @param consumption Расход воды через трубопровод, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param roughness Экв. шероховатость внутр. поверхностей труб, мм
+     * @param sumLocalResist Сумма к-тов местных сопротивлений
+     */
+    public HorizontalPipelineBatch(double[] consumption, double[] tempIn, double[] tempOut, double[] diameter, double[] length, double[] roughness, double[] sumLocalResist) {
+        this.size = consumption.length;
+        this.consumption = consumption;
+        this.tempIn = checkSize(tempIn);
+        this.tempOut = checkSize(tempOut);
+        this.diameter = checkSize(diameter);
+        this.length = checkSize(length);
+        this.roughness = checkSize(roughness);
+        this.sumLocalResist = checkSize(sumLocalResist);
+        this.material = null;
+        this.materialCounts = null;
+    }
+
+    /**
+     * Пакет для расчёта по СНиП
+     * @param consumption Расход воды через трубопровод, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param material Материал труб, см. {@link HorizontalPipeline#HorizontalPipeline(double, double, double, double, double, int)}
+     */
+    public HorizontalPipelineBatch(double[] consumption, double[] tempIn, double[] tempOut, double[] diameter, double[] length, int[] material) {
+        this.size = consumption.length;
+        this.consumption = consumption;
+        this.tempIn = checkSize(tempIn);
+        this.tempOut = checkSize(tempOut);
+        this.diameter = checkSize(diameter);
+        this.length = checkSize(length);
+        this.roughness = null;
+        this.sumLocalResist = null;
+        if (material.length != size) {
+            throw new IllegalArgumentException("Column length " + material.length + " != " + size);
+        }
+        this.material = material;
+        this.materialCounts = new AtomicReference<>(new int[PipeMaterials.MAX_MATERIALS]);
+    }
+
+    private double[] checkSize(double[] column) {
+        if (column.length != size) {
+            throw new IllegalArgumentException("Column length " + column.length + " != " + size);
+        }
+        return column;
+    }
+
+    /**
+     * @return Количество участков
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Установить режим вычисления степеней, по умолчанию {@link Precision#STRICT}
+     * @param precision Режим вычисления
+     */
+    public void setPrecision(Precision precision) {
+        this.precision = precision;
+    }
+
+    /**
+     * Установить источник свойств воды, по умолчанию {@link WaterProperties#exact()}
+     * @param water Свойства воды
+     */
+    public void setWaterProperties(WaterProperties water) {
+        this.water = water;
+    }
+
+    /**
+     * Установить формулу к-та гидравлического трения в турбулентном режиме, по умолчанию {@link FrictionModel#ALTSHUL}.
+     * Для неявных формул начальным приближением служит к-т трения участка из столбцов результатов предыдущего расчёта
+     * @param friction Формула к-та гидравлического трения
+     */
+    public void setFrictionModel(FrictionModel friction) {
+        this.friction = friction;
+    }
+
+    /**
+     * Установить пул потоков для параллельного расчёта
+     * @param pool Пул потоков, null - последовательный расчёт
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Установить порог параллельного расчёта: меньшие пакеты и части пакета считаются последовательно
+     * @param parallelThreshold Порог, участков
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 1) {
+            throw new IllegalArgumentException("Parallel threshold " + parallelThreshold + " < 1");
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Установить наблюдателя за расчётами, по умолчанию нет.
+     * Сообщается время расчёта каждой части пакета и количество участков по режимам течения или материалам
+     * @param listener Наблюдатель, null - без измерений
+     */
+    public void setListener(CalculationListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Провести расчёт всех участков по формулам теоретической гидравлики
+     * @param out Столбцы результатов размером не меньше пакета
+     */
+    public void calcFormulas(PipelineColumns out) {
+        if (pool != null && size > parallelThreshold) {
+            checkRange(0, size, out);
+            pool.invoke(new RangeTask((from, to) -> calcFormulas(from, to, out), parallelThreshold, 0, size));
+        } else {
+            calcFormulas(0, size, out);
+        }
+    }
+
+    /**
+     * Провести расчёт участков [from, to) по формулам теоретической гидравлики
+     * @param from Первый участок
+     * @param to Участок, следующий за последним
+     * @param out Столбцы результатов размером не меньше пакета
+     */
+    public void calcFormulas(int from, int to, PipelineColumns out) {
+        if (roughness == null) {
+            throw new IllegalStateException("Batch has no roughness/sumLocalResist columns");
+        }
+        checkRange(from, to, out);
+        CalculationListener l = listener;
+        if (l == null) {
+            formulas(from, to, out);
+            return;
+        }
+        long start = System.nanoTime();
+        formulas(from, to, out);
+        l.batch(false, to - from, System.nanoTime() - start);
+        double[] re = out.getReynoldsNumber();
+        int laminar = 0, transitional = 0;
+        for (int i = from; i < to; i++) {
+            if (re[i] <= 2320) {
+                laminar++;
+            } else if (re[i] <= 4000) {
+                transitional++;
+            }
+        }
+        l.regimes(laminar, transitional, to - from - laminar - transitional);
+    }
+
+    private void formulas(int from, int to, PipelineColumns out) {
+        final boolean fast = precision == Precision.FAST;
+        final WaterProperties w = water;
+        final FrictionModel f = friction;
+        final double[] g = consumption, t1 = tempIn, t2 = tempOut, d = diameter, l = length, k = roughness, z = sumLocalResist;
+        final double[] tAvg = out.getAverageTemp(), nu = out.getViscosity(), rho = out.getAverageDensity(),
+                lpm = out.getConsumptionLitersPerMinute(), v = out.getSpeed(), re = out.getReynoldsNumber(),
+                lambda = out.getFrictionCoefficient(), r = out.getFrictionLoss(),
+                pf = out.getPressureFrictionLossKgPerSm2(), pfPa = out.getPressureFrictionLossPa(),
+                pz = out.getPressureLocalResistLossKgPerSm2(), pzPa = out.getPressureLocalResistLossPa(),
+                p = out.getPressureLossKgPerSm2(), pPa = out.getPressureLossPa(),
+                s = out.getPipelineResistance(), hr = out.getHydraulicResistance();
+        for (int i = from; i < to; i++) {
+            double ti = Hydraulics.averageTemp(t1[i], t2[i]);
+            double nui = w.viscosity(ti);
+            double rhoi = w.density(ti);
+            double gi = g[i];
+            double di = d[i];
+            double vi = Hydraulics.speed(gi, rhoi, di, fast);
+            double rei = Hydraulics.reynoldsNumber(vi, di, nui);
+            double lambdai = Hydraulics.frictionCoefficient(f, rei, k[i], di, lambda[i], fast);
+            double ri = Hydraulics.frictionLoss(lambdai, vi, rhoi, di, fast);
+            double pfi = l[i] * ri;
+            double pzi = Hydraulics.localResistLoss(z[i], vi, rhoi, fast);
+            double pi = pfi + pzi;
+            double pPai = Hydraulics.pa(pi);
+            tAvg[i] = ti;
+            nu[i] = nui;
+            rho[i] = rhoi;
+            lpm[i] = Hydraulics.consumptionLitersPerMinute(gi, rhoi);
+            v[i] = vi;
+            re[i] = rei;
+            lambda[i] = lambdai;
+            r[i] = ri;
+            pf[i] = pfi;
+            pfPa[i] = Hydraulics.pa(pfi);
+            pz[i] = pzi;
+            pzPa[i] = Hydraulics.pa(pzi);
+            p[i] = pi;
+            pPa[i] = pPai;
+            s[i] = Hydraulics.pipelineResistance(pPai, gi, fast);
+            hr[i] = 0;
+        }
+    }
+
+    /**
+     * Провести расчёт всех участков по СНиП
+     * @param out Столбцы результатов размером не меньше пакета
+     */
+    public void calcSNiP(PipelineColumns out) {
+        if (pool != null && size > parallelThreshold) {
+            checkRange(0, size, out);
+            pool.invoke(new RangeTask((from, to) -> calcSNiP(from, to, out), parallelThreshold, 0, size));
+        } else {
+            calcSNiP(0, size, out);
+        }
+    }
+
+    /**
+     * Провести расчёт участков [from, to) по СНиП
+     * @param from Первый участок
+     * @param to Участок, следующий за последним
+     * @param out Столбцы результатов размером не меньше пакета
+     */
+    public void calcSNiP(int from, int to, PipelineColumns out) {
+        if (material == null) {
+            throw new IllegalStateException("Batch has no material column");
+        }
+        checkRange(from, to, out);
+        CalculationListener l = listener;
+        if (l == null) {
+            snip(from, to, out);
+            return;
+        }
+        long start = System.nanoTime();
+        snip(from, to, out);
+        l.batch(true, to - from, System.nanoTime() - start);
+        countMaterials(l, from, to);
+    }
+
+    /**
+     * Сообщить наблюдателю количество участков [from, to) по материалам
+     */
+    private void countMaterials(CalculationListener l, int from, int to) {
+        int[] counts = materialCounts.getAndSet(null);
+        if (counts == null) {
+            // Счётчики заняты параллельной частью пакета: сообщаются участки подряд из одного материала
+            for (int i = from; i < to; ) {
+                int m = material[i];
+                int run = i;
+                while (i < to && material[i] == m) {
+                    i++;
+                }
+                l.material(m, i - run);
+            }
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            counts[material[i]]++;
+        }
+        for (int m = 0; m < counts.length; m++) {
+            if (counts[m] != 0) {
+                l.material(m, counts[m]);
+                counts[m] = 0;
+            }
+        }
+        materialCounts.set(counts);
+    }
+
+    private void snip(int from, int to, PipelineColumns out) {
+        final boolean fast = precision == Precision.FAST;
+        final WaterProperties w = water;
+        final double[] g = consumption, t1 = tempIn, t2 = tempOut, d = diameter, l = length;
+        final int[] m = material;
+        final double[] materials = PipeMaterials.constants();
+        for (int i = from; i < to; i++) {
+            PipeMaterials.check(materials, m[i]);
+        }
+        final double[] tAvg = out.getAverageTemp(), nu = out.getViscosity(), rho = out.getAverageDensity(),
+                lpm = out.getConsumptionLitersPerMinute(), v = out.getSpeed(), re = out.getReynoldsNumber(),
+                lambda = out.getFrictionCoefficient(), r = out.getFrictionLoss(),
+                pf = out.getPressureFrictionLossKgPerSm2(), pfPa = out.getPressureFrictionLossPa(),
+                pz = out.getPressureLocalResistLossKgPerSm2(), pzPa = out.getPressureLocalResistLossPa(),
+                p = out.getPressureLossKgPerSm2(), pPa = out.getPressureLossPa(),
+                s = out.getPipelineResistance(), hr = out.getHydraulicResistance();
+        for (int i = from; i < to; i++) {
+            double ti = Hydraulics.averageTemp(t1[i], t2[i]);
+            double nui = w.viscosity(ti);
+            double rhoi = w.density(ti);
+            double gi = g[i];
+            double di = d[i];
+            double vi = Hydraulics.speed(gi, rhoi, di, fast);
+            double hri = Hydraulics.hydraulicResistance(materials, m[i], vi, di, fast);
+            double pi = Hydraulics.snipLoss(hri, l[i]);
+            tAvg[i] = ti;
+            nu[i] = nui;
+            rho[i] = rhoi;
+            lpm[i] = Hydraulics.consumptionLitersPerMinute(gi, rhoi);
+            v[i] = vi;
+            re[i] = Hydraulics.reynoldsNumber(vi, di, nui);
+            lambda[i] = 0;
+            r[i] = 0;
+            pf[i] = 0;
+            pfPa[i] = 0;
+            pz[i] = 0;
+            pzPa[i] = 0;
+            p[i] = pi;
+            pPa[i] = Hydraulics.pa(pi);
+            s[i] = 0;
+            hr[i] = hri;
+        }
+    }
+
+    private void checkRange(int from, int to, PipelineColumns out) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") outside [0, " + size + ")");
+        }
+        if (out.size() < size) {
+            throw new IllegalArgumentException("Result columns size " + out.size() + " < " + size);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package net.tavda.hydraulic;
+
+import java.util.Arrays;
+
+/**
+ * Гидравлическая характеристика ΔP(G): потери давления на участке или пути из последовательных участков
+ * на сетке расходов. Не зависящие от расхода величины (свойства воды, квадрат диаметра, относительная шероховатость,
+ * степень диаметра в формуле СНиП) считаются один раз на участок, в цикле по сетке - только зависящие от расхода.
+ * Значения совпадают побитово с {@link PipelineCalculator#calcFormulas} и {@link PipelineCalculator#calcSNiP}
+ * при тех же расходе и настройках. Для неявных формул трения начальным приближением служит к-т трения предыдущей точки сетки,
+ * поэтому совпадение - в пределах точности итераций.
+ * <p>
+ * При нулевом расходе потери равны нулю, при отрицательном - потерям при обратном расходе со знаком минус.
+ * Объект неизменяем, один экземпляр можно использовать из любого числа потоков.
+ */
+public final class HydraulicCurve {
+    private final PipelineCalculator calculator;
+    private final boolean fast;
+
+    /**
+     * @param calculator Режим вычисления степеней, свойства воды и формула трения
+     */
+    public HydraulicCurve(PipelineCalculator calculator) {
+        this.calculator = calculator;
+        this.fast = calculator.getPrecision() == Precision.FAST;
+    }
+
+    /**
+     * @param min Наименьший расход, т/ч
+     * @param max Наибольший расход, т/ч
+     * @param points Количество точек, не меньше 2
+     * @return Равномерная сетка расходов от min до max включительно, т/ч
+     */
+    public static double[] grid(double min, double max, int points) {
+        if (points < 2) {
+            throw new IllegalArgumentException("Grid points " + points + " < 2");
+        }
+        double[] flows = new double[points];
+        double step = (max - min) / (points - 1);
+        for (int i = 0; i < points; i++) {
+            flows[i] = min + i * step;
+        }
+        flows[points - 1] = max;
+        return flows;
+    }
+
+    /**
+     * Характеристика участка по формулам теоретической гидравлики
+     * @param flows Сетка расходов, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param roughness Экв. шероховатость внутр. поверхностей труб, мм
+     * @param sumLocalResist Сумма к-тов местных сопротивлений
+     * @param out Потери давления в трубопроводе по точкам сетки, Па
+     */
+    public void calcFormulas(double[] flows, double tempIn, double tempOut, double diameter, double length, double roughness, double sumLocalResist, double[] out) {
+        checkSize(flows, out);
+        Arrays.fill(out, 0, flows.length, 0);
+        addFormulas(flows, tempIn, tempOut, diameter, length, roughness, sumLocalResist, out);
+    }
+
+    /**
+     * Прибавить к out характеристику участка по формулам теоретической гидравлики, например для пути из нескольких участков
+     * @param flows Сетка расходов, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param roughness Экв. шероховатость внутр. поверхностей труб, мм
+     * @param sumLocalResist Сумма к-тов местных сопротивлений
+     * @param out Суммарные потери давления по точкам сетки, Па
+     */
+    public void addFormulas(double[] flows, double tempIn, double tempOut, double diameter, double length, double roughness, double sumLocalResist, double[] out) {
+        checkSize(flows, out);
+        final boolean fast = this.fast;
+        final FrictionModel friction = calculator.getFrictionModel();
+        final WaterProperties water = calculator.getWaterProperties();
+        final double t = Hydraulics.averageTemp(tempIn, tempOut);
+        final double nu = water.viscosity(t);
+        final double rho = water.density(t);
+        final double squaredDiameter = Hydraulics.squaredDiameter(diameter, fast);
+        final double relativeRoughness = roughness / diameter;
+        double lambda = 0;
+        for (int i = 0; i < flows.length; i++) {
+            double g = Math.abs(flows[i]);
+            if (g == 0) {
+                continue;
+            }
+            double v = Hydraulics.speed(g, rho, squaredDiameter);
+            double v2 = Hydraulics.square(v, fast);
+            double re = Hydraulics.reynoldsNumber(v, diameter, nu);
+            lambda = Hydraulics.frictionCoefficient(friction, re, relativeRoughness, lambda, fast);
+            double pf = length * Hydraulics.frictionLoss(lambda, v2, rho, diameter);
+            double pz = Hydraulics.localResistLoss(sumLocalResist, v2, rho);
+            double p = Hydraulics.pa(pf + pz);
+            out[i] += flows[i] < 0 ? -p : p;
+        }
+    }
+
+    /**
+     * Характеристика участка по СНиП
+     * @param flows Сетка расходов, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param material Материал труб, см. {@link HorizontalPipeline#HorizontalPipeline(double, double, double, double, double, int)}
+     * @param out Потери давления в трубопроводе по точкам сетки, Па
+     */
+    public void calcSNiP(double[] flows, double tempIn, double tempOut, double diameter, double length, int material, double[] out) {
+        checkSize(flows, out);
+        Arrays.fill(out, 0, flows.length, 0);
+        addSNiP(flows, tempIn, tempOut, diameter, length, material, out);
+    }
+
+    /**
+     * Прибавить к out характеристику участка по СНиП
+     * @param flows Сетка расходов, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param material Материал труб
+     * @param out Суммарные потери давления по точкам сетки, Па
+     */
+    public void addSNiP(double[] flows, double tempIn, double tempOut, double diameter, double length, int material, double[] out) {
+        checkSize(flows, out);
+        final boolean fast = this.fast;
+        final WaterProperties water = calculator.getWaterProperties();
+        final double rho = water.density(Hydraulics.averageTemp(tempIn, tempOut));
+        final double squaredDiameter = Hydraulics.squaredDiameter(diameter, fast);
+        final double[] materials = PipeMaterials.constants();
+        PipeMaterials.check(materials, material);
+        final double snipDiameter = Hydraulics.snipDiameter(materials, material, diameter, fast);
+        for (int i = 0; i < flows.length; i++) {
+            double g = Math.abs(flows[i]);
+            if (g == 0) {
+                continue;
+            }
+            double v = Hydraulics.speed(g, rho, squaredDiameter);
+            double p = Hydraulics.pa(Hydraulics.snipLoss(Hydraulics.snipResistance(materials, material, v, snipDiameter, fast), length));
+            out[i] += flows[i] < 0 ? -p : p;
+        }
+    }
+
+    /**
+     * Характеристика пути из последовательных участков, по которым проходит один и тот же расход.
+     * Столбцы как у {@link HorizontalPipelineBatch}, элемент j относится к участку j пути
+     * @param flows Сетка расходов, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param roughness Экв. шероховатость внутр. поверхностей труб, мм
+     * @param sumLocalResist Сумма к-тов местных сопротивлений
+     * @param out Потери давления на пути по точкам сетки, Па
+     */
+    public void calcPathFormulas(double[] flows, double[] tempIn, double[] tempOut, double[] diameter, double[] length, double[] roughness, double[] sumLocalResist, double[] out) {
+        checkSize(flows, out);
+        Arrays.fill(out, 0, flows.length, 0);
+        for (int j = 0; j < tempIn.length; j++) {
+            addFormulas(flows, tempIn[j], tempOut[j], diameter[j], length[j], roughness[j], sumLocalResist[j], out);
+        }
+    }
+
+    /**
+     * Характеристика пути из последовательных участков по СНиП
+     * @param flows Сетка расходов, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param material Материал труб
+     * @param out Потери давления на пути по точкам сетки, Па
+     */
+    public void calcPathSNiP(double[] flows, double[] tempIn, double[] tempOut, double[] diameter, double[] length, int[] material, double[] out) {
+        checkSize(flows, out);
+        Arrays.fill(out, 0, flows.length, 0);
+        for (int j = 0; j < tempIn.length; j++) {
+            addSNiP(flows, tempIn[j], tempOut[j], diameter[j], length[j], material[j], out);
+        }
+    }
+
+    /**
+     * Точка пересечения двух характеристик на общей сетке, например характеристики сети и напора насоса.
+     * Между точками сетки характеристики интерполируются линейно.
+     * @param flows Сетка расходов по возрастанию, т/ч
+     * @param first Первая характеристика, Па
+     * @param second Вторая характеристика, Па
+     * @return Расход в первой точке пересечения, т/ч; NaN - характеристики не пересекаются
+     */
+    public static double intersect(double[] flows, double[] first, double[] second) {
+        if (first.length < flows.length || second.length < flows.length) {
+            throw new IllegalArgumentException("Curve length < " + flows.length);
+        }
+        double previous = first[0] - second[0];
+        if (previous == 0) {
+            return flows[0];
+        }
+        for (int i = 1; i < flows.length; i++) {
+            double difference = first[i] - second[i];
+            if (difference == 0) {
+                return flows[i];
+            }
+            if ((difference < 0) != (previous < 0)) {
+                return flows[i - 1] + (flows[i] - flows[i - 1]) * previous / (previous - difference);
+            }
+            previous = difference;
+        }
+        return Double.NaN;
+    }
+
+    private static void checkSize(double[] flows, double[] out) {
+        if (out.length < flows.length) {
+            throw new IllegalArgumentException("Output length " + out.length + " < " + flows.length);
+        }
+    }
+}
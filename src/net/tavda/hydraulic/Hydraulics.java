@@ -0,0 +1,155 @@
+package net.tavda.hydraulic;
+
+import static java.lang.Math.PI;
+import static java.lang.Math.pow;
+
+/**
+ * Формулы гидравлического расчёта участка трубопровода.
+ * Общие для {@link HorizontalPipeline} и {@link HorizontalPipelineBatch}, поэтому результаты
+ * поштучного и пакетного расчётов совпадают побитово.
+ * Параметр fast выбирает упрощённое вычисление степеней, см. {@link Precision#FAST}.
+ */
+final class Hydraulics {
+    private Hydraulics() {
+    }
+
+    static double square(double x, boolean fast) {
+        return fast ? x * x : pow(x, 2);
+    }
+
+    static double averageTemp(double tempIn, double tempOut) {
+        return (tempIn + tempOut) / 2;
+    }
+
+    /**
+     * @return Кинематический к-т вязкости воды, см^2/с
+     */
+    static double viscosity(double averageTemp) {
+        return 0.0178 / (1.0 + (0.0337 * averageTemp) + (0.000221 * averageTemp * averageTemp));
+    }
+
+    /**
+     * @return Плотность воды, т/м^3
+     */
+    static double density(double averageTemp) {
+        return (((-0.003 * averageTemp * averageTemp) - (0.1511 * averageTemp)) + 1003.1) / 1000;
+    }
+
+    /**
+     * @return Производная кинематического к-та вязкости по температуре, см^2/(с·°C)
+     */
+    static double viscositySlope(double averageTemp) {
+        double denominator = 1.0 + (0.0337 * averageTemp) + (0.000221 * averageTemp * averageTemp);
+        return -0.0178 * (0.0337 + 2 * 0.000221 * averageTemp) / (denominator * denominator);
+    }
+
+    /**
+     * @return Производная плотности воды по температуре, т/(м^3·°C)
+     */
+    static double densitySlope(double averageTemp) {
+        return (-0.006 * averageTemp - 0.1511) / 1000;
+    }
+
+    static double consumptionLitersPerMinute(double consumption, double averageDensity) {
+        return (consumption / averageDensity / 60) * 1000;
+    }
+
+    static double speed(double consumption, double averageDensity, double diameter, boolean fast) {
+        return speed(consumption, averageDensity, squaredDiameter(diameter, fast));
+    }
+
+    /**
+     * Квадрат диаметра в метрах - не зависящая от расхода часть скорости
+     */
+    static double squaredDiameter(double diameter, boolean fast) {
+        return square(diameter / 1000, fast);
+    }
+
+    static double speed(double consumption, double averageDensity, double squaredDiameter) {
+        return (4 * consumption) / averageDensity / PI / squaredDiameter / 3600;
+    }
+
+    static double reynoldsNumber(double speed, double diameter, double viscosity) {
+        return ((speed * diameter) / viscosity) * 10;
+    }
+
+    /**
+     * К-т гидравлического трения: ламинарный режим, переходная зона и формула турбулентного режима
+     * @param start Начальное приближение для неявных формул, см. {@link FrictionModel}
+     */
+    static double frictionCoefficient(FrictionModel model, double reynoldsNumber, double roughness, double diameter, double start, boolean fast) {
+        return frictionCoefficient(model, reynoldsNumber, roughness / diameter, start, fast);
+    }
+
+    static double frictionCoefficient(FrictionModel model, double reynoldsNumber, double relativeRoughness, double start, boolean fast) {
+        if (reynoldsNumber <= 2320) {
+            return 64 / reynoldsNumber;
+        } else if (reynoldsNumber <= 4000) {
+            return 0.0000147 * reynoldsNumber;
+        } else {
+            return model.lambda(reynoldsNumber, relativeRoughness, start, fast);
+        }
+    }
+
+    static double frictionLoss(double frictionCoefficient, double speed, double averageDensity, double diameter, boolean fast) {
+        return frictionLoss(frictionCoefficient, square(speed, fast), averageDensity, diameter);
+    }
+
+    static double frictionLoss(double frictionCoefficient, double squaredSpeed, double averageDensity, double diameter) {
+        return frictionCoefficient * squaredSpeed * averageDensity / 2 / 9.81 / diameter * 100;
+    }
+
+    static double localResistLoss(double sumLocalResist, double speed, double averageDensity, boolean fast) {
+        return localResistLoss(sumLocalResist, square(speed, fast), averageDensity);
+    }
+
+    static double localResistLoss(double sumLocalResist, double squaredSpeed, double averageDensity) {
+        return sumLocalResist * squaredSpeed * averageDensity * 1000 / 2 / 9.81 / 10000;
+    }
+
+    /**
+     * Перевод кг/см^2 в Па
+     */
+    static double pa(double kgPerSm2) {
+        return kgPerSm2 * 9.81 * 10000;
+    }
+
+    static double pipelineResistance(double pressureLossPa, double consumption, boolean fast) {
+        return pressureLossPa / square(consumption, fast);
+    }
+
+    /**
+     * К-т гидравлического сопротивления по СНиП.
+     * В режиме fast (a/d^(m+1)) вычисляется одной степенью (a/d)^m/d
+     * @param materials Постоянные материалов, {@link PipeMaterials#constants()}
+     */
+    static double hydraulicResistance(double[] materials, int material, double speed, double diameter, boolean fast) {
+        return snipResistance(materials, material, speed, snipDiameter(materials, material, diameter, fast), fast);
+    }
+
+    /**
+     * Не зависящая от расхода часть к-та по СНиП: d^(m+1), в режиме fast - d, диаметр в метрах
+     */
+    static double snipDiameter(double[] materials, int material, double diameter, boolean fast) {
+        return fast ? diameter / 1000 : pow(diameter / 1000, materials[material * PipeMaterials.STRIDE + PipeMaterials.EXPONENT] + 1);
+    }
+
+    static double snipResistance(double[] materials, int material, double speed, double snipDiameter, boolean fast) {
+        int base = material * PipeMaterials.STRIDE;
+        double m = materials[base + PipeMaterials.EXPONENT];
+        if (speed >= materials[base + PipeMaterials.SWITCH_SPEED]) {
+            base += PipeMaterials.HIGH;
+        }
+        double a = materials[base + PipeMaterials.A0] + materials[base + PipeMaterials.C] / speed;
+        double coefficient = materials[base + PipeMaterials.COEFFICIENT];
+        if (fast) {
+            double d = snipDiameter;
+            return coefficient * pow(a / d, m) / d * (speed * speed);
+        }
+        return coefficient * pow(a, m) / snipDiameter * pow(speed, 2);
+    }
+
+    static double snipLoss(double hydraulicResistance, double length) {
+        return hydraulicResistance * length / 10;
+    }
+}
@@ -6,14 +6,49 @@ import static java.lang.Math.cos;
 import static java.lang.Math.exp;
 import static java.lang.Math.log;
 import static java.lang.Math.pow;
+import static java.lang.Math.sqrt;
 
 /**
  * Расчёт коэффициента местного сопротивления для участка трубопровода
  * @author FSA
  */
 public class LocalResistCoefficient {
+    private final boolean fast;
+    private final LocalResistTables tables;
 
     public LocalResistCoefficient() {
+        this(Precision.STRICT);
+    }
+
+    /**
+     * @param precision Режим вычисления степеней
+     */
+    public LocalResistCoefficient(Precision precision) {
+        this(precision, false);
+    }
+
+    /**
+     * Задвижка и постепенное расширение могут считаться по общим таблицам кубической интерполяции,
+     * которые строятся при первом обращении. Относительная погрешность таблиц:
+     * задвижка при 1/1024 &lt;= a/dt &lt;= 1 - не более 5·10^-8,
+     * постепенное расширение - не более 1.1·10^-5 (наибольшая при угле около 2, убывает с ростом угла).
+     * При a/dt &lt; 1/1024 или a/dt &gt;= 2, угле &lt; 1 или угле &gt;= 256 коэффициенты считаются по формулам.
+     * По таблицам задвижка считается примерно в 5 раз, постепенное расширение - в 4 раза быстрее
+     * (см. LocalResistCoefficientBenchmark).
+     * @param precision Режим вычисления степеней
+     * @param tables true - задвижка и постепенное расширение по таблицам
+     */
+    public LocalResistCoefficient(Precision precision, boolean tables) {
+        this.fast = precision == Precision.FAST;
+        this.tables = tables ? LocalResistTables.getInstance() : null;
+    }
+
+    private double square(double x) {
+        return fast ? x * x : pow(x, 2);
+    }
+
+    private double root(double x) {
+        return fast ? sqrt(x) : pow(x, 0.5);
     }
 
     /**
@@ -24,9 +59,9 @@ public class LocalResistCoefficient {
      */
     public double calcExpand(double d1,double d2) {
         if(d1<d2) {
-            return pow(1-pow(d1/d2,2),2);
+            return square(1-square(d1/d2));
         } else {
-            return pow(1/(0.57+0.043/(1.1-pow(d2/d1,2)))-1,2);
+            return square(1/(0.57+0.043/(1.1-square(d2/d1)))-1);
         }
     }
 
@@ -37,7 +72,7 @@ public class LocalResistCoefficient {
      * @return Коэффициент местного сопротивления
      */
     public double calcDiaphragm(double dt,double dd) {
-        return pow(1/(pow(dd/dt,2)*(0.57+0.043/(1.1-pow(dd/dt,2))))-1,2);
+        return square(1/(square(dd/dt)*(0.57+0.043/(1.1-square(dd/dt))))-1);
     }
 
     /**
@@ -48,7 +83,7 @@ public class LocalResistCoefficient {
      * @return Коэффициент местного сопротивления
      */
     public double calcDiaphragmDiff(double d1,double d2,double dd) {
-        return pow(1/(pow(dd/d1,2)*(0.57+0.043/(1.1-pow(dd/d1,2))))-1/pow(d2/d1,2),2);
+        return square(1/(square(dd/d1)*(0.57+0.043/(1.1-square(dd/d1))))-1/square(d2/d1));
     }
 
     /**
@@ -58,7 +93,8 @@ public class LocalResistCoefficient {
      * @return Коэффициент местного сопротивления
      */
     public double calcWelded(double dt, double delta) {
-        return 14*pow(delta/dt,1.5);
+        double x = delta/dt;
+        return 14*(fast ? x*sqrt(x) : pow(x,1.5));
     }
 
     /**
@@ -79,7 +115,9 @@ public class LocalResistCoefficient {
      * @return Коэффициент местного сопротивления
      */
     public double calcTurnSmooth(double alpha, double dt, double r, double lambda) {
-        return (-0.0000038*pow(alpha,2)+0.317*log(alpha)+0.00217*alpha-0.593)*(0.2+0.001*pow(100*lambda,8))*pow(dt/r,0.5);
+        double x = 100*lambda;
+        double x8 = fast ? square(square(square(x))) : pow(x,8);
+        return (-0.0000038*square(alpha)+0.317*log(alpha)+0.00217*alpha-0.593)*(0.2+0.001*x8)*root(dt/r);
     }
 
     /**
@@ -91,9 +129,17 @@ public class LocalResistCoefficient {
      */
     public double calcGradual(double alpha,double d1,double d2) {
         if(d1<d2) {
-            return pow(E, 82.816/pow(E,alpha)-17.226/alpha+0.26578)*pow(1-pow(d1/d2,2),2);
+            if (tables != null) {
+                // NaN - угол вне таблицы
+                double k = tables.expand.at(alpha);
+                if (k == k) {
+                    return k*square(1-square(d1/d2));
+                }
+            }
+            double y = fast ? 82.816/exp(alpha)-17.226/alpha+0.26578 : 82.816/pow(E,alpha)-17.226/alpha+0.26578;
+            return (fast ? exp(y) : pow(E, y))*square(1-square(d1/d2));
         } else {
-            return pow(0.000027332* pow(alpha,2)+1.6779/alpha-0.0013371*alpha,0.5)*pow(1/(0.57+0.043/(1.1-pow(d2/d1,2)))-1,2);
+            return root(0.000027332* square(alpha)+1.6779/alpha-0.0013371*alpha)*square(1/(0.57+0.043/(1.1-square(d2/d1)))-1);
         }
     }
 
@@ -104,6 +150,13 @@ public class LocalResistCoefficient {
      * @return Коэффициент местного сопротивления
      */
     public double calcValve(double dt,double a) {
+        if (tables != null) {
+            // NaN - a/dt вне таблицы
+            double k = tables.valve.at(a/dt);
+            if (k == k) {
+                return k;
+            }
+        }
         return exp(-3.2322*exp(a/dt)-0.82243*log(a/dt)+5.735);
     }
 }
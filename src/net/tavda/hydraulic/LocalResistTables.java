@@ -0,0 +1,139 @@
+package net.tavda.hydraulic;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Таблицы кусочно-кубической интерполяции для задвижки (по a/dt) и постепенного расширения (по углу конуса).
+ * Множитель постепенного расширения, зависящий от отношения диаметров, - многочлен,
+ * он считается по формуле, поэтому таблицы одномерные. Постепенное сужение не табулируется:
+ * его множитель от угла - один квадратный корень, что не медленнее поиска в таблице.
+ * <p>
+ * Узлы таблиц делят каждую двоичную октаву аргумента на {@link #CELLS_PER_OCTAVE} равных частей,
+ * поэтому номер ячейки и положение в ней берутся из битов числа без логарифма и деления,
+ * а относительный шаг постоянен и учитывает особенности вида 1/x и ln(x) при малых аргументах.
+ * В каждой ячейке - кубический многочлен Эрмита по значениям и точным производным в узлах,
+ * производные ограничены по Фрич-Карлсону, поэтому интерполяция монотонна там, где монотонна функция.
+ * <p>
+ * Таблицы строятся при первом обращении, неизменяемы и общие для всех потоков.
+ */
+final class LocalResistTables {
+    /**
+     * Делений октавы аргумента
+     */
+    static final int CELLS_PER_OCTAVE = 64;
+    /**
+     * Наименьшее a/dt задвижки в таблице
+     */
+    static final double VALVE_MIN = 0x1p-10;
+    /**
+     * Граница a/dt задвижки в таблице (не включается)
+     */
+    static final double VALVE_MAX = 2;
+    /**
+     * Наименьший угол конуса в таблице
+     */
+    static final double ANGLE_MIN = 1;
+    /**
+     * Граница угла конуса в таблице (не включается)
+     */
+    static final double ANGLE_MAX = 256;
+
+    private static final int SHIFT = 52 - Integer.numberOfTrailingZeros(CELLS_PER_OCTAVE);
+    private static final long LOW = (1L << SHIFT) - 1;
+    private static final double SCALE = 1.0 / (1L << SHIFT);
+
+    /**
+     * Задвижка: exp(-3.2322·exp(x)-0.82243·ln(x)+5.735), x = a/dt
+     */
+    final Curve valve = new Curve(VALVE_MIN, VALVE_MAX,
+            x -> Math.exp(-3.2322 * Math.exp(x) - 0.82243 * Math.log(x) + 5.735),
+            x -> -3.2322 * Math.exp(x) - 0.82243 / x);
+    /**
+     * Постепенное расширение, множитель от угла: exp(82.816·exp(-alpha)-17.226/alpha+0.26578)
+     */
+    final Curve expand = new Curve(ANGLE_MIN, ANGLE_MAX,
+            a -> Math.exp(82.816 * Math.exp(-a) - 17.226 / a + 0.26578),
+            a -> -82.816 * Math.exp(-a) + 17.226 / (a * a));
+    private LocalResistTables() {
+    }
+
+    /**
+     * @return Общие таблицы, строятся при первом обращении
+     */
+    static LocalResistTables getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static final class Holder {
+        static final LocalResistTables INSTANCE = new LocalResistTables();
+    }
+
+    /**
+     * Интерполяция функции по таблице
+     */
+    static final class Curve {
+        private final long first;
+        private final int cells;
+        /**
+         * Коэффициенты многочлена c0 + c1·t + c2·t^2 + c3·t^3 по ячейкам, t - положение в ячейке от 0 до 1
+         */
+        private final double[] c;
+
+        /**
+         * @param min Начало таблицы, степень двойки
+         * @param max Конец таблицы, степень двойки
+         * @param f Функция
+         * @param logDerivative Логарифмическая производная f'/f
+         */
+        Curve(double min, double max, DoubleUnaryOperator f, DoubleUnaryOperator logDerivative) {
+            first = Double.doubleToRawLongBits(min) >>> SHIFT;
+            cells = (int) ((Double.doubleToRawLongBits(max) >>> SHIFT) - first);
+            c = new double[4 * cells];
+            for (int i = 0; i < cells; i++) {
+                double x0 = node(i);
+                double x1 = node(i + 1);
+                double h = x1 - x0;
+                double f0 = f.applyAsDouble(x0);
+                double f1 = f.applyAsDouble(x1);
+                double d0 = h * f0 * logDerivative.applyAsDouble(x0);
+                double d1 = h * f1 * logDerivative.applyAsDouble(x1);
+                double delta = f1 - f0;
+                if (delta == 0) {
+                    d0 = 0;
+                    d1 = 0;
+                } else {
+                    double a = d0 / delta;
+                    double b = d1 / delta;
+                    if (a >= 0 && b >= 0 && a * a + b * b > 9) {
+                        double k = 3 / Math.sqrt(a * a + b * b);
+                        d0 *= k;
+                        d1 *= k;
+                    }
+                }
+                c[4 * i] = f0;
+                c[4 * i + 1] = d0;
+                c[4 * i + 2] = 3 * delta - 2 * d0 - d1;
+                c[4 * i + 3] = -2 * delta + d0 + d1;
+            }
+        }
+
+        private double node(int i) {
+            return Double.longBitsToDouble((first + i) << SHIFT);
+        }
+
+        /**
+         * @param x Аргумент
+         * @return Значение по таблице, NaN - аргумент вне таблицы
+         */
+        double at(double x) {
+            long bits = Double.doubleToRawLongBits(x);
+            long cell = (bits >>> SHIFT) - first;
+            if (cell < 0 || cell >= cells) {
+                return Double.NaN;
+            }
+            double t = (bits & LOW) * SCALE;
+            int i = 4 * (int) cell;
+            return c[i] + t * (c[i + 1] + t * (c[i + 2] + t * c[i + 3]));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package net.tavda.hydraulic;
+
+/**
+ * Материал труб для расчёта по СНиП 2.04.02-84: гидравлический уклон
+ * {@code i = a1/1000 · (a0 + c/v)^m / d^(m+1) · v^2}, диаметр в метрах, скорость в м/с.
+ * Объект неизменяем. Зарегистрированные материалы и их номера - {@link PipeMaterials}
+ */
+public final class PipeMaterial {
+    private final String name;
+    private final double exponent;
+    private final double a0;
+    private final double a1;
+    private final double c;
+
+    /**
+     * @param name Название
+     * @param exponent Показатель степени m
+     * @param a0 К-т A0
+     * @param a1 К-т 1000·A1/(2g)
+     * @param c К-т C
+     */
+    public PipeMaterial(String name, double exponent, double a0, double a1, double c) {
+        if (!(exponent >= 0 && exponent < 1)) {
+            throw new IllegalArgumentException("Exponent " + exponent + " outside [0, 1)");
+        }
+        if (!(a0 >= 0) || !(c >= 0) || a0 + c == 0 || Double.isInfinite(a0) || Double.isInfinite(c)) {
+            throw new IllegalArgumentException("Coefficients a0 = " + a0 + ", c = " + c + " must be non-negative, finite and not both zero");
+        }
+        if (!(a1 > 0) || Double.isInfinite(a1)) {
+            throw new IllegalArgumentException("Coefficient a1 " + a1 + " <= 0");
+        }
+        this.name = name;
+        this.exponent = exponent;
+        this.a0 = a0;
+        this.a1 = a1;
+        this.c = c;
+    }
+
+    /**
+     * @return Название
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Показатель степени m
+     */
+    public double getExponent() {
+        return exponent;
+    }
+
+    /**
+     * @return К-т A0
+     */
+    public double getA0() {
+        return a0;
+    }
+
+    /**
+     * @return К-т 1000·A1/(2g)
+     */
+    public double getA1() {
+        return a1;
+    }
+
+    /**
+     * @return К-т C
+     */
+    public double getC() {
+        return c;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,217 @@
+package net.tavda.hydraulic;
+
+import java.util.Arrays;
+
+/**
+ * Материалы труб для расчёта по СНиП, номер материала - индекс в реестре.
+ * Встроенные материалы 0-11 - таблица СНиП 2.04.02-84, {@link #USED_STEEL} выбирает строку таблицы по скорости сам.
+ * Материалы можно добавлять {@link #register(PipeMaterial)}, добавленные не удаляются.
+ * <p>
+ * Постоянные материалов хранятся одним массивом по {@link #STRIDE} значений на материал,
+ * пакетный расчёт берёт массив один раз и обращается к нему по номеру материала.
+ * Регистрация заменяет массив копией, поэтому чтение не требует блокировок
+ */
+public final class PipeMaterials {
+    /**
+     * Новые стальные без внутреннего защитного покрытия или с битумным защитным покрытием
+     */
+    public static final int NEW_STEEL = 0;
+    /**
+     * Новые чугунные без внутреннего защитного покрытия или с битумным защитным покрытием
+     */
+    public static final int NEW_CAST_IRON = 1;
+    /**
+     * Неновые стальные и неновые чугунные без внутреннего защитного покрытия или с битумным защитным покр., v &lt; 1.2м/c
+     */
+    public static final int USED_STEEL_LOW_SPEED = 2;
+    /**
+     * Неновые стальные и неновые чугунные без внутреннего защитного покрытия или с битумным защитным покр., v &gt; 1.2м/c
+     */
+    public static final int USED_STEEL_HIGH_SPEED = 3;
+    /**
+     * Асбестоцементные
+     */
+    public static final int ASBESTOS_CEMENT = 4;
+    /**
+     * Железобетонные виброгидропрессованные
+     */
+    public static final int CONCRETE_VIBRATED = 5;
+    /**
+     * Железобетонные центрифугированные
+     */
+    public static final int CONCRETE_CENTRIFUGED = 6;
+    /**
+     * Стальные и чугунные с внутр. пластмассовым или полимерцементным покр., нанесенным методом центрифугирования
+     */
+    public static final int POLYMER_LINED = 7;
+    /**
+     * Стальные и чугунные с внутр. цементно-песчаным покр., нанесенным методом набрызга с последующим заглаживанием
+     */
+    public static final int CEMENT_SPRAYED = 8;
+    /**
+     * Стальные и чугунные с внутр. цементно-песчаным покр., нанесенным методом центрифугирования
+     */
+    public static final int CEMENT_CENTRIFUGED = 9;
+    /**
+     * Пластмассовые
+     */
+    public static final int PLASTIC = 10;
+    /**
+     * Стеклянные
+     */
+    public static final int GLASS = 11;
+    /**
+     * Неновые стальные и неновые чугунные: {@link #USED_STEEL_LOW_SPEED} при скорости меньше
+     * {@link #USED_STEEL_SWITCH_SPEED}, иначе {@link #USED_STEEL_HIGH_SPEED}
+     */
+    public static final int USED_STEEL = 12;
+    /**
+     * Скорость смены строки таблицы для {@link #USED_STEEL}, м/с
+     */
+    public static final double USED_STEEL_SWITCH_SPEED = 1.2;
+    /**
+     * Наибольшее количество материалов
+     */
+    public static final int MAX_MATERIALS = 256;
+
+    /**
+     * Постоянные материала: показатель m, скорость смены строки, A0, A1/(2g), C
+     * и те же A0, A1, C для скорости не меньше скорости смены
+     */
+    static final int STRIDE = 8;
+    static final int EXPONENT = 0;
+    static final int SWITCH_SPEED = 1;
+    static final int A0 = 2;
+    static final int COEFFICIENT = 3;
+    static final int C = 4;
+    /**
+     * Смещение постоянных строки для большой скорости
+     */
+    static final int HIGH = 3;
+
+    private static PipeMaterial[] materials = new PipeMaterial[0];
+    private static PipeMaterial[] highMaterials = new PipeMaterial[0];
+    private static volatile double[] constants = new double[0];
+
+    static {
+        register(new PipeMaterial("Новые стальные", 0.226, 1.000, 0.810, 0.684));
+        register(new PipeMaterial("Новые чугунные", 0.284, 1.000, 0.734, 2.360));
+        register(new PipeMaterial("Неновые стальные и чугунные, v < 1.2 м/с", 0.300, 1.000, 0.912, 0.867));
+        register(new PipeMaterial("Неновые стальные и чугунные, v > 1.2 м/с", 0.300, 1.000, 1.070, 0.000));
+        register(new PipeMaterial("Асбестоцементные", 0.190, 1.000, 0.561, 3.510));
+        register(new PipeMaterial("Железобетонные виброгидропрессованные", 0.190, 1.000, 0.802, 3.510));
+        register(new PipeMaterial("Железобетонные центрифугированные", 0.190, 1.000, 0.706, 3.510));
+        register(new PipeMaterial("Стальные и чугунные с пластмассовым или полимерцементным покрытием", 0.190, 1.000, 0.561, 3.510));
+        register(new PipeMaterial("Стальные и чугунные с цементно-песчаным покрытием, нанесенным набрызгом", 0.190, 1.000, 0.802, 3.510));
+        register(new PipeMaterial("Стальные и чугунные с цементно-песчаным покрытием, нанесенным центрифугированием", 0.190, 1.000, 0.706, 3.510));
+        register(new PipeMaterial("Пластмассовые", 0.226, 0.000, 0.685, 1.000));
+        register(new PipeMaterial("Стеклянные", 0.226, 0.000, 0.754, 1.000));
+        register(get(USED_STEEL_LOW_SPEED), get(USED_STEEL_HIGH_SPEED), USED_STEEL_SWITCH_SPEED);
+    }
+
+    private PipeMaterials() {
+    }
+
+    /**
+     * Добавить материал
+     * @param material Материал
+     * @return Номер материала
+     */
+    public static int register(PipeMaterial material) {
+        return register(material, material, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Добавить материал, постоянные которого зависят от скорости
+     * @param low Постоянные при скорости меньше switchSpeed
+     * @param high Постоянные при скорости не меньше switchSpeed, показатель степени тот же
+     * @param switchSpeed Скорость смены постоянных, м/с
+     * @return Номер материала
+     */
+    public static synchronized int register(PipeMaterial low, PipeMaterial high, double switchSpeed) {
+        // Показатель входит в не зависящую от скорости часть уклона, см. Hydraulics.snipDiameter
+        if (low.getExponent() != high.getExponent()) {
+            throw new IllegalArgumentException("Exponents " + low.getExponent() + " != " + high.getExponent());
+        }
+        if (!(switchSpeed > 0)) {
+            throw new IllegalArgumentException("Switch speed " + switchSpeed + " <= 0");
+        }
+        int material = materials.length;
+        if (material == MAX_MATERIALS) {
+            throw new IllegalStateException("Too many materials: " + MAX_MATERIALS);
+        }
+        double[] c = Arrays.copyOf(constants, (material + 1) * STRIDE);
+        int base = material * STRIDE;
+        c[base + EXPONENT] = low.getExponent();
+        c[base + SWITCH_SPEED] = switchSpeed;
+        set(c, base, low);
+        set(c, base + HIGH, high);
+        materials = Arrays.copyOf(materials, material + 1);
+        materials[material] = low;
+        highMaterials = Arrays.copyOf(highMaterials, material + 1);
+        highMaterials[material] = high;
+        constants = c;
+        return material;
+    }
+
+    private static void set(double[] c, int base, PipeMaterial material) {
+        c[base + A0] = material.getA0();
+        c[base + COEFFICIENT] = material.getA1() / 1000;
+        c[base + C] = material.getC();
+    }
+
+    /**
+     * @return Количество материалов
+     */
+    public static int size() {
+        return constants.length / STRIDE;
+    }
+
+    /**
+     * @param material Номер материала
+     * @return Материал, для зависящего от скорости - постоянные при малой скорости
+     */
+    public static synchronized PipeMaterial get(int material) {
+        check(material, materials.length);
+        return materials[material];
+    }
+
+    /**
+     * @param material Номер материала
+     * @return Постоянные при скорости не меньше {@link #getSwitchSpeed(int)}
+     */
+    public static synchronized PipeMaterial getHigh(int material) {
+        check(material, materials.length);
+        return highMaterials[material];
+    }
+
+    /**
+     * @param material Номер материала
+     * @return Скорость смены постоянных, м/с, бесконечность - постоянные не зависят от скорости
+     */
+    public static double getSwitchSpeed(int material) {
+        double[] c = constants;
+        check(material, c.length / STRIDE);
+        return c[material * STRIDE + SWITCH_SPEED];
+    }
+
+    /**
+     * Постоянные всех материалов. Массив не изменяется, регистрация материала создаёт новый
+     */
+    static double[] constants() {
+        return constants;
+    }
+
+    /**
+     * Проверить номер материала по массиву постоянных
+     */
+    static void check(double[] constants, int material) {
+        check(material, constants.length / STRIDE);
+    }
+
+    private static void check(int material, int size) {
+        if (material < 0 || material >= size) {
+            throw new IllegalArgumentException("Unknown material " + material + ", materials 0-" + (size - 1));
+        }
+    }
+}
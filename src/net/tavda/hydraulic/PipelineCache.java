@@ -0,0 +1,386 @@
+package net.tavda.hydraulic;
+
+import java.util.Arrays;
+
+/**
+ * Кэш результатов расчёта участков для повторяющихся запросов: подбора диаметров, проверки типовых участков.
+ * Ключ - исходные данные, округлённые до заданного числа значащих бит; расчёт выполняется для округлённых
+ * данных, поэтому результат не зависит от того, какой из близких запросов попал в кэш первым.
+ * Целые значения и значения с короткой двоичной записью (диаметры, температуры) не округляются.
+ * <p>
+ * Кэш делится на полосы со своей блокировкой, полоса - множественно-ассоциативная таблица: запись
+ * хранится в одной из {@link #WAYS} ячеек своего набора, при заполнении набора вытесняется давно
+ * не использованная (LRU). При {@link Eviction#TINY_LFU} новая запись вытесняет старую, только если
+ * запрашивалась чаще неё. Расчёт при промахе выполняется вне блокировки.
+ * Ключи и результаты хранятся в массивах примитивов, обращение к кэшу не создаёт объектов.
+ * Попадания и промахи сообщаются наблюдателю расчёта, см. {@link CalculationListener#cache(boolean)}
+ */
+public class PipelineCache {
+    /**
+     * Вытеснение записей
+     */
+    public enum Eviction {
+        /**
+         * Вытесняется давно не использованная запись набора
+         */
+        LRU,
+        /**
+         * Как {@link #LRU}, но новая запись принимается, только если её частота запросов больше,
+         * чем у вытесняемой. Частоты оцениваются счётчиками count-min, которые периодически уменьшаются вдвое.
+         * Защищает часто запрашиваемые записи от вытеснения потоком однократных запросов
+         */
+        TINY_LFU
+    }
+
+    /**
+     * Количество значащих бит мантиссы по умолчанию: относительный шаг округления 6·10^-8
+     */
+    public static final int DEFAULT_QUANTUM_BITS = 24;
+    /**
+     * Количество ячеек набора
+     */
+    public static final int WAYS = 4;
+
+    private static final int KEY = 8;
+    private static final int TAG = 7;
+    private static final long FORMULAS = 1;
+    private static final long SNIP = 2;
+    private static final int FIELDS = PipelineResult.FIELDS;
+
+    private final PipelineCalculator calculator;
+    private final int quantumBits;
+    private final Eviction eviction;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final int setMask;
+
+    /**
+     * @param calculator Расчёт участков при промахе
+     * @param capacity Наибольшее количество записей, округляется вверх до степени двойки
+     */
+    public PipelineCache(PipelineCalculator calculator, int capacity) {
+        this(calculator, capacity, DEFAULT_QUANTUM_BITS, Eviction.LRU);
+    }
+
+    /**
+     * @param calculator Расчёт участков при промахе
+     * @param capacity Наибольшее количество записей, округляется вверх до степени двойки
+     * @param quantumBits Количество значащих бит мантиссы исходных данных в ключе, 1-52
+     * @param eviction Вытеснение записей
+     */
+    public PipelineCache(PipelineCalculator calculator, int capacity, int quantumBits, Eviction eviction) {
+        if (capacity < WAYS || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity " + capacity + " outside [" + WAYS + ", 2^30]");
+        }
+        if (quantumBits < 1 || quantumBits > 52) {
+            throw new IllegalArgumentException("Quantum bits " + quantumBits + " outside [1, 52]");
+        }
+        this.calculator = calculator;
+        this.quantumBits = quantumBits;
+        this.eviction = eviction;
+        int sets = Integer.highestOneBit(capacity - 1) * 2 / WAYS;
+        // Не меньше 16 наборов на полосу, полос - до 4 на процессор
+        int stripeCount = Math.min(Integer.highestOneBit(Math.max(1, sets / 16)),
+                Integer.highestOneBit(4 * Runtime.getRuntime().availableProcessors() - 1) * 2);
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(sets / stripeCount, eviction == Eviction.TINY_LFU);
+        }
+        stripeMask = stripeCount - 1;
+        setMask = sets / stripeCount - 1;
+    }
+
+    /**
+     * @return Расчёт участков при промахе
+     */
+    public PipelineCalculator getCalculator() {
+        return calculator;
+    }
+
+    /**
+     * @return Вытеснение записей
+     */
+    public Eviction getEviction() {
+        return eviction;
+    }
+
+    /**
+     * @return Наибольшее количество записей
+     */
+    public int capacity() {
+        return stripes.length * (setMask + 1) * WAYS;
+    }
+
+    /**
+     * Округлить значение до заданного числа значащих бит мантиссы
+     * @param value Значение
+     * @param bits Количество бит, 1-52
+     * @return Ближайшее значение с не более чем bits значащими битами после старшего
+     */
+    public static double quantise(double value, int bits) {
+        if (bits >= 52 || Double.isNaN(value) || Double.isInfinite(value)) {
+            return value;
+        }
+        int drop = 52 - bits;
+        long raw = Double.doubleToRawLongBits(value);
+        return Double.longBitsToDouble((raw + (1L << (drop - 1))) & -(1L << drop));
+    }
+
+    /**
+     * Провести расчёт по формулам теоретической гидравлики или взять результат из кэша,
+     * параметры - как у {@link PipelineCalculator#calcFormulas}.
+     * Неявные формулы трения начинают с нулевого приближения, чтобы результат не зависел от out
+     */
+    public void calcFormulas(double consumption, double tempIn, double tempOut, double diameter, double length, double roughness, double sumLocalResist, PipelineResult out) {
+        int bits = quantumBits;
+        double g = quantise(consumption, bits), t1 = quantise(tempIn, bits), t2 = quantise(tempOut, bits),
+                d = quantise(diameter, bits), l = quantise(length, bits), k = quantise(roughness, bits), z = quantise(sumLocalResist, bits);
+        long k0 = Double.doubleToLongBits(g), k1 = Double.doubleToLongBits(t1), k2 = Double.doubleToLongBits(t2),
+                k3 = Double.doubleToLongBits(d), k4 = Double.doubleToLongBits(l), k5 = Double.doubleToLongBits(k),
+                k6 = Double.doubleToLongBits(z);
+        long hash = hash(FORMULAS, k0, k1, k2, k3, k4, k5, k6);
+        Stripe stripe = stripes[(int) hash & stripeMask];
+        int set = (int) (hash >>> 32) & setMask;
+        if (get(stripe, set, hash, FORMULAS, k0, k1, k2, k3, k4, k5, k6, out)) {
+            return;
+        }
+        out.frictionCoefficient = 0;
+        calculator.calcFormulas(g, t1, t2, d, l, k, z, out);
+        put(stripe, set, hash, FORMULAS, k0, k1, k2, k3, k4, k5, k6, out);
+    }
+
+    /**
+     * Провести расчёт по СНиП или взять результат из кэша, параметры - как у {@link PipelineCalculator#calcSNiP}
+     */
+    public void calcSNiP(double consumption, double tempIn, double tempOut, double diameter, double length, int material, PipelineResult out) {
+        PipeMaterials.check(PipeMaterials.constants(), material);
+        int bits = quantumBits;
+        double g = quantise(consumption, bits), t1 = quantise(tempIn, bits), t2 = quantise(tempOut, bits),
+                d = quantise(diameter, bits), l = quantise(length, bits);
+        long k0 = Double.doubleToLongBits(g), k1 = Double.doubleToLongBits(t1), k2 = Double.doubleToLongBits(t2),
+                k3 = Double.doubleToLongBits(d), k4 = Double.doubleToLongBits(l);
+        long hash = hash(SNIP, k0, k1, k2, k3, k4, material, 0);
+        Stripe stripe = stripes[(int) hash & stripeMask];
+        int set = (int) (hash >>> 32) & setMask;
+        if (get(stripe, set, hash, SNIP, k0, k1, k2, k3, k4, material, 0, out)) {
+            return;
+        }
+        calculator.calcSNiP(g, t1, t2, d, l, material, out);
+        put(stripe, set, hash, SNIP, k0, k1, k2, k3, k4, material, 0, out);
+    }
+
+    private static long hash(long tag, long k0, long k1, long k2, long k3, long k4, long k5, long k6) {
+        // Округлённые значения отличаются старшими битами, умножение переносит биты только вверх,
+        // поэтому старшие биты ключа сдвигаются вниз перед умножением
+        long h = tag * 0x9E3779B97F4A7C15L;
+        h = (h ^ k0 ^ (k0 >>> 29)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ k1 ^ (k1 >>> 29)) * 0x94D049BB133111EBL;
+        h = (h ^ k2 ^ (k2 >>> 29)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ k3 ^ (k3 >>> 29)) * 0x94D049BB133111EBL;
+        h = (h ^ k4 ^ (k4 >>> 29)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ k5 ^ (k5 >>> 29)) * 0x94D049BB133111EBL;
+        h = (h ^ k6 ^ (k6 >>> 29)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    private static boolean matches(long[] keys, int offset, long tag, long k0, long k1, long k2, long k3, long k4, long k5, long k6) {
+        return keys[offset + TAG] == tag && keys[offset] == k0 && keys[offset + 1] == k1 && keys[offset + 2] == k2
+                && keys[offset + 3] == k3 && keys[offset + 4] == k4 && keys[offset + 5] == k5 && keys[offset + 6] == k6;
+    }
+
+    private boolean get(Stripe s, int set, long hash, long tag, long k0, long k1, long k2, long k3, long k4, long k5, long k6, PipelineResult out) {
+        boolean hit = false;
+        synchronized (s) {
+            s.record(hash);
+            int first = set * WAYS;
+            for (int e = first; e < first + WAYS; e++) {
+                if (s.used[e] != 0 && matches(s.keys, e * KEY, tag, k0, k1, k2, k3, k4, k5, k6)) {
+                    s.used[e] = ++s.clock;
+                    out.load(s.values, e * FIELDS);
+                    hit = true;
+                    break;
+                }
+            }
+            if (hit) {
+                s.hits++;
+            } else {
+                s.misses++;
+            }
+        }
+        CalculationListener listener = calculator.getListener();
+        if (listener != null) {
+            listener.cache(hit);
+        }
+        return hit;
+    }
+
+    private void put(Stripe s, int set, long hash, long tag, long k0, long k1, long k2, long k3, long k4, long k5, long k6, PipelineResult result) {
+        synchronized (s) {
+            int first = set * WAYS;
+            int victim = first;
+            for (int e = first; e < first + WAYS; e++) {
+                if (s.used[e] != 0 && matches(s.keys, e * KEY, tag, k0, k1, k2, k3, k4, k5, k6)) {
+                    // Вставлено другим потоком
+                    return;
+                }
+                if (s.used[e] < s.used[victim]) {
+                    victim = e;
+                }
+            }
+            if (s.used[victim] != 0 && s.sketch != null && s.frequency(hash) <= s.frequency(s.hashes[victim])) {
+                return;
+            }
+            long[] keys = s.keys;
+            int offset = victim * KEY;
+            keys[offset] = k0;
+            keys[offset + 1] = k1;
+            keys[offset + 2] = k2;
+            keys[offset + 3] = k3;
+            keys[offset + 4] = k4;
+            keys[offset + 5] = k5;
+            keys[offset + 6] = k6;
+            keys[offset + TAG] = tag;
+            s.hashes[victim] = hash;
+            s.used[victim] = ++s.clock;
+            result.store(s.values, victim * FIELDS);
+        }
+    }
+
+    /**
+     * @return Количество попаданий
+     */
+    public long getHits() {
+        long hits = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                hits += s.hits;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * @return Количество промахов
+     */
+    public long getMisses() {
+        long misses = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                misses += s.misses;
+            }
+        }
+        return misses;
+    }
+
+    /**
+     * @return Доля попаданий, 0 - если обращений не было
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return Количество записей
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                for (long used : s.used) {
+                    if (used != 0) {
+                        size++;
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Удалить все записи и обнулить счётчики попаданий и промахов
+     */
+    public void clear() {
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                Arrays.fill(s.used, 0);
+                if (s.sketch != null) {
+                    Arrays.fill(s.sketch, (byte) 0);
+                    s.additions = 0;
+                }
+                s.clock = 0;
+                s.hits = 0;
+                s.misses = 0;
+            }
+        }
+    }
+
+    /**
+     * Полоса кэша: наборы по {@link #WAYS} записей и счётчики частоты запросов
+     */
+    private static final class Stripe {
+        private static final long[] SEEDS = {0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L, 0xFF51AFD7ED558CCDL};
+        private static final int MAX_FREQUENCY = 15;
+
+        final long[] keys;
+        final long[] hashes;
+        /**
+         * Время последнего обращения к записи, 0 - ячейка пуста
+         */
+        final long[] used;
+        final double[] values;
+        final byte[] sketch;
+        final int sketchMask;
+        final int sampleSize;
+        int additions;
+        long clock;
+        long hits;
+        long misses;
+
+        Stripe(int sets, boolean frequencies) {
+            int entries = sets * WAYS;
+            keys = new long[entries * KEY];
+            hashes = new long[entries];
+            used = new long[entries];
+            values = new double[entries * FIELDS];
+            sketch = frequencies ? new byte[entries * 8] : null;
+            sketchMask = entries * 8 - 1;
+            sampleSize = entries * 10;
+        }
+
+        void record(long hash) {
+            if (sketch == null) {
+                return;
+            }
+            for (long seed : SEEDS) {
+                int i = index(hash, seed);
+                if (sketch[i] < MAX_FREQUENCY) {
+                    sketch[i]++;
+                }
+            }
+            if (++additions == sampleSize) {
+                // Старение: частоты давних запросов уменьшаются вдвое
+                for (int i = 0; i < sketch.length; i++) {
+                    sketch[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(long hash) {
+            int frequency = MAX_FREQUENCY;
+            for (long seed : SEEDS) {
+                frequency = Math.min(frequency, sketch[index(hash, seed)]);
+            }
+            return frequency;
+        }
+
+        private int index(long hash, long seed) {
+            long h = hash * seed;
+            return (int) (h >>> 32) & sketchMask;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package net.tavda.hydraulic;
+
+/**
+ * Гидравлический расчёт горизонтального участка трубопровода без внутреннего состояния.
+ * Исходные данные передаются параметрами, результаты записываются в {@link PipelineResult} вызывающего.
+ * Объект неизменяем, один экземпляр можно использовать из любого числа потоков.
+ * Результаты совпадают побитово с {@link HorizontalPipeline} и {@link HorizontalPipelineBatch}
+ * при тех же режиме вычисления степеней и свойствах воды.
+ */
+public final class PipelineCalculator {
+    private static final PipelineCalculator STRICT = new PipelineCalculator(Precision.STRICT);
+    private static final PipelineCalculator FAST = new PipelineCalculator(Precision.FAST);
+
+    private final Precision precision;
+    private final boolean fast;
+    private final WaterProperties water;
+    private final FrictionModel friction;
+    private final CalculationListener listener;
+
+    /**
+     * @param precision Режим вычисления степеней
+     */
+    public PipelineCalculator(Precision precision) {
+        this(precision, WaterProperties.exact());
+    }
+
+    /**
+     * @param precision Режим вычисления степеней
+     * @param water Свойства воды
+     */
+    public PipelineCalculator(Precision precision, WaterProperties water) {
+        this(precision, water, FrictionModel.ALTSHUL);
+    }
+
+    /**
+     * @param precision Режим вычисления степеней
+     * @param water Свойства воды
+     * @param friction Формула к-та гидравлического трения в турбулентном режиме
+     */
+    public PipelineCalculator(Precision precision, WaterProperties water, FrictionModel friction) {
+        this(precision, water, friction, null);
+    }
+
+    /**
+     * @param precision Режим вычисления степеней
+     * @param water Свойства воды
+     * @param friction Формула к-та гидравлического трения в турбулентном режиме
+     * @param listener Наблюдатель за расчётами, null - без измерений
+     */
+    public PipelineCalculator(Precision precision, WaterProperties water, FrictionModel friction, CalculationListener listener) {
+        this.precision = precision;
+        this.fast = precision == Precision.FAST;
+        this.water = water;
+        this.friction = friction;
+        this.listener = listener;
+    }
+
+    /**
+     * @param precision Режим вычисления степеней
+     * @return Общий экземпляр для режима
+     */
+    public static PipelineCalculator getInstance(Precision precision) {
+        return precision == Precision.FAST ? FAST : STRICT;
+    }
+
+    /**
+     * @return Режим вычисления степеней
+     */
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @return Свойства воды
+     */
+    public WaterProperties getWaterProperties() {
+        return water;
+    }
+
+    /**
+     * @return Формула к-та гидравлического трения в турбулентном режиме
+     */
+    public FrictionModel getFrictionModel() {
+        return friction;
+    }
+
+    /**
+     * @return Наблюдатель за расчётами, null - без измерений
+     */
+    public CalculationListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Этапы расчёта для пересчёта части величин, см. {@link HorizontalPipeline#recalc()}.
+     * Полный расчёт выполняет те же этапы по порядку, поэтому частичный пересчёт совпадает с полным побитово
+     */
+    void calcProperties(double tempIn, double tempOut, PipelineResult out) {
+        out.averageTemp = Hydraulics.averageTemp(tempIn, tempOut);
+        out.viscosity = water.viscosity(out.averageTemp);
+        out.averageDensity = water.density(out.averageTemp);
+    }
+
+    void calcFlow(double consumption, double diameter, PipelineResult out) {
+        out.consumptionLitersPerMinute = Hydraulics.consumptionLitersPerMinute(consumption, out.averageDensity);
+        out.speed = Hydraulics.speed(consumption, out.averageDensity, diameter, fast);
+        out.reynoldsNumber = Hydraulics.reynoldsNumber(out.speed, diameter, out.viscosity);
+    }
+
+    void calcFriction(double roughness, double diameter, PipelineResult out) {
+        out.frictionCoefficient = Hydraulics.frictionCoefficient(friction, out.reynoldsNumber, roughness, diameter, out.frictionCoefficient, fast);
+        out.frictionLoss = Hydraulics.frictionLoss(out.frictionCoefficient, out.speed, out.averageDensity, diameter, fast);
+    }
+
+    void calcLoss(double consumption, double length, double sumLocalResist, PipelineResult out) {
+        out.pressureFrictionLossKgPerSm2 = length * out.frictionLoss;
+        out.pressureFrictionLossPa = Hydraulics.pa(out.pressureFrictionLossKgPerSm2);
+        out.pressureLocalResistLossKgPerSm2 = Hydraulics.localResistLoss(sumLocalResist, out.speed, out.averageDensity, fast);
+        out.pressureLocalResistLossPa = Hydraulics.pa(out.pressureLocalResistLossKgPerSm2);
+        out.pressureLossKgPerSm2 = out.pressureFrictionLossKgPerSm2 + out.pressureLocalResistLossKgPerSm2;
+        out.pressureLossPa = Hydraulics.pa(out.pressureLossKgPerSm2);
+        out.pipelineResistance = Hydraulics.pipelineResistance(out.pressureLossPa, consumption, fast);
+    }
+
+    void calcHydraulicResistance(int material, double diameter, PipelineResult out) {
+        out.hydraulicResistance = Hydraulics.hydraulicResistance(PipeMaterials.constants(), material, out.speed, diameter, fast);
+    }
+
+    void calcSNiPLoss(double length, PipelineResult out) {
+        out.pressureLossKgPerSm2 = Hydraulics.snipLoss(out.hydraulicResistance, length);
+        out.pressureLossPa = Hydraulics.pa(out.pressureLossKgPerSm2);
+    }
+
+    /**
+     * Провести расчёт по формулам теоретической гидравлики.
+     * Коэффициент гидравлического сопротивления по СНиП обнуляется.
+     * Прежний к-т гидравлического трения в out служит начальным приближением для неявных формул трения.
+     * @param consumption Расход воды через трубопровод, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param roughness Экв. шероховатость внутр. поверхностей труб, мм
+     * @param sumLocalResist Сумма к-тов местных сопротивлений
+     * @param out Результаты расчёта
+     */
+    public void calcFormulas(double consumption, double tempIn, double tempOut, double diameter, double length, double roughness, double sumLocalResist, PipelineResult out) {
+        if (listener == null) {
+            formulas(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist, out);
+            return;
+        }
+        long start = System.nanoTime();
+        formulas(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist, out);
+        listener.formulas(CalculationListener.regime(out.reynoldsNumber), System.nanoTime() - start);
+    }
+
+    private void formulas(double consumption, double tempIn, double tempOut, double diameter, double length, double roughness, double sumLocalResist, PipelineResult out) {
+        calcProperties(tempIn, tempOut, out);
+        calcFlow(consumption, diameter, out);
+        calcFriction(roughness, diameter, out);
+        calcLoss(consumption, length, sumLocalResist, out);
+        out.hydraulicResistance = 0;
+    }
+
+    /**
+     * Провести расчёт по СНиП.
+     * Величины, которые считаются только по формулам теоретической гидравлики, обнуляются.
+     * @param consumption Расход воды через трубопровод, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param material Материал труб, см. {@link HorizontalPipeline#HorizontalPipeline(double, double, double, double, double, int)}
+     * @param out Результаты расчёта
+     */
+    public void calcSNiP(double consumption, double tempIn, double tempOut, double diameter, double length, int material, PipelineResult out) {
+        PipeMaterials.check(PipeMaterials.constants(), material);
+        if (listener == null) {
+            snip(consumption, tempIn, tempOut, diameter, length, material, out);
+            return;
+        }
+        long start = System.nanoTime();
+        snip(consumption, tempIn, tempOut, diameter, length, material, out);
+        listener.snip(material, System.nanoTime() - start);
+    }
+
+    private void snip(double consumption, double tempIn, double tempOut, double diameter, double length, int material, PipelineResult out) {
+        calcProperties(tempIn, tempOut, out);
+        calcFlow(consumption, diameter, out);
+        calcHydraulicResistance(material, diameter, out);
+        calcSNiPLoss(length, out);
+        out.frictionCoefficient = 0;
+        out.frictionLoss = 0;
+        out.pressureFrictionLossKgPerSm2 = 0;
+        out.pressureFrictionLossPa = 0;
+        out.pressureLocalResistLossKgPerSm2 = 0;
+        out.pressureLocalResistLossPa = 0;
+        out.pipelineResistance = 0;
+    }
+}
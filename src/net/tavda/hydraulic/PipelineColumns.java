@@ -0,0 +1,192 @@
+package net.tavda.hydraulic;
+
+/**
+ * Результаты пакетного расчёта участков трубопровода, по столбцу на каждую величину.
+ * Элемент i каждого столбца соответствует участку i пакета.
+ */
+public class PipelineColumns {
+    private final int size;
+    private final double[] averageTemp;
+    private final double[] viscosity;
+    private final double[] averageDensity;
+    private final double[] consumptionLitersPerMinute;
+    private final double[] speed;
+    private final double[] reynoldsNumber;
+    private final double[] frictionCoefficient;
+    private final double[] frictionLoss;
+    private final double[] pressureFrictionLossKgPerSm2;
+    private final double[] pressureFrictionLossPa;
+    private final double[] pressureLocalResistLossKgPerSm2;
+    private final double[] pressureLocalResistLossPa;
+    private final double[] pressureLossKgPerSm2;
+    private final double[] pressureLossPa;
+    private final double[] pipelineResistance;
+    private final double[] hydraulicResistance;
+
+    /**
+     * @param size Количество участков
+     */
+    public PipelineColumns(int size) {
+        this.size = size;
+        averageTemp = new double[size];
+        viscosity = new double[size];
+        averageDensity = new double[size];
+        consumptionLitersPerMinute = new double[size];
+        speed = new double[size];
+        reynoldsNumber = new double[size];
+        frictionCoefficient = new double[size];
+        frictionLoss = new double[size];
+        pressureFrictionLossKgPerSm2 = new double[size];
+        pressureFrictionLossPa = new double[size];
+        pressureLocalResistLossKgPerSm2 = new double[size];
+        pressureLocalResistLossPa = new double[size];
+        pressureLossKgPerSm2 = new double[size];
+        pressureLossPa = new double[size];
+        pipelineResistance = new double[size];
+        hydraulicResistance = new double[size];
+    }
+
+    /**
+     * @return Количество участков
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Скопировать результаты участка в другие столбцы
+     * @param index Номер участка
+     * @param out Столбцы результатов
+     * @param outIndex Номер участка в out
+     */
+    public void copyRow(int index, PipelineColumns out, int outIndex) {
+        out.averageTemp[outIndex] = averageTemp[index];
+        out.viscosity[outIndex] = viscosity[index];
+        out.averageDensity[outIndex] = averageDensity[index];
+        out.consumptionLitersPerMinute[outIndex] = consumptionLitersPerMinute[index];
+        out.speed[outIndex] = speed[index];
+        out.reynoldsNumber[outIndex] = reynoldsNumber[index];
+        out.frictionCoefficient[outIndex] = frictionCoefficient[index];
+        out.frictionLoss[outIndex] = frictionLoss[index];
+        out.pressureFrictionLossKgPerSm2[outIndex] = pressureFrictionLossKgPerSm2[index];
+        out.pressureFrictionLossPa[outIndex] = pressureFrictionLossPa[index];
+        out.pressureLocalResistLossKgPerSm2[outIndex] = pressureLocalResistLossKgPerSm2[index];
+        out.pressureLocalResistLossPa[outIndex] = pressureLocalResistLossPa[index];
+        out.pressureLossKgPerSm2[outIndex] = pressureLossKgPerSm2[index];
+        out.pressureLossPa[outIndex] = pressureLossPa[index];
+        out.pipelineResistance[outIndex] = pipelineResistance[index];
+        out.hydraulicResistance[outIndex] = hydraulicResistance[index];
+    }
+
+    /**
+     * @return Средняя температура воды, градусов цельсия
+     */
+    public double[] getAverageTemp() {
+        return averageTemp;
+    }
+
+    /**
+     * @return Кинематический к-т вязкости воды (при t_ср), см^2/с
+     */
+    public double[] getViscosity() {
+        return viscosity;
+    }
+
+    /**
+     * @return Средняя плотность воды (при t_ср), т/м^3
+     */
+    public double[] getAverageDensity() {
+        return averageDensity;
+    }
+
+    /**
+     * @return Расход воды через трубопровод, л/мин
+     */
+    public double[] getConsumptionLitersPerMinute() {
+        return consumptionLitersPerMinute;
+    }
+
+    /**
+     * @return Скорость воды, м/с
+     */
+    public double[] getSpeed() {
+        return speed;
+    }
+
+    /**
+     * @return Число Рейнольдса
+     */
+    public double[] getReynoldsNumber() {
+        return reynoldsNumber;
+    }
+
+    /**
+     * @return К-т гидравлического трения
+     */
+    public double[] getFrictionCoefficient() {
+        return frictionCoefficient;
+    }
+
+    /**
+     * @return Удельные потери давления на трение, кг/(см^2*м)
+     */
+    public double[] getFrictionLoss() {
+        return frictionLoss;
+    }
+
+    /**
+     * @return Потери давления на трение, кг/см^2
+     */
+    public double[] getPressureFrictionLossKgPerSm2() {
+        return pressureFrictionLossKgPerSm2;
+    }
+
+    /**
+     * @return Потери давления на трение, Па
+     */
+    public double[] getPressureFrictionLossPa() {
+        return pressureFrictionLossPa;
+    }
+
+    /**
+     * @return Потери давления в местных сопротивлениях, кг/см^2
+     */
+    public double[] getPressureLocalResistLossKgPerSm2() {
+        return pressureLocalResistLossKgPerSm2;
+    }
+
+    /**
+     * @return Потери давления в местных сопротивлениях, Па
+     */
+    public double[] getPressureLocalResistLossPa() {
+        return pressureLocalResistLossPa;
+    }
+
+    /**
+     * @return Потери давления в трубопроводе, кг/см^2
+     */
+    public double[] getPressureLossKgPerSm2() {
+        return pressureLossKgPerSm2;
+    }
+
+    /**
+     * @return Потери давления в трубопроводе, Па
+     */
+    public double[] getPressureLossPa() {
+        return pressureLossPa;
+    }
+
+    /**
+     * @return Характеристика гидравлического сопротивления трубопровода, Па/(т/ч)
+     */
+    public double[] getPipelineResistance() {
+        return pipelineResistance;
+    }
+
+    /**
+     * @return Коэффициент гидравлического сопротивления по СНИП
+     */
+    public double[] getHydraulicResistance() {
+        return hydraulicResistance;
+    }
+}
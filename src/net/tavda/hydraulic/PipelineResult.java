@@ -0,0 +1,257 @@
+package net.tavda.hydraulic;
+
+/**
+ * Результаты расчёта участка трубопровода.
+ * Заполняется {@link PipelineCalculator}; объект принадлежит вызывающему и может использоваться повторно,
+ * чтобы расчёт не создавал объектов. Не предназначен для записи из нескольких потоков одновременно.
+ */
+public final class PipelineResult {
+    double averageTemp;
+    double viscosity;
+    double averageDensity;
+    double consumptionLitersPerMinute;
+    double speed;
+    double reynoldsNumber;
+    double frictionCoefficient;
+    double frictionLoss;
+    double pressureFrictionLossKgPerSm2;
+    double pressureFrictionLossPa;
+    double pressureLocalResistLossKgPerSm2;
+    double pressureLocalResistLossPa;
+    double pressureLossKgPerSm2;
+    double pressureLossPa;
+    double pipelineResistance;
+    double hydraulicResistance;
+
+    /**
+     * Количество величин результата
+     */
+    static final int FIELDS = 16;
+
+    /**
+     * Записать величины подряд в массив, начиная с offset
+     */
+    void store(double[] values, int offset) {
+        values[offset] = averageTemp;
+        values[offset + 1] = viscosity;
+        values[offset + 2] = averageDensity;
+        values[offset + 3] = consumptionLitersPerMinute;
+        values[offset + 4] = speed;
+        values[offset + 5] = reynoldsNumber;
+        values[offset + 6] = frictionCoefficient;
+        values[offset + 7] = frictionLoss;
+        values[offset + 8] = pressureFrictionLossKgPerSm2;
+        values[offset + 9] = pressureFrictionLossPa;
+        values[offset + 10] = pressureLocalResistLossKgPerSm2;
+        values[offset + 11] = pressureLocalResistLossPa;
+        values[offset + 12] = pressureLossKgPerSm2;
+        values[offset + 13] = pressureLossPa;
+        values[offset + 14] = pipelineResistance;
+        values[offset + 15] = hydraulicResistance;
+    }
+
+    /**
+     * Прочитать величины, записанные {@link #store(double[], int)}
+     */
+    void load(double[] values, int offset) {
+        averageTemp = values[offset];
+        viscosity = values[offset + 1];
+        averageDensity = values[offset + 2];
+        consumptionLitersPerMinute = values[offset + 3];
+        speed = values[offset + 4];
+        reynoldsNumber = values[offset + 5];
+        frictionCoefficient = values[offset + 6];
+        frictionLoss = values[offset + 7];
+        pressureFrictionLossKgPerSm2 = values[offset + 8];
+        pressureFrictionLossPa = values[offset + 9];
+        pressureLocalResistLossKgPerSm2 = values[offset + 10];
+        pressureLocalResistLossPa = values[offset + 11];
+        pressureLossKgPerSm2 = values[offset + 12];
+        pressureLossPa = values[offset + 13];
+        pipelineResistance = values[offset + 14];
+        hydraulicResistance = values[offset + 15];
+    }
+
+    /**
+     * Скопировать результаты в столбцы пакетного расчёта
+     * @param out Столбцы результатов
+     * @param index Номер участка
+     */
+    public void copyTo(PipelineColumns out, int index) {
+        out.getAverageTemp()[index] = averageTemp;
+        out.getViscosity()[index] = viscosity;
+        out.getAverageDensity()[index] = averageDensity;
+        out.getConsumptionLitersPerMinute()[index] = consumptionLitersPerMinute;
+        out.getSpeed()[index] = speed;
+        out.getReynoldsNumber()[index] = reynoldsNumber;
+        out.getFrictionCoefficient()[index] = frictionCoefficient;
+        out.getFrictionLoss()[index] = frictionLoss;
+        out.getPressureFrictionLossKgPerSm2()[index] = pressureFrictionLossKgPerSm2;
+        out.getPressureFrictionLossPa()[index] = pressureFrictionLossPa;
+        out.getPressureLocalResistLossKgPerSm2()[index] = pressureLocalResistLossKgPerSm2;
+        out.getPressureLocalResistLossPa()[index] = pressureLocalResistLossPa;
+        out.getPressureLossKgPerSm2()[index] = pressureLossKgPerSm2;
+        out.getPressureLossPa()[index] = pressureLossPa;
+        out.getPipelineResistance()[index] = pipelineResistance;
+        out.getHydraulicResistance()[index] = hydraulicResistance;
+    }
+
+    /**
+     * Прочитать результаты участка из столбцов пакетного расчёта
+     * @param in Столбцы результатов
+     * @param index Номер участка
+     */
+    public void copyFrom(PipelineColumns in, int index) {
+        averageTemp = in.getAverageTemp()[index];
+        viscosity = in.getViscosity()[index];
+        averageDensity = in.getAverageDensity()[index];
+        consumptionLitersPerMinute = in.getConsumptionLitersPerMinute()[index];
+        speed = in.getSpeed()[index];
+        reynoldsNumber = in.getReynoldsNumber()[index];
+        frictionCoefficient = in.getFrictionCoefficient()[index];
+        frictionLoss = in.getFrictionLoss()[index];
+        pressureFrictionLossKgPerSm2 = in.getPressureFrictionLossKgPerSm2()[index];
+        pressureFrictionLossPa = in.getPressureFrictionLossPa()[index];
+        pressureLocalResistLossKgPerSm2 = in.getPressureLocalResistLossKgPerSm2()[index];
+        pressureLocalResistLossPa = in.getPressureLocalResistLossPa()[index];
+        pressureLossKgPerSm2 = in.getPressureLossKgPerSm2()[index];
+        pressureLossPa = in.getPressureLossPa()[index];
+        pipelineResistance = in.getPipelineResistance()[index];
+        hydraulicResistance = in.getHydraulicResistance()[index];
+    }
+
+    /**
+     * Скопировать результаты другого расчёта
+     * @param other Результаты
+     */
+    public void copyFrom(PipelineResult other) {
+        averageTemp = other.averageTemp;
+        viscosity = other.viscosity;
+        averageDensity = other.averageDensity;
+        consumptionLitersPerMinute = other.consumptionLitersPerMinute;
+        speed = other.speed;
+        reynoldsNumber = other.reynoldsNumber;
+        frictionCoefficient = other.frictionCoefficient;
+        frictionLoss = other.frictionLoss;
+        pressureFrictionLossKgPerSm2 = other.pressureFrictionLossKgPerSm2;
+        pressureFrictionLossPa = other.pressureFrictionLossPa;
+        pressureLocalResistLossKgPerSm2 = other.pressureLocalResistLossKgPerSm2;
+        pressureLocalResistLossPa = other.pressureLocalResistLossPa;
+        pressureLossKgPerSm2 = other.pressureLossKgPerSm2;
+        pressureLossPa = other.pressureLossPa;
+        pipelineResistance = other.pipelineResistance;
+        hydraulicResistance = other.hydraulicResistance;
+    }
+
+    /**
+     * @return Средняя температура воды, градусов цельсия
+     */
+    public double getAverageTemp() {
+        return averageTemp;
+    }
+
+    /**
+     * @return Кинематический к-т вязкости воды (при t_ср), см^2/с
+     */
+    public double getViscosity() {
+        return viscosity;
+    }
+
+    /**
+     * @return Средняя плотность воды (при t_ср), т/м^3
+     */
+    public double getAverageDensity() {
+        return averageDensity;
+    }
+
+    /**
+     * @return Расход воды через трубопровод, л/мин
+     */
+    public double getConsumptionLitersPerMinute() {
+        return consumptionLitersPerMinute;
+    }
+
+    /**
+     * @return Скорость воды, м/с
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * @return Число Рейнольдса
+     */
+    public double getReynoldsNumber() {
+        return reynoldsNumber;
+    }
+
+    /**
+     * @return К-т гидравлического трения
+     */
+    public double getFrictionCoefficient() {
+        return frictionCoefficient;
+    }
+
+    /**
+     * @return Удельные потери давления на трение, кг/(см^2*м)
+     */
+    public double getFrictionLoss() {
+        return frictionLoss;
+    }
+
+    /**
+     * @return Потери давления на трение, кг/см^2
+     */
+    public double getPressureFrictionLossKgPerSm2() {
+        return pressureFrictionLossKgPerSm2;
+    }
+
+    /**
+     * @return Потери давления на трение, Па
+     */
+    public double getPressureFrictionLossPa() {
+        return pressureFrictionLossPa;
+    }
+
+    /**
+     * @return Потери давления в местных сопротивлениях, кг/см^2
+     */
+    public double getPressureLocalResistLossKgPerSm2() {
+        return pressureLocalResistLossKgPerSm2;
+    }
+
+    /**
+     * @return Потери давления в местных сопротивлениях, Па
+     */
+    public double getPressureLocalResistLossPa() {
+        return pressureLocalResistLossPa;
+    }
+
+    /**
+     * @return Потери давления в трубопроводе, кг/см^2
+     */
+    public double getPressureLossKgPerSm2() {
+        return pressureLossKgPerSm2;
+    }
+
+    /**
+     * @return Потери давления в трубопроводе, Па
+     */
+    public double getPressureLossPa() {
+        return pressureLossPa;
+    }
+
+    /**
+     * @return Характеристика гидравлического сопротивления трубопровода, Па/(т/ч)
+     */
+    public double getPipelineResistance() {
+        return pipelineResistance;
+    }
+
+    /**
+     * @return Коэффициент гидравлического сопротивления по СНИП
+     */
+    public double getHydraulicResistance() {
+        return hydraulicResistance;
+    }
+}
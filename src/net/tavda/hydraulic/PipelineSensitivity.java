@@ -0,0 +1,155 @@
+package net.tavda.hydraulic;
+
+/**
+ * Чувствительность потерь давления участка к исходным данным: частные производные ∂ΔP/∂x, Па на единицу x.
+ * Производные считаются аналитически по цепочке формул вместе с самим расчётом, без повторных расчётов участка:
+ * ΔP трения пропорциональны λ·L·G²/(ρ·d⁵), местные потери - ζ·G²/(ρ·d⁴), Re - G/(ρ·d·ν), а зависимость λ от Re
+ * и k/d даёт {@link FrictionModel#slope} и {@link FrictionModel#roughnessSlope}.
+ * Производные свойств воды по температуре берутся от точных формул при любом источнике {@link WaterProperties}.
+ * На границах режимов течения и смены строки таблицы СНиП ΔP меняется скачком, производная берётся с той стороны,
+ * по которой считался участок.
+ * <p>
+ * Объект не потокобезопасен, для каждого потока нужен свой
+ */
+public class PipelineSensitivity {
+    /**
+     * Производная по расходу, Па/(т/ч)
+     */
+    public static final int CONSUMPTION = 0;
+    /**
+     * Производная по температуре на входе, Па/°C
+     */
+    public static final int TEMP_IN = 1;
+    /**
+     * Производная по температуре на выходе, Па/°C
+     */
+    public static final int TEMP_OUT = 2;
+    /**
+     * Производная по диаметру, Па/мм
+     */
+    public static final int DIAMETER = 3;
+    /**
+     * Производная по длине, Па/м
+     */
+    public static final int LENGTH = 4;
+    /**
+     * Производная по шероховатости, Па/мм
+     */
+    public static final int ROUGHNESS = 5;
+    /**
+     * Производная по сумме к-тов местных сопротивлений, Па
+     */
+    public static final int SUM_LOCAL_RESIST = 6;
+    /**
+     * Количество производных расчёта по формулам
+     */
+    public static final int FORMULAS_INPUTS = 7;
+    /**
+     * Количество производных расчёта по СНиП: расход, температуры, диаметр, длина
+     */
+    public static final int SNIP_INPUTS = 5;
+
+    private final PipelineCalculator calculator;
+    private final PipelineResult result = new PipelineResult();
+
+    /**
+     * @param calculator Расчёт участков
+     */
+    public PipelineSensitivity(PipelineCalculator calculator) {
+        this.calculator = calculator;
+    }
+
+    /**
+     * @return Результаты последнего расчёта
+     */
+    public PipelineResult getResult() {
+        return result;
+    }
+
+    /**
+     * Рассчитать потери по формулам теоретической гидравлики и их производные
+     * @param consumption Расход воды через трубопровод, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param roughness Экв. шероховатость внутр. поверхностей труб, мм
+     * @param sumLocalResist Сумма к-тов местных сопротивлений
+     * @param gradient Производные в порядке {@link #CONSUMPTION} - {@link #SUM_LOCAL_RESIST}, размером не меньше {@link #FORMULAS_INPUTS}
+     * @return Потери давления, Па
+     */
+    public double calcFormulas(double consumption, double tempIn, double tempOut, double diameter, double length, double roughness, double sumLocalResist, double[] gradient) {
+        checkSize(gradient, FORMULAS_INPUTS);
+        PipelineResult r = result;
+        calculator.calcFormulas(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist, r);
+        double re = r.reynoldsNumber;
+        double relativeRoughness = roughness / diameter;
+        // d(ln λ)/d(ln Re) и d(ln λ)/d(k/d)
+        double slope;
+        double roughnessSlope;
+        if (re <= 2320) {
+            slope = -1;
+            roughnessSlope = 0;
+        } else if (re <= 4000) {
+            slope = 1;
+            roughnessSlope = 0;
+        } else {
+            FrictionModel friction = calculator.getFrictionModel();
+            slope = friction.slope(re, relativeRoughness, r.frictionCoefficient);
+            roughnessSlope = friction.roughnessSlope(re, relativeRoughness, r.frictionCoefficient);
+        }
+        double frictionLoss = r.pressureFrictionLossPa;
+        double localLoss = r.pressureLocalResistLossPa;
+        double density = Hydraulics.densitySlope(r.averageTemp) / r.averageDensity;
+        double viscosity = Hydraulics.viscositySlope(r.averageTemp) / r.viscosity;
+        double temp = (frictionLoss * (-density - slope * (density + viscosity)) - localLoss * density) / 2;
+        gradient[CONSUMPTION] = (frictionLoss * (2 + slope) + 2 * localLoss) / consumption;
+        gradient[TEMP_IN] = temp;
+        gradient[TEMP_OUT] = temp;
+        gradient[DIAMETER] = (frictionLoss * (-5 - slope - roughnessSlope * relativeRoughness) - 4 * localLoss) / diameter;
+        gradient[LENGTH] = frictionLoss / length;
+        gradient[ROUGHNESS] = frictionLoss * roughnessSlope / diameter;
+        gradient[SUM_LOCAL_RESIST] = Hydraulics.pa(Hydraulics.localResistLoss(1, r.speed, r.averageDensity, calculator.getPrecision() == Precision.FAST));
+        return r.pressureLossPa;
+    }
+
+    /**
+     * Рассчитать потери по СНиП и их производные
+     * @param consumption Расход воды через трубопровод, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param material Материал труб, см. {@link PipeMaterials}
+     * @param gradient Производные в порядке {@link #CONSUMPTION} - {@link #LENGTH}, размером не меньше {@link #SNIP_INPUTS}
+     * @return Потери давления, Па
+     */
+    public double calcSNiP(double consumption, double tempIn, double tempOut, double diameter, double length, int material, double[] gradient) {
+        checkSize(gradient, SNIP_INPUTS);
+        PipelineResult r = result;
+        calculator.calcSNiP(consumption, tempIn, tempOut, diameter, length, material, r);
+        double[] materials = PipeMaterials.constants();
+        int base = material * PipeMaterials.STRIDE;
+        double m = materials[base + PipeMaterials.EXPONENT];
+        if (r.speed >= materials[base + PipeMaterials.SWITCH_SPEED]) {
+            base += PipeMaterials.HIGH;
+        }
+        // i ~ (a0 + c/v)^m·v²/d^(m+1): d(ln i)/d(ln v) = 2 - m·(c/v)/(a0 + c/v)
+        double c = materials[base + PipeMaterials.C] / r.speed;
+        double speedSlope = 2 - m * c / (materials[base + PipeMaterials.A0] + c);
+        double loss = r.pressureLossPa;
+        double temp = -loss * speedSlope * Hydraulics.densitySlope(r.averageTemp) / r.averageDensity / 2;
+        gradient[CONSUMPTION] = loss * speedSlope / consumption;
+        gradient[TEMP_IN] = temp;
+        gradient[TEMP_OUT] = temp;
+        gradient[DIAMETER] = loss * (-(m + 1) - 2 * speedSlope) / diameter;
+        gradient[LENGTH] = loss / length;
+        return loss;
+    }
+
+    private static void checkSize(double[] gradient, int size) {
+        if (gradient.length < size) {
+            throw new IllegalArgumentException("Gradient size " + gradient.length + " < " + size);
+        }
+    }
+}
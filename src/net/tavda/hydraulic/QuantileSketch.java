@@ -0,0 +1,226 @@
+package net.tavda.hydraulic;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Потоковая оценка квантилей вещественных значений с заданной относительной погрешностью.
+ * Значение попадает в интервал [γ^(i-1), γ^i], γ = (1+α)/(1-α), для которого хранится только счётчик,
+ * поэтому память зависит от отношения наибольшего значения к наименьшему, а не от количества значений:
+ * при α = 0.001 на каждое удвоение значений приходится около 350 интервалов.
+ * Квантиль отличается от точного не более чем на α относительно; наименьшее, наибольшее и среднее значения точны.
+ * <p>
+ * Оценки с одинаковой погрешностью объединяются без потери точности, см. {@link #merge(QuantileSketch)}.
+ * Объект не потокобезопасен: параллельный расчёт ведёт свою оценку в каждом потоке и объединяет их
+ */
+public final class QuantileSketch {
+    /**
+     * Относительная погрешность по умолчанию
+     */
+    public static final double DEFAULT_ACCURACY = 0.001;
+
+    private final double accuracy;
+    private final double gamma;
+    private final double inverseLogGamma;
+    private final Counts positive = new Counts();
+    private final Counts negative = new Counts();
+    private long zero;
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_ACCURACY);
+    }
+
+    /**
+     * @param accuracy Относительная погрешность квантилей α, от 0 до 1
+     */
+    public QuantileSketch(double accuracy) {
+        if (!(accuracy > 0 && accuracy < 1)) {
+            throw new IllegalArgumentException("Accuracy " + accuracy + " outside (0, 1)");
+        }
+        this.accuracy = accuracy;
+        gamma = (1 + accuracy) / (1 - accuracy);
+        inverseLogGamma = 1 / Math.log(gamma);
+    }
+
+    /**
+     * @return Относительная погрешность квантилей
+     */
+    public double getAccuracy() {
+        return accuracy;
+    }
+
+    /**
+     * Записать значение
+     * @param value Конечное значение
+     */
+    public void record(double value) {
+        if (!(Math.abs(value) <= Double.MAX_VALUE)) {
+            throw new IllegalArgumentException("Value " + value + " is not finite");
+        }
+        if (value > 0) {
+            positive.add(index(value), 1);
+        } else if (value < 0) {
+            negative.add(index(-value), 1);
+        } else {
+            zero++;
+        }
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    private int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) * inverseLogGamma);
+    }
+
+    /**
+     * Середина интервала по относительной погрешности
+     */
+    private double value(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    /**
+     * Добавить значения другой оценки
+     * @param other Оценка с той же погрешностью
+     */
+    public void merge(QuantileSketch other) {
+        if (other.accuracy != accuracy) {
+            throw new IllegalArgumentException("Accuracy " + other.accuracy + " != " + accuracy);
+        }
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zero += other.zero;
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @return Количество записанных значений
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Среднее значение, 0 - если значений нет
+     */
+    public double getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * @return Наименьшее значение, 0 - если значений нет
+     */
+    public double getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * @return Наибольшее значение, 0 - если значений нет
+     */
+    public double getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    /**
+     * @param quantile Квантиль, от 0 до 1
+     * @return Значение квантиля, 0 - если значений нет
+     */
+    public double getValueAt(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Quantile " + quantile + " outside [0, 1]");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        // Номер значения в упорядоченной выборке, считая с нуля
+        long rank = (long) (quantile * (count - 1));
+        long seen = 0;
+        double value = 0;
+        boolean found = false;
+        for (int i = negative.counts.length - 1; i >= 0 && !found; i--) {
+            seen += negative.counts[i];
+            if (seen > rank) {
+                value = -value(i + negative.offset);
+                found = true;
+            }
+        }
+        if (!found) {
+            seen += zero;
+            found = seen > rank;
+        }
+        for (int i = 0; i < positive.counts.length && !found; i++) {
+            seen += positive.counts[i];
+            if (seen > rank) {
+                value = value(i + positive.offset);
+                found = true;
+            }
+        }
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Удалить все значения
+     */
+    public void reset() {
+        positive.reset();
+        negative.reset();
+        zero = 0;
+        count = 0;
+        sum = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "count=%d, mean=%.6g, min=%.6g, p50=%.6g, p95=%.6g, p99=%.6g, max=%.6g",
+                count, getMean(), getMin(), getValueAt(0.5), getValueAt(0.95), getValueAt(0.99), getMax());
+    }
+
+    /**
+     * Счётчики интервалов с номерами от offset, массив расширяется в обе стороны по мере надобности
+     */
+    private static final class Counts {
+        long[] counts = new long[0];
+        int offset;
+
+        void add(int index, long n) {
+            if (counts.length == 0) {
+                counts = new long[16];
+                offset = index - 8;
+            } else if (index < offset || index >= offset + counts.length) {
+                int from = Math.min(offset, index);
+                int to = Math.max(offset + counts.length, index + 1);
+                // С запасом, чтобы расширение при росте диапазона было редким
+                int spare = (to - from) / 2 + 8;
+                int start = index < offset ? from - spare : from;
+                long[] grown = new long[to - from + spare];
+                System.arraycopy(counts, 0, grown, offset - start, counts.length);
+                counts = grown;
+                offset = start;
+            }
+            counts[index - offset] += n;
+        }
+
+        void merge(Counts other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(i + other.offset, other.counts[i]);
+                }
+            }
+        }
+
+        void reset() {
+            Arrays.fill(counts, 0);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package net.tavda.hydraulic;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Расчёт диапазона [from, to) с делением пополам до порога, общий для пакетных расчётов
+ */
+final class RangeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Последовательный расчёт части диапазона
+     */
+    interface Range {
+        /**
+         * @param from Первый элемент
+         * @param to Элемент, следующий за последним
+         */
+        void run(int from, int to);
+    }
+
+    private final Range range;
+    private final int threshold;
+    private final int from;
+    private final int to;
+
+    /**
+     * @param range Расчёт части диапазона
+     * @param threshold Наибольшая часть, которая не делится дальше
+     * @param from Первый элемент
+     * @param to Элемент, следующий за последним
+     */
+    RangeTask(Range range, int threshold, int from, int to) {
+        this.range = range;
+        this.threshold = threshold;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= threshold) {
+            range.run(from, to);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new RangeTask(range, threshold, from, middle), new RangeTask(range, threshold, middle, to));
+    }
+}
@@ -0,0 +1,198 @@
+package net.tavda.hydraulic;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+
+/**
+ * Пакетный расчёт участков по формулам теоретической гидравлики в float для предварительного отбора
+ * большого числа вариантов. Рассчитываются скорость воды и потери давления; свойства воды -
+ * {@link WaterProperties#exact()}, к-т трения в турбулентном режиме - {@link FrictionModel#ALTSHUL}.
+ * <p>
+ * Если запущено на Java 17+ с {@code --add-modules jdk.incubator.vector} и библиотека собрана профилем vector,
+ * расчёт выполняется векторами Vector API, иначе - скалярно. Результаты обоих вариантов совпадают побитово,
+ * отличие от расчёта в double оценивает {@link #maxRelativeError(float[], int)}
+ */
+public class ScreeningBatch {
+    /**
+     * Порог параллельного расчёта по умолчанию, участков
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 65536;
+
+    private static final ScreeningKernel SCALAR = new ScreeningKernel();
+    private static final ScreeningKernel VECTOR = loadVector();
+
+    /**
+     * Относительная близость числа Рейнольдса к границе режимов, при которой float может выбрать другую формулу трения
+     */
+    private static final double BOUNDARY = 1e-5;
+
+    private final int size;
+    private final float[] consumption;
+    private final float[] tempIn;
+    private final float[] tempOut;
+    private final float[] diameter;
+    private final float[] length;
+    private final float[] roughness;
+    private final float[] sumLocalResist;
+    private ScreeningKernel kernel = VECTOR != null ? VECTOR : SCALAR;
+    private ForkJoinPool pool;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    /**
+     * @param consumption Расход воды через трубопровод, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param roughness Экв. шероховатость внутр. поверхностей труб, мм
+     * @param sumLocalResist Сумма к-тов местных сопротивлений
+     */
+    public ScreeningBatch(float[] consumption, float[] tempIn, float[] tempOut, float[] diameter, float[] length, float[] roughness, float[] sumLocalResist) {
+        this.size = consumption.length;
+        this.consumption = consumption;
+        this.tempIn = checkSize(tempIn);
+        this.tempOut = checkSize(tempOut);
+        this.diameter = checkSize(diameter);
+        this.length = checkSize(length);
+        this.roughness = checkSize(roughness);
+        this.sumLocalResist = checkSize(sumLocalResist);
+    }
+
+    private float[] checkSize(float[] column) {
+        if (column.length != size) {
+            throw new IllegalArgumentException("Column size " + column.length + " != " + size);
+        }
+        return column;
+    }
+
+    private static ScreeningKernel loadVector() {
+        try {
+            ScreeningKernel kernel = (ScreeningKernel) Class.forName("net.tavda.hydraulic.VectorScreeningKernel")
+                    .getDeclaredConstructor().newInstance();
+            // Короткие векторы не быстрее скалярного расчёта
+            return kernel.lanes() >= 4 ? kernel : null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Класс не собран, Java до 17 или модуль jdk.incubator.vector не подключён
+            return null;
+        }
+    }
+
+    /**
+     * @return Доступен ли расчёт векторами
+     */
+    public static boolean isVectorAvailable() {
+        return VECTOR != null;
+    }
+
+    /**
+     * @return Количество участков пакета
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Выбрать расчёт векторами, если он доступен, по умолчанию включён
+     * @param vectorized Считать векторами
+     */
+    public void setVectorized(boolean vectorized) {
+        kernel = vectorized && VECTOR != null ? VECTOR : SCALAR;
+    }
+
+    /**
+     * @return Считается ли пакет векторами
+     */
+    public boolean isVectorized() {
+        return kernel != SCALAR;
+    }
+
+    /**
+     * @return Количество участков, рассчитываемых за одну операцию
+     */
+    public int getLanes() {
+        return kernel.lanes();
+    }
+
+    /**
+     * Установить пул потоков для параллельного расчёта
+     * @param pool Пул потоков, null - последовательный расчёт
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Установить порог параллельного расчёта: меньшие пакеты и части пакета считаются последовательно
+     * @param parallelThreshold Порог, участков
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 1) {
+            throw new IllegalArgumentException("Parallel threshold " + parallelThreshold + " < 1");
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Рассчитать все участки
+     * @param speed Скорость воды, м/с, размером не меньше пакета
+     * @param pressureLossPa Потери давления, Па, размером не меньше пакета
+     */
+    public void calcFormulas(float[] speed, float[] pressureLossPa) {
+        if (pool != null && size > parallelThreshold) {
+            checkRange(0, size, speed, pressureLossPa);
+            pool.invoke(new RangeTask((from, to) -> calcFormulas(from, to, speed, pressureLossPa), parallelThreshold, 0, size));
+        } else {
+            calcFormulas(0, size, speed, pressureLossPa);
+        }
+    }
+
+    /**
+     * Рассчитать участки [from, to)
+     * @param from Первый участок
+     * @param to Участок, следующий за последним
+     * @param speed Скорость воды, м/с, размером не меньше пакета
+     * @param pressureLossPa Потери давления, Па, размером не меньше пакета
+     */
+    public void calcFormulas(int from, int to, float[] speed, float[] pressureLossPa) {
+        checkRange(from, to, speed, pressureLossPa);
+        kernel.calcFormulas(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist, from, to, speed, pressureLossPa);
+    }
+
+    private void checkRange(int from, int to, float[] speed, float[] pressureLossPa) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") outside [0, " + size + ")");
+        }
+        if (speed.length < size || pressureLossPa.length < size) {
+            throw new IllegalArgumentException("Result columns size " + Math.min(speed.length, pressureLossPa.length) + " < " + size);
+        }
+    }
+
+    /**
+     * Сравнить потери давления с расчётом в double {@link PipelineCalculator} ({@link Precision#STRICT})
+     * для каждого step-го участка. Участки с числом Рейнольдса на границе режимов пропускаются: в float
+     * к-т трения на них может считаться по соседней формуле, а на границах режимов он меняется скачком
+     * @param pressureLossPa Потери давления, рассчитанные {@link #calcFormulas(float[], float[])}
+     * @param step Шаг выборки участков
+     * @return Наибольшая относительная погрешность
+     */
+    public double maxRelativeError(float[] pressureLossPa, int step) {
+        if (step < 1) {
+            throw new IllegalArgumentException("Step " + step + " < 1");
+        }
+        PipelineCalculator calculator = PipelineCalculator.getInstance(Precision.STRICT);
+        PipelineResult result = new PipelineResult();
+        double error = 0;
+        for (int i = 0; i < size; i += step) {
+            calculator.calcFormulas(consumption[i], tempIn[i], tempOut[i], diameter[i], length[i], roughness[i], sumLocalResist[i], result);
+            double re = result.reynoldsNumber;
+            if (abs(re - ScreeningKernel.LAMINAR) <= BOUNDARY * ScreeningKernel.LAMINAR
+                    || abs(re - ScreeningKernel.TRANSITIONAL) <= BOUNDARY * ScreeningKernel.TRANSITIONAL) {
+                continue;
+            }
+            error = max(error, abs(pressureLossPa[i] - result.pressureLossPa) / abs(result.pressureLossPa));
+        }
+        return error;
+    }
+}
@@ -0,0 +1,59 @@
+package net.tavda.hydraulic;
+
+/**
+ * Расчёт участков {@link ScreeningBatch} в float, скалярный вариант.
+ * Векторный вариант переопределяет {@link #calcFormulas} и выполняет те же операции в том же порядке без FMA,
+ * поэтому результаты вариантов совпадают побитово.
+ * <p>
+ * Формулы совпадают с {@link Hydraulics} после сокращения постоянных множителей:
+ * плотность в кг/м^3, скорость {@code 4·G/(π·3600)·10^9/(ρ·d^2)}, потери давления
+ * {@code Δp = ρ·v^2/2·(1000·λ·l/d + Σζ)} Па при диаметре в мм
+ */
+class ScreeningKernel {
+    static final float HALF = 0.5f;
+    static final float NU_0 = 0.0178f;
+    static final float NU_1 = 0.0337f;
+    static final float NU_2 = 0.000221f;
+    static final float RHO_0 = 1003.1f;
+    static final float RHO_1 = 0.1511f;
+    static final float RHO_2 = 0.003f;
+    static final float SPEED = (float) (4e9 / (Math.PI * 3600));
+    static final float LAMINAR = 2320;
+    static final float TRANSITIONAL = 4000;
+    static final float TRANSITIONAL_SLOPE = 0.0000147f;
+    static final float ALTSHUL = 0.11f;
+
+    /**
+     * Рассчитать участки [from, to)
+     * @param speed Скорость воды, м/с
+     * @param pressureLossPa Потери давления, Па
+     */
+    void calcFormulas(float[] g, float[] t1, float[] t2, float[] d, float[] l, float[] k, float[] z,
+                      int from, int to, float[] speed, float[] pressureLossPa) {
+        for (int i = from; i < to; i++) {
+            float t = (t1[i] + t2[i]) * HALF;
+            float nu = NU_0 / (1 + t * (NU_1 + t * NU_2));
+            float rho = RHO_0 - t * (RHO_1 + t * RHO_2);
+            float di = d[i];
+            float v = g[i] * SPEED / (rho * (di * di));
+            float re = v * di * 10 / nu;
+            float lambda;
+            if (re <= LAMINAR) {
+                lambda = 64 / re;
+            } else if (re <= TRANSITIONAL) {
+                lambda = TRANSITIONAL_SLOPE * re;
+            } else {
+                lambda = ALTSHUL * (float) Math.sqrt((float) Math.sqrt(68 / re + k[i] / di));
+            }
+            speed[i] = v;
+            pressureLossPa[i] = HALF * (v * v * rho) * (1000 * lambda * l[i] / di + z[i]);
+        }
+    }
+
+    /**
+     * @return Количество участков, рассчитываемых за одну операцию
+     */
+    int lanes() {
+        return 1;
+    }
+}
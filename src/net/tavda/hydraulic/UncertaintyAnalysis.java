@@ -0,0 +1,553 @@
+package net.tavda.hydraulic;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Оценка неопределённости потерь давления участка методом Монте-Карло: исходные данные выбираются
+ * из заданных распределений, каждая выборка рассчитывается {@link PipelineCalculator}, потери давления
+ * и скорость накапливаются в {@link QuantileSketch} без хранения выборок.
+ * <p>
+ * Выборки делятся на блоки по {@link #BLOCK} с собственным генератором, полученным {@link SplittableRandom#split()}
+ * от генератора с заданным затравочным числом, а оценки блоков объединяются по одному и тому же дереву
+ * независимо от пула потоков. Поэтому результаты при одном затравочном числе совпадают побитово
+ * при последовательном и параллельном расчёте с любым числом потоков.
+ * <p>
+ * При расчёте по СНиП неопределённость материала задаётся множителем постоянных A0 и C строки таблицы
+ * {@link #setMaterialFactor(Distribution)}: уклон пропорционален (A0 + C/v)^m, поэтому потери умножаются на множитель в степени m.
+ * <p>
+ * Путь из последовательных участков с общим расходом задаётся массивами исходных данных участков, как в
+ * {@link HydraulicCurve#calcPathFormulas}. Для пути выбираются расход и множители шероховатости
+ * {@link #setRoughnessFactor(Distribution)} или постоянных материала, независимо для каждого участка;
+ * остальные исходные данные участков пути не имеют разброса. Потери давления - сумма по участкам,
+ * скорость - наибольшая по участкам.
+ * <p>
+ * Выборки с неположительными расходом, диаметром, длиной или множителем постоянных материала, отрицательными шероховатостью,
+ * её множителем или суммой к-тов местных сопротивлений отбрасываются и учитываются в {@link #getRejected()}.
+ * Объект не потокобезопасен
+ */
+public class UncertaintyAnalysis {
+    /**
+     * Количество выборок по умолчанию
+     */
+    public static final long DEFAULT_SAMPLES = 100_000;
+    /**
+     * Количество выборок в блоке с одним генератором
+     */
+    public static final int BLOCK = 4096;
+
+    private final PipelineCalculator calculator;
+    private final boolean snip;
+    private final int material;
+    private final double[] nominal;
+    private final Distribution[] inputs = new Distribution[PipelineSensitivity.FORMULAS_INPUTS];
+    /**
+     * Исходные данные участков пути [вход {@link PipelineSensitivity#TEMP_IN} - {@link PipelineSensitivity#SUM_LOCAL_RESIST}][участок],
+     * null - один участок
+     */
+    private final double[][] path;
+    private final int[] pathMaterial;
+    private Distribution roughnessFactor = Distribution.fixed(1);
+    private Distribution materialFactor = Distribution.fixed(1);
+    private long samples = DEFAULT_SAMPLES;
+    private long seed;
+    private double accuracy = QuantileSketch.DEFAULT_ACCURACY;
+    private ForkJoinPool pool;
+    private QuantileSketch pressureLoss;
+    private QuantileSketch speed;
+    private long rejected;
+    private double[] sensitivity;
+    private long nanos;
+
+    /**
+     * Расчёт по формулам теоретической гидравлики. Пока распределения не заданы, величины не имеют разброса
+     * @param calculator Расчёт участков
+     * @param consumption Расход воды через трубопровод, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param roughness Экв. шероховатость внутр. поверхностей труб, мм
+     * @param sumLocalResist Сумма к-тов местных сопротивлений
+     */
+    public UncertaintyAnalysis(PipelineCalculator calculator, double consumption, double tempIn, double tempOut, double diameter, double length, double roughness, double sumLocalResist) {
+        this(calculator, false, 0, consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist);
+    }
+
+    /**
+     * Расчёт по СНиП. Пока распределения не заданы, величины не имеют разброса
+     * @param calculator Расчёт участков
+     * @param consumption Расход воды через трубопровод, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param material Материал труб, см. {@link PipeMaterials}
+     */
+    public UncertaintyAnalysis(PipelineCalculator calculator, double consumption, double tempIn, double tempOut, double diameter, double length, int material) {
+        this(calculator, true, material, consumption, tempIn, tempOut, diameter, length, 0, 0);
+        PipeMaterials.check(PipeMaterials.constants(), material);
+    }
+
+    /**
+     * Путь из последовательных участков по формулам теоретической гидравлики, элемент j массивов относится к участку j пути.
+     * Пока распределения не заданы, величины не имеют разброса
+     * @param calculator Расчёт участков
+     * @param consumption Расход воды через путь, т/ч
+     * @param tempIn Температуры воды на входе, градусов цельсия
+     * @param tempOut Температуры воды на выходе, градусов цельсия
+     * @param diameter Внутренние диаметры трубопроводов, мм
+     * @param length Длины трубопроводов, м
+     * @param roughness Экв. шероховатости внутр. поверхностей труб, мм
+     * @param sumLocalResist Суммы к-тов местных сопротивлений
+     */
+    public UncertaintyAnalysis(PipelineCalculator calculator, double consumption, double[] tempIn, double[] tempOut, double[] diameter, double[] length, double[] roughness, double[] sumLocalResist) {
+        this(calculator, null, consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist);
+    }
+
+    /**
+     * Путь из последовательных участков по СНиП, элемент j массивов относится к участку j пути.
+     * Пока распределения не заданы, величины не имеют разброса
+     * @param calculator Расчёт участков
+     * @param consumption Расход воды через путь, т/ч
+     * @param tempIn Температуры воды на входе, градусов цельсия
+     * @param tempOut Температуры воды на выходе, градусов цельсия
+     * @param diameter Внутренние диаметры трубопроводов, мм
+     * @param length Длины трубопроводов, м
+     * @param material Материалы труб, см. {@link PipeMaterials}
+     */
+    public UncertaintyAnalysis(PipelineCalculator calculator, double consumption, double[] tempIn, double[] tempOut, double[] diameter, double[] length, int[] material) {
+        this(calculator, material.clone(), consumption, tempIn, tempOut, diameter, length, new double[tempIn.length], new double[tempIn.length]);
+        double[] constants = PipeMaterials.constants();
+        for (int m : pathMaterial) {
+            PipeMaterials.check(constants, m);
+        }
+    }
+
+    private UncertaintyAnalysis(PipelineCalculator calculator, boolean snip, int material, double... nominal) {
+        this.calculator = calculator;
+        this.snip = snip;
+        this.material = material;
+        this.nominal = nominal;
+        this.path = null;
+        this.pathMaterial = null;
+        for (int i = 0; i < nominal.length; i++) {
+            inputs[i] = Distribution.fixed(nominal[i]);
+        }
+    }
+
+    private UncertaintyAnalysis(PipelineCalculator calculator, int[] pathMaterial, double consumption, double[]... segments) {
+        int count = segments[0].length;
+        if (count == 0) {
+            throw new IllegalArgumentException("Path is empty");
+        }
+        if (pathMaterial != null && pathMaterial.length != count) {
+            throw new IllegalArgumentException("Path length " + pathMaterial.length + " != " + count);
+        }
+        path = new double[PipelineSensitivity.FORMULAS_INPUTS][];
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i].length != count) {
+                throw new IllegalArgumentException("Path length " + segments[i].length + " != " + count);
+            }
+            path[PipelineSensitivity.TEMP_IN + i] = segments[i].clone();
+        }
+        this.calculator = calculator;
+        this.snip = pathMaterial != null;
+        this.material = 0;
+        this.pathMaterial = pathMaterial;
+        this.nominal = new double[]{consumption};
+        inputs[PipelineSensitivity.CONSUMPTION] = Distribution.fixed(consumption);
+    }
+
+    /**
+     * @param consumption Распределение расхода воды, т/ч
+     */
+    public void setConsumption(Distribution consumption) {
+        set(PipelineSensitivity.CONSUMPTION, consumption);
+    }
+
+    /**
+     * @param tempIn Распределение температуры воды на входе, градусов цельсия
+     */
+    public void setTempIn(Distribution tempIn) {
+        checkSegment();
+        set(PipelineSensitivity.TEMP_IN, tempIn);
+    }
+
+    /**
+     * @param tempOut Распределение температуры воды на выходе, градусов цельсия
+     */
+    public void setTempOut(Distribution tempOut) {
+        checkSegment();
+        set(PipelineSensitivity.TEMP_OUT, tempOut);
+    }
+
+    /**
+     * @param diameter Распределение внутреннего диаметра трубопровода, мм
+     */
+    public void setDiameter(Distribution diameter) {
+        checkSegment();
+        set(PipelineSensitivity.DIAMETER, diameter);
+    }
+
+    /**
+     * @param length Распределение длины трубопровода, м
+     */
+    public void setLength(Distribution length) {
+        checkSegment();
+        set(PipelineSensitivity.LENGTH, length);
+    }
+
+    /**
+     * Только для расчёта по формулам теоретической гидравлики
+     * @param roughness Распределение экв. шероховатости внутр. поверхностей труб, мм
+     */
+    public void setRoughness(Distribution roughness) {
+        checkSegment();
+        checkFormulas();
+        set(PipelineSensitivity.ROUGHNESS, roughness);
+    }
+
+    /**
+     * Только для расчёта по формулам теоретической гидравлики
+     * @param sumLocalResist Распределение суммы к-тов местных сопротивлений
+     */
+    public void setSumLocalResist(Distribution sumLocalResist) {
+        checkSegment();
+        checkFormulas();
+        set(PipelineSensitivity.SUM_LOCAL_RESIST, sumLocalResist);
+    }
+
+    /**
+     * Только для пути по формулам теоретической гидравлики
+     * @param roughnessFactor Распределение множителя экв. шероховатости, выбирается для каждого участка пути
+     */
+    public void setRoughnessFactor(Distribution roughnessFactor) {
+        if (path == null) {
+            throw new IllegalStateException("Segment roughness is set by setRoughness");
+        }
+        checkFormulas();
+        if (roughnessFactor == null) {
+            throw new IllegalArgumentException("Distribution is null");
+        }
+        this.roughnessFactor = roughnessFactor;
+    }
+
+    /**
+     * Только для расчёта по СНиП
+     * @param materialFactor Распределение множителя постоянных A0 и C строки материала, для пути выбирается для каждого участка
+     */
+    public void setMaterialFactor(Distribution materialFactor) {
+        if (!snip) {
+            throw new IllegalStateException("Formulas calculation has no material constants");
+        }
+        if (materialFactor == null) {
+            throw new IllegalArgumentException("Distribution is null");
+        }
+        this.materialFactor = materialFactor;
+    }
+
+    private void checkSegment() {
+        if (path != null) {
+            throw new IllegalStateException("Path calculation perturbs consumption and roughness or material only");
+        }
+    }
+
+    private void checkFormulas() {
+        if (snip) {
+            throw new IllegalStateException("SNiP calculation depends on the material only");
+        }
+    }
+
+    private void set(int input, Distribution distribution) {
+        if (distribution == null) {
+            throw new IllegalArgumentException("Distribution is null");
+        }
+        inputs[input] = distribution;
+    }
+
+    /**
+     * @param samples Количество выборок
+     */
+    public void setSamples(long samples) {
+        if (samples < 1) {
+            throw new IllegalArgumentException("Samples " + samples + " < 1");
+        }
+        this.samples = samples;
+    }
+
+    /**
+     * @return Количество выборок
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * @param seed Затравочное число генератора случайных чисел
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return Затравочное число генератора случайных чисел
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @param accuracy Относительная погрешность квантилей, см. {@link QuantileSketch#QuantileSketch(double)}
+     */
+    public void setAccuracy(double accuracy) {
+        if (!(accuracy > 0 && accuracy < 1)) {
+            throw new IllegalArgumentException("Accuracy " + accuracy + " outside (0, 1)");
+        }
+        this.accuracy = accuracy;
+    }
+
+    /**
+     * Установить пул потоков для параллельного расчёта
+     * @param pool Пул потоков, null - последовательный расчёт
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Провести расчёт выборок и производных в номинальной точке
+     */
+    public void run() {
+        long start = System.nanoTime();
+        int blocks = (int) Math.min(Integer.MAX_VALUE, (samples + BLOCK - 1) / BLOCK);
+        if ((long) blocks * BLOCK < samples) {
+            throw new IllegalArgumentException("Samples " + samples + " exceed " + (long) Integer.MAX_VALUE * BLOCK);
+        }
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[blocks];
+        for (int i = 0; i < blocks; i++) {
+            randoms[i] = root.split();
+        }
+        Block block = pool != null && blocks > 1
+                ? pool.invoke(new Task(this, randoms, 0, blocks))
+                : merge(randoms, 0, blocks);
+        pressureLoss = block.pressureLoss;
+        speed = block.speed;
+        rejected = block.rejected;
+        sensitivity = new double[PipelineSensitivity.FORMULAS_INPUTS];
+        PipelineSensitivity nominalSensitivity = new PipelineSensitivity(calculator);
+        if (path != null) {
+            double[] gradient = new double[PipelineSensitivity.FORMULAS_INPUTS];
+            double[] tempIn = path[PipelineSensitivity.TEMP_IN];
+            double[] tempOut = path[PipelineSensitivity.TEMP_OUT];
+            double[] diameter = path[PipelineSensitivity.DIAMETER];
+            double[] length = path[PipelineSensitivity.LENGTH];
+            for (int j = 0; j < tempIn.length; j++) {
+                if (snip) {
+                    nominalSensitivity.calcSNiP(nominal[0], tempIn[j], tempOut[j], diameter[j], length[j], pathMaterial[j], gradient);
+                } else {
+                    nominalSensitivity.calcFormulas(nominal[0], tempIn[j], tempOut[j], diameter[j], length[j],
+                            path[PipelineSensitivity.ROUGHNESS][j], path[PipelineSensitivity.SUM_LOCAL_RESIST][j], gradient);
+                }
+                for (int i = 0; i < gradient.length; i++) {
+                    sensitivity[i] += gradient[i];
+                }
+            }
+        } else if (snip) {
+            nominalSensitivity.calcSNiP(nominal[0], nominal[1], nominal[2], nominal[3], nominal[4], material, sensitivity);
+        } else {
+            nominalSensitivity.calcFormulas(nominal[0], nominal[1], nominal[2], nominal[3], nominal[4], nominal[5], nominal[6], sensitivity);
+        }
+        nanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Блоки [from, to) с объединением половин, как в {@link Task}
+     */
+    private Block merge(SplittableRandom[] randoms, int from, int to) {
+        if (to - from == 1) {
+            return sample(randoms[from], from);
+        }
+        int middle = (from + to) >>> 1;
+        Block left = merge(randoms, from, middle);
+        left.merge(merge(randoms, middle, to));
+        return left;
+    }
+
+    private Block sample(SplittableRandom random, int index) {
+        Block block = new Block(accuracy);
+        long count = Math.min(BLOCK, samples - (long) index * BLOCK);
+        PipelineResult r = new PipelineResult();
+        if (path != null) {
+            samplePath(random, count, r, block);
+            return block;
+        }
+        Distribution[] inputs = this.inputs;
+        double[] constants = PipeMaterials.constants();
+        for (long i = 0; i < count; i++) {
+            double consumption = inputs[PipelineSensitivity.CONSUMPTION].sample(random);
+            double tempIn = inputs[PipelineSensitivity.TEMP_IN].sample(random);
+            double tempOut = inputs[PipelineSensitivity.TEMP_OUT].sample(random);
+            double diameter = inputs[PipelineSensitivity.DIAMETER].sample(random);
+            double length = inputs[PipelineSensitivity.LENGTH].sample(random);
+            double roughness = inputs[PipelineSensitivity.ROUGHNESS].sample(random);
+            double sumLocalResist = inputs[PipelineSensitivity.SUM_LOCAL_RESIST].sample(random);
+            double factor = snip ? materialFactor.sample(random) : 1;
+            if (!(consumption > 0 && diameter > 0 && length > 0 && roughness >= 0 && sumLocalResist >= 0 && factor > 0)) {
+                block.rejected++;
+                continue;
+            }
+            double loss;
+            if (snip) {
+                calculator.calcSNiP(consumption, tempIn, tempOut, diameter, length, material, r);
+                loss = r.pressureLossPa * materialScale(constants, material, factor);
+            } else {
+                calculator.calcFormulas(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist, r);
+                loss = r.pressureLossPa;
+            }
+            block.pressureLoss.record(loss);
+            block.speed.record(r.speed);
+        }
+        return block;
+    }
+
+    private void samplePath(SplittableRandom random, long count, PipelineResult r, Block block) {
+        Distribution consumptionDistribution = inputs[PipelineSensitivity.CONSUMPTION];
+        Distribution factorDistribution = snip ? materialFactor : roughnessFactor;
+        double[] tempIn = path[PipelineSensitivity.TEMP_IN];
+        double[] tempOut = path[PipelineSensitivity.TEMP_OUT];
+        double[] diameter = path[PipelineSensitivity.DIAMETER];
+        double[] length = path[PipelineSensitivity.LENGTH];
+        double[] roughness = path[PipelineSensitivity.ROUGHNESS];
+        double[] sumLocalResist = path[PipelineSensitivity.SUM_LOCAL_RESIST];
+        double[] constants = PipeMaterials.constants();
+        for (long i = 0; i < count; i++) {
+            double consumption = consumptionDistribution.sample(random);
+            // Множители выбираются для всех участков и у отброшенной выборки, чтобы число чисел генератора на выборку не менялось
+            boolean valid = consumption > 0;
+            double loss = 0;
+            double speed = 0;
+            for (int j = 0; j < tempIn.length; j++) {
+                double factor = factorDistribution.sample(random);
+                if (snip ? !(factor > 0) : !(factor >= 0)) {
+                    valid = false;
+                }
+                if (!valid) {
+                    continue;
+                }
+                if (snip) {
+                    calculator.calcSNiP(consumption, tempIn[j], tempOut[j], diameter[j], length[j], pathMaterial[j], r);
+                    loss += r.pressureLossPa * materialScale(constants, pathMaterial[j], factor);
+                } else {
+                    calculator.calcFormulas(consumption, tempIn[j], tempOut[j], diameter[j], length[j], roughness[j] * factor, sumLocalResist[j], r);
+                    loss += r.pressureLossPa;
+                }
+                speed = Math.max(speed, r.speed);
+            }
+            if (!valid) {
+                block.rejected++;
+                continue;
+            }
+            block.pressureLoss.record(loss);
+            block.speed.record(speed);
+        }
+    }
+
+    /**
+     * Множитель потерь по СНиП при умножении A0 и C строки материала на factor
+     */
+    private static double materialScale(double[] constants, int material, double factor) {
+        return factor == 1 ? 1 : Math.pow(factor, constants[material * PipeMaterials.STRIDE + PipeMaterials.EXPONENT]);
+    }
+
+    /**
+     * @return Распределение потерь давления, Па, null - до расчёта
+     */
+    public QuantileSketch getPressureLoss() {
+        return pressureLoss;
+    }
+
+    /**
+     * @return Распределение скорости воды, м/с, null - до расчёта
+     */
+    public QuantileSketch getSpeed() {
+        return speed;
+    }
+
+    /**
+     * @return Количество отброшенных выборок
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Производные потерь давления по исходным данным в номинальной точке, см. {@link PipelineSensitivity}.
+     * При расчёте по СНиП производные по шероховатости и местным сопротивлениям равны нулю.
+     * Для пути производные - суммы производных участков, то есть при одинаковом изменении величины на всех участках
+     * @return Производные в порядке {@link PipelineSensitivity#CONSUMPTION} - {@link PipelineSensitivity#SUM_LOCAL_RESIST}, null - до расчёта
+     */
+    public double[] getSensitivity() {
+        return sensitivity;
+    }
+
+    /**
+     * @return Время последнего расчёта, нс
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Оценки части выборок
+     */
+    private static final class Block {
+        final QuantileSketch pressureLoss;
+        final QuantileSketch speed;
+        long rejected;
+
+        Block(double accuracy) {
+            pressureLoss = new QuantileSketch(accuracy);
+            speed = new QuantileSketch(accuracy);
+        }
+
+        void merge(Block other) {
+            pressureLoss.merge(other.pressureLoss);
+            speed.merge(other.speed);
+            rejected += other.rejected;
+        }
+    }
+
+    /**
+     * Расчёт блоков с делением пополам до одного блока
+     */
+    private static final class Task extends RecursiveTask<Block> {
+        private static final long serialVersionUID = 1L;
+        private final UncertaintyAnalysis analysis;
+        private final SplittableRandom[] randoms;
+        private final int from;
+        private final int to;
+
+        Task(UncertaintyAnalysis analysis, SplittableRandom[] randoms, int from, int to) {
+            this.analysis = analysis;
+            this.randoms = randoms;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Block compute() {
+            if (to - from == 1) {
+                return analysis.sample(randoms[from], from);
+            }
+            int middle = (from + to) >>> 1;
+            Task right = new Task(analysis, randoms, middle, to);
+            right.fork();
+            Block left = new Task(analysis, randoms, from, middle).compute();
+            left.merge(right.join());
+            return left;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package net.tavda.hydraulic;
+
+/**
+ * Свойства воды в зависимости от средней температуры: кинематическая вязкость и плотность.
+ * <ul>
+ * <li>{@link #exact()} - расчёт по формулам при каждом обращении;</li>
+ * <li>{@link #cache(int)} - точные значения по формулам, запоминаемые по температуре;
+ * результаты совпадают с {@link #exact()} побитово;</li>
+ * <li>{@link #table(double)} - линейная интерполяция по таблице 0-150 °C с заданным шагом,
+ * вне диапазона - расчёт по формулам.</li>
+ * </ul>
+ * Все реализации можно использовать из нескольких потоков одновременно.
+ * Формулы - несколько умножений и одно деление, поэтому {@link #exact()} обычно не медленнее поиска
+ * (см. WaterPropertiesBenchmark); кэш и таблица имеют смысл при замене формул на более сложные.
+ */
+public abstract class WaterProperties {
+    /**
+     * Нижняя граница таблицы, градусов цельсия
+     */
+    public static final double TABLE_MIN = 0;
+    /**
+     * Верхняя граница таблицы, градусов цельсия
+     */
+    public static final double TABLE_MAX = 150;
+
+    private static final WaterProperties EXACT = new Exact();
+
+    WaterProperties() {
+    }
+
+    /**
+     * @return Расчёт по формулам
+     */
+    public static WaterProperties exact() {
+        return EXACT;
+    }
+
+    /**
+     * @param size Количество запоминаемых температур, округляется вверх до степени двойки
+     * @return Точные значения с запоминанием по температуре
+     */
+    public static WaterProperties cache(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Cache size " + size + " < 1");
+        }
+        int capacity = 1;
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+        return new Cache(capacity);
+    }
+
+    /**
+     * Относительная погрешность интерполяции убывает как квадрат шага: при шаге 0.5 °C вязкость - не более 6·10^-5,
+     * плотность - не более 3·10^-7; при шаге 0.1 °C - не более 3·10^-6 и 10^-8
+     * @param step Шаг таблицы, градусов цельсия
+     * @return Интерполяция по таблице
+     */
+    public static WaterProperties table(double step) {
+        if (!(step > 0) || step > TABLE_MAX - TABLE_MIN) {
+            throw new IllegalArgumentException("Table step " + step + " outside (0, " + (TABLE_MAX - TABLE_MIN) + "]");
+        }
+        return new Table(step);
+    }
+
+    /**
+     * @param averageTemp Средняя температура воды, градусов цельсия
+     * @return Кинематический к-т вязкости воды, см^2/с
+     */
+    public abstract double viscosity(double averageTemp);
+
+    /**
+     * @param averageTemp Средняя температура воды, градусов цельсия
+     * @return Плотность воды, т/м^3
+     */
+    public abstract double density(double averageTemp);
+
+    private static final class Exact extends WaterProperties {
+        @Override
+        public double viscosity(double averageTemp) {
+            return Hydraulics.viscosity(averageTemp);
+        }
+
+        @Override
+        public double density(double averageTemp) {
+            return Hydraulics.density(averageTemp);
+        }
+    }
+
+    /**
+     * Кэш прямого отображения: температура определяет ячейку, при промахе значение пересчитывается и заменяет прежнее.
+     * Записи неизменяемы, поэтому гонка потоков приводит только к лишнему пересчёту
+     */
+    private static final class Cache extends WaterProperties {
+        private final Entry[] entries;
+        private final int mask;
+
+        Cache(int size) {
+            entries = new Entry[size];
+            mask = size - 1;
+        }
+
+        private Entry entry(double averageTemp) {
+            long bits = Double.doubleToLongBits(averageTemp);
+            int h = (int) (bits ^ (bits >>> 32));
+            h ^= h >>> 16;
+            int index = h & mask;
+            Entry entry = entries[index];
+            if (entry == null || entry.temp != bits) {
+                entry = new Entry(bits, Hydraulics.viscosity(averageTemp), Hydraulics.density(averageTemp));
+                entries[index] = entry;
+            }
+            return entry;
+        }
+
+        @Override
+        public double viscosity(double averageTemp) {
+            return entry(averageTemp).viscosity;
+        }
+
+        @Override
+        public double density(double averageTemp) {
+            return entry(averageTemp).density;
+        }
+    }
+
+    private static final class Entry {
+        final long temp;
+        final double viscosity;
+        final double density;
+
+        Entry(long temp, double viscosity, double density) {
+            this.temp = temp;
+            this.viscosity = viscosity;
+            this.density = density;
+        }
+    }
+
+    private static final class Table extends WaterProperties {
+        private final double inverseStep;
+        private final int last;
+        private final double[] viscosity;
+        private final double[] density;
+
+        Table(double step) {
+            int n = (int) Math.ceil((TABLE_MAX - TABLE_MIN) / step);
+            last = n;
+            inverseStep = 1 / step;
+            viscosity = new double[n + 2];
+            density = new double[n + 2];
+            for (int i = 0; i <= n + 1; i++) {
+                double t = TABLE_MIN + i * step;
+                viscosity[i] = Hydraulics.viscosity(t);
+                density[i] = Hydraulics.density(t);
+            }
+        }
+
+        @Override
+        public double viscosity(double averageTemp) {
+            double x = (averageTemp - TABLE_MIN) * inverseStep;
+            if (!(x >= 0) || x > last) {
+                return Hydraulics.viscosity(averageTemp);
+            }
+            return interpolate(viscosity, x);
+        }
+
+        @Override
+        public double density(double averageTemp) {
+            double x = (averageTemp - TABLE_MIN) * inverseStep;
+            if (!(x >= 0) || x > last) {
+                return Hydraulics.density(averageTemp);
+            }
+            return interpolate(density, x);
+        }
+
+        private static double interpolate(double[] values, double x) {
+            int i = (int) x;
+            double fraction = x - i;
+            return values[i] + (values[i + 1] - values[i]) * fraction;
+        }
+    }
+}
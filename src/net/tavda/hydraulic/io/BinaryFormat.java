@@ -0,0 +1,83 @@
+package net.tavda.hydraulic.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Заголовок и длины записей двоичных форматов участков и результатов, порядок байт little-endian
+ */
+final class BinaryFormat {
+    static final int MAGIC = 0x47535048;
+    static final int VERSION = 1;
+    static final int FORMULAS = 0;
+    static final int SNIP = 1;
+    static final int RESULTS = 2;
+    /**
+     * Столбцовое хранилище {@link MappedSegmentStore}, вид исходных данных - в следующем поле заголовка
+     */
+    static final int STORE = 3;
+    static final int HEADER = 16;
+    /**
+     * Размер буфера ввода-вывода, байт
+     */
+    static final int BUFFER = 1 << 16;
+
+    private BinaryFormat() {
+    }
+
+    static int rowSize(int kind) {
+        switch (kind) {
+            case FORMULAS:
+                return 7 * 8;
+            case SNIP:
+                return 5 * 8 + 4;
+            case RESULTS:
+                return 16 * 8;
+            default:
+                throw new IllegalArgumentException("Unknown kind " + kind);
+        }
+    }
+
+    static ByteBuffer buffer(int kind) {
+        int row = rowSize(kind);
+        return ByteBuffer.allocateDirect(BUFFER / row * row).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static void writeHeader(WritableByteChannel channel, int kind) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(kind).putInt(rowSize(kind)).flip();
+        writeFully(channel, header);
+    }
+
+    static int readHeader(ReadableByteChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header) < 0) {
+                throw new EOFException("Truncated header");
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a segment file");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version " + version);
+        }
+        int kind = header.getInt();
+        if (kind < FORMULAS || kind > RESULTS || header.getInt() != rowSize(kind)) {
+            throw new IOException("Bad row layout");
+        }
+        return kind;
+    }
+
+    static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
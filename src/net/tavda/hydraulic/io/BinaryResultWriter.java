@@ -0,0 +1,82 @@
+package net.tavda.hydraulic.io;
+
+import net.tavda.hydraulic.PipelineColumns;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Запись результатов в двоичном формате с фиксированной длиной записи.
+ * После заголовка 16 байт каждый участок занимает 16 double (128 байт) в порядке столбцов {@link PipelineColumns}:
+ * t ср, вязкость, плотность, расход л/мин, скорость, Re, к-т трения, удельные потери, потери на трение кг/см^2 и Па,
+ * потери в местных сопротивлениях кг/см^2 и Па, полные потери кг/см^2 и Па, характеристика сопротивления, к-т по СНиП.
+ */
+public class BinaryResultWriter implements ResultWriter {
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * @param channel Канал, заголовок пишется сразу
+     * @throws IOException Ошибка записи
+     */
+    public BinaryResultWriter(WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        BinaryFormat.writeHeader(channel, BinaryFormat.RESULTS);
+        buffer = BinaryFormat.buffer(BinaryFormat.RESULTS);
+    }
+
+    /**
+     * @param path Файл результатов, перезаписывается
+     * @return Писатель файла
+     * @throws IOException Ошибка открытия или записи
+     */
+    public static BinaryResultWriter create(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return new BinaryResultWriter(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(PipelineColumns results, int rows) throws IOException {
+        final double[] tAvg = results.getAverageTemp(), nu = results.getViscosity(), rho = results.getAverageDensity(),
+                lpm = results.getConsumptionLitersPerMinute(), v = results.getSpeed(), re = results.getReynoldsNumber(),
+                lambda = results.getFrictionCoefficient(), r = results.getFrictionLoss(),
+                pf = results.getPressureFrictionLossKgPerSm2(), pfPa = results.getPressureFrictionLossPa(),
+                pz = results.getPressureLocalResistLossKgPerSm2(), pzPa = results.getPressureLocalResistLossPa(),
+                p = results.getPressureLossKgPerSm2(), pPa = results.getPressureLossPa(),
+                s = results.getPipelineResistance(), hr = results.getHydraulicResistance();
+        final ByteBuffer b = buffer;
+        for (int i = 0; i < rows; i++) {
+            if (!b.hasRemaining()) {
+                flush();
+            }
+            b.putDouble(tAvg[i]).putDouble(nu[i]).putDouble(rho[i]).putDouble(lpm[i])
+                    .putDouble(v[i]).putDouble(re[i]).putDouble(lambda[i]).putDouble(r[i])
+                    .putDouble(pf[i]).putDouble(pfPa[i]).putDouble(pz[i]).putDouble(pzPa[i])
+                    .putDouble(p[i]).putDouble(pPa[i]).putDouble(s[i]).putDouble(hr[i]);
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        BinaryFormat.writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package net.tavda.hydraulic.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Чтение участков в двоичном формате с фиксированной длиной записи, см. {@link BinarySegmentWriter}.
+ * Данные читаются через один буфер вне кучи, память не зависит от размера файла.
+ */
+public class BinarySegmentReader implements SegmentReader {
+    private final ReadableByteChannel channel;
+    private final boolean snip;
+    private final int rowSize;
+    private final ByteBuffer buffer;
+    private boolean eof;
+
+    /**
+     * @param channel Канал, заголовок читается сразу
+     * @throws IOException Ошибка чтения или неверный заголовок
+     */
+    public BinarySegmentReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        int kind = BinaryFormat.readHeader(channel);
+        if (kind == BinaryFormat.RESULTS) {
+            throw new IOException("File contains results, not segments");
+        }
+        snip = kind == BinaryFormat.SNIP;
+        rowSize = BinaryFormat.rowSize(kind);
+        buffer = BinaryFormat.buffer(kind);
+        buffer.flip();
+    }
+
+    /**
+     * @param path Файл участков
+     * @return Читатель файла
+     * @throws IOException Ошибка открытия или чтения заголовка
+     */
+    public static BinarySegmentReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new BinarySegmentReader(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean isSNiP() {
+        return snip;
+    }
+
+    @Override
+    public int read(SegmentChunk chunk) throws IOException {
+        final double[] g = chunk.getConsumption(), t1 = chunk.getTempIn(), t2 = chunk.getTempOut(),
+                d = chunk.getDiameter(), l = chunk.getLength(), k = chunk.getRoughness(), z = chunk.getSumLocalResist();
+        final int[] m = chunk.getMaterial();
+        final ByteBuffer b = buffer;
+        int rows = 0;
+        while (rows < chunk.capacity()) {
+            if (b.remaining() < rowSize && !fill()) {
+                break;
+            }
+            int count = Math.min(chunk.capacity() - rows, b.remaining() / rowSize);
+            for (int end = rows + count; rows < end; rows++) {
+                g[rows] = b.getDouble();
+                t1[rows] = b.getDouble();
+                t2[rows] = b.getDouble();
+                d[rows] = b.getDouble();
+                l[rows] = b.getDouble();
+                if (snip) {
+                    m[rows] = b.getInt();
+                } else {
+                    k[rows] = b.getDouble();
+                    z[rows] = b.getDouble();
+                }
+            }
+        }
+        return rows == 0 && eof ? -1 : rows;
+    }
+
+    /**
+     * Дочитать буфер из канала
+     * @return false - данные закончились
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        buffer.compact();
+        while (buffer.position() < rowSize || buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                eof = true;
+                break;
+            }
+        }
+        buffer.flip();
+        if (eof && buffer.remaining() % rowSize != 0) {
+            throw new EOFException("Truncated row");
+        }
+        return buffer.remaining() >= rowSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
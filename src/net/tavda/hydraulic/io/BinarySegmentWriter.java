@@ -0,0 +1,97 @@
+package net.tavda.hydraulic.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Запись участков в двоичном формате с фиксированной длиной записи.
+ * Заголовок 16 байт (сигнатура, версия, вид данных, длина записи), порядок байт little-endian.
+ * Запись участка для расчёта по формулам - 7 double: расход, t вх, t вых, диаметр, длина, шероховатость, сумма КМС (56 байт).
+ * Запись участка для расчёта по СНиП - 5 double: расход, t вх, t вых, диаметр, длина и int материал (44 байта).
+ * Позволяет один раз преобразовать выгрузку CSV в формат, который читается без разбора текста.
+ */
+public class BinarySegmentWriter implements Closeable {
+    private final WritableByteChannel channel;
+    private final boolean snip;
+    private final ByteBuffer buffer;
+
+    /**
+     * @param channel Канал, заголовок пишется сразу
+     * @param snip true - участки для расчёта по СНиП
+     * @throws IOException Ошибка записи
+     */
+    public BinarySegmentWriter(WritableByteChannel channel, boolean snip) throws IOException {
+        this.channel = channel;
+        this.snip = snip;
+        int kind = snip ? BinaryFormat.SNIP : BinaryFormat.FORMULAS;
+        BinaryFormat.writeHeader(channel, kind);
+        buffer = BinaryFormat.buffer(kind);
+    }
+
+    /**
+     * @param path Файл участков, перезаписывается
+     * @param snip true - участки для расчёта по СНиП
+     * @return Писатель файла
+     * @throws IOException Ошибка открытия или записи
+     */
+    public static BinarySegmentWriter create(Path path, boolean snip) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return new BinarySegmentWriter(channel, snip);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return true - участки для расчёта по СНиП
+     */
+    public boolean isSNiP() {
+        return snip;
+    }
+
+    /**
+     * Записать первые участки порции
+     * @param chunk Порция участков
+     * @param rows Количество участков
+     * @throws IOException Ошибка записи
+     */
+    public void write(SegmentChunk chunk, int rows) throws IOException {
+        final double[] g = chunk.getConsumption(), t1 = chunk.getTempIn(), t2 = chunk.getTempOut(),
+                d = chunk.getDiameter(), l = chunk.getLength(), k = chunk.getRoughness(), z = chunk.getSumLocalResist();
+        final int[] m = chunk.getMaterial();
+        final ByteBuffer b = buffer;
+        for (int i = 0; i < rows; i++) {
+            if (!b.hasRemaining()) {
+                flush();
+            }
+            b.putDouble(g[i]).putDouble(t1[i]).putDouble(t2[i]).putDouble(d[i]).putDouble(l[i]);
+            if (snip) {
+                b.putInt(m[i]);
+            } else {
+                b.putDouble(k[i]).putDouble(z[i]);
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        BinaryFormat.writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package net.tavda.hydraulic.io;
+
+import net.tavda.hydraulic.PipelineColumns;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Запись результатов в CSV. Первая строка - заголовок с именами столбцов {@link PipelineColumns},
+ * далее строка на каждый участок. Числа записываются как {@link Double#toString(double)}
+ * и читаются обратно без потери точности.
+ */
+public class CsvResultWriter implements ResultWriter {
+    private static final String[] NAMES = {"averageTemp", "viscosity", "averageDensity", "consumptionLitersPerMinute",
+            "speed", "reynoldsNumber", "frictionCoefficient", "frictionLoss",
+            "pressureFrictionLossKgPerSm2", "pressureFrictionLossPa", "pressureLocalResistLossKgPerSm2", "pressureLocalResistLossPa",
+            "pressureLossKgPerSm2", "pressureLossPa", "pipelineResistance", "hydraulicResistance"};
+
+    private final WritableByteChannel channel;
+    private final char separator;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BinaryFormat.BUFFER);
+    private final StringBuilder text = new StringBuilder(512);
+    private final double[][] columns = new double[NAMES.length][];
+
+    /**
+     * @param channel Канал, заголовок пишется сразу
+     * @param separator Разделитель полей
+     * @throws IOException Ошибка записи
+     */
+    public CsvResultWriter(WritableByteChannel channel, char separator) throws IOException {
+        this.channel = channel;
+        this.separator = separator;
+        for (int c = 0; c < NAMES.length; c++) {
+            if (c > 0) {
+                text.append(separator);
+            }
+            text.append(NAMES[c]);
+        }
+        text.append('\n');
+        put();
+    }
+
+    /**
+     * @param path Файл CSV с разделителем {@link CsvSegmentReader#DEFAULT_SEPARATOR}, перезаписывается
+     * @return Писатель файла
+     * @throws IOException Ошибка открытия или записи
+     */
+    public static CsvResultWriter create(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return new CsvResultWriter(channel, CsvSegmentReader.DEFAULT_SEPARATOR);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(PipelineColumns results, int rows) throws IOException {
+        final double[][] cols = columns;
+        cols[0] = results.getAverageTemp();
+        cols[1] = results.getViscosity();
+        cols[2] = results.getAverageDensity();
+        cols[3] = results.getConsumptionLitersPerMinute();
+        cols[4] = results.getSpeed();
+        cols[5] = results.getReynoldsNumber();
+        cols[6] = results.getFrictionCoefficient();
+        cols[7] = results.getFrictionLoss();
+        cols[8] = results.getPressureFrictionLossKgPerSm2();
+        cols[9] = results.getPressureFrictionLossPa();
+        cols[10] = results.getPressureLocalResistLossKgPerSm2();
+        cols[11] = results.getPressureLocalResistLossPa();
+        cols[12] = results.getPressureLossKgPerSm2();
+        cols[13] = results.getPressureLossPa();
+        cols[14] = results.getPipelineResistance();
+        cols[15] = results.getHydraulicResistance();
+        for (int i = 0; i < rows; i++) {
+            text.setLength(0);
+            for (int c = 0; c < cols.length; c++) {
+                if (c > 0) {
+                    text.append(separator);
+                }
+                text.append(cols[c][i]);
+            }
+            text.append('\n');
+            put();
+        }
+    }
+
+    /**
+     * Перенести текст строки в буфер, при необходимости записав буфер в канал
+     */
+    private void put() throws IOException {
+        int length = text.length();
+        if (buffer.remaining() < length) {
+            flush();
+        }
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        BinaryFormat.writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
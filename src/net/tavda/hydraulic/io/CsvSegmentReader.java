@@ -0,0 +1,326 @@
+package net.tavda.hydraulic.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Чтение участков из CSV. Первая строка - заголовок с именами столбцов:
+ * consumption, tempIn, tempOut, diameter, length и roughness, sumLocalResist для расчёта по формулам
+ * или material для расчёта по СНиП. Порядок столбцов любой, прочие столбцы пропускаются.
+ * Дробная часть отделяется точкой, кавычки не поддерживаются, пустые строки пропускаются.
+ * <p>
+ * Файл читается через один буфер, числа разбираются прямо из байтов без создания строк,
+ * память не зависит от размера файла.
+ */
+public class CsvSegmentReader implements SegmentReader {
+    /**
+     * Разделитель полей по умолчанию
+     */
+    public static final char DEFAULT_SEPARATOR = ',';
+
+    private static final String[] NAMES = {"consumption", "tempIn", "tempOut", "diameter", "length", "roughness", "sumLocalResist", "material"};
+    private static final int ROUGHNESS = 5;
+    private static final int SUM_LOCAL_RESIST = 6;
+    private static final int MATERIAL = 7;
+    private static final int SKIP = -1;
+    /**
+     * Точные степени 10, см. W. D. Clinger, How to read floating point numbers accurately
+     */
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final ReadableByteChannel channel;
+    private final byte separator;
+    private final byte[] buf = new byte[BinaryFormat.BUFFER];
+    private final ByteBuffer bytes = ByteBuffer.wrap(buf);
+    private final int[] target;
+    private final int fields;
+    private final boolean snip;
+    private int pos;
+    private int limit;
+    private int scan;
+    private boolean eof;
+    private long line;
+
+    /**
+     * @param channel Канал, заголовок читается сразу
+     * @param separator Разделитель полей
+     * @throws IOException Ошибка чтения или в заголовке нет нужных столбцов
+     */
+    public CsvSegmentReader(ReadableByteChannel channel, char separator) throws IOException {
+        this.channel = channel;
+        this.separator = (byte) separator;
+        int end = nextLine();
+        if (end < 0) {
+            throw new IOException("Missing header");
+        }
+        int from = pos;
+        // Метка порядка байт UTF-8
+        if (end - from >= 3 && buf[from] == (byte) 0xEF && buf[from + 1] == (byte) 0xBB && buf[from + 2] == (byte) 0xBF) {
+            from += 3;
+        }
+        String[] names = new String(buf, from, end - from, StandardCharsets.UTF_8).trim().split(String.valueOf(separator), -1);
+        pos = end + 1;
+        fields = names.length;
+        target = new int[fields];
+        boolean[] found = new boolean[NAMES.length];
+        for (int c = 0; c < fields; c++) {
+            target[c] = SKIP;
+            for (int n = 0; n < NAMES.length; n++) {
+                if (!found[n] && NAMES[n].equalsIgnoreCase(names[c].trim())) {
+                    target[c] = n;
+                    found[n] = true;
+                    break;
+                }
+            }
+        }
+        for (int n = 0; n < ROUGHNESS; n++) {
+            if (!found[n]) {
+                throw new IOException("Missing column " + NAMES[n]);
+            }
+        }
+        snip = !found[ROUGHNESS];
+        if (snip ? !found[MATERIAL] : !found[SUM_LOCAL_RESIST]) {
+            throw new IOException(found[ROUGHNESS] ? "Missing column sumLocalResist" : "Missing column roughness or material");
+        }
+        if (!snip) {
+            for (int c = 0; c < fields; c++) {
+                if (target[c] == MATERIAL) {
+                    target[c] = SKIP;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param path Файл CSV с разделителем {@link #DEFAULT_SEPARATOR}
+     * @return Читатель файла
+     * @throws IOException Ошибка открытия или чтения заголовка
+     */
+    public static CsvSegmentReader open(Path path) throws IOException {
+        return open(path, DEFAULT_SEPARATOR);
+    }
+
+    /**
+     * @param path Файл CSV
+     * @param separator Разделитель полей
+     * @return Читатель файла
+     * @throws IOException Ошибка открытия или чтения заголовка
+     */
+    public static CsvSegmentReader open(Path path, char separator) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new CsvSegmentReader(channel, separator);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean isSNiP() {
+        return snip;
+    }
+
+    @Override
+    public int read(SegmentChunk chunk) throws IOException {
+        final double[] g = chunk.getConsumption(), t1 = chunk.getTempIn(), t2 = chunk.getTempOut(),
+                d = chunk.getDiameter(), l = chunk.getLength(), k = chunk.getRoughness(), z = chunk.getSumLocalResist();
+        final int[] m = chunk.getMaterial();
+        int rows = 0;
+        while (rows < chunk.capacity()) {
+            int end = nextLine();
+            if (end < 0) {
+                return rows == 0 ? -1 : rows;
+            }
+            int from = pos;
+            pos = end + 1;
+            int to = trimEnd(from, end);
+            if (to == from) {
+                continue;
+            }
+            for (int c = 0; c < fields; c++) {
+                if (from > to) {
+                    throw new IOException("Line " + line + ": " + c + " fields, expected " + fields);
+                }
+                int next = from;
+                while (next < to && buf[next] != separator) {
+                    next++;
+                }
+                int n = target[c];
+                if (n == MATERIAL) {
+                    m[rows] = parseInt(from, next, c);
+                } else if (n != SKIP) {
+                    double value = parseDouble(from, next, c);
+                    switch (n) {
+                        case 0: g[rows] = value; break;
+                        case 1: t1[rows] = value; break;
+                        case 2: t2[rows] = value; break;
+                        case 3: d[rows] = value; break;
+                        case 4: l[rows] = value; break;
+                        case ROUGHNESS: k[rows] = value; break;
+                        default: z[rows] = value; break;
+                    }
+                }
+                from = next + 1;
+            }
+            rows++;
+        }
+        return rows;
+    }
+
+    /**
+     * Найти конец следующей строки, при необходимости дочитав буфер
+     * @return Индекс '\n' или конца данных, -1 - данные закончились
+     */
+    private int nextLine() throws IOException {
+        for (;;) {
+            for (int i = Math.max(scan, pos); i < limit; i++) {
+                if (buf[i] == '\n') {
+                    scan = i + 1;
+                    line++;
+                    return i;
+                }
+            }
+            scan = limit;
+            if (eof) {
+                if (pos < limit) {
+                    line++;
+                    return limit;
+                }
+                return -1;
+            }
+            if (pos == 0 && limit == buf.length) {
+                throw new IOException("Line " + (line + 1) + " longer than " + buf.length + " bytes");
+            }
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            scan -= pos;
+            pos = 0;
+            bytes.clear().position(limit);
+            int n = channel.read(bytes);
+            if (n < 0) {
+                eof = true;
+            } else {
+                limit += n;
+            }
+        }
+    }
+
+    private int trimEnd(int from, int to) {
+        while (to > from && (buf[to - 1] == '\r' || buf[to - 1] == ' ' || buf[to - 1] == '\t')) {
+            to--;
+        }
+        return to;
+    }
+
+    /**
+     * Разобрать десятичное число. До 15 значащих цифр и порядка 22 результат получается
+     * одним точным умножением или делением и совпадает с {@link Double#parseDouble(String)},
+     * прочие числа передаются в {@link Double#parseDouble(String)}.
+     */
+    private double parseDouble(int from, int to, int column) throws IOException {
+        while (from < to && buf[from] == ' ') {
+            from++;
+        }
+        to = trimEnd(from, to);
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buf[i] == '-' || buf[i] == '+')) {
+            negative = buf[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean any = false;
+        boolean point = false;
+        for (; i < to; i++) {
+            int c = buf[i];
+            if (c >= '0' && c <= '9') {
+                any = true;
+                if (mantissa != 0 || c != '0') {
+                    if (++digits > 15) {
+                        return parseSlow(from, to, column);
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                if (point) {
+                    exponent--;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (!any) {
+            return parseSlow(from, to, column);
+        }
+        if (i < to && (buf[i] == 'e' || buf[i] == 'E')) {
+            i++;
+            boolean negativeExp = false;
+            if (i < to && (buf[i] == '-' || buf[i] == '+')) {
+                negativeExp = buf[i] == '-';
+                i++;
+            }
+            int e = 0;
+            int start = i;
+            for (; i < to && buf[i] >= '0' && buf[i] <= '9' && e < 1000; i++) {
+                e = e * 10 + (buf[i] - '0');
+            }
+            if (i == start) {
+                return parseSlow(from, to, column);
+            }
+            exponent += negativeExp ? -e : e;
+        }
+        if (i != to || exponent < -22 || exponent > 22) {
+            return parseSlow(from, to, column);
+        }
+        double value = mantissa;
+        value = exponent < 0 ? value / POW10[-exponent] : value * POW10[exponent];
+        return negative ? -value : value;
+    }
+
+    private double parseSlow(int from, int to, int column) throws IOException {
+        String text = new String(buf, from, to - from, StandardCharsets.US_ASCII);
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IOException("Line " + line + ", column " + (column + 1) + ": bad number '" + text + "'", e);
+        }
+    }
+
+    private int parseInt(int from, int to, int column) throws IOException {
+        while (from < to && buf[from] == ' ') {
+            from++;
+        }
+        to = trimEnd(from, to);
+        int i = from;
+        boolean negative = i < to && buf[i] == '-';
+        if (negative || i < to && buf[i] == '+') {
+            i++;
+        }
+        int start = i;
+        int value = 0;
+        for (; i < to && buf[i] >= '0' && buf[i] <= '9' && value < 100000000; i++) {
+            value = value * 10 + (buf[i] - '0');
+        }
+        if (i == start || i != to) {
+            String text = new String(buf, from, to - from, StandardCharsets.US_ASCII);
+            throw new IOException("Line " + line + ", column " + (column + 1) + ": bad integer '" + text + "'");
+        }
+        return negative ? -value : value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,463 @@
+package net.tavda.hydraulic.io;
+
+import net.tavda.hydraulic.PipelineColumns;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Хранилище участков и результатов расчёта в файле, отображённом в память.
+ * Каждая величина хранится отдельным столбцом, порядок байт little-endian: после заголовка 32 байта идут
+ * столбцы исходных данных (расход, температуры, диаметр, длина и шероховатость с местными сопротивлениями
+ * или материал), затем 16 столбцов результатов в порядке {@link PipelineColumns}.
+ * <p>
+ * Данные находятся вне кучи: открытие файла не читает его, страницы подгружаются операционной системой при обращении,
+ * открытый только для чтения файл разделяется между процессами. Расчёт идёт через {@link SegmentPipeline}:
+ * {@link #reader(int, int)} копирует порции исходных данных в столбцы порции, {@link #writer(int)} записывает
+ * результаты порции в столбцы файла, поэтому куча не зависит от количества участков.
+ * <p>
+ * Чтение и запись разных участков из разных потоков допустимы, каждый читатель и писатель использует свои
+ * представления столбцов. Отображение освобождается сборщиком мусора, {@link #close()} закрывает только файл
+ */
+public class MappedSegmentStore implements Closeable {
+    /**
+     * Наибольшее количество участков: столбец отображается одним буфером
+     */
+    public static final int MAX_SIZE = Integer.MAX_VALUE / 8;
+
+    private static final int HEADER = 32;
+    private static final int INPUTS = 7;
+    private static final int ROUGHNESS = 5;
+    private static final int SUM_LOCAL_RESIST = 6;
+    private static final int RESULTS = 16;
+
+    private final FileChannel channel;
+    private final int size;
+    private final boolean snip;
+    private final boolean readOnly;
+    /**
+     * Столбцы исходных данных, для СНиП шероховатости и местных сопротивлений нет
+     */
+    private final DoubleBuffer[] inputs = new DoubleBuffer[INPUTS];
+    private final IntBuffer material;
+    private final DoubleBuffer[] results = new DoubleBuffer[RESULTS];
+    private final MappedByteBuffer[] mappings;
+
+    private MappedSegmentStore(FileChannel channel, int size, boolean snip, boolean readOnly) throws IOException {
+        this.channel = channel;
+        this.size = size;
+        this.snip = snip;
+        this.readOnly = readOnly;
+        FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE;
+        mappings = new MappedByteBuffer[INPUTS + 1 + RESULTS];
+        long column = (long) size * 8;
+        long offset = HEADER;
+        for (int c = 0; c < INPUTS; c++) {
+            if (snip && (c == ROUGHNESS || c == SUM_LOCAL_RESIST)) {
+                continue;
+            }
+            inputs[c] = map(c, mode, offset, column).asDoubleBuffer();
+            offset += column;
+        }
+        if (snip) {
+            material = map(INPUTS, mode, offset, (long) size * 4).asIntBuffer();
+            offset += ((long) size * 4 + 7) & -8;
+        } else {
+            material = null;
+        }
+        for (int c = 0; c < RESULTS; c++) {
+            results[c] = map(INPUTS + 1 + c, mode, offset, column).asDoubleBuffer();
+            offset += column;
+        }
+    }
+
+    private ByteBuffer map(int index, FileChannel.MapMode mode, long offset, long bytes) throws IOException {
+        mappings[index] = channel.map(mode, offset, bytes);
+        return mappings[index].order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static long fileSize(int size, boolean snip) {
+        long column = (long) size * 8;
+        long inputs = snip ? 5 * column + (((long) size * 4 + 7) & -8) : INPUTS * column;
+        return HEADER + inputs + RESULTS * column;
+    }
+
+    /**
+     * Создать хранилище, исходные данные и результаты заполнены нулями
+     * @param path Файл, перезаписывается
+     * @param size Количество участков
+     * @param snip true - для расчёта по СНиП (материал труб), false - по формулам
+     * @return Хранилище, открытое для записи
+     * @throws IOException Ошибка создания файла
+     */
+    public static MappedSegmentStore create(Path path, int size, boolean snip) throws IOException {
+        if (size < 0 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Size " + size + " outside [0, " + MAX_SIZE + "]");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(BinaryFormat.MAGIC).putInt(BinaryFormat.VERSION).putInt(BinaryFormat.STORE)
+                    .putInt(snip ? BinaryFormat.SNIP : BinaryFormat.FORMULAS).putLong(size).flip();
+            BinaryFormat.writeFully(channel, header);
+            // Файл без записанных страниц, нули читаются без выделения места на диске
+            long end = fileSize(size, snip);
+            if (end > HEADER) {
+                channel.write(ByteBuffer.allocate(1), end - 1);
+            }
+            return new MappedSegmentStore(channel, size, snip, false);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Открыть хранилище
+     * @param path Файл, созданный {@link #create(Path, int, boolean)}
+     * @param readOnly true - только чтение, файл можно одновременно открыть в других процессах
+     * @return Хранилище
+     * @throws IOException Ошибка открытия или неверный заголовок
+     */
+    public static MappedSegmentStore open(Path path, boolean readOnly) throws IOException {
+        FileChannel channel = readOnly
+                ? FileChannel.open(path, StandardOpenOption.READ)
+                : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException("Truncated header");
+                }
+            }
+            header.flip();
+            if (header.getInt() != BinaryFormat.MAGIC) {
+                throw new IOException("Not a segment file");
+            }
+            int version = header.getInt();
+            if (version != BinaryFormat.VERSION) {
+                throw new IOException("Unsupported version " + version);
+            }
+            if (header.getInt() != BinaryFormat.STORE) {
+                throw new IOException("Not a segment store");
+            }
+            int kind = header.getInt();
+            long size = header.getLong();
+            if (kind != BinaryFormat.FORMULAS && kind != BinaryFormat.SNIP || size < 0 || size > MAX_SIZE) {
+                throw new IOException("Bad store layout");
+            }
+            boolean snip = kind == BinaryFormat.SNIP;
+            if (channel.size() < fileSize((int) size, snip)) {
+                throw new IOException("Truncated store: " + channel.size() + " < " + fileSize((int) size, snip) + " bytes");
+            }
+            return new MappedSegmentStore(channel, (int) size, snip, readOnly);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Количество участков
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true - данные для расчёта по СНиП, false - по формулам
+     */
+    public boolean isSNiP() {
+        return snip;
+    }
+
+    /**
+     * @return Открыто ли хранилище только для чтения
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Задать участок для расчёта по формулам
+     * @param row Номер участка
+     * @param consumption Расход воды через трубопровод, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param roughness Экв. шероховатость внутр. поверхностей труб, мм
+     * @param sumLocalResist Сумма к-тов местных сопротивлений
+     */
+    public void setSegment(int row, double consumption, double tempIn, double tempOut, double diameter, double length, double roughness, double sumLocalResist) {
+        checkWrite(row);
+        if (snip) {
+            throw new IllegalStateException("Store holds SNiP segments");
+        }
+        setCommon(row, consumption, tempIn, tempOut, diameter, length);
+        inputs[ROUGHNESS].put(row, roughness);
+        inputs[SUM_LOCAL_RESIST].put(row, sumLocalResist);
+    }
+
+    /**
+     * Задать участок для расчёта по СНиП
+     * @param row Номер участка
+     * @param consumption Расход воды через трубопровод, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param material Материал труб, см. {@link net.tavda.hydraulic.PipeMaterials}
+     */
+    public void setSegment(int row, double consumption, double tempIn, double tempOut, double diameter, double length, int material) {
+        checkWrite(row);
+        if (!snip) {
+            throw new IllegalStateException("Store holds formula segments");
+        }
+        setCommon(row, consumption, tempIn, tempOut, diameter, length);
+        this.material.put(row, material);
+    }
+
+    private void setCommon(int row, double consumption, double tempIn, double tempOut, double diameter, double length) {
+        inputs[0].put(row, consumption);
+        inputs[1].put(row, tempIn);
+        inputs[2].put(row, tempOut);
+        inputs[3].put(row, diameter);
+        inputs[4].put(row, length);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " outside [0, " + size + ")");
+        }
+    }
+
+    private void checkWrite(int row) {
+        checkRow(row);
+        if (readOnly) {
+            throw new IllegalStateException("Store is read-only");
+        }
+    }
+
+    /**
+     * @param row Номер участка
+     * @return Расход воды через трубопровод, т/ч
+     */
+    public double getConsumption(int row) {
+        checkRow(row);
+        return inputs[0].get(row);
+    }
+
+    /**
+     * @param row Номер участка
+     * @return Внутренний диаметр трубопровода, мм
+     */
+    public double getDiameter(int row) {
+        checkRow(row);
+        return inputs[3].get(row);
+    }
+
+    /**
+     * @param row Номер участка
+     * @return Скорость воды по последнему расчёту, м/с
+     */
+    public double getSpeed(int row) {
+        checkRow(row);
+        return results[4].get(row);
+    }
+
+    /**
+     * @param row Номер участка
+     * @return Потери давления по последнему расчёту, Па
+     */
+    public double getPressureLossPa(int row) {
+        checkRow(row);
+        return results[13].get(row);
+    }
+
+    /**
+     * Прочитать результаты участков в столбцы
+     * @param from Первый участок
+     * @param out Столбцы результатов, заполняются с начала
+     * @param rows Количество участков
+     */
+    public void readResults(int from, PipelineColumns out, int rows) {
+        checkRange(from, rows);
+        if (rows > out.size()) {
+            throw new IllegalArgumentException("Rows " + rows + " > columns size " + out.size());
+        }
+        double[][] columns = columns(out);
+        for (int c = 0; c < RESULTS; c++) {
+            DoubleBuffer view = results[c].duplicate();
+            view.position(from);
+            view.get(columns[c], 0, rows);
+        }
+    }
+
+    private void checkRange(int from, int rows) {
+        if (from < 0 || rows < 0 || from > size - rows) {
+            throw new IndexOutOfBoundsException("Rows [" + from + ", " + ((long) from + rows) + ") outside [0, " + size + ")");
+        }
+    }
+
+    private static double[][] columns(PipelineColumns c) {
+        return new double[][]{c.getAverageTemp(), c.getViscosity(), c.getAverageDensity(), c.getConsumptionLitersPerMinute(),
+                c.getSpeed(), c.getReynoldsNumber(), c.getFrictionCoefficient(), c.getFrictionLoss(),
+                c.getPressureFrictionLossKgPerSm2(), c.getPressureFrictionLossPa(), c.getPressureLocalResistLossKgPerSm2(),
+                c.getPressureLocalResistLossPa(), c.getPressureLossKgPerSm2(), c.getPressureLossPa(),
+                c.getPipelineResistance(), c.getHydraulicResistance()};
+    }
+
+    /**
+     * @return Чтение всех участков для {@link SegmentPipeline#run(SegmentReader, ResultWriter)}
+     */
+    public SegmentReader reader() {
+        return reader(0, size);
+    }
+
+    /**
+     * @param from Первый участок
+     * @param to Участок, следующий за последним
+     * @return Чтение участков [from, to) для {@link SegmentPipeline#run(SegmentReader, ResultWriter)}
+     */
+    public SegmentReader reader(int from, int to) {
+        checkRange(from, to - from);
+        return new Reader(from, to);
+    }
+
+    /**
+     * @return Запись результатов с первого участка
+     */
+    public ResultWriter writer() {
+        return writer(0);
+    }
+
+    /**
+     * @param from Участок, с которого записываются результаты
+     * @return Запись результатов в столбцы хранилища, участки записываются подряд
+     */
+    public ResultWriter writer(int from) {
+        if (readOnly) {
+            throw new IllegalStateException("Store is read-only");
+        }
+        if (from < 0 || from > size) {
+            throw new IndexOutOfBoundsException("Row " + from + " outside [0, " + size + "]");
+        }
+        return new Writer(from);
+    }
+
+    /**
+     * Записать изменённые страницы в файл
+     */
+    public void force() {
+        if (readOnly) {
+            return;
+        }
+        for (MappedByteBuffer mapping : mappings) {
+            if (mapping != null) {
+                mapping.force();
+            }
+        }
+    }
+
+    /**
+     * Закрыть файл. Отображённые страницы остаются доступны до сборки хранилища сборщиком мусора
+     * @throws IOException Ошибка закрытия
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private DoubleBuffer[] views(DoubleBuffer[] columns) {
+        DoubleBuffer[] views = new DoubleBuffer[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            views[c] = columns[c] == null ? null : columns[c].duplicate();
+        }
+        return views;
+    }
+
+    /**
+     * Чтение диапазона участков порциями, столбцы копируются в столбцы порции целиком
+     */
+    private final class Reader implements SegmentReader {
+        private final DoubleBuffer[] in = views(inputs);
+        private final IntBuffer m = material == null ? null : material.duplicate();
+        private final int to;
+        private int row;
+
+        Reader(int from, int to) {
+            this.row = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean isSNiP() {
+            return snip;
+        }
+
+        @Override
+        public int read(SegmentChunk chunk) {
+            if (row == to) {
+                return -1;
+            }
+            int rows = Math.min(chunk.capacity(), to - row);
+            double[][] columns = {chunk.getConsumption(), chunk.getTempIn(), chunk.getTempOut(), chunk.getDiameter(),
+                    chunk.getLength(), chunk.getRoughness(), chunk.getSumLocalResist()};
+            for (int c = 0; c < INPUTS; c++) {
+                if (in[c] != null) {
+                    in[c].position(row);
+                    in[c].get(columns[c], 0, rows);
+                }
+            }
+            if (m != null) {
+                m.position(row);
+                m.get(chunk.getMaterial(), 0, rows);
+            }
+            row += rows;
+            return rows;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Запись результатов подряд с заданного участка
+     */
+    private final class Writer implements ResultWriter {
+        private final DoubleBuffer[] out = views(results);
+        private int row;
+
+        Writer(int from) {
+            this.row = from;
+        }
+
+        @Override
+        public void write(PipelineColumns columns, int rows) throws IOException {
+            if (rows > size - row) {
+                throw new IOException("Store is full: " + size + " rows");
+            }
+            double[][] values = columns(columns);
+            for (int c = 0; c < RESULTS; c++) {
+                out[c].position(row);
+                out[c].put(values[c], 0, rows);
+            }
+            row += rows;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package net.tavda.hydraulic.io;
+
+import net.tavda.hydraulic.PipelineColumns;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Потоковая запись результатов расчёта участков порциями.
+ * Участки записываются в порядке чтения исходных данных.
+ */
+public interface ResultWriter extends Closeable {
+    /**
+     * Записать результаты первых участков столбцов
+     * @param results Столбцы результатов
+     * @param rows Количество участков
+     * @throws IOException Ошибка записи
+     */
+    void write(PipelineColumns results, int rows) throws IOException;
+}
@@ -0,0 +1,98 @@
+package net.tavda.hydraulic.io;
+
+/**
+ * Порция исходных данных участков, по столбцу на каждую величину.
+ * Столбцы выделяются один раз и заполняются заново при каждом чтении.
+ */
+public class SegmentChunk {
+    private final int capacity;
+    private final double[] consumption;
+    private final double[] tempIn;
+    private final double[] tempOut;
+    private final double[] diameter;
+    private final double[] length;
+    private final double[] roughness;
+    private final double[] sumLocalResist;
+    private final int[] material;
+
+    /**
+     * @param capacity Наибольшее количество участков в порции
+     */
+    public SegmentChunk(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Chunk capacity " + capacity + " < 1");
+        }
+        this.capacity = capacity;
+        consumption = new double[capacity];
+        tempIn = new double[capacity];
+        tempOut = new double[capacity];
+        diameter = new double[capacity];
+        length = new double[capacity];
+        roughness = new double[capacity];
+        sumLocalResist = new double[capacity];
+        material = new int[capacity];
+    }
+
+    /**
+     * @return Наибольшее количество участков в порции
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Расход воды через трубопровод, т/ч
+     */
+    public double[] getConsumption() {
+        return consumption;
+    }
+
+    /**
+     * @return Температура воды на входе, градусов цельсия
+     */
+    public double[] getTempIn() {
+        return tempIn;
+    }
+
+    /**
+     * @return Температура воды на выходе, градусов цельсия
+     */
+    public double[] getTempOut() {
+        return tempOut;
+    }
+
+    /**
+     * @return Внутренний диаметр трубопровода, мм
+     */
+    public double[] getDiameter() {
+        return diameter;
+    }
+
+    /**
+     * @return Длина трубопровода, м
+     */
+    public double[] getLength() {
+        return length;
+    }
+
+    /**
+     * @return Экв. шероховатость внутр. поверхностей труб, мм
+     */
+    public double[] getRoughness() {
+        return roughness;
+    }
+
+    /**
+     * @return Сумма к-тов местных сопротивлений
+     */
+    public double[] getSumLocalResist() {
+        return sumLocalResist;
+    }
+
+    /**
+     * @return Материал труб для расчёта по СНиП
+     */
+    public int[] getMaterial() {
+        return material;
+    }
+}
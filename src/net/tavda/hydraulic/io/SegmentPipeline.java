@@ -0,0 +1,208 @@
+package net.tavda.hydraulic.io;
+
+import net.tavda.hydraulic.CalculationListener;
+import net.tavda.hydraulic.FrictionModel;
+import net.tavda.hydraulic.HorizontalPipelineBatch;
+import net.tavda.hydraulic.PipelineColumns;
+import net.tavda.hydraulic.Precision;
+import net.tavda.hydraulic.WaterProperties;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Потоковый расчёт участков: исходные данные читаются порциями, каждая порция считается
+ * {@link HorizontalPipelineBatch} и результаты сразу записываются. Столбцы порции и результатов
+ * выделяются один раз, поэтому память не зависит от количества участков.
+ * Вид расчёта (по формулам или по СНиП) определяется исходными данными.
+ * <p>
+ * Объект не потокобезопасен: одновременно выполняется один расчёт.
+ */
+public class SegmentPipeline {
+    /**
+     * Размер порции по умолчанию, участков
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final SegmentChunk chunk;
+    private final PipelineColumns results;
+    private Precision precision = Precision.STRICT;
+    private WaterProperties water = WaterProperties.exact();
+    private FrictionModel friction = FrictionModel.ALTSHUL;
+    private ForkJoinPool pool;
+    private int parallelThreshold = HorizontalPipelineBatch.DEFAULT_PARALLEL_THRESHOLD;
+    private CalculationListener listener;
+    private long rows;
+    private long nanos;
+
+    public SegmentPipeline() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize Размер порции, участков
+     */
+    public SegmentPipeline(int chunkSize) {
+        chunk = new SegmentChunk(chunkSize);
+        results = new PipelineColumns(chunkSize);
+    }
+
+    /**
+     * Установить режим вычисления степеней, по умолчанию {@link Precision#STRICT}
+     * @param precision Режим вычисления
+     */
+    public void setPrecision(Precision precision) {
+        this.precision = precision;
+    }
+
+    /**
+     * Установить источник свойств воды, по умолчанию {@link WaterProperties#exact()}
+     * @param water Свойства воды
+     */
+    public void setWaterProperties(WaterProperties water) {
+        this.water = water;
+    }
+
+    /**
+     * Установить формулу к-та гидравлического трения в турбулентном режиме, по умолчанию {@link FrictionModel#ALTSHUL}
+     * @param friction Формула к-та гидравлического трения
+     */
+    public void setFrictionModel(FrictionModel friction) {
+        this.friction = friction;
+    }
+
+    /**
+     * Установить пул потоков для параллельного расчёта порции
+     * @param pool Пул потоков, null - последовательный расчёт
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Установить порог параллельного расчёта, см. {@link HorizontalPipelineBatch#setParallelThreshold(int)}
+     * @param parallelThreshold Порог, участков
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 1) {
+            throw new IllegalArgumentException("Parallel threshold " + parallelThreshold + " < 1");
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Установить наблюдателя за расчётом порций, см. {@link HorizontalPipelineBatch#setListener(CalculationListener)}
+     * @param listener Наблюдатель, null - без измерений
+     */
+    public void setListener(CalculationListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Рассчитать все участки. Потоки не закрываются.
+     * @param in Исходные данные участков
+     * @param out Результаты
+     * @return Количество рассчитанных участков
+     * @throws IOException Ошибка чтения или записи
+     */
+    public long run(SegmentReader in, ResultWriter out) throws IOException {
+        long start = System.nanoTime();
+        boolean snip = in.isSNiP();
+        HorizontalPipelineBatch batch = snip
+                ? new HorizontalPipelineBatch(chunk.getConsumption(), chunk.getTempIn(), chunk.getTempOut(),
+                        chunk.getDiameter(), chunk.getLength(), chunk.getMaterial())
+                : new HorizontalPipelineBatch(chunk.getConsumption(), chunk.getTempIn(), chunk.getTempOut(),
+                        chunk.getDiameter(), chunk.getLength(), chunk.getRoughness(), chunk.getSumLocalResist());
+        batch.setPrecision(precision);
+        batch.setWaterProperties(water);
+        batch.setFrictionModel(friction);
+        batch.setPool(pool);
+        batch.setParallelThreshold(parallelThreshold);
+        batch.setListener(listener);
+        long count = 0;
+        int n;
+        while ((n = in.read(chunk)) >= 0) {
+            // Начальное приближение к-та трения не переносится между порциями,
+            // результат не зависит от размера порции
+            Arrays.fill(results.getFrictionCoefficient(), 0, n, 0);
+            if (n == chunk.capacity()) {
+                if (snip) {
+                    batch.calcSNiP(results);
+                } else {
+                    batch.calcFormulas(results);
+                }
+            } else if (snip) {
+                batch.calcSNiP(0, n, results);
+            } else {
+                batch.calcFormulas(0, n, results);
+            }
+            out.write(results, n);
+            count += n;
+        }
+        rows = count;
+        nanos = System.nanoTime() - start;
+        return count;
+    }
+
+    /**
+     * Рассчитать все участки хранилища, результаты записываются в него же
+     * @param store Хранилище, открытое для записи
+     * @return Количество рассчитанных участков
+     * @throws IOException Ошибка чтения или записи
+     */
+    public long run(MappedSegmentStore store) throws IOException {
+        return run(store.reader(), store.writer());
+    }
+
+    /**
+     * @return Количество участков последнего расчёта
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return Время последнего расчёта вместе с чтением и записью, нс
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return Производительность последнего расчёта, участков/с
+     */
+    public double getRowsPerSecond() {
+        return nanos == 0 ? 0 : rows * 1e9 / nanos;
+    }
+
+    /**
+     * Расчёт файла участков из командной строки: входной файл, файл результатов, размер порции (необязательно).
+     * Файлы с расширением .csv читаются и пишутся как CSV, прочие - в двоичном формате.
+     * Производительность выводится в стандартный поток ошибок.
+     * @param args Аргументы командной строки
+     * @throws IOException Ошибка чтения или записи
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: SegmentPipeline <input.csv|input.bin> <output.csv|output.bin> [chunkSize]");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        SegmentPipeline pipeline = new SegmentPipeline(args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_CHUNK_SIZE);
+        try (SegmentReader in = isCsv(input) ? CsvSegmentReader.open(input) : BinarySegmentReader.open(input);
+             ResultWriter out = isCsv(output) ? CsvResultWriter.create(output) : BinaryResultWriter.create(output)) {
+            pipeline.run(in, out);
+        }
+        System.err.printf(Locale.ROOT, "%d rows, %.3f s, %.0f rows/s%n",
+                pipeline.getRows(), pipeline.getNanos() * 1e-9, pipeline.getRowsPerSecond());
+    }
+
+    private static boolean isCsv(Path path) {
+        return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+    }
+}
@@ -0,0 +1,22 @@
+package net.tavda.hydraulic.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Потоковое чтение исходных данных участков порциями
+ */
+public interface SegmentReader extends Closeable {
+    /**
+     * @return true - данные для расчёта по СНиП (материал труб), false - по формулам (шероховатость и местные сопротивления)
+     */
+    boolean isSNiP();
+
+    /**
+     * Прочитать следующую порцию участков
+     * @param chunk Порция, заполняется с начала
+     * @return Количество прочитанных участков, -1 - данные закончились
+     * @throws IOException Ошибка чтения или формата данных
+     */
+    int read(SegmentChunk chunk) throws IOException;
+}
@@ -0,0 +1,188 @@
+package net.tavda.hydraulic.network;
+
+import java.util.Arrays;
+
+/**
+ * Разбиение тепловой сети на блоки (компоненты двусвязности).
+ * Все источники считаются одной вершиной - "землёй", так как давления в них заданы.
+ * Изменение сопротивления участка меняет расходы только в его блоке: остальная сеть присоединена к блоку
+ * через точки сочленения, и расход через каждую из них определяется отборами за ней.
+ * <p>
+ * Блоки нумеруются в обратном порядке обхода в глубину от земли, поэтому номер дочернего блока
+ * всегда меньше номера родительского. Корень блока - его вершина, ближайшая к земле.
+ */
+final class NetworkBlocks {
+    private final int ground;
+    private final int blockCount;
+    /**
+     * Блок участка
+     */
+    private final int[] blockOf;
+    /**
+     * Корневая вершина блока: узел или {@link #ground}
+     */
+    private final int[] blockRoot;
+    /**
+     * Блок, через который вершина соединена с землёй, -1 для земли
+     */
+    private final int[] parentBlock;
+    private final int[] blockPtr;
+    private final int[] blockSegments;
+
+    NetworkBlocks(PipeNetwork network) {
+        int nodeCount = network.getNodeCount();
+        ground = nodeCount;
+        int segmentCount = network.getSegmentCount();
+        int[] from = network.getFrom();
+        int[] to = network.getTo();
+        int vertexCount = nodeCount + 1;
+
+        int[] ptr = new int[vertexCount + 1];
+        for (int k = 0; k < segmentCount; k++) {
+            int a = vertex(network, from[k]);
+            int b = vertex(network, to[k]);
+            if (a != b) {
+                ptr[a + 1]++;
+                ptr[b + 1]++;
+            }
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            ptr[v + 1] += ptr[v];
+        }
+        int[] adjacency = new int[ptr[vertexCount]];
+        int[] fill = Arrays.copyOf(ptr, vertexCount);
+        for (int k = 0; k < segmentCount; k++) {
+            int a = vertex(network, from[k]);
+            int b = vertex(network, to[k]);
+            if (a != b) {
+                adjacency[fill[a]++] = k;
+                adjacency[fill[b]++] = k;
+            }
+        }
+
+        blockOf = new int[segmentCount];
+        Arrays.fill(blockOf, -1);
+        int[] roots = new int[segmentCount + 1];
+        parentBlock = new int[vertexCount];
+        int[] parentEdge = new int[vertexCount];
+        int[] disc = new int[vertexCount];
+        int[] low = new int[vertexCount];
+        int[] next = new int[vertexCount];
+        int[] vertexStack = new int[vertexCount];
+        int[] edgeStack = new int[segmentCount];
+        Arrays.fill(disc, -1);
+        int time = 0;
+        int sp = 0;
+        int ep = 0;
+        int blocks = 0;
+        disc[ground] = low[ground] = time++;
+        parentEdge[ground] = -1;
+        next[ground] = ptr[ground];
+        vertexStack[sp++] = ground;
+        // Алгоритм Хопкрофта-Тарьяна без рекурсии: сети в сотни тысяч участков переполнили бы стек вызовов
+        while (sp > 0) {
+            int v = vertexStack[sp - 1];
+            if (next[v] < ptr[v + 1]) {
+                int e = adjacency[next[v]++];
+                if (e == parentEdge[v]) {
+                    continue;
+                }
+                int a = vertex(network, from[e]);
+                int w = a == v ? vertex(network, to[e]) : a;
+                if (disc[w] < 0) {
+                    parentEdge[w] = e;
+                    disc[w] = low[w] = time++;
+                    next[w] = ptr[w];
+                    edgeStack[ep++] = e;
+                    vertexStack[sp++] = w;
+                } else if (disc[w] < disc[v]) {
+                    edgeStack[ep++] = e;
+                    low[v] = Math.min(low[v], disc[w]);
+                }
+            } else {
+                sp--;
+                if (sp > 0) {
+                    int u = vertexStack[sp - 1];
+                    low[u] = Math.min(low[u], low[v]);
+                    if (low[v] >= disc[u]) {
+                        int e = parentEdge[v];
+                        int f;
+                        do {
+                            f = edgeStack[--ep];
+                            blockOf[f] = blocks;
+                        } while (f != e);
+                        roots[blocks++] = u;
+                    }
+                }
+            }
+        }
+        // Участки между источниками - отдельные блоки с корнем в земле
+        for (int k = 0; k < segmentCount; k++) {
+            if (blockOf[k] < 0) {
+                blockOf[k] = blocks;
+                roots[blocks++] = ground;
+            }
+        }
+        blockCount = blocks;
+        blockRoot = Arrays.copyOf(roots, blocks);
+        for (int v = 0; v < vertexCount; v++) {
+            parentBlock[v] = v == ground || disc[v] < 0 ? -1 : blockOf[parentEdge[v]];
+        }
+
+        blockPtr = new int[blocks + 1];
+        for (int k = 0; k < segmentCount; k++) {
+            blockPtr[blockOf[k] + 1]++;
+        }
+        for (int b = 0; b < blocks; b++) {
+            blockPtr[b + 1] += blockPtr[b];
+        }
+        blockSegments = new int[segmentCount];
+        fill = Arrays.copyOf(blockPtr, blocks);
+        for (int k = 0; k < segmentCount; k++) {
+            blockSegments[fill[blockOf[k]]++] = k;
+        }
+    }
+
+    private int vertex(PipeNetwork network, int node) {
+        return network.isSource(node) ? ground : node;
+    }
+
+    /**
+     * @return Номер вершины-земли, объединяющей источники
+     */
+    int ground() {
+        return ground;
+    }
+
+    int blockCount() {
+        return blockCount;
+    }
+
+    int blockOf(int segment) {
+        return blockOf[segment];
+    }
+
+    int root(int block) {
+        return blockRoot[block];
+    }
+
+    /**
+     * @param node Узел, не являющийся источником
+     * @return Блок, через который узел соединён с источниками
+     */
+    int parentBlock(int node) {
+        return parentBlock[node];
+    }
+
+    int segmentsFrom(int block) {
+        return blockPtr[block];
+    }
+
+    int segmentsTo(int block) {
+        return blockPtr[block + 1];
+    }
+
+    int segment(int index) {
+        return blockSegments[index];
+    }
+}
@@ -0,0 +1,153 @@
+package net.tavda.hydraulic.network;
+
+import java.io.IOException;
+
+import static java.lang.Math.abs;
+
+/**
+ * Расчёт тепловой сети на последовательности шагов по времени, например 8760 часов года.
+ * На каждом шаге {@link Profile} задаёт отборы и температуры, сеть рассчитывается
+ * и результаты передаются {@link Listener}, поэтому в памяти хранится только текущий шаг.
+ * <p>
+ * Один {@link NetworkSolver} используется на всех шагах: структура матрицы, порядок участков
+ * и суммы местных сопротивлений в {@link PipeNetwork} не пересчитываются,
+ * а расчёт каждого шага начинается с решения предыдущего.
+ */
+public class NetworkSimulation {
+    /**
+     * Исходные данные шага
+     */
+    public interface Profile {
+        /**
+         * Задать отборы, температуры и давления источников шага
+         * @param step Номер шага
+         * @param network Тепловая сеть
+         */
+        void apply(int step, PipeNetwork network);
+    }
+
+    /**
+     * Получатель результатов шага
+     */
+    public interface Listener {
+        /**
+         * @param step Номер шага
+         * @param solver Расчёт сети с результатами шага; массивы результатов перезаписываются на следующем шаге
+         * @throws IOException Ошибка записи результатов
+         */
+        void step(int step, NetworkSolver solver) throws IOException;
+    }
+
+    private final PipeNetwork network;
+    private final NetworkSolver solver;
+    private int steps;
+    private long iterations;
+    private int failedSteps;
+    private long nanos;
+
+    /**
+     * @param network Тепловая сеть
+     * @param solver Расчёт этой сети с нужными настройками
+     */
+    public NetworkSimulation(PipeNetwork network, NetworkSolver solver) {
+        this.network = network;
+        this.solver = solver;
+    }
+
+    /**
+     * Профиль с общими для всей сети множителем отборов и температурами подачи и обратки по шагам.
+     * Отборы шага - отборы сети на момент создания профиля, умноженные на множитель шага.
+     * @param network Тепловая сеть
+     * @param demandFactor Множитель отборов по шагам
+     * @param tempIn Температура воды на входе участков по шагам, градусов цельсия
+     * @param tempOut Температура воды на выходе участков по шагам, градусов цельсия
+     * @return Профиль
+     */
+    public static Profile scaled(PipeNetwork network, double[] demandFactor, double[] tempIn, double[] tempOut) {
+        final double[] base = network.getDemand().clone();
+        return (step, net) -> {
+            double factor = demandFactor[step];
+            double[] demand = net.getDemand();
+            for (int i = 0; i < base.length; i++) {
+                demand[i] = base[i] * factor;
+            }
+            double t1 = tempIn[step];
+            double t2 = tempOut[step];
+            for (int k = 0; k < net.getSegmentCount(); k++) {
+                net.setTemperatures(k, t1, t2);
+            }
+        };
+    }
+
+    /**
+     * Рассчитать шаги с 0 по steps - 1. Несошедшийся шаг также передаётся получателю
+     * (см. {@link NetworkSolver#isConverged()}), расчёт продолжается.
+     * @param steps Количество шагов
+     * @param profile Исходные данные шагов
+     * @param listener Получатель результатов
+     * @return Количество несошедшихся шагов
+     * @throws IOException Ошибка записи результатов
+     */
+    public int run(int steps, Profile profile, Listener listener) throws IOException {
+        long start = System.nanoTime();
+        this.steps = 0;
+        iterations = 0;
+        failedSteps = 0;
+        double previous = 0;
+        for (int step = 0; step < steps; step++) {
+            profile.apply(step, network);
+            double total = totalDemand();
+            if (previous > 0 && total > 0) {
+                solver.scale(total / previous);
+            }
+            previous = total;
+            if (!solver.solve()) {
+                failedSteps++;
+            }
+            iterations += solver.getIterations();
+            this.steps++;
+            listener.step(step, solver);
+        }
+        nanos = System.nanoTime() - start;
+        return failedSteps;
+    }
+
+    private double totalDemand() {
+        double[] demand = network.getDemand();
+        double total = 0;
+        for (int i = 0; i < demand.length; i++) {
+            if (!network.isSource(i)) {
+                total += abs(demand[i]);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return Количество рассчитанных шагов последнего расчёта
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return Суммарное число итераций по всем шагам последнего расчёта
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return Количество несошедшихся шагов последнего расчёта
+     */
+    public int getFailedSteps() {
+        return failedSteps;
+    }
+
+    /**
+     * @return Время последнего расчёта вместе с профилем и получателем, нс
+     */
+    public long getNanos() {
+        return nanos;
+    }
+}
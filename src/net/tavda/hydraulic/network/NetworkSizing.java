@@ -0,0 +1,101 @@
+package net.tavda.hydraulic.network;
+
+import net.tavda.hydraulic.DiameterSizing;
+
+/**
+ * Подбор диаметров участков тепловой сети по расчётным расходам.
+ * В радиальной сети расходы не зависят от диаметров и достаточно одного подбора,
+ * в кольцевой сети расходы перераспределяются, поэтому расчёт сети и подбор повторяются,
+ * пока диаметры не перестанут меняться.
+ * Участки, для которых не подходит ни один диаметр сортамента, получают наибольший диаметр.
+ */
+public class NetworkSizing {
+    private final PipeNetwork network;
+    private final NetworkSolver solver;
+    private final DiameterSizing sizing;
+    private final int[] indices;
+    private int maxRounds = 10;
+    private int rounds;
+    private boolean feasible;
+
+    /**
+     * @param network Тепловая сеть, диаметры участков заменяются подобранными
+     * @param solver Расчёт этой сети
+     * @param sizing Сортамент и ограничения
+     */
+    public NetworkSizing(PipeNetwork network, NetworkSolver solver, DiameterSizing sizing) {
+        this.network = network;
+        this.solver = solver;
+        this.sizing = sizing;
+        this.indices = new int[network.getSegmentCount()];
+    }
+
+    /**
+     * Установить наибольшее число повторений расчёта сети и подбора
+     * @param maxRounds Число повторений
+     */
+    public void setMaxRounds(int maxRounds) {
+        if (maxRounds < 1) {
+            throw new IllegalArgumentException("Max rounds " + maxRounds + " < 1");
+        }
+        this.maxRounds = maxRounds;
+    }
+
+    /**
+     * Подобрать диаметры
+     * @return Перестали ли диаметры меняться за заданное число повторений
+     * @throws IllegalStateException Расчёт сети не сошёлся
+     */
+    public boolean size() {
+        double[] diameter = network.getDiameter();
+        int largest = sizing.size() - 1;
+        for (rounds = 1; rounds <= maxRounds; rounds++) {
+            if (!solver.solve()) {
+                throw new IllegalStateException("Network solution did not converge in round " + rounds);
+            }
+            sizing.size(solver.getFlows(), network.getTempIn(), network.getTempOut(), network.getLength(),
+                    network.getRoughness(), network.getSumLocalResist(), indices);
+            boolean changed = false;
+            feasible = true;
+            for (int k = 0; k < indices.length; k++) {
+                int index = indices[k];
+                if (index == DiameterSizing.NONE) {
+                    feasible = false;
+                    index = largest;
+                }
+                double d = sizing.getDiameter(index);
+                if (diameter[k] != d) {
+                    diameter[k] = d;
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                return true;
+            }
+        }
+        rounds = maxRounds;
+        solver.solve();
+        return false;
+    }
+
+    /**
+     * @return Номера диаметров участков в сортаменте по последнему подбору, {@link DiameterSizing#NONE} - не подходит ни один
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * @return Число выполненных повторений расчёта сети и подбора
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * @return Удовлетворяют ли все участки ограничениям при подобранных диаметрах
+     */
+    public boolean isFeasible() {
+        return feasible;
+    }
+}
@@ -0,0 +1,1186 @@
+package net.tavda.hydraulic.network;
+
+import net.tavda.hydraulic.CalculationListener;
+import net.tavda.hydraulic.FrictionModel;
+import net.tavda.hydraulic.HorizontalPipelineBatch;
+import net.tavda.hydraulic.PipelineColumns;
+import net.tavda.hydraulic.Precision;
+import net.tavda.hydraulic.WaterProperties;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.lang.Math.PI;
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.pow;
+import static java.lang.Math.sqrt;
+
+/**
+ * Гидравлический расчёт (увязка) тепловой сети.
+ * <p>
+ * Основной метод - Ньютона-Рафсона в узловой постановке (глобальный градиентный алгоритм):
+ * на каждой итерации характеристики сопротивления участков S (ΔP = S·G²) пересчитываются
+ * по текущим расходам через {@link HorizontalPipelineBatch}, линеаризованная система для давлений
+ * в узлах с разреженной симметричной матрицей решается так: древовидные (радиальные) части сети исключаются
+ * прямым ходом Гаусса без заполнения, оставшиеся кольца - методом сопряжённых градиентов.
+ * Если метод Ньютона не сошёлся, расчёт продолжается методом Харди Кросса (увязка узлов).
+ * <p>
+ * Зависимость λ(Re) имеет разрывы на границах режимов (Re = 2320 и 4000), поэтому расход на участке
+ * может колебаться между режимами. Если режим участка несколько раз поворачивает назад, к ламинарному после перехода
+ * к турбулентному или наоборот (в том числе при смене направления расхода), его сопротивление фиксируется посередине разрыва,
+ * а ниже расхода на границе режимов потери давления считаются пропорциональными расходу, как в ламинарном режиме.
+ * Когда число Рейнольдса участка уходит от границы дальше чем в 1,25 раза, фиксация снимается;
+ * расчёт сходится, только если потери давления на всех участках без фиксации совпадают с разностью давлений.
+ * Если шаг Ньютона увеличивает расход на участке больше чем вдвое, расход ограничивается тем,
+ * который обеспечивает новый перепад давления на участке.
+ * <p>
+ * Структура разреженной матрицы строится один раз в конструкторе, память и время одной итерации
+ * пропорциональны числу участков. Повторный вызов {@link #solve()} начинает с предыдущего решения.
+ * <p>
+ * После изменения отдельных участков или отборов {@link #update()} пересчитывает только затронутые блоки сети
+ * (компоненты двусвязности, см. {@link #segmentChanged(int)}), остальные расходы не меняются,
+ * а давления за точками сочленения сдвигаются на изменение давления в точке.
+ * <p>
+ * Пересчёт участков может выполняться параллельно (см. {@link #setPool(ForkJoinPool)}),
+ * суммирование при сборке матрицы остаётся последовательным, поэтому результат не зависит от числа потоков.
+ */
+public class NetworkSolver {
+    /**
+     * Число поворотов участка назад по режимам течения, после которого его сопротивление фиксируется
+     */
+    private static final int FROZEN = 3;
+    /**
+     * Полоса около границы режимов, раз по числу Рейнольдса: вне её участок освобождается от фиксации
+     */
+    private static final double FROZEN_BAND = 1.25;
+
+    private final PipeNetwork network;
+    private final int segmentCount;
+    private final int rows;
+    /**
+     * Номер строки матрицы для узла, -1 для источников
+     */
+    private final int[] row;
+    private final int[] rowNode;
+    private final int[] rowPtr;
+    private final int[] col;
+    private final double[] val;
+    private final int[] diag;
+    private final int[] posFromTo;
+    private final int[] posToFrom;
+    /**
+     * Строки древовидных частей сети в порядке исключения, у каждой при исключении не больше одного соседа
+     */
+    private final int[] eliminated;
+    /**
+     * Количество исключаемых строк, остальные решаются методом сопряжённых градиентов
+     */
+    private final int eliminatedCount;
+    /**
+     * Оставшийся сосед исключаемой строки, -1 - нет
+     */
+    private final int[] eliminatedNext;
+    /**
+     * Положение в матрице элемента строки, связывающего её с оставшимся соседом
+     */
+    private final int[] eliminatedPos;
+    /**
+     * Строки, решаемые методом сопряжённых градиентов (кольца сети), и положения их элементов вне диагонали
+     */
+    private final int[] core;
+    private final int[] corePtr;
+    private final int[] corePos;
+    /**
+     * Участки, примыкающие к узлу
+     */
+    private final int[] incidencePtr;
+    private final int[] incidence;
+
+    private final double[] evalFlow;
+    private final HorizontalPipelineBatch batch;
+    private final PipelineColumns columns;
+
+    private final double[] flows;
+    private final double[] pressures;
+    private final double[] resistance;
+    private final double[] exponent;
+    private final double[] conductance;
+    private final byte[] regime;
+    /**
+     * Направление последней смены режима: 1 - к турбулентному, -1 - к ламинарному
+     */
+    private final byte[] regimeDirection;
+    private final byte[] regimeChanges;
+    /**
+     * Зафиксированное сопротивление участка, расход на границе режимов, т/ч, и число Рейнольдса границы
+     */
+    private final double[] frozenResistance;
+    private final double[] frozenFlow;
+    private final double[] frozenReynolds;
+    private final double[] baseFlow;
+    private final double[] rhs;
+    private final double[] pivot;
+    private final double[] x;
+    private final double[] r;
+    private final double[] z;
+    private final double[] p;
+    private final double[] q;
+
+    private Precision precision = Precision.STRICT;
+    private WaterProperties water = WaterProperties.exact();
+    private FrictionModel friction = FrictionModel.ALTSHUL;
+    private double tolerance = 1e-6;
+    private int maxIterations = 100;
+    private int hardyCrossIterations = 10000;
+    private double minFlow = 1e-6;
+    private double linearTolerance = 1e-10;
+    private CalculationListener listener;
+
+    private boolean initialised;
+    private int iterations;
+    private int linearIterations;
+    private boolean converged;
+    private boolean hardyCross;
+
+    private NetworkBlocks blocks;
+    private boolean[] changedBlock;
+    private int[] changedBlocks;
+    private int changedCount;
+    private NetworkSolver[] blockSolvers;
+    /**
+     * Узлы сети, соответствующие узлам решателя блока
+     */
+    private int[][] blockNodes;
+    private int[] local;
+    private int[] queue;
+    private int[] mark;
+    private int stamp;
+
+    /**
+     * @param network Тепловая сеть. Топология сети не должна меняться после создания решателя
+     */
+    public NetworkSolver(PipeNetwork network) {
+        this.network = network;
+        int nodeCount = network.getNodeCount();
+        segmentCount = network.getSegmentCount();
+        int[] from = network.getFrom();
+        int[] to = network.getTo();
+        for (int k = 0; k < segmentCount; k++) {
+            if (from[k] < 0 || to[k] < 0) {
+                throw new IllegalStateException("Segment " + k + " is not set");
+            }
+        }
+
+        incidencePtr = new int[nodeCount + 1];
+        for (int k = 0; k < segmentCount; k++) {
+            incidencePtr[from[k] + 1]++;
+            incidencePtr[to[k] + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            incidencePtr[i + 1] += incidencePtr[i];
+        }
+        incidence = new int[2 * segmentCount];
+        int[] fill = Arrays.copyOf(incidencePtr, nodeCount);
+        for (int k = 0; k < segmentCount; k++) {
+            incidence[fill[from[k]]++] = k;
+            incidence[fill[to[k]]++] = k;
+        }
+        checkConnected(nodeCount, from, to);
+
+        row = new int[nodeCount];
+        int n = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            row[i] = network.isSource(i) ? -1 : n++;
+        }
+        rows = n;
+        rowNode = new int[rows];
+        for (int i = 0; i < nodeCount; i++) {
+            if (row[i] >= 0) {
+                rowNode[row[i]] = i;
+            }
+        }
+
+        // Структура матрицы: диагональ и соседние узлы, не являющиеся источниками
+        int[] rawPtr = new int[rows + 1];
+        for (int i = 0; i < rows; i++) {
+            rawPtr[i + 1] = rawPtr[i] + 1 + incidencePtr[rowNode[i] + 1] - incidencePtr[rowNode[i]];
+        }
+        int[] raw = new int[rawPtr[rows]];
+        rowPtr = new int[rows + 1];
+        int nnz = 0;
+        for (int i = 0; i < rows; i++) {
+            int node = rowNode[i];
+            int m = rawPtr[i];
+            raw[m++] = i;
+            for (int j = incidencePtr[node]; j < incidencePtr[node + 1]; j++) {
+                int k = incidence[j];
+                int other = row[from[k] == node ? to[k] : from[k]];
+                if (other >= 0) {
+                    raw[m++] = other;
+                }
+            }
+            Arrays.sort(raw, rawPtr[i], m);
+            int last = -1;
+            for (int j = rawPtr[i]; j < m; j++) {
+                if (raw[j] != last) {
+                    last = raw[j];
+                    raw[nnz++] = last;
+                }
+            }
+            rowPtr[i + 1] = nnz;
+        }
+        col = Arrays.copyOf(raw, nnz);
+        val = new double[nnz];
+        diag = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            diag[i] = position(i, i);
+        }
+        posFromTo = new int[segmentCount];
+        posToFrom = new int[segmentCount];
+        for (int k = 0; k < segmentCount; k++) {
+            int ra = row[from[k]];
+            int rb = row[to[k]];
+            posFromTo[k] = ra >= 0 && rb >= 0 ? position(ra, rb) : -1;
+            posToFrom[k] = ra >= 0 && rb >= 0 ? position(rb, ra) : -1;
+        }
+
+        // Строка с одним соседом исключается без заполнения, после чего у соседа может остаться один сосед
+        eliminated = new int[rows];
+        eliminatedNext = new int[rows];
+        eliminatedPos = new int[rows];
+        int[] degree = new int[rows];
+        boolean[] removed = new boolean[rows];
+        int tail = 0;
+        for (int i = 0; i < rows; i++) {
+            degree[i] = rowPtr[i + 1] - rowPtr[i] - 1;
+            if (degree[i] <= 1) {
+                eliminated[tail++] = i;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int i = eliminated[head];
+            removed[i] = true;
+            eliminatedNext[i] = -1;
+            for (int j = rowPtr[i]; j < rowPtr[i + 1]; j++) {
+                if (col[j] != i && !removed[col[j]]) {
+                    eliminatedNext[i] = col[j];
+                    eliminatedPos[i] = j;
+                }
+            }
+            int next = eliminatedNext[i];
+            if (next >= 0 && --degree[next] == 1) {
+                eliminated[tail++] = next;
+            }
+        }
+        eliminatedCount = tail;
+        core = new int[rows - tail];
+        corePtr = new int[core.length + 1];
+        int coreNnz = 0;
+        for (int i = 0, m = 0; i < rows; i++) {
+            if (!removed[i]) {
+                core[m++] = i;
+                coreNnz += degree[i];
+            }
+        }
+        corePos = new int[coreNnz];
+        for (int m = 0, c = 0; m < core.length; m++) {
+            int i = core[m];
+            for (int j = rowPtr[i]; j < rowPtr[i + 1]; j++) {
+                if (col[j] != i && !removed[col[j]]) {
+                    corePos[c++] = j;
+                }
+            }
+            corePtr[m + 1] = c;
+        }
+
+        evalFlow = new double[segmentCount];
+        batch = new HorizontalPipelineBatch(evalFlow, network.getTempIn(), network.getTempOut(), network.getDiameter(),
+                network.getLength(), network.getRoughness(), network.getSumLocalResist());
+        columns = new PipelineColumns(segmentCount);
+
+        flows = new double[segmentCount];
+        pressures = new double[nodeCount];
+        resistance = new double[segmentCount];
+        exponent = new double[segmentCount];
+        conductance = new double[segmentCount];
+        regime = new byte[segmentCount];
+        regimeDirection = new byte[segmentCount];
+        regimeChanges = new byte[segmentCount];
+        frozenResistance = new double[segmentCount];
+        frozenFlow = new double[segmentCount];
+        frozenReynolds = new double[segmentCount];
+        baseFlow = new double[segmentCount];
+        rhs = new double[rows];
+        pivot = new double[rows];
+        x = new double[rows];
+        r = new double[rows];
+        z = new double[rows];
+        p = new double[rows];
+        q = new double[rows];
+    }
+
+    private int position(int i, int j) {
+        int pos = Arrays.binarySearch(col, rowPtr[i], rowPtr[i + 1], j);
+        if (pos < 0) {
+            throw new IllegalStateException("Missing matrix entry (" + i + ", " + j + ")");
+        }
+        return pos;
+    }
+
+    private void checkConnected(int nodeCount, int[] from, int[] to) {
+        boolean[] reached = new boolean[nodeCount];
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            if (network.isSource(i)) {
+                reached[i] = true;
+                queue[tail++] = i;
+            }
+        }
+        if (tail == 0) {
+            throw new IllegalStateException("Network has no source");
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            for (int j = incidencePtr[node]; j < incidencePtr[node + 1]; j++) {
+                int k = incidence[j];
+                int other = from[k] == node ? to[k] : from[k];
+                if (!reached[other]) {
+                    reached[other] = true;
+                    queue[tail++] = other;
+                }
+            }
+        }
+        if (tail < nodeCount) {
+            for (int i = 0; i < nodeCount; i++) {
+                if (!reached[i]) {
+                    throw new IllegalStateException("Node " + i + " is not connected to a source");
+                }
+            }
+        }
+    }
+
+    /**
+     * Сбросить решение: следующий {@link #solve()} начнётся с начального приближения
+     */
+    public void reset() {
+        initialised = false;
+    }
+
+    private void initialise() {
+        double[] d = network.getDiameter();
+        double[] sourcePressure = network.getSourcePressure();
+        double maxPressure = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < pressures.length; i++) {
+            if (row[i] < 0) {
+                pressures[i] = sourcePressure[i];
+                maxPressure = max(maxPressure, sourcePressure[i]);
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            pressures[rowNode[i]] = maxPressure;
+        }
+        // Начальное приближение - скорость около 1 м/с
+        for (int k = 0; k < segmentCount; k++) {
+            flows[k] = 3600 * PI / 4 * (d[k] / 1000) * (d[k] / 1000);
+        }
+        initialised = true;
+    }
+
+    /**
+     * Выполнить расчёт сети
+     * @return Сошёлся ли расчёт
+     */
+    public boolean solve() {
+        CalculationListener l = listener;
+        if (l == null) {
+            return solveNetwork();
+        }
+        long start = System.nanoTime();
+        boolean result = solveNetwork();
+        l.solved(iterations, result, System.nanoTime() - start);
+        return result;
+    }
+
+    private boolean solveNetwork() {
+        if (!initialised) {
+            initialise();
+        }
+        double[] sourcePressure = network.getSourcePressure();
+        for (int i = 0; i < pressures.length; i++) {
+            if (row[i] < 0) {
+                pressures[i] = sourcePressure[i];
+            }
+        }
+        Arrays.fill(regime, (byte) -1);
+        Arrays.fill(regimeDirection, (byte) 0);
+        Arrays.fill(regimeChanges, (byte) 0);
+        iterations = 0;
+        linearIterations = 0;
+        hardyCross = false;
+        clearChanges();
+        converged = newton();
+        if (!converged) {
+            if (!isFinite(flows) || !isFinite(pressures)) {
+                initialise();
+            }
+            hardyCross = true;
+            converged = hardyCross();
+        }
+        return converged;
+    }
+
+    /**
+     * Пересчитать начальное приближение при изменении всех отборов в ratio раз:
+     * расходы изменяются пропорционально, потери давления относительно наибольшего давления источника - как квадрат
+     */
+    void scale(double ratio) {
+        if (!initialised) {
+            return;
+        }
+        double maxPressure = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < pressures.length; i++) {
+            if (row[i] < 0) {
+                maxPressure = max(maxPressure, pressures[i]);
+            }
+        }
+        double squared = ratio * ratio;
+        for (int k = 0; k < segmentCount; k++) {
+            flows[k] *= ratio;
+        }
+        for (int i = 0; i < rows; i++) {
+            int node = rowNode[i];
+            pressures[node] = maxPressure - (maxPressure - pressures[node]) * squared;
+        }
+    }
+
+    private NetworkBlocks blocks() {
+        if (blocks == null) {
+            blocks = new NetworkBlocks(network);
+            changedBlock = new boolean[blocks.blockCount()];
+            changedBlocks = new int[blocks.blockCount()];
+            blockSolvers = new NetworkSolver[blocks.blockCount()];
+            blockNodes = new int[blocks.blockCount()][];
+            local = new int[pressures.length];
+            Arrays.fill(local, -1);
+            queue = new int[pressures.length];
+            mark = new int[pressures.length + 1];
+        }
+        return blocks;
+    }
+
+    private void markChanged(int block) {
+        if (!changedBlock[block]) {
+            changedBlock[block] = true;
+            changedBlocks[changedCount++] = block;
+        }
+    }
+
+    private void clearChanges() {
+        for (int i = 0; i < changedCount; i++) {
+            changedBlock[changedBlocks[i]] = false;
+        }
+        changedCount = 0;
+    }
+
+    /**
+     * Отметить участок, исходные данные которого (диаметр, длина, шероховатость, местные сопротивления, температуры)
+     * изменены в {@link PipeNetwork}, для пересчёта в {@link #update()}
+     * @param segment Номер участка
+     */
+    public void segmentChanged(int segment) {
+        markChanged(blocks().blockOf(segment));
+    }
+
+    /**
+     * Отметить узел, отбор воды в котором изменён в {@link PipeNetwork}, для пересчёта в {@link #update()}.
+     * Пересчитываются все блоки на пути от узла к источникам
+     * @param node Номер узла
+     */
+    public void demandChanged(int node) {
+        NetworkBlocks b = blocks();
+        int vertex = network.isSource(node) ? b.ground() : node;
+        while (vertex != b.ground()) {
+            int block = b.parentBlock(vertex);
+            markChanged(block);
+            vertex = b.root(block);
+        }
+    }
+
+    /**
+     * Пересчитать блоки сети, отмеченные {@link #segmentChanged(int)} и {@link #demandChanged(int)}.
+     * Если предыдущий расчёт не сошёлся или пересчёт блока не сошёлся, выполняется полный расчёт {@link #solve()}.
+     * Изменение давлений источников требует полного расчёта
+     * @return Сошёлся ли расчёт
+     */
+    public boolean update() {
+        CalculationListener l = listener;
+        if (l == null) {
+            return updateNetwork();
+        }
+        long start = System.nanoTime();
+        boolean result = updateNetwork();
+        l.solved(iterations, result, System.nanoTime() - start);
+        return result;
+    }
+
+    private boolean updateNetwork() {
+        if (!initialised || !converged) {
+            return solveNetwork();
+        }
+        if (changedCount == 0) {
+            return true;
+        }
+        NetworkBlocks b = blocks();
+        double[] equivalentDemand = equivalentDemand(b);
+        // Родительские блоки раньше дочерних: дочерний блок считается от уже пересчитанного давления в корне
+        Arrays.sort(changedBlocks, 0, changedCount);
+        iterations = 0;
+        hardyCross = false;
+        for (int i = changedCount - 1; i >= 0; i--) {
+            if (!solveBlock(b, changedBlocks[i], equivalentDemand)) {
+                return solveNetwork();
+            }
+        }
+        clearChanges();
+        return true;
+    }
+
+    /**
+     * Отбор в узле вместе с отборами всех узлов, присоединённых к сети через него
+     */
+    private double[] equivalentDemand(NetworkBlocks b) {
+        int[] from = network.getFrom();
+        int[] to = network.getTo();
+        double[] demand = network.getDemand();
+        double[] equivalent = new double[pressures.length + 1];
+        for (int block = 0; block < b.blockCount(); block++) {
+            int root = b.root(block);
+            double total = 0;
+            stamp++;
+            for (int j = b.segmentsFrom(block); j < b.segmentsTo(block); j++) {
+                int k = b.segment(j);
+                total += blockVertexDemand(from[k], root, demand, equivalent);
+                total += blockVertexDemand(to[k], root, demand, equivalent);
+            }
+            equivalent[root] += total;
+        }
+        for (int node = 0; node < pressures.length; node++) {
+            equivalent[node] += demand[node];
+        }
+        return equivalent;
+    }
+
+    private double blockVertexDemand(int node, int root, double[] demand, double[] equivalent) {
+        if (node == root || network.isSource(node) || mark[node] == stamp) {
+            return 0;
+        }
+        mark[node] = stamp;
+        return demand[node] + equivalent[node];
+    }
+
+    /**
+     * Решатель блока как отдельной сети: корень блока - источник, в остальных узлах - эквивалентные отборы.
+     * Строится при первом пересчёте блока, топология блока после этого не меняется
+     */
+    private NetworkSolver blockSolver(NetworkBlocks b, int block) {
+        NetworkSolver solver = blockSolvers[block];
+        if (solver != null) {
+            return solver;
+        }
+        int[] from = network.getFrom();
+        int[] to = network.getTo();
+        int root = b.root(block);
+        int first = b.segmentsFrom(block);
+        int count = b.segmentsTo(block) - first;
+        int[] nodes = new int[2 * count];
+        int nodeCount = 0;
+        for (int j = 0; j < count; j++) {
+            int k = b.segment(first + j);
+            if (local[from[k]] < 0) {
+                local[from[k]] = nodeCount;
+                nodes[nodeCount++] = from[k];
+            }
+            if (local[to[k]] < 0) {
+                local[to[k]] = nodeCount;
+                nodes[nodeCount++] = to[k];
+            }
+        }
+        PipeNetwork sub = new PipeNetwork(nodeCount, count);
+        for (int j = 0; j < count; j++) {
+            int k = b.segment(first + j);
+            sub.setSegment(j, local[from[k]], local[to[k]], 0, 0, 0, 0, 0, 0);
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            int node = nodes[i];
+            if (network.isSource(node) || node == root) {
+                sub.setSource(i, 0);
+            }
+            local[node] = -1;
+        }
+        solver = new NetworkSolver(sub);
+        blockSolvers[block] = solver;
+        blockNodes[block] = Arrays.copyOf(nodes, nodeCount);
+        return solver;
+    }
+
+    /**
+     * Расчёт одного блока как отдельной сети: корень блока - источник с текущим давлением,
+     * в остальных узлах - эквивалентные отборы
+     */
+    private boolean solveBlock(NetworkBlocks b, int block, double[] equivalentDemand) {
+        NetworkSolver solver = blockSolver(b, block);
+        PipeNetwork sub = solver.network;
+        int[] nodes = blockNodes[block];
+        int root = b.root(block);
+        int first = b.segmentsFrom(block);
+        int count = solver.segmentCount;
+        int nodeCount = nodes.length;
+        int[] subFrom = sub.getFrom();
+        int[] subTo = sub.getTo();
+        for (int j = 0; j < count; j++) {
+            int k = b.segment(first + j);
+            sub.setSegment(j, subFrom[j], subTo[j], network.getTempIn()[k], network.getTempOut()[k],
+                    network.getDiameter()[k], network.getLength()[k], network.getRoughness()[k], network.getSumLocalResist()[k]);
+            solver.flows[j] = flows[k];
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            int node = nodes[i];
+            solver.pressures[i] = pressures[node];
+            if (network.isSource(node)) {
+                sub.setSource(i, network.getSourcePressure()[node]);
+            } else if (node == root) {
+                sub.setSource(i, pressures[node]);
+            } else {
+                sub.setDemand(i, equivalentDemand[node]);
+            }
+        }
+        solver.initialised = true;
+        if (solver.precision != precision) {
+            solver.setPrecision(precision);
+        }
+        if (solver.water != water) {
+            solver.setWaterProperties(water);
+        }
+        if (solver.friction != friction) {
+            solver.setFrictionModel(friction);
+        }
+        solver.tolerance = tolerance;
+        solver.maxIterations = maxIterations;
+        solver.hardyCrossIterations = hardyCrossIterations;
+        solver.minFlow = minFlow;
+        boolean solved = solver.solve();
+        iterations += solver.iterations;
+        hardyCross |= solver.hardyCross;
+        if (!solved) {
+            return false;
+        }
+        for (int j = 0; j < count; j++) {
+            int k = b.segment(first + j);
+            flows[k] = solver.flows[j];
+            solver.columns.copyRow(j, columns, k);
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            int node = nodes[i];
+            if (node != root && !network.isSource(node)) {
+                double delta = solver.pressures[i] - pressures[node];
+                pressures[node] = solver.pressures[i];
+                if (delta != 0) {
+                    shift(node, block, delta);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Сдвинуть давления в части сети, присоединённой к узлу блока не через сам блок
+     */
+    private void shift(int start, int block, double delta) {
+        int[] from = network.getFrom();
+        int[] to = network.getTo();
+        NetworkBlocks b = blocks;
+        int head = 0;
+        int tail = 0;
+        stamp++;
+        mark[start] = stamp;
+        queue[tail++] = start;
+        while (head < tail) {
+            int node = queue[head++];
+            for (int j = incidencePtr[node]; j < incidencePtr[node + 1]; j++) {
+                int k = incidence[j];
+                if (b.blockOf(k) == block) {
+                    continue;
+                }
+                int other = from[k] == node ? to[k] : from[k];
+                if (mark[other] != stamp) {
+                    mark[other] = stamp;
+                    pressures[other] += delta;
+                    queue[tail++] = other;
+                }
+            }
+        }
+    }
+
+    private static boolean isFinite(double[] values) {
+        for (double value : values) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Пересчитать характеристики сопротивления и показатели степени зависимости ΔP(G) участков
+     */
+    private void evaluate() {
+        for (int k = 0; k < segmentCount; k++) {
+            evalFlow[k] = max(abs(flows[k]), minFlow);
+        }
+        batch.calcFormulas(columns);
+        double[] s = columns.getPipelineResistance();
+        double[] re = columns.getReynoldsNumber();
+        double[] friction = columns.getPressureFrictionLossPa();
+        double[] local = columns.getPressureLocalResistLossPa();
+        double[] lambda = columns.getFrictionCoefficient();
+        double[] roughness = network.getRoughness();
+        double[] d = network.getDiameter();
+        for (int k = 0; k < segmentCount; k++) {
+            if (regimeChanges[k] >= FROZEN) {
+                if (re[k] * FROZEN_BAND > frozenReynolds[k] && re[k] < frozenReynolds[k] * FROZEN_BAND) {
+                    frozen(k);
+                    continue;
+                }
+                // Расход ушёл от границы: участок снова считается по своему режиму, следующий поворот назад фиксирует его снова
+                regimeChanges[k] = FROZEN - 1;
+                regimeDirection[k] = 0;
+                regime[k] = -1;
+            }
+            // d(ln λ)/d(ln Re) для ламинарного, переходного и турбулентного режимов
+            byte current;
+            double slope;
+            if (re[k] <= 2320) {
+                current = 0;
+                slope = -1;
+            } else if (re[k] <= 4000) {
+                current = 1;
+                slope = 1;
+            } else {
+                current = 2;
+                slope = this.friction.slope(re[k], roughness[k] / d[k], lambda[k]);
+            }
+            byte direction = regime[k] < 0 || current == regime[k] ? 0 : current > regime[k] ? (byte) 1 : (byte) -1;
+            if (direction != 0 && direction == -regimeDirection[k] && ++regimeChanges[k] >= FROZEN) {
+                // Расход на разрыве зависимости λ(Re): сопротивление фиксируется между значениями по обе стороны
+                frozenResistance[k] = (resistance[k] + s[k]) / 2;
+                frozenReynolds[k] = current == 0 || regime[k] == 0 ? 2320 : 4000;
+                frozenFlow[k] = evalFlow[k] * frozenReynolds[k] / re[k];
+                frozen(k);
+                continue;
+            }
+            if (direction != 0) {
+                regimeDirection[k] = direction;
+            }
+            regime[k] = current;
+            resistance[k] = s[k];
+            double loss = friction[k] + local[k];
+            exponent[k] = loss > 0 ? ((2 + slope) * friction[k] + 2 * local[k]) / loss : 2;
+        }
+    }
+
+    /**
+     * Проверить после пересчёта при последних расходах, что потери давления на участках без фиксации
+     * совпадают с разностью давлений: иначе участок сменил режим на последней итерации
+     */
+    private boolean consistent() {
+        int[] from = network.getFrom();
+        int[] to = network.getTo();
+        double[] friction = columns.getPressureFrictionLossPa();
+        double[] local = columns.getPressureLocalResistLossPa();
+        for (int k = 0; k < segmentCount; k++) {
+            if (regimeChanges[k] >= FROZEN) {
+                continue;
+            }
+            double loss = friction[k] + local[k];
+            if (abs(abs(pressures[from[k]] - pressures[to[k]]) - loss) > 100 * tolerance * max(1, loss)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Сопротивление участка с зафиксированным сопротивлением: ниже расхода на границе режимов зависимость ΔP(G)
+     * линейная, иначе при расходе около нуля производная квадратичной зависимости обращается в ноль
+     */
+    private void frozen(int k) {
+        if (evalFlow[k] >= frozenFlow[k]) {
+            resistance[k] = frozenResistance[k];
+            exponent[k] = 2;
+        } else {
+            resistance[k] = frozenResistance[k] * frozenFlow[k] / evalFlow[k];
+            exponent[k] = 1;
+        }
+    }
+
+    private boolean newton() {
+        int[] from = network.getFrom();
+        int[] to = network.getTo();
+        double[] demand = network.getDemand();
+        for (int i = 0; i < rows; i++) {
+            x[i] = pressures[rowNode[i]];
+        }
+        double lastChange = 1;
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            evaluate();
+            Arrays.fill(val, 0);
+            for (int i = 0; i < rows; i++) {
+                rhs[i] = -demand[rowNode[i]];
+            }
+            for (int k = 0; k < segmentCount; k++) {
+                double flow = flows[k];
+                double g = exponent[k] * resistance[k] * max(abs(flow), minFlow);
+                double c = 1 / g;
+                double base = flow * (1 - 1 / exponent[k]);
+                conductance[k] = c;
+                baseFlow[k] = base;
+                int a = from[k];
+                int b = to[k];
+                int ra = row[a];
+                int rb = row[b];
+                if (ra >= 0) {
+                    val[diag[ra]] += c;
+                    rhs[ra] -= base;
+                    if (rb < 0) {
+                        rhs[ra] += c * pressures[b];
+                    }
+                }
+                if (rb >= 0) {
+                    val[diag[rb]] += c;
+                    rhs[rb] += base;
+                    if (ra < 0) {
+                        rhs[rb] += c * pressures[a];
+                    }
+                }
+                if (ra >= 0 && rb >= 0) {
+                    val[posFromTo[k]] -= c;
+                    val[posToFrom[k]] -= c;
+                }
+            }
+            // Неточный метод Ньютона: точность линейного решения растёт по мере сходимости,
+            // сходимость засчитывается только после точного решения; без колец решение всегда точное.
+            // Точность отсчитывается от невязки при текущих давлениях, а не от правой части с давлениями источников
+            double forcing = core.length == 0 ? linearTolerance : max(linearTolerance, min(0.01, 0.1 * lastChange));
+            solveLinear(forcing);
+            for (int i = 0; i < rows; i++) {
+                pressures[rowNode[i]] = x[i];
+            }
+            double change = 0;
+            double total = 0;
+            for (int k = 0; k < segmentCount; k++) {
+                double dp = pressures[from[k]] - pressures[to[k]];
+                double flow = baseFlow[k] + conductance[k] * dp;
+                double g = max(abs(flows[k]), minFlow);
+                if (flow * dp > 0 && abs(flow) > 2 * g) {
+                    // По выпуклой зависимости ΔP(G) шаг Ньютона от малого расхода проскакивает расход,
+                    // который обеспечивает перепад давления на участке, во много раз
+                    double supported = g * pow(abs(dp) / (resistance[k] * g * g), 1 / exponent[k]);
+                    if (abs(flow) > supported) {
+                        flow = dp > 0 ? supported : -supported;
+                    }
+                }
+                change += abs(flow - flows[k]);
+                total += abs(flow);
+                flows[k] = flow;
+            }
+            iterations++;
+            if (Double.isNaN(change) || Double.isInfinite(change)) {
+                return false;
+            }
+            if (change <= tolerance * total) {
+                if (forcing <= linearTolerance) {
+                    evaluate();
+                    if (consistent()) {
+                        return true;
+                    }
+                }
+                lastChange = 0;
+            } else {
+                lastChange = change / total;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Решение линейной системы: исключение древовидных частей, сопряжённые градиенты для колец, обратный ход
+     */
+    private void solveLinear(double tolerance) {
+        for (int i = 0; i < rows; i++) {
+            pivot[i] = val[diag[i]];
+        }
+        for (int m = 0; m < eliminatedCount; m++) {
+            int i = eliminated[m];
+            int next = eliminatedNext[i];
+            if (next >= 0) {
+                double factor = val[eliminatedPos[i]] / pivot[i];
+                pivot[next] -= factor * val[eliminatedPos[i]];
+                rhs[next] -= factor * rhs[i];
+            }
+        }
+        if (core.length > 0) {
+            conjugateGradient(tolerance);
+        }
+        for (int m = eliminatedCount - 1; m >= 0; m--) {
+            int i = eliminated[m];
+            int next = eliminatedNext[i];
+            x[i] = (next >= 0 ? rhs[i] - val[eliminatedPos[i]] * x[next] : rhs[i]) / pivot[i];
+        }
+    }
+
+    /**
+     * Метод сопряжённых градиентов с диагональным предобуславливанием для колец после исключения древовидных частей,
+     * начальное приближение в x
+     */
+    private void conjugateGradient(double tolerance) {
+        multiply(x, r);
+        double norm = 0;
+        for (int i : core) {
+            r[i] = rhs[i] - r[i];
+            norm += r[i] * r[i];
+        }
+        double limit = tolerance * tolerance * max(norm, Double.MIN_NORMAL);
+        double rz = 0;
+        for (int i : core) {
+            z[i] = r[i] / pivot[i];
+            p[i] = z[i];
+            rz += r[i] * z[i];
+        }
+        int maxLinear = 2 * core.length + 10;
+        for (int it = 0; it < maxLinear; it++, linearIterations++) {
+            double rr = 0;
+            for (int i : core) {
+                rr += r[i] * r[i];
+            }
+            if (rr <= limit) {
+                return;
+            }
+            multiply(p, q);
+            double pq = 0;
+            for (int i : core) {
+                pq += p[i] * q[i];
+            }
+            double alpha = rz / pq;
+            double rzNew = 0;
+            for (int i : core) {
+                x[i] += alpha * p[i];
+                r[i] -= alpha * q[i];
+                z[i] = r[i] / pivot[i];
+                rzNew += r[i] * z[i];
+            }
+            double beta = rzNew / rz;
+            rz = rzNew;
+            for (int i : core) {
+                p[i] = z[i] + beta * p[i];
+            }
+        }
+    }
+
+    private void multiply(double[] in, double[] out) {
+        for (int m = 0; m < core.length; m++) {
+            int i = core[m];
+            double sum = pivot[i] * in[i];
+            for (int j = corePtr[m]; j < corePtr[m + 1]; j++) {
+                sum += val[corePos[j]] * in[col[corePos[j]]];
+            }
+            out[i] = sum;
+        }
+    }
+
+    /**
+     * Метод Харди Кросса: поочерёдная увязка расходов в узлах поправкой давления
+     */
+    private boolean hardyCross() {
+        int[] from = network.getFrom();
+        int[] to = network.getTo();
+        double[] demand = network.getDemand();
+        for (int sweep = 0; sweep < hardyCrossIterations; sweep++) {
+            evaluate();
+            double residual = 0;
+            for (int i = 0; i < rows; i++) {
+                int node = rowNode[i];
+                double balance = -demand[node];
+                double derivative = 0;
+                for (int j = incidencePtr[node]; j < incidencePtr[node + 1]; j++) {
+                    int k = incidence[j];
+                    double flow = flowFromPressure(k, from, to);
+                    balance += to[k] == node ? flow : -flow;
+                    derivative += 1 / (exponent[k] * resistance[k] * max(abs(flow), minFlow));
+                }
+                pressures[node] += balance / derivative;
+                residual += abs(balance);
+            }
+            double total = 0;
+            for (int k = 0; k < segmentCount; k++) {
+                flows[k] = flowFromPressure(k, from, to);
+                total += abs(flows[k]);
+            }
+            iterations++;
+            if (residual <= tolerance * total) {
+                evaluate();
+                if (consistent()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private double flowFromPressure(int k, int[] from, int[] to) {
+        double dp = pressures[from[k]] - pressures[to[k]];
+        double flow = sqrt(abs(dp) / resistance[k]);
+        return dp < 0 ? -flow : flow;
+    }
+
+    /**
+     * Установить допустимое относительное изменение расходов на последней итерации
+     * @param tolerance Точность, доли
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Установить максимальное число итераций метода Ньютона
+     * @param maxIterations Число итераций
+     */
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Установить максимальное число итераций метода Харди Кросса
+     * @param hardyCrossIterations Число итераций
+     */
+    public void setHardyCrossIterations(int hardyCrossIterations) {
+        this.hardyCrossIterations = hardyCrossIterations;
+    }
+
+    /**
+     * Установить расход, ниже которого сопротивление участка считается при этом расходе
+     * @param minFlow Минимальный расход, т/ч
+     */
+    public void setMinFlow(double minFlow) {
+        this.minFlow = minFlow;
+    }
+
+    /**
+     * Установить режим вычисления степеней при пересчёте участков, по умолчанию {@link Precision#STRICT}
+     * @param precision Режим вычисления
+     */
+    public void setPrecision(Precision precision) {
+        this.precision = precision;
+        batch.setPrecision(precision);
+    }
+
+    /**
+     * Установить источник свойств воды, по умолчанию {@link WaterProperties#exact()}.
+     * Температуры участков не меняются между итерациями, поэтому {@link WaterProperties#cache(int)} избавляет
+     * от пересчёта свойств после первой итерации без изменения результата
+     * @param water Свойства воды
+     */
+    public void setWaterProperties(WaterProperties water) {
+        this.water = water;
+        batch.setWaterProperties(water);
+    }
+
+    /**
+     * Установить формулу к-та гидравлического трения в турбулентном режиме, по умолчанию {@link FrictionModel#ALTSHUL}.
+     * Неявная формула Коулбрука-Уайта на каждой итерации начинает с к-та трения участка с предыдущей итерации
+     * @param friction Формула к-та гидравлического трения
+     */
+    public void setFrictionModel(FrictionModel friction) {
+        this.friction = friction;
+        batch.setFrictionModel(friction);
+    }
+
+    /**
+     * Установить пул потоков для параллельного пересчёта сопротивлений участков
+     * @param pool Пул потоков, null - последовательный расчёт
+     */
+    public void setPool(ForkJoinPool pool) {
+        batch.setPool(pool);
+    }
+
+    /**
+     * Установить порог параллельного пересчёта, см. {@link HorizontalPipelineBatch#setParallelThreshold(int)}
+     * @param parallelThreshold Порог, участков
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        batch.setParallelThreshold(parallelThreshold);
+    }
+
+    /**
+     * Установить наблюдателя за расчётами сети, по умолчанию нет.
+     * Сообщается время и количество итераций {@link #solve()} и {@link #update()},
+     * а также пересчёт сопротивлений участков на каждой итерации, см. {@link HorizontalPipelineBatch#setListener(CalculationListener)}
+     * @param listener Наблюдатель, null - без измерений
+     */
+    public void setListener(CalculationListener listener) {
+        this.listener = listener;
+        batch.setListener(listener);
+    }
+
+    /**
+     * @return Расходы по участкам, т/ч (положительный - от начального узла к конечному)
+     */
+    public double[] getFlows() {
+        return flows;
+    }
+
+    /**
+     * @return Давления в узлах, Па
+     */
+    public double[] getPressures() {
+        return pressures;
+    }
+
+    /**
+     * @return Результаты расчёта участков при последних расходах (по модулю)
+     */
+    public PipelineColumns getSegmentResults() {
+        return columns;
+    }
+
+    /**
+     * @return Количество итераций последнего расчёта
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return Количество итераций метода сопряжённых градиентов в последнем полном расчёте
+     */
+    int getLinearIterations() {
+        return linearIterations;
+    }
+
+    /**
+     * @return Сошёлся ли последний расчёт
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    /**
+     * @return Потребовался ли в последнем расчёте метод Харди Кросса
+     */
+    public boolean isHardyCross() {
+        return hardyCross;
+    }
+}
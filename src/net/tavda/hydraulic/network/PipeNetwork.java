@@ -0,0 +1,204 @@
+package net.tavda.hydraulic.network;
+
+import java.util.Arrays;
+
+/**
+ * Тепловая сеть: узлы и соединяющие их горизонтальные участки трубопровода.
+ * Данные хранятся столбцами, индекс участка или узла является индексом в массиве.
+ * Узел с заданным давлением является источником, узел с заданным расходом - потребителем.
+ */
+public class PipeNetwork {
+    private final int nodeCount;
+    private final int segmentCount;
+    private final int[] from;
+    private final int[] to;
+    private final double[] tempIn;
+    private final double[] tempOut;
+    private final double[] diameter;
+    private final double[] length;
+    private final double[] roughness;
+    private final double[] sumLocalResist;
+    private final double[] demand;
+    private final double[] sourcePressure;
+    private final boolean[] source;
+
+    /**
+     * @param nodeCount Количество узлов
+     * @param segmentCount Количество участков
+     */
+    public PipeNetwork(int nodeCount, int segmentCount) {
+        this.nodeCount = nodeCount;
+        this.segmentCount = segmentCount;
+        from = new int[segmentCount];
+        to = new int[segmentCount];
+        Arrays.fill(from, -1);
+        Arrays.fill(to, -1);
+        tempIn = new double[segmentCount];
+        tempOut = new double[segmentCount];
+        diameter = new double[segmentCount];
+        length = new double[segmentCount];
+        roughness = new double[segmentCount];
+        sumLocalResist = new double[segmentCount];
+        demand = new double[nodeCount];
+        sourcePressure = new double[nodeCount];
+        source = new boolean[nodeCount];
+    }
+
+    /**
+     * Задать участок трубопровода. Положительный расход направлен от узла from к узлу to.
+     * @param segment Номер участка
+     * @param from Начальный узел
+     * @param to Конечный узел
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param roughness Экв. шероховатость внутр. поверхностей труб, мм
+     * @param sumLocalResist Сумма к-тов местных сопротивлений
+     */
+    public void setSegment(int segment, int from, int to, double tempIn, double tempOut, double diameter, double length, double roughness, double sumLocalResist) {
+        checkNode(from);
+        checkNode(to);
+        if (from == to) {
+            throw new IllegalArgumentException("Segment " + segment + " connects node " + from + " to itself");
+        }
+        this.from[segment] = from;
+        this.to[segment] = to;
+        this.tempIn[segment] = tempIn;
+        this.tempOut[segment] = tempOut;
+        this.diameter[segment] = diameter;
+        this.length[segment] = length;
+        this.roughness[segment] = roughness;
+        this.sumLocalResist[segment] = sumLocalResist;
+    }
+
+    /**
+     * Задать температуры воды на участке
+     * @param segment Номер участка
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     */
+    public void setTemperatures(int segment, double tempIn, double tempOut) {
+        this.tempIn[segment] = tempIn;
+        this.tempOut[segment] = tempOut;
+    }
+
+    /**
+     * Сделать узел источником с заданным давлением
+     * @param node Номер узла
+     * @param pressure Давление в узле, Па
+     */
+    public void setSource(int node, double pressure) {
+        checkNode(node);
+        source[node] = true;
+        sourcePressure[node] = pressure;
+    }
+
+    /**
+     * Задать отбор воды в узле
+     * @param node Номер узла
+     * @param consumption Расход воды, отбираемый в узле, т/ч (отрицательный - подпитка)
+     */
+    public void setDemand(int node, double consumption) {
+        checkNode(node);
+        demand[node] = consumption;
+    }
+
+    private void checkNode(int node) {
+        if (node < 0 || node >= nodeCount) {
+            throw new IndexOutOfBoundsException("Node " + node + " outside [0, " + nodeCount + ")");
+        }
+    }
+
+    /**
+     * @return Количество узлов
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return Количество участков
+     */
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * @return Начальные узлы участков
+     */
+    public int[] getFrom() {
+        return from;
+    }
+
+    /**
+     * @return Конечные узлы участков
+     */
+    public int[] getTo() {
+        return to;
+    }
+
+    /**
+     * @return Температуры воды на входе участков, градусов цельсия
+     */
+    public double[] getTempIn() {
+        return tempIn;
+    }
+
+    /**
+     * @return Температуры воды на выходе участков, градусов цельсия
+     */
+    public double[] getTempOut() {
+        return tempOut;
+    }
+
+    /**
+     * @return Внутренние диаметры участков, мм
+     */
+    public double[] getDiameter() {
+        return diameter;
+    }
+
+    /**
+     * @return Длины участков, м
+     */
+    public double[] getLength() {
+        return length;
+    }
+
+    /**
+     * @return Экв. шероховатости участков, мм
+     */
+    public double[] getRoughness() {
+        return roughness;
+    }
+
+    /**
+     * @return Суммы к-тов местных сопротивлений участков
+     */
+    public double[] getSumLocalResist() {
+        return sumLocalResist;
+    }
+
+    /**
+     * @return Отборы воды в узлах, т/ч
+     */
+    public double[] getDemand() {
+        return demand;
+    }
+
+    /**
+     * @return Давления в узлах-источниках, Па
+     */
+    public double[] getSourcePressure() {
+        return sourcePressure;
+    }
+
+    /**
+     * @param node Номер узла
+     * @return Является ли узел источником
+     */
+    public boolean isSource(int node) {
+        return source[node];
+    }
+}
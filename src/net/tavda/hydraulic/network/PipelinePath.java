@@ -0,0 +1,399 @@
+package net.tavda.hydraulic.network;
+
+import net.tavda.hydraulic.PipelineCalculator;
+import net.tavda.hydraulic.PipelineResult;
+import net.tavda.hydraulic.Precision;
+
+import java.util.Arrays;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.sqrt;
+
+/**
+ * Последовательно-параллельная трасса: участки трубопровода, соединённые последовательно и параллельно.
+ * Расчёт заменяет увязку сети для трасс без колец, кроме параллельных ответвлений между общими узлами.
+ * <p>
+ * Трасса - дерево узлов: участок, последовательное соединение (ΔP = ΣΔPᵢ, S = ΣSᵢ) и параллельное
+ * соединение (ΔPᵢ одинаковы, S = (Σ1/√Sᵢ)⁻²), где S - характеристика сопротивления, ΔP = S·G².
+ * Дочерние узлы создаются раньше родительского, поэтому дерево не содержит циклов. Расчёт идёт проходами
+ * без рекурсии: расход распределяется от корня по текущим S, затем S пересчитываются от участков к корню.
+ * S участка зависит от расхода, поэтому проходы повторяются, пока расходы не перестанут меняться;
+ * первый расчёт занимает время, пропорциональное числу узлов.
+ * <p>
+ * Проход обходит только ветви с участками, изменёнными после прошлого расчёта, или с изменившимся расходом,
+ * поэтому после изменения одного участка пересчитываются его предки и ветви, между которыми перераспределился расход
+ */
+public class PipelinePath {
+    private static final byte SEGMENT = 0;
+    private static final byte SERIES = 1;
+    private static final byte PARALLEL = 2;
+
+    private int size;
+    private byte[] kind = new byte[16];
+    private int[] parent = new int[16];
+    private int[] firstChild = new int[16];
+    private int[] nextSibling = new int[16];
+    private double[] tempIn = new double[16];
+    private double[] tempOut = new double[16];
+    private double[] diameter = new double[16];
+    private double[] length = new double[16];
+    private double[] roughness = new double[16];
+    private double[] sumLocalResist = new double[16];
+    private double[] resistance = new double[16];
+    private double[] flow = new double[16];
+    private double[] evaluatedFlow = new double[16];
+    private boolean[] changed = new boolean[16];
+    /**
+     * Характеристики дочерних узлов изменились после последнего распределения расхода
+     */
+    private boolean[] stale = new boolean[16];
+    private int[] stack = new int[16];
+    private int[] visited = new int[16];
+
+    private final PipelineResult result = new PipelineResult();
+    private PipelineCalculator calculator = PipelineCalculator.getInstance(Precision.STRICT);
+    private double tolerance = 1e-6;
+    private int maxIterations = 50;
+    private double minFlow = 1e-6;
+
+    private int iterations;
+    private int evaluations;
+    private boolean converged;
+
+    /**
+     * Добавить участок трубопровода
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param roughness Экв. шероховатость внутр. поверхностей труб, мм
+     * @param sumLocalResist Сумма к-тов местных сопротивлений
+     * @return Номер узла
+     */
+    public int addSegment(double tempIn, double tempOut, double diameter, double length, double roughness, double sumLocalResist) {
+        int node = add(SEGMENT);
+        setSegment(node, tempIn, tempOut, diameter, length, roughness, sumLocalResist);
+        return node;
+    }
+
+    /**
+     * Соединить узлы последовательно
+     * @param nodes Соединяемые узлы, не входящие в другие соединения
+     * @return Номер узла соединения
+     */
+    public int series(int... nodes) {
+        return join(SERIES, nodes);
+    }
+
+    /**
+     * Соединить узлы параллельно
+     * @param nodes Соединяемые узлы, не входящие в другие соединения
+     * @return Номер узла соединения
+     */
+    public int parallel(int... nodes) {
+        return join(PARALLEL, nodes);
+    }
+
+    private int join(byte joinKind, int[] nodes) {
+        if (nodes.length == 0) {
+            throw new IllegalArgumentException("No nodes to join");
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            checkNode(nodes[i]);
+            if (parent[nodes[i]] >= 0) {
+                throw new IllegalArgumentException("Node " + nodes[i] + " is already joined to node " + parent[nodes[i]]);
+            }
+            for (int j = 0; j < i; j++) {
+                if (nodes[j] == nodes[i]) {
+                    throw new IllegalArgumentException("Node " + nodes[i] + " is joined twice");
+                }
+            }
+        }
+        int node = add(joinKind);
+        for (int i = nodes.length - 1; i >= 0; i--) {
+            parent[nodes[i]] = node;
+            nextSibling[nodes[i]] = firstChild[node];
+            firstChild[node] = nodes[i];
+        }
+        return node;
+    }
+
+    private int add(byte nodeKind) {
+        if (size == kind.length) {
+            int capacity = size * 2;
+            kind = Arrays.copyOf(kind, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            tempIn = Arrays.copyOf(tempIn, capacity);
+            tempOut = Arrays.copyOf(tempOut, capacity);
+            diameter = Arrays.copyOf(diameter, capacity);
+            length = Arrays.copyOf(length, capacity);
+            roughness = Arrays.copyOf(roughness, capacity);
+            sumLocalResist = Arrays.copyOf(sumLocalResist, capacity);
+            resistance = Arrays.copyOf(resistance, capacity);
+            flow = Arrays.copyOf(flow, capacity);
+            evaluatedFlow = Arrays.copyOf(evaluatedFlow, capacity);
+            changed = Arrays.copyOf(changed, capacity);
+            stale = Arrays.copyOf(stale, capacity);
+            stack = new int[capacity];
+            visited = new int[capacity];
+        }
+        int node = size++;
+        kind[node] = nodeKind;
+        parent[node] = -1;
+        firstChild[node] = -1;
+        nextSibling[node] = -1;
+        changed[node] = true;
+        return node;
+    }
+
+    /**
+     * Изменить участок трубопровода
+     * @param node Номер узла участка
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param roughness Экв. шероховатость внутр. поверхностей труб, мм
+     * @param sumLocalResist Сумма к-тов местных сопротивлений
+     */
+    public void setSegment(int node, double tempIn, double tempOut, double diameter, double length, double roughness, double sumLocalResist) {
+        checkSegment(node);
+        this.tempIn[node] = tempIn;
+        this.tempOut[node] = tempOut;
+        this.diameter[node] = diameter;
+        this.length[node] = length;
+        this.roughness[node] = roughness;
+        this.sumLocalResist[node] = sumLocalResist;
+        markChanged(node);
+    }
+
+    /**
+     * Задать температуры воды на участке
+     * @param node Номер узла участка
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     */
+    public void setTemperatures(int node, double tempIn, double tempOut) {
+        checkSegment(node);
+        this.tempIn[node] = tempIn;
+        this.tempOut[node] = tempOut;
+        markChanged(node);
+    }
+
+    private void checkNode(int node) {
+        if (node < 0 || node >= size) {
+            throw new IndexOutOfBoundsException("Node " + node + " outside [0, " + size + ")");
+        }
+    }
+
+    private void checkSegment(int node) {
+        checkNode(node);
+        if (kind[node] != SEGMENT) {
+            throw new IllegalArgumentException("Node " + node + " is not a segment");
+        }
+    }
+
+    /**
+     * Рассчитать узел трассы при заданном расходе
+     * @param node Номер узла, обычно корень трассы; после расчёта внутреннего узла его предки пересчитываются при следующем расчёте корня
+     * @param consumption Расход воды через узел, т/ч
+     * @return Потери давления на узле, Па, знак - как у расхода
+     */
+    public double evaluate(int node, double consumption) {
+        checkNode(node);
+        flow[node] = abs(consumption);
+        evaluations = 0;
+        converged = false;
+        for (iterations = 1; iterations <= maxIterations; iterations++) {
+            int count = distribute(node);
+            if (!update(count)) {
+                converged = true;
+                break;
+            }
+        }
+        iterations = Math.min(iterations, maxIterations);
+        double loss = getPressureLoss(node);
+        return consumption < 0 ? -loss : loss;
+    }
+
+    /**
+     * Распределить расход от узла к участкам по текущим характеристикам сопротивления.
+     * Обходятся только ветви с изменёнными участками, пересчитанными характеристиками
+     * или изменившимся больше допустимого расходом
+     * @return Количество обойдённых узлов в {@link #visited}, родитель обходится раньше дочерних
+     */
+    private int distribute(int node) {
+        int count = 0;
+        int top = 0;
+        stack[top++] = node;
+        while (top > 0) {
+            int i = stack[--top];
+            visited[count++] = i;
+            if (kind[i] == SEGMENT) {
+                continue;
+            }
+            stale[i] = false;
+            double g = flow[i];
+            double sum = 0;
+            int children = 0;
+            boolean known = true;
+            if (kind[i] == PARALLEL) {
+                // Gᵢ пропорциональны 1/√Sᵢ, до первого расчёта ветви расход делится поровну
+                for (int c = firstChild[i]; c >= 0; c = nextSibling[c]) {
+                    known &= resistance[c] > 0;
+                    sum += resistance[c] > 0 ? 1 / sqrt(resistance[c]) : 0;
+                    children++;
+                }
+            }
+            for (int c = firstChild[i]; c >= 0; c = nextSibling[c]) {
+                double share = kind[i] == SERIES ? g : known ? g / sqrt(resistance[c]) / sum : g / children;
+                if (changed[c] || stale[c] || abs(share - flow[c]) > tolerance * max(share, minFlow)) {
+                    flow[c] = share;
+                    stack[top++] = c;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Пересчитать характеристики сопротивления обойдённых узлов от участков к корню
+     * @param count Количество обойдённых узлов
+     * @return Пересчитан ли хотя бы один участок
+     */
+    private boolean update(int count) {
+        boolean moved = false;
+        for (int k = count - 1; k >= 0; k--) {
+            int i = visited[k];
+            if (kind[i] == SEGMENT) {
+                double g = max(flow[i], minFlow);
+                if (changed[i] || abs(g - evaluatedFlow[i]) > tolerance * g) {
+                    moved = true;
+                    calculator.calcFormulas(g, tempIn[i], tempOut[i], diameter[i], length[i], roughness[i], sumLocalResist[i], result);
+                    resistance[i] = result.getPipelineResistance();
+                    evaluatedFlow[i] = g;
+                    evaluations++;
+                    changed[i] = false;
+                    if (parent[i] >= 0) {
+                        markChanged(parent[i]);
+                    }
+                }
+            } else if (changed[i]) {
+                double sum = 0;
+                for (int c = firstChild[i]; c >= 0; c = nextSibling[c]) {
+                    sum += kind[i] == SERIES ? resistance[c] : 1 / sqrt(resistance[c]);
+                }
+                resistance[i] = kind[i] == SERIES ? sum : 1 / (sum * sum);
+                changed[i] = false;
+                stale[i] = true;
+                if (parent[i] >= 0) {
+                    markChanged(parent[i]);
+                }
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Отметить узел и его предков для пересчёта: у отмеченного узла отмечены все предки
+     */
+    private void markChanged(int node) {
+        for (int i = node; i >= 0 && !changed[i]; i = parent[i]) {
+            changed[i] = true;
+        }
+    }
+
+    /**
+     * Установить расчёт участков, по умолчанию {@link PipelineCalculator#getInstance(Precision)} для {@link Precision#STRICT}
+     * @param calculator Расчёт участков
+     */
+    public void setCalculator(PipelineCalculator calculator) {
+        this.calculator = calculator;
+        Arrays.fill(changed, 0, size, true);
+    }
+
+    /**
+     * Установить допустимое относительное изменение расходов участков, при котором расчёт закончен
+     * @param tolerance Точность, доли
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Установить максимальное число проходов расчёта
+     * @param maxIterations Число проходов
+     */
+    public void setMaxIterations(int maxIterations) {
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException("Max iterations " + maxIterations + " < 1");
+        }
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Установить расход, ниже которого сопротивление участка считается при этом расходе
+     * @param minFlow Минимальный расход, т/ч
+     */
+    public void setMinFlow(double minFlow) {
+        this.minFlow = minFlow;
+    }
+
+    /**
+     * @return Количество узлов
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param node Номер узла
+     * @return Характеристика сопротивления узла по последнему расчёту, Па/(т/ч)²
+     */
+    public double getResistance(int node) {
+        checkNode(node);
+        return resistance[node];
+    }
+
+    /**
+     * @param node Номер узла
+     * @return Расход воды через узел по последнему расчёту, т/ч
+     */
+    public double getFlow(int node) {
+        checkNode(node);
+        return flow[node];
+    }
+
+    /**
+     * @param node Номер узла
+     * @return Потери давления на узле по последнему расчёту, Па
+     */
+    public double getPressureLoss(int node) {
+        checkNode(node);
+        return resistance[node] * flow[node] * flow[node];
+    }
+
+    /**
+     * @return Число проходов последнего расчёта
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return Число расчётов участков в последнем расчёте
+     */
+    public int getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return Сошёлся ли последний расчёт
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+}
@@ -0,0 +1,162 @@
+package net.tavda.hydraulic.service;
+
+import net.tavda.hydraulic.PipeMaterials;
+
+/**
+ * Исходные данные расчёта участка для {@link CalculationService}. Объект неизменяем.
+ * Запросы равны, если все величины совпадают побитово: одинаковые одновременные запросы рассчитываются один раз
+ */
+public final class CalculationRequest {
+    private final double consumption;
+    private final double tempIn;
+    private final double tempOut;
+    private final double diameter;
+    private final double length;
+    private final double roughness;
+    private final double sumLocalResist;
+    private final int material;
+
+    private CalculationRequest(double consumption, double tempIn, double tempOut, double diameter, double length, double roughness, double sumLocalResist, int material) {
+        this.consumption = consumption;
+        this.tempIn = tempIn;
+        this.tempOut = tempOut;
+        this.diameter = diameter;
+        this.length = length;
+        this.roughness = roughness;
+        this.sumLocalResist = sumLocalResist;
+        this.material = material;
+    }
+
+    /**
+     * Расчёт по формулам теоретической гидравлики
+     * @param consumption Расход воды через трубопровод, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param roughness Экв. шероховатость внутр. поверхностей труб, мм
+     * @param sumLocalResist Сумма к-тов местных сопротивлений
+     * @return Запрос
+     */
+    public static CalculationRequest formulas(double consumption, double tempIn, double tempOut, double diameter, double length, double roughness, double sumLocalResist) {
+        return new CalculationRequest(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist, -1);
+    }
+
+    /**
+     * Расчёт по СНиП
+     * @param consumption Расход воды через трубопровод, т/ч
+     * @param tempIn Температура воды на входе, градусов цельсия
+     * @param tempOut Температура воды на выходе, градусов цельсия
+     * @param diameter Внутренний диаметр трубопровода, мм
+     * @param length Длина трубопровода, м
+     * @param material Материал труб, см. {@link PipeMaterials}
+     * @return Запрос
+     */
+    public static CalculationRequest snip(double consumption, double tempIn, double tempOut, double diameter, double length, int material) {
+        if (material < 0 || material >= PipeMaterials.size()) {
+            throw new IllegalArgumentException("Unknown material " + material + ", materials 0-" + (PipeMaterials.size() - 1));
+        }
+        return new CalculationRequest(consumption, tempIn, tempOut, diameter, length, 0, 0, material);
+    }
+
+    /**
+     * @return Считается ли по СНиП
+     */
+    public boolean isSNiP() {
+        return material >= 0;
+    }
+
+    /**
+     * @return Расход воды через трубопровод, т/ч
+     */
+    public double getConsumption() {
+        return consumption;
+    }
+
+    /**
+     * @return Температура воды на входе, градусов цельсия
+     */
+    public double getTempIn() {
+        return tempIn;
+    }
+
+    /**
+     * @return Температура воды на выходе, градусов цельсия
+     */
+    public double getTempOut() {
+        return tempOut;
+    }
+
+    /**
+     * @return Внутренний диаметр трубопровода, мм
+     */
+    public double getDiameter() {
+        return diameter;
+    }
+
+    /**
+     * @return Длина трубопровода, м
+     */
+    public double getLength() {
+        return length;
+    }
+
+    /**
+     * @return Экв. шероховатость внутр. поверхностей труб, мм, 0 - при расчёте по СНиП
+     */
+    public double getRoughness() {
+        return roughness;
+    }
+
+    /**
+     * @return Сумма к-тов местных сопротивлений, 0 - при расчёте по СНиП
+     */
+    public double getSumLocalResist() {
+        return sumLocalResist;
+    }
+
+    /**
+     * @return Материал труб, -1 - при расчёте по формулам
+     */
+    public int getMaterial() {
+        return material;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CalculationRequest)) {
+            return false;
+        }
+        CalculationRequest other = (CalculationRequest) o;
+        return material == other.material
+                && Double.doubleToLongBits(consumption) == Double.doubleToLongBits(other.consumption)
+                && Double.doubleToLongBits(tempIn) == Double.doubleToLongBits(other.tempIn)
+                && Double.doubleToLongBits(tempOut) == Double.doubleToLongBits(other.tempOut)
+                && Double.doubleToLongBits(diameter) == Double.doubleToLongBits(other.diameter)
+                && Double.doubleToLongBits(length) == Double.doubleToLongBits(other.length)
+                && Double.doubleToLongBits(roughness) == Double.doubleToLongBits(other.roughness)
+                && Double.doubleToLongBits(sumLocalResist) == Double.doubleToLongBits(other.sumLocalResist);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = material;
+        hash = 31 * hash + Double.hashCode(consumption);
+        hash = 31 * hash + Double.hashCode(tempIn);
+        hash = 31 * hash + Double.hashCode(tempOut);
+        hash = 31 * hash + Double.hashCode(diameter);
+        hash = 31 * hash + Double.hashCode(length);
+        hash = 31 * hash + Double.hashCode(roughness);
+        return 31 * hash + Double.hashCode(sumLocalResist);
+    }
+
+    @Override
+    public String toString() {
+        return isSNiP()
+                ? "SNiP[consumption=" + consumption + ", tempIn=" + tempIn + ", tempOut=" + tempOut + ", diameter=" + diameter + ", length=" + length + ", material=" + material + "]"
+                : "Formulas[consumption=" + consumption + ", tempIn=" + tempIn + ", tempOut=" + tempOut + ", diameter=" + diameter + ", length=" + length + ", roughness=" + roughness + ", sumLocalResist=" + sumLocalResist + "]";
+    }
+}
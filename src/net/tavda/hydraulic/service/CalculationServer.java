@@ -0,0 +1,319 @@
+package net.tavda.hydraulic.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.tavda.hydraulic.PipelineResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Локальная точка доступа HTTP/JSON к {@link CalculationService} для проверки и нагрузочных испытаний.
+ * <ul>
+ * <li>{@code /formulas} - параметры consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist;</li>
+ * <li>{@code /snip} - параметры consumption, tempIn, tempOut, diameter, length, material.</li>
+ * </ul>
+ * Параметры передаются строкой запроса GET или объектом JSON с числовыми полями в теле POST.
+ * Ответ - объект JSON с результатами {@link PipelineResult}; 400 - ошибка в параметрах,
+ * 503 - запрос отклонён из-за перегрузки службы.
+ * Обработчик ждёт результата в потоке executor, поэтому на Java 21+ для него подходят виртуальные потоки.
+ * <p>
+ * Встроенный сервер JDK по умолчанию отправляет заголовки и тело ответа отдельными пакетами TCP с алгоритмом Нейгла,
+ * из-за задержки подтверждения ответ приходит через 40 мс и больше. Свойство действует на все серверы JDK в процессе,
+ * поэтому приложение включает его само: {@code -Dsun.net.httpserver.nodelay=true} при запуске
+ * или до создания первого сервера
+ */
+public class CalculationServer implements Closeable {
+    private static final String[] FORMULAS = {"consumption", "tempIn", "tempOut", "diameter", "length", "roughness", "sumLocalResist"};
+    private static final String[] SNIP = {"consumption", "tempIn", "tempOut", "diameter", "length", "material"};
+    /**
+     * Наибольший размер тела запроса, байт
+     */
+    private static final int MAX_BODY = 4096;
+    /**
+     * Очередь непринятых соединений: при очереди по умолчанию (50) всплеск запросов переполняет её,
+     * и клиент повторяет соединение только через секунду
+     */
+    private static final int BACKLOG = 1024;
+
+    private final CalculationService service;
+    private final HttpServer server;
+
+    /**
+     * Создать и запустить точку доступа
+     * @param service Служба расчёта
+     * @param address Адрес, порт 0 - любой свободный
+     * @param executor Исполнитель обработчиков запросов
+     * @throws IOException Ошибка открытия порта
+     */
+    public CalculationServer(CalculationService service, InetSocketAddress address, Executor executor) throws IOException {
+        this.service = service;
+        server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/formulas", exchange -> handle(exchange, false));
+        server.createContext("/snip", exchange -> handle(exchange, true));
+        server.start();
+    }
+
+    /**
+     * @return Порт
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Остановить точку доступа, не дожидаясь ответов на принятые запросы
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange, boolean snip) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"POST".equals(method)) {
+                send(exchange, 405, error("Method " + method + " not allowed"));
+                return;
+            }
+            CalculationRequest request;
+            try {
+                Map<String, String> params = "GET".equals(method)
+                        ? parseQuery(exchange.getRequestURI().getRawQuery())
+                        : parseJson(readBody(exchange.getRequestBody()));
+                request = snip ? snip(params) : formulas(params);
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, error(e.getMessage()));
+                return;
+            }
+            PipelineResult result;
+            try {
+                result = service.submit(request).join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RejectedExecutionException) {
+                    send(exchange, 503, error(cause.getMessage()));
+                } else if (cause instanceof IllegalArgumentException) {
+                    send(exchange, 400, error(cause.getMessage()));
+                } else {
+                    send(exchange, 500, error(String.valueOf(cause)));
+                }
+                return;
+            }
+            send(exchange, 200, toJson(result));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static CalculationRequest formulas(Map<String, String> params) {
+        double[] values = values(params, FORMULAS);
+        return CalculationRequest.formulas(values[0], values[1], values[2], values[3], values[4], values[5], values[6]);
+    }
+
+    private static CalculationRequest snip(Map<String, String> params) {
+        double[] values = values(params, SNIP);
+        int material = (int) values[5];
+        if (material != values[5]) {
+            throw new IllegalArgumentException("Material " + params.get("material") + " is not an integer");
+        }
+        return CalculationRequest.snip(values[0], values[1], values[2], values[3], values[4], material);
+    }
+
+    private static double[] values(Map<String, String> params, String[] names) {
+        for (String name : params.keySet()) {
+            if (!contains(names, name)) {
+                throw new IllegalArgumentException("Unknown parameter " + name);
+            }
+        }
+        double[] values = new double[names.length];
+        for (int i = 0; i < names.length; i++) {
+            String value = params.get(names[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing parameter " + names[i]);
+            }
+            try {
+                values[i] = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Parameter " + names[i] + " is not a number: " + value);
+            }
+            if (!(Math.abs(values[i]) <= Double.MAX_VALUE)) {
+                throw new IllegalArgumentException("Parameter " + names[i] + " is not finite: " + value);
+            }
+        }
+        return values;
+    }
+
+    private static boolean contains(String[] names, String name) {
+        for (String n : names) {
+            if (n.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Parameter " + pair + " without value");
+            }
+            try {
+                params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return params;
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[512];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            body.write(buffer, 0, read);
+            if (body.size() > MAX_BODY) {
+                throw new IllegalArgumentException("Request body exceeds " + MAX_BODY + " bytes");
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Разобрать объект JSON без вложенных объектов и массивов, значения - числа или строки
+     */
+    static Map<String, String> parseJson(String json) {
+        Map<String, String> params = new HashMap<>();
+        String s = json.trim();
+        if (s.length() < 2 || s.charAt(0) != '{' || s.charAt(s.length() - 1) != '}') {
+            throw new IllegalArgumentException("Request body is not a JSON object");
+        }
+        int i = skipSpaces(s, 1);
+        int end = s.length() - 1;
+        while (i < end) {
+            if (s.charAt(i) != '"') {
+                throw new IllegalArgumentException("Expected field name at " + i);
+            }
+            int nameEnd = s.indexOf('"', i + 1);
+            if (nameEnd < 0) {
+                throw new IllegalArgumentException("Unterminated field name at " + i);
+            }
+            String name = s.substring(i + 1, nameEnd);
+            i = skipSpaces(s, nameEnd + 1);
+            if (i >= end || s.charAt(i) != ':') {
+                throw new IllegalArgumentException("Expected ':' after " + name);
+            }
+            i = skipSpaces(s, i + 1);
+            int valueEnd;
+            String value;
+            if (i < end && s.charAt(i) == '"') {
+                valueEnd = s.indexOf('"', i + 1);
+                if (valueEnd < 0) {
+                    throw new IllegalArgumentException("Unterminated value of " + name);
+                }
+                value = s.substring(i + 1, valueEnd);
+                valueEnd++;
+            } else {
+                valueEnd = i;
+                while (valueEnd < end && s.charAt(valueEnd) != ',' && !Character.isWhitespace(s.charAt(valueEnd))) {
+                    valueEnd++;
+                }
+                value = s.substring(i, valueEnd);
+            }
+            if (params.put(name, value) != null) {
+                throw new IllegalArgumentException("Duplicate field " + name);
+            }
+            i = skipSpaces(s, valueEnd);
+            if (i < end) {
+                if (s.charAt(i) != ',') {
+                    throw new IllegalArgumentException("Expected ',' after " + name);
+                }
+                i = skipSpaces(s, i + 1);
+            }
+        }
+        return params;
+    }
+
+    private static int skipSpaces(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String error(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":\"");
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < ' ') {
+                json.append(' ');
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append("\"}").toString();
+    }
+
+    static String toJson(PipelineResult r) {
+        StringBuilder json = new StringBuilder(512).append('{');
+        field(json, "averageTemp", r.getAverageTemp());
+        field(json, "viscosity", r.getViscosity());
+        field(json, "averageDensity", r.getAverageDensity());
+        field(json, "consumptionLitersPerMinute", r.getConsumptionLitersPerMinute());
+        field(json, "speed", r.getSpeed());
+        field(json, "reynoldsNumber", r.getReynoldsNumber());
+        field(json, "frictionCoefficient", r.getFrictionCoefficient());
+        field(json, "frictionLoss", r.getFrictionLoss());
+        field(json, "pressureFrictionLossKgPerSm2", r.getPressureFrictionLossKgPerSm2());
+        field(json, "pressureFrictionLossPa", r.getPressureFrictionLossPa());
+        field(json, "pressureLocalResistLossKgPerSm2", r.getPressureLocalResistLossKgPerSm2());
+        field(json, "pressureLocalResistLossPa", r.getPressureLocalResistLossPa());
+        field(json, "pressureLossKgPerSm2", r.getPressureLossKgPerSm2());
+        field(json, "pressureLossPa", r.getPressureLossPa());
+        field(json, "pipelineResistance", r.getPipelineResistance());
+        field(json, "hydraulicResistance", r.getHydraulicResistance());
+        json.setCharAt(json.length() - 1, '}');
+        return json.toString();
+    }
+
+    private static void field(StringBuilder json, String name, double value) {
+        json.append('"').append(name).append("\":");
+        // В JSON нет NaN и бесконечностей
+        if (Math.abs(value) <= Double.MAX_VALUE) {
+            json.append(value);
+        } else {
+            json.append("null");
+        }
+        json.append(',');
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
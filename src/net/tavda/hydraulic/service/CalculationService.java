@@ -0,0 +1,334 @@
+package net.tavda.hydraulic.service;
+
+import net.tavda.hydraulic.HorizontalPipelineBatch;
+import net.tavda.hydraulic.PipelineCalculator;
+import net.tavda.hydraulic.PipelineColumns;
+import net.tavda.hydraulic.PipelineResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Встраиваемая служба расчёта участков для обработки большого числа одновременных мелких запросов.
+ * <ul>
+ * <li>Одинаковые запросы, пришедшие до окончания расчёта первого из них, получают копию его результата без повторного расчёта.</li>
+ * <li>Запросы, накопившиеся за время расчёта предыдущих, считаются одним пакетом {@link HorizontalPipelineBatch}
+ * размером до maxBatch, поэтому при малой нагрузке запрос не ждёт других, а при большой - пакеты растут сами.</li>
+ * <li>Если рассчитываемых и ожидающих запросов больше maxPending, новые запросы отклоняются
+ * с {@link RejectedExecutionException}, а не копятся в очереди.</li>
+ * </ul>
+ * Пакеты считаются по одному задачей в executor. Вызывающие потоки только ждут результатов,
+ * поэтому на Java 21+ запросы удобно обрабатывать в виртуальных потоках ({@code Executors.newVirtualThreadPerTaskExecutor()}).
+ * Результаты совпадают с {@link PipelineCalculator} побитово.
+ * <p>
+ * Объект потокобезопасен
+ */
+public class CalculationService {
+    /**
+     * Наибольшее количество рассчитываемых и ожидающих запросов по умолчанию
+     */
+    public static final int DEFAULT_MAX_PENDING = 10_000;
+    /**
+     * Наибольший размер пакета по умолчанию
+     */
+    public static final int DEFAULT_MAX_BATCH = 256;
+
+    private final PipelineCalculator calculator;
+    private final Executor executor;
+    private final int maxPending;
+    private final int maxBatch;
+    private final ConcurrentHashMap<CalculationRequest, CompletableFuture<PipelineResult>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<CalculationRequest> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder computed = new LongAdder();
+
+    /**
+     * @param calculator Расчёт участков
+     * @param executor Исполнитель расчёта пакетов
+     */
+    public CalculationService(PipelineCalculator calculator, Executor executor) {
+        this(calculator, executor, DEFAULT_MAX_PENDING, DEFAULT_MAX_BATCH);
+    }
+
+    /**
+     * @param calculator Расчёт участков
+     * @param executor Исполнитель расчёта пакетов
+     * @param maxPending Наибольшее количество рассчитываемых и ожидающих запросов
+     * @param maxBatch Наибольший размер пакета
+     */
+    public CalculationService(PipelineCalculator calculator, Executor executor, int maxPending, int maxBatch) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("Max pending " + maxPending + " < 1");
+        }
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("Max batch " + maxBatch + " < 1");
+        }
+        this.calculator = calculator;
+        this.executor = executor;
+        this.maxPending = maxPending;
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * @return Расчёт участков
+     */
+    public PipelineCalculator getCalculator() {
+        return calculator;
+    }
+
+    /**
+     * Поставить запрос в расчёт. Каждый вызов получает свой объект ожидания и свой объект результатов,
+     * поэтому отмена ожидания или изменение результатов не затрагивает одинаковые одновременные запросы
+     * @param request Запрос
+     * @return Результаты расчёта; при превышении maxPending - завершается {@link RejectedExecutionException}
+     */
+    public CompletableFuture<PipelineResult> submit(CalculationRequest request) {
+        requests.increment();
+        CompletableFuture<PipelineResult> future = inFlight.get(request);
+        if (future != null) {
+            coalesced.increment();
+            return future.thenApply(CalculationService::copy);
+        }
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            rejected.increment();
+            CompletableFuture<PipelineResult> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new RejectedExecutionException("Pending requests limit " + maxPending + " reached"));
+            return failed;
+        }
+        CompletableFuture<PipelineResult> created = new CompletableFuture<>();
+        future = inFlight.putIfAbsent(request, created);
+        if (future != null) {
+            pending.decrementAndGet();
+            coalesced.increment();
+            return future.thenApply(CalculationService::copy);
+        }
+        // Общий объект ожидания остаётся внутри службы: первый запрос получает сам результат, остальные - копии
+        CompletableFuture<PipelineResult> own = created.thenApply(Function.identity());
+        queue.add(request);
+        schedule();
+        return own;
+    }
+
+    private static PipelineResult copy(PipelineResult result) {
+        PipelineResult copy = new PipelineResult();
+        copy.copyFrom(result);
+        return copy;
+    }
+
+    private void schedule() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            draining.set(false);
+            CalculationRequest request;
+            while ((request = queue.poll()) != null) {
+                complete(request, null, e);
+            }
+        }
+    }
+
+    /**
+     * Считать пакеты, пока очередь не опустеет
+     */
+    private void drain() {
+        CalculationRequest[] batch = new CalculationRequest[maxBatch];
+        try {
+            int size;
+            while ((size = poll(batch)) > 0) {
+                calc(batch, size);
+            }
+        } finally {
+            draining.set(false);
+        }
+        // Запрос, добавленный после последней выборки, не смог запустить расчёт, пока он шёл
+        if (!queue.isEmpty()) {
+            schedule();
+        }
+    }
+
+    private int poll(CalculationRequest[] batch) {
+        int size = 0;
+        CalculationRequest request;
+        while (size < batch.length && (request = queue.poll()) != null) {
+            batch[size++] = request;
+        }
+        return size;
+    }
+
+    private void calc(CalculationRequest[] batch, int size) {
+        batches.increment();
+        int snip = 0;
+        for (int i = 0; i < size; i++) {
+            if (batch[i].isSNiP()) {
+                snip++;
+            }
+        }
+        calc(batch, size, false, size - snip);
+        calc(batch, size, true, snip);
+        for (int i = 0; i < size; i++) {
+            batch[i] = null;
+        }
+    }
+
+    /**
+     * Рассчитать запросы пакета одного вида
+     */
+    private void calc(CalculationRequest[] batch, int size, boolean snip, int count) {
+        if (count == 0) {
+            return;
+        }
+        PipelineResult[] results = new PipelineResult[count];
+        try {
+            calc(batch, size, snip, results);
+        } catch (RuntimeException e) {
+            for (int i = 0; i < size; i++) {
+                if (batch[i].isSNiP() == snip) {
+                    complete(batch[i], null, e);
+                }
+            }
+            return;
+        }
+        for (int i = 0, j = 0; i < size; i++) {
+            if (batch[i].isSNiP() == snip) {
+                complete(batch[i], results[j++], null);
+            }
+        }
+    }
+
+    private void calc(CalculationRequest[] batch, int size, boolean snip, PipelineResult[] results) {
+        int count = results.length;
+        if (count == 1) {
+            for (int i = 0; i < size; i++) {
+                if (batch[i].isSNiP() == snip) {
+                    results[0] = calc(batch[i]);
+                }
+            }
+            return;
+        }
+        double[] consumption = new double[count];
+        double[] tempIn = new double[count];
+        double[] tempOut = new double[count];
+        double[] diameter = new double[count];
+        double[] length = new double[count];
+        double[] roughness = snip ? null : new double[count];
+        double[] sumLocalResist = snip ? null : new double[count];
+        int[] material = snip ? new int[count] : null;
+        for (int i = 0, j = 0; i < size; i++) {
+            CalculationRequest request = batch[i];
+            if (request.isSNiP() != snip) {
+                continue;
+            }
+            consumption[j] = request.getConsumption();
+            tempIn[j] = request.getTempIn();
+            tempOut[j] = request.getTempOut();
+            diameter[j] = request.getDiameter();
+            length[j] = request.getLength();
+            if (snip) {
+                material[j] = request.getMaterial();
+            } else {
+                roughness[j] = request.getRoughness();
+                sumLocalResist[j] = request.getSumLocalResist();
+            }
+            j++;
+        }
+        HorizontalPipelineBatch pipelines = snip
+                ? new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, material)
+                : new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist);
+        pipelines.setPrecision(calculator.getPrecision());
+        pipelines.setWaterProperties(calculator.getWaterProperties());
+        pipelines.setFrictionModel(calculator.getFrictionModel());
+        pipelines.setListener(calculator.getListener());
+        PipelineColumns columns = new PipelineColumns(count);
+        if (snip) {
+            pipelines.calcSNiP(columns);
+        } else {
+            pipelines.calcFormulas(columns);
+        }
+        for (int j = 0; j < count; j++) {
+            results[j] = new PipelineResult();
+            results[j].copyFrom(columns, j);
+        }
+    }
+
+    private PipelineResult calc(CalculationRequest request) {
+        PipelineResult result = new PipelineResult();
+        if (request.isSNiP()) {
+            calculator.calcSNiP(request.getConsumption(), request.getTempIn(), request.getTempOut(), request.getDiameter(), request.getLength(), request.getMaterial(), result);
+        } else {
+            calculator.calcFormulas(request.getConsumption(), request.getTempIn(), request.getTempOut(), request.getDiameter(), request.getLength(), request.getRoughness(), request.getSumLocalResist(), result);
+        }
+        return result;
+    }
+
+    private void complete(CalculationRequest request, PipelineResult result, Throwable error) {
+        CompletableFuture<PipelineResult> future = inFlight.remove(request);
+        if (future == null) {
+            return;
+        }
+        pending.decrementAndGet();
+        if (error == null) {
+            computed.increment();
+            future.complete(result);
+        } else {
+            future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * @return Количество запросов
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return Количество запросов, получивших результат одинакового одновременного запроса
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return Количество отклонённых запросов
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return Количество рассчитанных пакетов
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * @return Количество рассчитанных участков
+     */
+    public long getComputed() {
+        return computed.sum();
+    }
+
+    /**
+     * @return Количество рассчитываемых и ожидающих запросов
+     */
+    public int getPending() {
+        return pending.get();
+    }
+}
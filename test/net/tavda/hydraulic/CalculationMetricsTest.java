@@ -0,0 +1,152 @@
+package net.tavda.hydraulic;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CalculationMetricsTest {
+
+    @Test
+    public void regimes() {
+        CalculationMetrics metrics = new CalculationMetrics();
+        HorizontalPipeline plain = new HorizontalPipeline(0.05, 95, 70, 50, 100, 0.5, 1);
+        HorizontalPipeline p = new HorizontalPipeline(0.05, 95, 70, 50, 100, 0.5, 1);
+        p.setListener(metrics);
+        // Ламинарный, переходный и турбулентный режимы
+        for (double consumption : new double[]{0.05, 0.12, 0.15, 20, 40}) {
+            plain.setConsumption(consumption);
+            plain.calcFormulas();
+            p.setConsumption(consumption);
+            p.calcFormulas();
+            assertEquals(plain.getPressureLossPa(), p.getPressureLossPa(), 0.0);
+        }
+        assertEquals(1, metrics.getRegimeCount(CalculationListener.LAMINAR));
+        assertEquals(2, metrics.getRegimeCount(CalculationListener.TRANSITIONAL));
+        assertEquals(2, metrics.getRegimeCount(CalculationListener.TURBULENT));
+        assertEquals(5, metrics.getFormulasNanos().getCount());
+        assertEquals(0, metrics.getSNiPNanos().getCount());
+    }
+
+    @Test
+    public void materials() {
+        CalculationMetrics metrics = new CalculationMetrics();
+        PipelineCalculator calculator = new PipelineCalculator(Precision.STRICT, WaterProperties.exact(), FrictionModel.ALTSHUL, metrics);
+        PipelineResult result = new PipelineResult();
+        for (int i = 0; i < 10; i++) {
+            calculator.calcSNiP(10, 95, 70, 100, 100, i % 3, result);
+        }
+        assertEquals(4, metrics.getMaterialCount(0));
+        assertEquals(3, metrics.getMaterialCount(1));
+        assertEquals(3, metrics.getMaterialCount(2));
+        assertEquals(10, metrics.getSNiPNanos().getCount());
+        metrics.reset();
+        assertEquals(0, metrics.getMaterialCount(0));
+        assertEquals(0, metrics.getSNiPNanos().getCount());
+    }
+
+    @Test
+    public void batch() {
+        int size = 240;
+        double[] consumption = new double[size], tempIn = new double[size], tempOut = new double[size], diameter = new double[size],
+                length = new double[size], roughness = new double[size], sumLocalResist = new double[size];
+        int[] material = new int[size];
+        CalculationMetrics single = new CalculationMetrics();
+        PipelineCalculator calculator = new PipelineCalculator(Precision.STRICT, WaterProperties.exact(), FrictionModel.ALTSHUL, single);
+        PipelineResult result = new PipelineResult();
+        for (int i = 0; i < size; i++) {
+            consumption[i] = 0.001 * Math.pow(1.045, i);
+            tempIn[i] = 60 + i % 50;
+            tempOut[i] = 40 + i % 30;
+            diameter[i] = 15 + 5 * (i % 40);
+            length[i] = 10 + i;
+            roughness[i] = 0.01 * (1 + i % 7);
+            sumLocalResist[i] = 0.5 * (i % 5);
+            material[i] = i % 12;
+            calculator.calcFormulas(consumption[i], tempIn[i], tempOut[i], diameter[i], length[i], roughness[i], sumLocalResist[i], result);
+            calculator.calcSNiP(consumption[i], tempIn[i], tempOut[i], diameter[i], length[i], material[i], result);
+        }
+        CalculationMetrics metrics = new CalculationMetrics();
+        HorizontalPipelineBatch formulas = new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist);
+        formulas.setListener(metrics);
+        PipelineColumns out = new PipelineColumns(size);
+        formulas.calcFormulas(0, 100, out);
+        formulas.calcFormulas(100, size, out);
+        HorizontalPipelineBatch snip = new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, material);
+        snip.setListener(metrics);
+        snip.calcSNiP(out);
+        for (int r = 0; r < CalculationListener.REGIMES; r++) {
+            assertEquals(single.getRegimeCount(r), metrics.getRegimeCount(r));
+        }
+        for (int m = 0; m < metrics.getMaterials(); m++) {
+            assertEquals(single.getMaterialCount(m), metrics.getMaterialCount(m));
+        }
+        assertEquals(3, metrics.getBatchNanos().getCount());
+        assertEquals(2 * size, metrics.getBatchRows());
+    }
+
+    @Test
+    public void batchSNiPNoAllocation() {
+        int size = 1000;
+        double[] consumption = new double[size], tempIn = new double[size], tempOut = new double[size], diameter = new double[size],
+                length = new double[size];
+        int[] material = new int[size];
+        for (int i = 0; i < size; i++) {
+            consumption[i] = 1 + i % 50;
+            tempIn[i] = 95;
+            tempOut[i] = 70;
+            diameter[i] = 100;
+            length[i] = 100;
+            material[i] = i % 12;
+        }
+        CalculationMetrics metrics = new CalculationMetrics();
+        HorizontalPipelineBatch snip = new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, material);
+        snip.setListener(metrics);
+        PipelineColumns out = new PipelineColumns(size);
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long id = Thread.currentThread().getId();
+        for (int i = 0; i < 1000; i++) {
+            snip.calcSNiP(0, size, out);
+        }
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 1000; i++) {
+            snip.calcSNiP(0, size, out);
+        }
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+        // Меньше одного массива счётчиков на 1000 расчётов
+        assertTrue(allocated + " bytes", allocated < 1024);
+        assertEquals(2000 * 84, metrics.getMaterialCount(0));
+        // Параллельные части пакета считают участки и при занятых счётчиках
+        metrics.reset();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            snip.setPool(pool);
+            snip.setParallelThreshold(10);
+            for (int i = 0; i < 100; i++) {
+                snip.calcSNiP(out);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (int m = 0; m < 12; m++) {
+            assertEquals(100 * (m < 4 ? 84 : 83), metrics.getMaterialCount(m));
+        }
+    }
+
+    @Test
+    public void cacheHitRate() {
+        CalculationMetrics metrics = new CalculationMetrics();
+        assertEquals(0, metrics.getCacheHitRate(), 0.0);
+        metrics.cache(true);
+        metrics.cache(true);
+        metrics.cache(true);
+        metrics.cache(false);
+        assertEquals(0.75, metrics.getCacheHitRate(), 0.0);
+    }
+}
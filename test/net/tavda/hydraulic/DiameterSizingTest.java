@@ -0,0 +1,112 @@
+package net.tavda.hydraulic;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class DiameterSizingTest {
+    private static final int SIZE = 2000;
+
+    /**
+     * Наименьший подходящий диаметр перебором сортамента
+     */
+    private static int scan(DiameterSizing sizing, double g, double t1, double t2, double l, double k, double z,
+                            double maxSpeed, double maxSpecificLoss, double maxPressureLoss) {
+        for (int i = 0; i < sizing.size(); i++) {
+            HorizontalPipeline p = new HorizontalPipeline(g, t1, t2, sizing.getDiameter(i), l, k, z);
+            if (p.getSpeed() <= maxSpeed && p.getPressureFrictionLossPa() / l <= maxSpecificLoss * (1 + 1e-12)
+                    && p.getPressureLossPa() <= maxPressureLoss) {
+                return i;
+            }
+        }
+        return DiameterSizing.NONE;
+    }
+
+    @Test
+    public void sizeFormulas() {
+        DiameterSizing sizing = new DiameterSizing();
+        sizing.setMaxSpeed(1.5);
+        sizing.setMaxSpecificLoss(80);
+        sizing.setMaxPressureLoss(30000);
+        Random random = new Random(1);
+        for (int i = 0; i < SIZE; i++) {
+            double g = Math.exp(random.nextDouble() * 12 - 4);
+            double l = 10 + random.nextDouble() * 500;
+            double k = 0.05 + random.nextDouble();
+            double z = random.nextDouble() * 10;
+            assertEquals(scan(sizing, g, 95, 70, l, k, z, 1.5, 80, 30000), sizing.size(g, 95, 70, l, k, z));
+        }
+    }
+
+    @Test
+    public void sizeSNiP() {
+        DiameterSizing sizing = new DiameterSizing();
+        sizing.setMaxSpecificLoss(100);
+        for (int i = 0; i < SIZE; i++) {
+            double g = 0.1 * Math.pow(1.004, i);
+            int material = i % 12;
+            int index = sizing.sizeSNiP(g, 95, 70, 100, material);
+            int expected = DiameterSizing.NONE;
+            for (int j = 0; j < sizing.size(); j++) {
+                if (new HorizontalPipeline(g, 95, 70, sizing.getDiameter(j), 100, material).getPressureLossPa() / 100 <= 100) {
+                    expected = j;
+                    break;
+                }
+            }
+            assertEquals(expected, index);
+        }
+    }
+
+    @Test
+    public void zeroLengthSNiP() {
+        // Удельные потери не зависят от длины, нулевая длина не мешает подбору
+        DiameterSizing sizing = new DiameterSizing();
+        assertEquals(0, sizing.sizeSNiP(10, 95, 70, 0, PipeMaterials.NEW_STEEL));
+        sizing.setMaxSpecificLoss(100);
+        assertEquals(sizing.sizeSNiP(10, 95, 70, 100, PipeMaterials.NEW_STEEL), sizing.sizeSNiP(10, 95, 70, 0, PipeMaterials.NEW_STEEL));
+    }
+
+    @Test
+    public void zeroFlow() {
+        DiameterSizing sizing = new DiameterSizing(new double[]{50, 80, 100});
+        sizing.setMaxSpeed(1);
+        assertEquals(0, sizing.size(0, 95, 70, 100, 0.5, 1));
+        assertEquals(1, sizing.size(-10, 95, 70, 100, 0.5, 1));
+        assertEquals(DiameterSizing.NONE, sizing.size(1000, 95, 70, 100, 0.5, 1));
+    }
+
+    @Test
+    public void parallel() {
+        int n = 100000;
+        double[] g = new double[n], t1 = new double[n], t2 = new double[n], l = new double[n], k = new double[n], z = new double[n];
+        Random random = new Random(2);
+        for (int i = 0; i < n; i++) {
+            g[i] = Math.exp(random.nextDouble() * 10 - 4);
+            t1[i] = 70 + random.nextInt(60);
+            t2[i] = 40 + random.nextInt(30);
+            l[i] = 10 + random.nextDouble() * 500;
+            k[i] = 0.5;
+            z[i] = random.nextDouble() * 5;
+        }
+        DiameterSizing sizing = new DiameterSizing();
+        sizing.setMaxSpeed(2);
+        sizing.setMaxSpecificLoss(100);
+        sizing.setCalculator(new PipelineCalculator(Precision.STRICT, WaterProperties.exact(), FrictionModel.COLEBROOK_WHITE));
+        int[] sequential = new int[n];
+        sizing.size(g, t1, t2, l, k, z, sequential);
+        int[] parallel = new int[n];
+        sizing.setPool(new ForkJoinPool(4));
+        sizing.setParallelThreshold(1000);
+        sizing.size(g, t1, t2, l, k, z, parallel);
+        assertArrayEquals(sequential, parallel);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsortedCatalogue() {
+        new DiameterSizing(new double[]{50, 40});
+    }
+}
@@ -0,0 +1,53 @@
+package net.tavda.hydraulic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class FittingCatalogueTest {
+    @Test
+    public void coefficients() {
+        FittingCatalogue catalogue = new FittingCatalogue();
+        LocalResistCoefficient local = new LocalResistCoefficient();
+        assertEquals(local.calcExpand(50, 100), catalogue.getCoefficient(catalogue.expand(50, 100)), 0);
+        assertEquals(local.calcDiaphragm(100, 70), catalogue.getCoefficient(catalogue.diaphragm(100, 70)), 0);
+        assertEquals(local.calcDiaphragmDiff(100, 80, 70), catalogue.getCoefficient(catalogue.diaphragmDiff(100, 80, 70)), 0);
+        assertEquals(local.calcWelded(100, 2), catalogue.getCoefficient(catalogue.welded(100, 2)), 0);
+        assertEquals(local.calcTurn(45), catalogue.getCoefficient(catalogue.turn(45)), 0);
+        assertEquals(local.calcTurnSmooth(90, 100, 150, 0.02), catalogue.getCoefficient(catalogue.turnSmooth(90, 100, 150, 0.02)), 0);
+        assertEquals(local.calcGradual(30, 100, 80), catalogue.getCoefficient(catalogue.gradual(30, 100, 80)), 0);
+        assertEquals(local.calcValve(100, 40), catalogue.getCoefficient(catalogue.valve(100, 40)), 0);
+        assertEquals(0.5, catalogue.getCoefficient(catalogue.coefficient(0.5)), 0);
+        assertEquals(9, catalogue.size());
+    }
+
+    @Test
+    public void deduplicate() {
+        FittingCatalogue catalogue = new FittingCatalogue();
+        int welded = catalogue.welded(100, 2);
+        int valve = catalogue.valve(100, 40);
+        // Те же параметры у сопротивления другого вида дают другой номер
+        assertNotEquals(welded, catalogue.valve(100, 2));
+        for (int i = 0; i < 1000; i++) {
+            catalogue.welded(50 + i % 100, 2);
+        }
+        assertEquals(welded, catalogue.welded(100, 2));
+        assertEquals(valve, catalogue.valve(100, 40));
+        assertEquals(102, catalogue.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(new LocalResistCoefficient().calcWelded(50 + i, 2), catalogue.getCoefficient(catalogue.welded(50 + i, 2)), 0);
+        }
+    }
+
+    @Test
+    public void fastPrecision() {
+        FittingCatalogue catalogue = new FittingCatalogue(Precision.FAST);
+        assertEquals(new LocalResistCoefficient(Precision.FAST).calcWelded(100, 3), catalogue.getCoefficient(catalogue.welded(100, 3)), 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void unknownFitting() {
+        new FittingCatalogue().getCoefficient(0);
+    }
+}
@@ -0,0 +1,79 @@
+package net.tavda.hydraulic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FittingListTest {
+    @Test
+    public void sum() {
+        LocalResistCoefficient local = new LocalResistCoefficient();
+        FittingList fittings = new FittingList(new FittingCatalogue());
+        double sum = fittings.welded(12, 100, 2).turnSmooth(3, 90, 100, 150, 0.02).valve(1, 100, 40).sum();
+        double expected = 12 * local.calcWelded(100, 2) + 3 * local.calcTurnSmooth(90, 100, 150, 0.02) + local.calcValve(100, 40);
+        assertEquals(expected, sum, 1e-15 * expected);
+        assertEquals(3, fittings.getCatalogue().size());
+    }
+
+    @Test
+    public void add() {
+        FittingCatalogue catalogue = new FittingCatalogue();
+        int welded = catalogue.welded(100, 2);
+        // Количество первым, как у welded(count, ...) и остальных методов перечня
+        double sum = new FittingList(catalogue).add(12, welded).sum();
+        assertEquals(new FittingList(catalogue).welded(12, 100, 2).sum(), sum, 0);
+        assertEquals(12 * catalogue.getCoefficient(welded), sum, 0);
+    }
+
+    @Test
+    public void sums() {
+        FittingCatalogue catalogue = new FittingCatalogue();
+        FittingList fittings = new FittingList(catalogue);
+        int segments = 100000;
+        double[] expected = new double[segments];
+        for (int s = 0; s < segments; s++) {
+            double d = 50 + 25 * (s % 8);
+            fittings.welded(s % 20, d, 2).turn(s % 3, 90).coefficient(1, 0.5);
+            if (s % 10 == 0) {
+                fittings.valve(1, d, 0.4 * d);
+            }
+            expected[s] = fittings.sum();
+            assertEquals(s, fittings.endSegment());
+        }
+        assertEquals(0, fittings.sum(), 0);
+        // Задвижки стоят на каждом десятом участке, то есть только на трубах 4 диаметров из 8
+        assertEquals(8 + 1 + 1 + 4, catalogue.size());
+        assertArrayEquals(expected, fittings.sums(), 0);
+        fittings.clear();
+        assertEquals(0, fittings.segmentCount());
+    }
+
+    @Test
+    public void batchColumn() {
+        FittingList fittings = new FittingList(new FittingCatalogue());
+        fittings.welded(10, 100, 2).endSegment();
+        fittings.endSegment();
+        fittings.turn(2, 90).expand(1, 80, 100).endSegment();
+        double[] sumLocalResist = new double[3];
+        fittings.sums(sumLocalResist);
+        double[] consumption = {20, 20, 20};
+        double[] tempIn = {95, 95, 95};
+        double[] tempOut = {70, 70, 70};
+        double[] diameter = {100, 100, 100};
+        double[] length = {100, 100, 100};
+        double[] roughness = {0.5, 0.5, 0.5};
+        PipelineColumns out = new PipelineColumns(3);
+        new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist).calcFormulas(out);
+        for (int i = 0; i < 3; i++) {
+            HorizontalPipeline p = new HorizontalPipeline(20, 95, 70, 100, 100, 0.5, sumLocalResist[i]);
+            assertEquals(p.getPressureLossPa(), out.getPressureLossPa()[i], 0);
+        }
+        assertEquals(0, sumLocalResist[1], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeCount() {
+        new FittingList(new FittingCatalogue()).welded(-1, 100, 2);
+    }
+}
@@ -0,0 +1,108 @@
+package net.tavda.hydraulic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrictionModelTest {
+    private static final double[] REYNOLDS = {4001, 1e4, 216445.0483327749, 1e6, 1e8};
+    private static final double[] ROUGHNESS = {0, 1e-5, 1e-3, 0.01, 0.05};
+
+    @Test
+    public void altshul() {
+        assertEquals(FrictionModel.ALTSHUL.lambda(216445.0483327749, 0.01, 0, false), 0.03505510160036259, 0.0);
+    }
+
+    @Test
+    public void colebrookWhite() {
+        for (double re : REYNOLDS) {
+            for (double k : ROUGHNESS) {
+                double lambda = FrictionModel.COLEBROOK_WHITE.lambda(re, k, 0, false);
+                double residual = 1 / Math.sqrt(lambda) + 2 * Math.log10(k / 3.7 + 2.51 / (re * Math.sqrt(lambda)));
+                assertEquals(residual, 0, 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void warmStart() {
+        for (double re : REYNOLDS) {
+            for (double k : ROUGHNESS) {
+                double cold = FrictionModel.COLEBROOK_WHITE.lambda(re, k, 0, false);
+                double warm = FrictionModel.COLEBROOK_WHITE.lambda(re, k, cold * 1.05, false);
+                assertEquals(warm, cold, 1e-13 * cold);
+                // Неправдоподобное начальное приближение заменяется явной формулой
+                assertEquals(FrictionModel.COLEBROOK_WHITE.lambda(re, k, 10, false), cold, 1e-13 * cold);
+            }
+        }
+    }
+
+    /**
+     * Явные формулы в области их применимости: Re от 10^4 до 10^8, k/d до 0.01
+     */
+    @Test
+    public void explicit() {
+        for (double re : REYNOLDS) {
+            for (double k : ROUGHNESS) {
+                if (re < 1e4 || k > 0.01) {
+                    continue;
+                }
+                double lambda = FrictionModel.COLEBROOK_WHITE.lambda(re, k, 0, false);
+                assertEquals(FrictionModel.SWAMEE_JAIN.lambda(re, k, 0, false), lambda, 0.025 * lambda);
+                assertEquals(FrictionModel.HAALAND.lambda(re, k, 0, false), lambda, 0.025 * lambda);
+            }
+        }
+    }
+
+    @Test
+    public void slope() {
+        for (FrictionModel model : FrictionModel.values()) {
+            for (double re : REYNOLDS) {
+                for (double k : ROUGHNESS) {
+                    double h = 1e-5;
+                    double lambda = model.lambda(re, k, 0, false);
+                    double numeric = (Math.log(model.lambda(re * Math.exp(h), k, 0, false)) - Math.log(model.lambda(re * Math.exp(-h), k, 0, false))) / (2 * h);
+                    double slope = model.slope(re, k, lambda);
+                    assertTrue(slope <= 0);
+                    assertEquals(model + " Re=" + re + " k/d=" + k, slope, numeric, 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void roughnessSlope() {
+        for (FrictionModel model : FrictionModel.values()) {
+            for (double re : REYNOLDS) {
+                for (double k : ROUGHNESS) {
+                    double lambda = model.lambda(re, k, 0, false);
+                    double slope = model.roughnessSlope(re, k, lambda);
+                    assertTrue(slope >= 0);
+                    if (k == 0) {
+                        // У формулы Хааланда производная при k = 0 равна нулю, но (k/d)^0.11 растёт слишком быстро для разностей
+                        if (model != FrictionModel.HAALAND) {
+                            double h = 1e-9;
+                            double numeric = (Math.log(model.lambda(re, h, 0, false)) - Math.log(lambda)) / h;
+                            assertEquals(model + " Re=" + re, numeric, slope, 1e-3 * numeric);
+                        }
+                        continue;
+                    }
+                    double h = 1e-3 * k;
+                    double numeric = (Math.log(model.lambda(re, k + h, 0, false)) - Math.log(model.lambda(re, k - h, 0, false))) / (2 * h);
+                    assertEquals(model + " Re=" + re + " k/d=" + k, numeric, slope, 1e-5 * numeric);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void pipeline() {
+        HorizontalPipeline pipeline = new HorizontalPipeline(20, 95, 70, 100, 100, 1, 1.89);
+        double altshul = pipeline.getFrictionCoefficient();
+        pipeline.setFrictionModel(FrictionModel.COLEBROOK_WHITE);
+        pipeline.calcFormulas();
+        assertEquals(pipeline.getFrictionCoefficient(), FrictionModel.COLEBROOK_WHITE.lambda(pipeline.getReynoldsNumber(), 0.01, 0, false), 1e-15);
+        assertEquals(pipeline.getFrictionCoefficient(), altshul, 0.1 * altshul);
+    }
+}
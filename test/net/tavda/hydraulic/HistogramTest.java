@@ -0,0 +1,65 @@
+package net.tavda.hydraulic;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+
+    @Test
+    public void buckets() {
+        // Интервалы идут подряд без пропусков, значение не больше верхней границы своего интервала
+        long previous = -1;
+        for (int b = 0; b < Histogram.bucket(Long.MAX_VALUE) + 1; b++) {
+            long highest = Histogram.highest(b);
+            assertTrue(highest > previous);
+            assertEquals(b, Histogram.bucket(previous + 1));
+            assertEquals(b, Histogram.bucket(highest));
+            previous = highest;
+        }
+        assertEquals(Long.MAX_VALUE, previous);
+    }
+
+    @Test
+    public void smallValuesExact() {
+        Histogram h = new Histogram();
+        for (int i = 0; i < 64; i++) {
+            h.record(i);
+        }
+        assertEquals(64, h.getCount());
+        assertEquals(0, h.getValueAt(0));
+        assertEquals(31, h.getValueAt(0.5));
+        assertEquals(63, h.getMax());
+        assertEquals(31.5, h.getMean(), 1e-12);
+    }
+
+    @Test
+    public void quantiles() {
+        SplittableRandom random = new SplittableRandom(7);
+        Histogram h = new Histogram();
+        long[] values = new long[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 25);
+            h.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double q : new double[]{0.01, 0.25, 0.5, 0.9, 0.99, 0.999, 1}) {
+            long expected = values[(int) Math.ceil(q * values.length) - 1];
+            long actual = h.getValueAt(q);
+            assertTrue(q + ": " + actual + " < " + expected, actual >= expected);
+            assertTrue(q + ": " + actual + " vs " + expected, actual <= expected + expected / 32);
+        }
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getValueAt(0.5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongQuantile() {
+        new Histogram().getValueAt(1.5);
+    }
+}
@@ -0,0 +1,204 @@
+package net.tavda.hydraulic;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class HorizontalPipelineBatchTest {
+    private static final int SIZE = 240;
+    private double[] consumption;
+    private double[] tempIn;
+    private double[] tempOut;
+    private double[] diameter;
+    private double[] length;
+    private double[] roughness;
+    private double[] sumLocalResist;
+    private int[] material;
+
+    @Before
+    public void setup() {
+        consumption = new double[SIZE];
+        tempIn = new double[SIZE];
+        tempOut = new double[SIZE];
+        diameter = new double[SIZE];
+        length = new double[SIZE];
+        roughness = new double[SIZE];
+        sumLocalResist = new double[SIZE];
+        material = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            // Расходы от 0.001 до 40 т/ч перекрывают ламинарный, переходный и турбулентный режимы
+            consumption[i] = 0.001 * Math.pow(1.045, i);
+            tempIn[i] = 60 + i % 50;
+            tempOut[i] = 40 + i % 30;
+            diameter[i] = 15 + 5 * (i % 40);
+            length[i] = 10 + i;
+            roughness[i] = 0.01 * (1 + i % 7);
+            sumLocalResist[i] = 0.5 * (i % 5);
+            material[i] = i % 12;
+        }
+    }
+
+    @Test
+    public void calcFormulas() {
+        PipelineColumns out = new PipelineColumns(SIZE);
+        new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist).calcFormulas(out);
+        for (int i = 0; i < SIZE; i++) {
+            HorizontalPipeline p = new HorizontalPipeline(consumption[i], tempIn[i], tempOut[i], diameter[i], length[i], roughness[i], sumLocalResist[i]);
+            assertSame(p, out, i);
+        }
+    }
+
+    @Test
+    public void calcSNiP() {
+        PipelineColumns out = new PipelineColumns(SIZE);
+        new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, material).calcSNiP(out);
+        for (int i = 0; i < SIZE; i++) {
+            HorizontalPipeline p = new HorizontalPipeline(consumption[i], tempIn[i], tempOut[i], diameter[i], length[i], material[i]);
+            assertSame(p, out, i);
+        }
+    }
+
+    @Test
+    public void fastPrecision() {
+        PipelineColumns out = new PipelineColumns(SIZE);
+        HorizontalPipelineBatch batch = new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist);
+        batch.setPrecision(Precision.FAST);
+        batch.calcFormulas(out);
+        for (int i = 0; i < SIZE; i++) {
+            HorizontalPipeline p = new HorizontalPipeline(consumption[i], tempIn[i], tempOut[i], diameter[i], length[i], roughness[i], sumLocalResist[i]);
+            p.setPrecision(Precision.FAST);
+            p.calcFormulas();
+            assertSame(p, out, i);
+        }
+        HorizontalPipelineBatch snip = new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, material);
+        snip.setPrecision(Precision.FAST);
+        snip.calcSNiP(out);
+        for (int i = 0; i < SIZE; i++) {
+            HorizontalPipeline p = new HorizontalPipeline(consumption[i], tempIn[i], tempOut[i], diameter[i], length[i], material[i]);
+            p.setPrecision(Precision.FAST);
+            p.calcSNiP();
+            assertSame(p, out, i);
+        }
+    }
+
+    @Test
+    public void calcFormulasRange() {
+        PipelineColumns out = new PipelineColumns(SIZE);
+        new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist).calcFormulas(10, 20, out);
+        assertEquals(out.getPressureLossPa()[9], 0.0, 0.0);
+        assertEquals(out.getPressureLossPa()[20], 0.0, 0.0);
+        HorizontalPipeline p = new HorizontalPipeline(consumption[15], tempIn[15], tempOut[15], diameter[15], length[15], roughness[15], sumLocalResist[15]);
+        assertEquals(out.getPressureLossPa()[15], p.getPressureLossPa(), 0.0);
+    }
+
+    @Test
+    public void parallelMatchesSequential() {
+        HorizontalPipelineBatch batch = new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist);
+        HorizontalPipelineBatch snip = new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, material);
+        PipelineColumns expected = new PipelineColumns(SIZE);
+        PipelineColumns expectedSNiP = new PipelineColumns(SIZE);
+        batch.calcFormulas(expected);
+        snip.calcSNiP(expectedSNiP);
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                batch.setPool(pool);
+                batch.setParallelThreshold(7);
+                snip.setPool(pool);
+                snip.setParallelThreshold(7);
+                PipelineColumns out = new PipelineColumns(SIZE);
+                batch.calcFormulas(out);
+                assertColumnsEqual(expected, out);
+                snip.calcSNiP(out);
+                assertColumnsEqual(expectedSNiP, out);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Параллельный расчёт на 1/2/4/8 потоках совпадает с последовательным, ускорение - HorizontalPipelineBatchBenchmark
+     */
+    @Test
+    public void parallelThreads() {
+        int size = 1 << 20;
+        double[] g = new double[size], t1 = new double[size], t2 = new double[size], d = new double[size],
+                l = new double[size], k = new double[size], z = new double[size];
+        for (int i = 0; i < size; i++) {
+            g[i] = consumption[i % SIZE];
+            t1[i] = tempIn[i % SIZE];
+            t2[i] = tempOut[i % SIZE];
+            d[i] = diameter[i % SIZE];
+            l[i] = length[i % SIZE];
+            k[i] = roughness[i % SIZE];
+            z[i] = sumLocalResist[i % SIZE];
+        }
+        HorizontalPipelineBatch batch = new HorizontalPipelineBatch(g, t1, t2, d, l, k, z);
+        PipelineColumns expected = new PipelineColumns(size);
+        PipelineColumns out = new PipelineColumns(size);
+        batch.calcFormulas(expected);
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                batch.setPool(pool);
+                batch.calcFormulas(out);
+                assertColumnsEqual(expected, out);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void columnLengthMismatch() {
+        new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, roughness, new double[SIZE - 1]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void calcFormulasWithoutRoughness() {
+        new HorizontalPipelineBatch(consumption, tempIn, tempOut, diameter, length, material).calcFormulas(new PipelineColumns(SIZE));
+    }
+
+    private static void assertSame(HorizontalPipeline p, PipelineColumns out, int i) {
+        assertEquals(out.getAverageTemp()[i], p.getAverageTemp(), 0.0);
+        assertEquals(out.getViscosity()[i], p.getViscosity(), 0.0);
+        assertEquals(out.getAverageDensity()[i], p.getAverageDensity(), 0.0);
+        assertEquals(out.getConsumptionLitersPerMinute()[i], p.getConsumptionLitersPerMinute(), 0.0);
+        assertEquals(out.getSpeed()[i], p.getSpeed(), 0.0);
+        assertEquals(out.getReynoldsNumber()[i], p.getReynoldsNumber(), 0.0);
+        assertEquals(out.getFrictionCoefficient()[i], p.getFrictionCoefficient(), 0.0);
+        assertEquals(out.getFrictionLoss()[i], p.getFrictionLoss(), 0.0);
+        assertEquals(out.getPressureFrictionLossKgPerSm2()[i], p.getPressureFrictionLossKgPerSm2(), 0.0);
+        assertEquals(out.getPressureFrictionLossPa()[i], p.getPressureFrictionLossPa(), 0.0);
+        assertEquals(out.getPressureLocalResistLossKgPerSm2()[i], p.getPressureLocalResistLossKgPerSm2(), 0.0);
+        assertEquals(out.getPressureLocalResistLossPa()[i], p.getPressureLocalResistLossPa(), 0.0);
+        assertEquals(out.getPressureLossKgPerSm2()[i], p.getPressureLossKgPerSm2(), 0.0);
+        assertEquals(out.getPressureLossPa()[i], p.getPressureLossPa(), 0.0);
+        assertEquals(out.getPipelineResistance()[i], p.getPipelineResistance(), 0.0);
+        assertEquals(out.getHydraulicResistance()[i], p.getHydraulicResistance(), 0.0);
+    }
+
+    private static void assertColumnsEqual(PipelineColumns expected, PipelineColumns actual) {
+        assertArrayEquals(expected.getAverageTemp(), actual.getAverageTemp(), 0.0);
+        assertArrayEquals(expected.getViscosity(), actual.getViscosity(), 0.0);
+        assertArrayEquals(expected.getAverageDensity(), actual.getAverageDensity(), 0.0);
+        assertArrayEquals(expected.getConsumptionLitersPerMinute(), actual.getConsumptionLitersPerMinute(), 0.0);
+        assertArrayEquals(expected.getSpeed(), actual.getSpeed(), 0.0);
+        assertArrayEquals(expected.getReynoldsNumber(), actual.getReynoldsNumber(), 0.0);
+        assertArrayEquals(expected.getFrictionCoefficient(), actual.getFrictionCoefficient(), 0.0);
+        assertArrayEquals(expected.getFrictionLoss(), actual.getFrictionLoss(), 0.0);
+        assertArrayEquals(expected.getPressureFrictionLossKgPerSm2(), actual.getPressureFrictionLossKgPerSm2(), 0.0);
+        assertArrayEquals(expected.getPressureFrictionLossPa(), actual.getPressureFrictionLossPa(), 0.0);
+        assertArrayEquals(expected.getPressureLocalResistLossKgPerSm2(), actual.getPressureLocalResistLossKgPerSm2(), 0.0);
+        assertArrayEquals(expected.getPressureLocalResistLossPa(), actual.getPressureLocalResistLossPa(), 0.0);
+        assertArrayEquals(expected.getPressureLossKgPerSm2(), actual.getPressureLossKgPerSm2(), 0.0);
+        assertArrayEquals(expected.getPressureLossPa(), actual.getPressureLossPa(), 0.0);
+        assertArrayEquals(expected.getPipelineResistance(), actual.getPipelineResistance(), 0.0);
+        assertArrayEquals(expected.getHydraulicResistance(), actual.getHydraulicResistance(), 0.0);
+    }
+}
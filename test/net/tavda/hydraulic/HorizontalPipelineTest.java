@@ -102,4 +102,81 @@ public class HorizontalPipelineTest {
     public void getHydraulicResistance() {
         assertEquals(snip.getHydraulicResistance(),0.008,0.001);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void recalc() {
+        HorizontalPipeline pipeline = new HorizontalPipeline(20,95,70,100,100,1,1.89);
+        pipeline.setLength(250);
+        pipeline.recalc();
+        assertSame(new HorizontalPipeline(20,95,70,100,250,1,1.89), pipeline);
+        pipeline.setRoughness(0.2);
+        pipeline.recalc();
+        assertSame(new HorizontalPipeline(20,95,70,100,250,0.2,1.89), pipeline);
+        pipeline.setSumLocalResist(3);
+        pipeline.setDiameter(80);
+        pipeline.recalc();
+        assertSame(new HorizontalPipeline(20,95,70,80,250,0.2,3), pipeline);
+        pipeline.setTempIn(110);
+        pipeline.setConsumption(0.2);
+        pipeline.recalc();
+        assertSame(new HorizontalPipeline(0.2,110,70,80,250,0.2,3), pipeline);
+        pipeline.setFrictionModel(FrictionModel.COLEBROOK_WHITE);
+        pipeline.setConsumption(30);
+        pipeline.recalc();
+        HorizontalPipeline colebrook = new HorizontalPipeline(30,110,70,80,250,0.2,3);
+        colebrook.setFrictionModel(FrictionModel.COLEBROOK_WHITE);
+        colebrook.calcFormulas();
+        assertEquals(pipeline.getPressureLossPa(), colebrook.getPressureLossPa(), 1e-12 * colebrook.getPressureLossPa());
+    }
+
+    @Test
+    public void recalcSNiP() {
+        HorizontalPipeline pipeline = new HorizontalPipeline(20,95,70,100,100,0);
+        pipeline.setLength(300);
+        pipeline.recalc();
+        assertSame(new HorizontalPipeline(20,95,70,100,300,0), pipeline);
+        pipeline.setMaterial(4);
+        pipeline.setTempOut(50);
+        pipeline.recalc();
+        assertSame(new HorizontalPipeline(20,95,50,100,300,4), pipeline);
+    }
+
+    private static void assertSame(HorizontalPipeline expected, HorizontalPipeline actual) {
+        assertEquals(actual.getAverageTemp(), expected.getAverageTemp(), 0.0);
+        assertEquals(actual.getViscosity(), expected.getViscosity(), 0.0);
+        assertEquals(actual.getSpeed(), expected.getSpeed(), 0.0);
+        assertEquals(actual.getReynoldsNumber(), expected.getReynoldsNumber(), 0.0);
+        assertEquals(actual.getFrictionCoefficient(), expected.getFrictionCoefficient(), 0.0);
+        assertEquals(actual.getPressureFrictionLossPa(), expected.getPressureFrictionLossPa(), 0.0);
+        assertEquals(actual.getPressureLocalResistLossPa(), expected.getPressureLocalResistLossPa(), 0.0);
+        assertEquals(actual.getPressureLossPa(), expected.getPressureLossPa(), 0.0);
+        assertEquals(actual.getPipelineResistance(), expected.getPipelineResistance(), 0.0);
+        assertEquals(actual.getHydraulicResistance(), expected.getHydraulicResistance(), 0.0);
+    }
+
+    @Test
+    public void fastPrecision() {
+        HorizontalPipeline fast = new HorizontalPipeline(20,95,70,100,100,1,1.89);
+        fast.setPrecision(Precision.FAST);
+        fast.calcFormulas();
+        assertUlps(fast.getSpeed(), formula.getSpeed(), 8);
+        assertUlps(fast.getFrictionCoefficient(), formula.getFrictionCoefficient(), 8);
+        assertUlps(fast.getFrictionLoss(), formula.getFrictionLoss(), 8);
+        assertUlps(fast.getPressureLocalResistLossPa(), formula.getPressureLocalResistLossPa(), 8);
+        assertUlps(fast.getPressureLossPa(), formula.getPressureLossPa(), 8);
+        assertUlps(fast.getPipelineResistance(), formula.getPipelineResistance(), 8);
+        HorizontalPipeline fastSNiP = new HorizontalPipeline(20,95,70,100,100,0);
+        fastSNiP.setPrecision(Precision.FAST);
+        for (int material = 0; material < 12; material++) {
+            HorizontalPipeline strict = new HorizontalPipeline(20,95,70,100,100,material);
+            fastSNiP.setMaterial(material);
+            fastSNiP.calcSNiP();
+            assertUlps(fastSNiP.getHydraulicResistance(), strict.getHydraulicResistance(), 8);
+            assertUlps(fastSNiP.getPressureLossPa(), strict.getPressureLossPa(), 8);
+        }
+    }
+
+    private static void assertUlps(double actual, double expected, int ulps) {
+        assertEquals(actual, expected, ulps * Math.ulp(expected));
+    }
+}
@@ -0,0 +1,117 @@
+package net.tavda.hydraulic;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HydraulicCurveTest {
+    private final double[] flows = HydraulicCurve.grid(0, 60, 601);
+
+    @Test
+    public void grid() {
+        assertEquals(601, flows.length);
+        assertEquals(0, flows[0], 0);
+        assertEquals(0.1, flows[1], 1e-15);
+        assertEquals(60, flows[600], 0);
+    }
+
+    @Test
+    public void calcFormulas() {
+        for (Precision precision : Precision.values()) {
+            HydraulicCurve curve = new HydraulicCurve(PipelineCalculator.getInstance(precision));
+            double[] out = new double[flows.length];
+            curve.calcFormulas(flows, 95, 70, 100, 150, 0.5, 3, out);
+            assertEquals(0, out[0], 0);
+            for (int i = 1; i < flows.length; i++) {
+                HorizontalPipeline p = new HorizontalPipeline(flows[i], 95, 70, 100, 150, 0.5, 3);
+                p.setPrecision(precision);
+                p.calcFormulas();
+                assertEquals(p.getPressureLossPa(), out[i], 0);
+            }
+        }
+    }
+
+    @Test
+    public void calcSNiP() {
+        for (Precision precision : Precision.values()) {
+            HydraulicCurve curve = new HydraulicCurve(PipelineCalculator.getInstance(precision));
+            double[] out = new double[flows.length];
+            for (int material = 0; material < 12; material++) {
+                curve.calcSNiP(flows, 95, 70, 80, 120, material, out);
+                for (int i = 1; i < flows.length; i++) {
+                    HorizontalPipeline p = new HorizontalPipeline(flows[i], 95, 70, 80, 120, material);
+                    p.setPrecision(precision);
+                    p.calcSNiP();
+                    assertEquals(p.getPressureLossPa(), out[i], 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void colebrookWhite() {
+        PipelineCalculator calculator = new PipelineCalculator(Precision.STRICT, WaterProperties.exact(), FrictionModel.COLEBROOK_WHITE);
+        double[] out = new double[flows.length];
+        new HydraulicCurve(calculator).calcFormulas(flows, 95, 70, 100, 150, 0.5, 3, out);
+        PipelineResult result = new PipelineResult();
+        for (int i = 1; i < flows.length; i++) {
+            calculator.calcFormulas(flows[i], 95, 70, 100, 150, 0.5, 3, result);
+            assertEquals(result.getPressureLossPa(), out[i], 1e-8 * out[i]);
+        }
+    }
+
+    @Test
+    public void path() {
+        double[] tempIn = {95, 94, 93};
+        double[] tempOut = {70, 70, 70};
+        double[] diameter = {150, 100, 80};
+        double[] length = {300, 200, 100};
+        double[] roughness = {0.5, 0.5, 1};
+        double[] sumLocalResist = {2, 1, 5};
+        double[] out = new double[flows.length];
+        HydraulicCurve curve = new HydraulicCurve(PipelineCalculator.getInstance(Precision.STRICT));
+        curve.calcPathFormulas(flows, tempIn, tempOut, diameter, length, roughness, sumLocalResist, out);
+        for (int i = 1; i < flows.length; i += 50) {
+            double expected = 0;
+            for (int j = 0; j < 3; j++) {
+                expected += new HorizontalPipeline(flows[i], tempIn[j], tempOut[j], diameter[j], length[j], roughness[j], sumLocalResist[j]).getPressureLossPa();
+            }
+            assertEquals(expected, out[i], 0);
+        }
+        int[] material = {0, 4, 11};
+        curve.calcPathSNiP(flows, tempIn, tempOut, diameter, length, material, out);
+        double expected = 0;
+        for (int j = 0; j < 3; j++) {
+            expected += new HorizontalPipeline(flows[300], tempIn[j], tempOut[j], diameter[j], length[j], material[j]).getPressureLossPa();
+        }
+        assertEquals(expected, out[300], 0);
+    }
+
+    @Test
+    public void reverseFlow() {
+        double[] out = new double[2];
+        new HydraulicCurve(PipelineCalculator.getInstance(Precision.STRICT)).calcFormulas(new double[]{-20, 20}, 95, 70, 100, 150, 0.5, 3, out);
+        assertEquals(-out[1], out[0], 0);
+    }
+
+    @Test
+    public void intersect() {
+        double[] system = new double[flows.length];
+        new HydraulicCurve(PipelineCalculator.getInstance(Precision.STRICT)).calcFormulas(flows, 95, 70, 100, 500, 0.5, 10, system);
+        // Напор насоса падает линейно от 200 кПа при нулевом расходе до нуля при 60 т/ч
+        double[] pump = new double[flows.length];
+        for (int i = 0; i < flows.length; i++) {
+            pump[i] = 200000 * (1 - flows[i] / 60);
+        }
+        double g = HydraulicCurve.intersect(flows, system, pump);
+        assertTrue(g > 0 && g < 60);
+        double loss = new HorizontalPipeline(g, 95, 70, 100, 500, 0.5, 10).getPressureLossPa();
+        assertEquals(200000 * (1 - g / 60), loss, 200);
+        double[] high = new double[flows.length];
+        Arrays.fill(high, -1);
+        assertTrue(Double.isNaN(HydraulicCurve.intersect(flows, system, high)));
+    }
+}
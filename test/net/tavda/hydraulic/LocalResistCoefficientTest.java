@@ -4,6 +4,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class LocalResistCoefficientTest {
     private LocalResistCoefficient instance;
@@ -54,4 +55,45 @@ public class LocalResistCoefficientTest {
         assertEquals(instance.calcValve(100,0.01),23797.53,0.01);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void fastPrecision() {
+        LocalResistCoefficient fast=new LocalResistCoefficient(Precision.FAST);
+        assertUlps(fast.calcExpand(50,100),instance.calcExpand(50,100),16);
+        assertUlps(fast.calcExpand(100,50),instance.calcExpand(100,50),16);
+        assertUlps(fast.calcDiaphragm(100,94),instance.calcDiaphragm(100,94),16);
+        assertUlps(fast.calcDiaphragmDiff(50,40,30),instance.calcDiaphragmDiff(50,40,30),16);
+        assertUlps(fast.calcWelded(100,6),instance.calcWelded(100,6),16);
+        assertUlps(fast.calcTurnSmooth(90,20,40,0.036),instance.calcTurnSmooth(90,20,40,0.036),16);
+        assertUlps(fast.calcGradual(90,100,50),instance.calcGradual(90,100,50),16);
+        assertUlps(fast.calcGradual(10,50,100),instance.calcGradual(10,50,100),64);
+        assertEquals(fast.calcValve(100,0.01),23797.53,0.01);
+    }
+
+    @Test
+    public void tables() {
+        LocalResistCoefficient table=new LocalResistCoefficient(Precision.STRICT,true);
+        double previous=Double.POSITIVE_INFINITY;
+        for(int i=1;i<=100000;i++) {
+            double a=100.0*i/100000;
+            double k=table.calcValve(100,a);
+            assertEquals(k,instance.calcValve(100,a),5e-8*instance.calcValve(100,a));
+            // Коэффициент задвижки убывает с открытием
+            assertTrue(k<previous);
+            previous=k;
+        }
+        for(int i=0;i<=17900;i++) {
+            double alpha=1+0.01*i;
+            assertEquals(table.calcGradual(alpha,50,100),instance.calcGradual(alpha,50,100),1.1e-5*instance.calcGradual(alpha,50,100));
+        }
+        // Вне таблиц - по формулам
+        assertEquals(table.calcValve(100,0.01),instance.calcValve(100,0.01),0);
+        assertEquals(table.calcGradual(0.5,50,100),instance.calcGradual(0.5,50,100),0);
+        assertEquals(table.calcGradual(300,50,100),instance.calcGradual(300,50,100),0);
+        assertEquals(table.calcGradual(30,100,50),instance.calcGradual(30,100,50),0);
+        assertEquals(table.calcGradual(90,100,50),0.13,0.01);
+    }
+
+    private static void assertUlps(double actual,double expected,int ulps) {
+        assertEquals(actual,expected,ulps*Math.ulp(expected));
+    }
+}
@@ -0,0 +1,86 @@
+package net.tavda.hydraulic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PipeMaterialsTest {
+
+    @Test
+    public void builtIn() {
+        assertTrue(PipeMaterials.size() >= 13);
+        PipeMaterial steel = PipeMaterials.get(PipeMaterials.NEW_STEEL);
+        assertEquals(0.226, steel.getExponent(), 0.0);
+        assertEquals(0.810, steel.getA1(), 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, PipeMaterials.getSwitchSpeed(PipeMaterials.NEW_STEEL), 0.0);
+        assertSame(PipeMaterials.get(PipeMaterials.USED_STEEL_LOW_SPEED), PipeMaterials.get(PipeMaterials.USED_STEEL));
+        assertSame(PipeMaterials.get(PipeMaterials.USED_STEEL_HIGH_SPEED), PipeMaterials.getHigh(PipeMaterials.USED_STEEL));
+        assertEquals(PipeMaterials.USED_STEEL_SWITCH_SPEED, PipeMaterials.getSwitchSpeed(PipeMaterials.USED_STEEL), 0.0);
+    }
+
+    @Test
+    public void usedSteelBySpeed() {
+        for (Precision precision : Precision.values()) {
+            // Скорости от 0.3 до 3 м/с в трубе 100 мм
+            for (double consumption = 8; consumption < 80; consumption *= 1.1) {
+                HorizontalPipeline auto = new HorizontalPipeline(consumption, 95, 70, 100, 100, PipeMaterials.USED_STEEL);
+                auto.setPrecision(precision);
+                auto.calcSNiP();
+                int row = auto.getSpeed() < 1.2 ? PipeMaterials.USED_STEEL_LOW_SPEED : PipeMaterials.USED_STEEL_HIGH_SPEED;
+                HorizontalPipeline manual = new HorizontalPipeline(consumption, 95, 70, 100, 100, row);
+                manual.setPrecision(precision);
+                manual.calcSNiP();
+                assertEquals(manual.getPressureLossPa(), auto.getPressureLossPa(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void register() {
+        PipeMaterial glass = PipeMaterials.get(PipeMaterials.GLASS);
+        int material = PipeMaterials.register(new PipeMaterial("Стекло", glass.getExponent(), glass.getA0(), glass.getA1(), glass.getC()));
+        assertEquals(PipeMaterials.size() - 1, material);
+        HorizontalPipeline registered = new HorizontalPipeline(20, 95, 70, 100, 100, material);
+        HorizontalPipeline builtIn = new HorizontalPipeline(20, 95, 70, 100, 100, PipeMaterials.GLASS);
+        assertEquals(builtIn.getPressureLossPa(), registered.getPressureLossPa(), 0.0);
+        assertEquals("Стекло", PipeMaterials.get(material).getName());
+    }
+
+    @Test
+    public void unknownMaterial() {
+        try {
+            new HorizontalPipeline(20, 95, 70, 100, 100, PipeMaterials.MAX_MATERIALS);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Unknown material"));
+        }
+        HorizontalPipeline pipe = new HorizontalPipeline(20, 95, 70, 100, 100, 0);
+        try {
+            pipe.setMaterial(-1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Unknown material"));
+        }
+        double[] one = {1};
+        HorizontalPipelineBatch batch = new HorizontalPipelineBatch(one, one, one, one, one, new int[]{PipeMaterials.MAX_MATERIALS});
+        try {
+            batch.calcSNiP(new PipelineColumns(1));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Unknown material"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void differentExponents() {
+        PipeMaterials.register(PipeMaterials.get(PipeMaterials.NEW_STEEL), PipeMaterials.get(PipeMaterials.NEW_CAST_IRON), 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongCoefficients() {
+        new PipeMaterial("", 0.2, 0, 1, 0);
+    }
+}
@@ -0,0 +1,172 @@
+package net.tavda.hydraulic;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PipelineCacheTest {
+    private static final PipelineCalculator CALCULATOR = PipelineCalculator.getInstance(Precision.STRICT);
+
+    @Test
+    public void quantise() {
+        for (double exact : new double[]{0, 100, 95, 0.5, 1.25, 20, 150}) {
+            assertEquals(exact, PipelineCache.quantise(exact, 40), 0.0);
+        }
+        assertEquals(100, PipelineCache.quantise(100, PipelineCache.DEFAULT_QUANTUM_BITS), 0.0);
+        assertEquals(20, PipelineCache.quantise(20.0000001, PipelineCache.DEFAULT_QUANTUM_BITS), 0.0);
+        for (double x = 1e-3; x < 1e4; x *= 1.0137) {
+            assertEquals(x, PipelineCache.quantise(x, 10), x / 1024);
+        }
+    }
+
+    @Test
+    public void hitMatchesCalculation() {
+        PipelineCache cache = new PipelineCache(CALCULATOR, 1024);
+        PipelineResult direct = new PipelineResult();
+        PipelineResult cached = new PipelineResult();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < 50; i++) {
+                double consumption = 1 + i;
+                CALCULATOR.calcFormulas(consumption, 95, 70, 100, 150, 0.5, 3, direct);
+                cache.calcFormulas(consumption, 95, 70, 100, 150, 0.5, 3, cached);
+                assertSame(direct, cached);
+                CALCULATOR.calcSNiP(consumption, 95, 70, 100, 150, i % 13, direct);
+                cache.calcSNiP(consumption, 95, 70, 100, 150, i % 13, cached);
+                assertSame(direct, cached);
+            }
+        }
+        assertEquals(100, cache.getMisses());
+        assertEquals(100, cache.getHits());
+        assertEquals(0.5, cache.getHitRate(), 0.0);
+        assertEquals(100, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+    }
+
+    private static void assertSame(PipelineResult expected, PipelineResult actual) {
+        double[] e = new double[PipelineResult.FIELDS];
+        double[] a = new double[PipelineResult.FIELDS];
+        expected.store(e, 0);
+        actual.store(a, 0);
+        assertArrayEquals(e, a, 0.0);
+    }
+
+    @Test
+    public void leastRecentlyUsed() {
+        // Один набор из четырёх записей
+        PipelineCache cache = new PipelineCache(CALCULATOR, PipelineCache.WAYS);
+        assertEquals(PipelineCache.WAYS, cache.capacity());
+        PipelineResult r = new PipelineResult();
+        for (int i = 1; i <= 4; i++) {
+            cache.calcFormulas(i, 95, 70, 100, 150, 0.5, 3, r);
+        }
+        cache.calcFormulas(1, 95, 70, 100, 150, 0.5, 3, r);
+        // Вытесняет 2 - давно не использованную
+        cache.calcFormulas(5, 95, 70, 100, 150, 0.5, 3, r);
+        assertEquals(4, cache.size());
+        long misses = cache.getMisses();
+        cache.calcFormulas(1, 95, 70, 100, 150, 0.5, 3, r);
+        cache.calcFormulas(3, 95, 70, 100, 150, 0.5, 3, r);
+        assertEquals(misses, cache.getMisses());
+        cache.calcFormulas(2, 95, 70, 100, 150, 0.5, 3, r);
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    @Test
+    public void tinyLfuKeepsFrequent() {
+        PipelineResult r = new PipelineResult();
+        double[] rates = new double[2];
+        for (PipelineCache.Eviction eviction : PipelineCache.Eviction.values()) {
+            PipelineCache cache = new PipelineCache(CALCULATOR, 256, PipelineCache.DEFAULT_QUANTUM_BITS, eviction);
+            long hits = 0;
+            long requests = 0;
+            for (int round = 0; round < 50; round++) {
+                // 128 частых участков и поток из 512 однократных
+                for (int i = 0; i < 128; i++) {
+                    long before = cache.getHits();
+                    cache.calcFormulas(1 + i, 95, 70, 100, 150, 0.5, 3, r);
+                    hits += cache.getHits() - before;
+                    requests++;
+                }
+                for (int i = 0; i < 512; i++) {
+                    cache.calcFormulas(1000 + round * 512 + i, 95, 70, 100, 150, 0.5, 3, r);
+                }
+            }
+            rates[eviction.ordinal()] = (double) hits / requests;
+        }
+        assertTrue(rates[1] > 0.8);
+        assertTrue(rates[1] > rates[0]);
+    }
+
+    @Test
+    public void concurrent() throws Exception {
+        PipelineCache cache = new PipelineCache(CALCULATOR, 512);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[4];
+            for (int t = 0; t < futures.length; t++) {
+                final int seed = t;
+                futures[t] = executor.submit(() -> {
+                    PipelineResult direct = new PipelineResult();
+                    PipelineResult cached = new PipelineResult();
+                    for (int i = 0; i < 20000; i++) {
+                        double consumption = 1 + (i * 7 + seed) % 1000;
+                        CALCULATOR.calcFormulas(consumption, 95, 70, 100, 150, 0.5, 3, direct);
+                        cache.calcFormulas(consumption, 95, 70, 100, 150, 0.5, 3, cached);
+                        assertSame(direct, cached);
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        assertEquals(80000, cache.getHits() + cache.getMisses());
+        assertTrue(cache.size() <= cache.capacity());
+    }
+
+    @Test
+    public void listener() {
+        CalculationMetrics metrics = new CalculationMetrics();
+        PipelineCache cache = new PipelineCache(new PipelineCalculator(Precision.STRICT, WaterProperties.exact(), FrictionModel.ALTSHUL, metrics), 64);
+        PipelineResult r = new PipelineResult();
+        for (int i = 0; i < 4; i++) {
+            cache.calcSNiP(20, 95, 70, 100, 150, 0, r);
+        }
+        assertEquals(3, metrics.getCacheHits());
+        assertEquals(1, metrics.getCacheMisses());
+        assertEquals(1, metrics.getMaterialCount(0));
+    }
+
+    @Test
+    public void sizing() {
+        DiameterSizing plain = new DiameterSizing();
+        plain.setMaxSpecificLoss(100);
+        DiameterSizing cached = new DiameterSizing();
+        cached.setMaxSpecificLoss(100);
+        PipelineCache cache = new PipelineCache(CALCULATOR, 4096);
+        cached.setCache(cache);
+        for (int pass = 0; pass < 2; pass++) {
+            for (double consumption = 0.5; consumption < 500; consumption *= 1.5) {
+                assertEquals(plain.size(consumption, 95, 70, 100, 0.5, 3), cached.size(consumption, 95, 70, 100, 0.5, 3));
+            }
+        }
+        assertTrue(cache.getHitRate() >= 0.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownMaterial() {
+        new PipelineCache(CALCULATOR, 64).calcSNiP(20, 95, 70, 100, 150, -1, new PipelineResult());
+    }
+}
@@ -0,0 +1,91 @@
+package net.tavda.hydraulic;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+public class PipelineCalculatorTest {
+    private final PipelineCalculator calculator = PipelineCalculator.getInstance(Precision.STRICT);
+
+    @Test
+    public void calcFormulas() {
+        PipelineResult result = new PipelineResult();
+        calculator.calcFormulas(20, 95, 70, 100, 100, 1, 1.89, result);
+        assertEquals(result.getSpeed(), 0.7290702968883157, 0.0);
+        assertEquals(result.getFrictionCoefficient(), 0.03505510160036259, 0.0);
+        assertEquals(result.getPressureLossPa(), 9526.511324533629, 0.0);
+        assertEquals(result.getPipelineResistance(), 23.816278311334074, 0.0);
+    }
+
+    @Test
+    public void calcSNiP() {
+        PipelineResult result = new PipelineResult();
+        calculator.calcSNiP(20, 95, 70, 100, 100, 0, result);
+        HorizontalPipeline pipeline = new HorizontalPipeline(20, 95, 70, 100, 100, 0);
+        assertEquals(result.getHydraulicResistance(), pipeline.getHydraulicResistance(), 0.0);
+        assertEquals(result.getPressureLossPa(), pipeline.getPressureLossPa(), 0.0);
+    }
+
+    @Test
+    public void reuseResult() {
+        PipelineResult result = new PipelineResult();
+        calculator.calcFormulas(20, 95, 70, 100, 100, 1, 1.89, result);
+        calculator.calcSNiP(20, 95, 70, 100, 100, 0, result);
+        assertEquals(result.getFrictionCoefficient(), 0.0, 0.0);
+        assertEquals(result.getPipelineResistance(), 0.0, 0.0);
+        calculator.calcFormulas(20, 95, 70, 100, 100, 1, 1.89, result);
+        assertEquals(result.getHydraulicResistance(), 0.0, 0.0);
+        assertEquals(result.getPressureLossPa(), 9526.511324533629, 0.0);
+    }
+
+    @Test
+    public void copyToColumns() {
+        double[] consumption = {0.1, 0.28, 20};
+        double[] tempIn = {95, 95, 95};
+        double[] tempOut = {70, 70, 70};
+        HorizontalPipelineBatch batch = new HorizontalPipelineBatch(consumption, tempIn, tempOut, new double[]{100, 100, 100},
+                new double[]{100, 100, 100}, new double[]{1, 1, 1}, new double[]{1.89, 1.89, 1.89});
+        PipelineColumns expected = new PipelineColumns(3);
+        batch.calcFormulas(expected);
+        PipelineColumns actual = new PipelineColumns(3);
+        PipelineResult result = new PipelineResult();
+        for (int i = 0; i < 3; i++) {
+            calculator.calcFormulas(consumption[i], 95, 70, 100, 100, 1, 1.89, result);
+            result.copyTo(actual, i);
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals(actual.getFrictionCoefficient()[i], expected.getFrictionCoefficient()[i], 0.0);
+            assertEquals(actual.getPressureLossPa()[i], expected.getPressureLossPa()[i], 0.0);
+            assertEquals(actual.getHydraulicResistance()[i], expected.getHydraulicResistance()[i], 0.0);
+        }
+    }
+
+    @Test
+    public void sharedBetweenThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[4];
+            for (int t = 0; t < futures.length; t++) {
+                final int thread = t;
+                futures[t] = executor.submit(() -> {
+                    PipelineResult result = new PipelineResult();
+                    for (int i = 0; i < 10000; i++) {
+                        double consumption = 1 + (i + thread) % 50;
+                        calculator.calcFormulas(consumption, 95, 70, 100, 100, 1, 1.89, result);
+                        HorizontalPipeline pipeline = new HorizontalPipeline(consumption, 95, 70, 100, 100, 1, 1.89);
+                        assertEquals(result.getPressureLossPa(), pipeline.getPressureLossPa(), 0.0);
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
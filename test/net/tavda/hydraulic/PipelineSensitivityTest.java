@@ -0,0 +1,88 @@
+package net.tavda.hydraulic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PipelineSensitivityTest {
+    private static final PipelineCalculator CALCULATOR = PipelineCalculator.getInstance(Precision.STRICT);
+
+    private static double formulas(PipelineCalculator calculator, double[] x) {
+        PipelineResult r = new PipelineResult();
+        calculator.calcFormulas(x[0], x[1], x[2], x[3], x[4], x[5], x[6], r);
+        return r.getPressureLossPa();
+    }
+
+    private static double snip(double[] x, int material) {
+        PipelineResult r = new PipelineResult();
+        CALCULATOR.calcSNiP(x[0], x[1], x[2], x[3], x[4], material, r);
+        return r.getPressureLossPa();
+    }
+
+    @Test
+    public void formulas() {
+        // Ламинарный, переходный и турбулентный режимы, все формулы трения
+        double[][] cases = {
+                {0.1, 95, 70, 50, 100, 0.5, 2},
+                {0.15, 95, 70, 50, 100, 0.5, 2},
+                {20, 95, 70, 100, 150, 0.5, 3},
+                {200, 60, 40, 150, 500, 0.1, 0},
+                {50, 95, 70, 80, 100, 0, 1.5},
+        };
+        for (FrictionModel model : FrictionModel.values()) {
+            PipelineCalculator calculator = new PipelineCalculator(Precision.STRICT, WaterProperties.exact(), model);
+            PipelineSensitivity sensitivity = new PipelineSensitivity(calculator);
+            for (double[] x : cases) {
+                double[] gradient = new double[PipelineSensitivity.FORMULAS_INPUTS];
+                double loss = sensitivity.calcFormulas(x[0], x[1], x[2], x[3], x[4], x[5], x[6], gradient);
+                assertEquals(formulas(calculator, x), loss, 1e-12 * loss);
+                for (int i = 0; i < gradient.length; i++) {
+                    double h = 1e-6 * Math.max(Math.abs(x[i]), 1);
+                    double[] plus = x.clone();
+                    double[] minus = x.clone();
+                    plus[i] += h;
+                    minus[i] -= h;
+                    // Нулевая шероховатость - односторонняя разность первого порядка
+                    boolean oneSided = minus[i] < 0;
+                    if (oneSided) {
+                        if (model == FrictionModel.HAALAND) {
+                            // Производная (k/d)^1.11 при k = 0 равна нулю, разностью не проверяется
+                            continue;
+                        }
+                        minus[i] = x[i];
+                        h /= 2;
+                    }
+                    double numeric = (formulas(calculator, plus) - formulas(calculator, minus)) / (2 * h);
+                    assertEquals(model + " " + x[0] + " input " + i, numeric, gradient[i], (oneSided ? 1e-3 : 1e-5) * Math.abs(numeric) + 1e-6 * loss);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void snip() {
+        PipelineSensitivity sensitivity = new PipelineSensitivity(CALCULATOR);
+        for (int material = 0; material < PipeMaterials.size(); material++) {
+            for (double consumption : new double[]{2, 20, 80}) {
+                double[] x = {consumption, 95, 70, 100, 150};
+                double[] gradient = new double[PipelineSensitivity.SNIP_INPUTS];
+                double loss = sensitivity.calcSNiP(x[0], x[1], x[2], x[3], x[4], material, gradient);
+                assertEquals(snip(x, material), loss, 0);
+                for (int i = 0; i < gradient.length; i++) {
+                    double h = 1e-6 * Math.abs(x[i]);
+                    double[] plus = x.clone();
+                    double[] minus = x.clone();
+                    plus[i] += h;
+                    minus[i] -= h;
+                    double numeric = (snip(plus, material) - snip(minus, material)) / (2 * h);
+                    assertEquals(material + " " + consumption + " input " + i, numeric, gradient[i], 1e-5 * Math.abs(numeric) + 1e-9 * loss);
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shortGradient() {
+        new PipelineSensitivity(CALCULATOR).calcFormulas(20, 95, 70, 100, 150, 0.5, 3, new double[PipelineSensitivity.SNIP_INPUTS]);
+    }
+}
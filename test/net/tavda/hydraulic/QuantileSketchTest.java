@@ -0,0 +1,82 @@
+package net.tavda.hydraulic;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QuantileSketchTest {
+    private static double exact(double[] sorted, double quantile) {
+        return sorted[(int) (quantile * (sorted.length - 1))];
+    }
+
+    @Test
+    public void accuracy() {
+        SplittableRandom random = new SplittableRandom(1);
+        double[] values = new double[100_000];
+        QuantileSketch sketch = new QuantileSketch(0.01);
+        double sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            // От отрицательных до больших положительных значений и нули
+            values[i] = i % 100 == 0 ? 0 : Math.exp(10 * random.nextDouble()) * (random.nextDouble() < 0.2 ? -1 : 1);
+            sketch.record(values[i]);
+            sum += values[i];
+        }
+        Arrays.sort(values);
+        assertEquals(values.length, sketch.getCount());
+        assertEquals(values[0], sketch.getMin(), 0);
+        assertEquals(values[values.length - 1], sketch.getMax(), 0);
+        assertEquals(sum / values.length, sketch.getMean(), 1e-9 * Math.abs(sum / values.length));
+        for (double q : new double[]{0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99, 1}) {
+            double expected = exact(values, q);
+            assertEquals("q=" + q, expected, sketch.getValueAt(q), 0.01 * Math.abs(expected));
+        }
+    }
+
+    @Test
+    public void merge() {
+        SplittableRandom random = new SplittableRandom(2);
+        QuantileSketch all = new QuantileSketch();
+        QuantileSketch left = new QuantileSketch();
+        QuantileSketch right = new QuantileSketch();
+        for (int i = 0; i < 10_000; i++) {
+            // Диапазоны половин не пересекаются, объединение расширяет счётчики в обе стороны
+            double value = i < 5000 ? 1000 + random.nextDouble() : 1e-3 * (1 + random.nextDouble());
+            all.record(value);
+            (i % 3 == 0 ? left : right).record(value);
+        }
+        left.merge(right);
+        assertEquals(all.getCount(), left.getCount());
+        assertEquals(all.getMin(), left.getMin(), 0);
+        assertEquals(all.getMax(), left.getMax(), 0);
+        for (double q = 0; q <= 1; q += 0.05) {
+            assertEquals(all.getValueAt(q), left.getValueAt(q), 0);
+        }
+    }
+
+    @Test
+    public void empty() {
+        QuantileSketch sketch = new QuantileSketch();
+        assertEquals(0, sketch.getCount());
+        assertEquals(0, sketch.getValueAt(0.5), 0);
+        sketch.record(5);
+        assertEquals(5, sketch.getValueAt(0.95), 0);
+        sketch.reset();
+        assertEquals(0, sketch.getCount());
+        assertEquals(0, sketch.getMax(), 0);
+        assertTrue(sketch.toString().startsWith("count=0"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void infinite() {
+        new QuantileSketch().record(Double.POSITIVE_INFINITY);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeAccuracy() {
+        new QuantileSketch(0.01).merge(new QuantileSketch(0.02));
+    }
+}
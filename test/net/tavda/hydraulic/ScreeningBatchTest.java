@@ -0,0 +1,106 @@
+package net.tavda.hydraulic;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScreeningBatchTest {
+    // Не кратно длине вектора, чтобы проверить скалярный остаток
+    private static final int SIZE = 1003;
+    private float[] consumption;
+    private float[] tempIn;
+    private float[] tempOut;
+    private float[] diameter;
+    private float[] length;
+    private float[] roughness;
+    private float[] sumLocalResist;
+
+    @Before
+    public void setup() {
+        consumption = new float[SIZE];
+        tempIn = new float[SIZE];
+        tempOut = new float[SIZE];
+        diameter = new float[SIZE];
+        length = new float[SIZE];
+        roughness = new float[SIZE];
+        sumLocalResist = new float[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            // Расходы от 0.001 до 100 т/ч перекрывают ламинарный, переходный и турбулентный режимы
+            consumption[i] = (float) (0.001 * Math.pow(1.0116, i));
+            tempIn[i] = 60 + i % 50;
+            tempOut[i] = 40 + i % 30;
+            diameter[i] = 15 + 5 * (i % 40);
+            length[i] = 10 + i;
+            roughness[i] = 0.01f * (1 + i % 7);
+            sumLocalResist[i] = 0.5f * (i % 5);
+        }
+    }
+
+    private ScreeningBatch batch() {
+        return new ScreeningBatch(consumption, tempIn, tempOut, diameter, length, roughness, sumLocalResist);
+    }
+
+    @Test
+    public void accuracy() {
+        ScreeningBatch batch = batch();
+        batch.setVectorized(false);
+        float[] speed = new float[SIZE];
+        float[] loss = new float[SIZE];
+        batch.calcFormulas(speed, loss);
+        double error = batch.maxRelativeError(loss, 1);
+        assertTrue(String.valueOf(error), error < 1e-5);
+        HorizontalPipeline p = new HorizontalPipeline(consumption[500], tempIn[500], tempOut[500], diameter[500], length[500], roughness[500], sumLocalResist[500]);
+        assertTrue(Math.abs(speed[500] - p.getSpeed()) < 1e-5 * p.getSpeed());
+    }
+
+    @Test
+    public void vectorMatchesScalar() {
+        ScreeningBatch batch = batch();
+        float[] speed = new float[SIZE];
+        float[] loss = new float[SIZE];
+        batch.calcFormulas(speed, loss);
+        assertTrue(batch.isVectorized() == ScreeningBatch.isVectorAvailable());
+        batch.setVectorized(false);
+        assertFalse(batch.isVectorized());
+        float[] scalarSpeed = new float[SIZE];
+        float[] scalarLoss = new float[SIZE];
+        batch.calcFormulas(scalarSpeed, scalarLoss);
+        assertArrayEquals(scalarSpeed, speed, 0f);
+        assertArrayEquals(scalarLoss, loss, 0f);
+    }
+
+    @Test
+    public void parallelMatchesSequential() {
+        ScreeningBatch batch = batch();
+        float[] speed = new float[SIZE];
+        float[] loss = new float[SIZE];
+        batch.calcFormulas(speed, loss);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            batch.setPool(pool);
+            batch.setParallelThreshold(100);
+            float[] parallelSpeed = new float[SIZE];
+            float[] parallelLoss = new float[SIZE];
+            batch.calcFormulas(parallelSpeed, parallelLoss);
+            assertArrayEquals(speed, parallelSpeed, 0f);
+            assertArrayEquals(loss, parallelLoss, 0f);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongColumnSize() {
+        new ScreeningBatch(consumption, tempIn, tempOut, diameter, length, roughness, new float[SIZE - 1]);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void wrongRange() {
+        batch().calcFormulas(0, SIZE + 1, new float[SIZE], new float[SIZE]);
+    }
+}
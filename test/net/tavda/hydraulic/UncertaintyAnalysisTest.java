@@ -0,0 +1,227 @@
+package net.tavda.hydraulic;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UncertaintyAnalysisTest {
+    private static final PipelineCalculator CALCULATOR = PipelineCalculator.getInstance(Precision.STRICT);
+
+    private static UncertaintyAnalysis analysis() {
+        UncertaintyAnalysis analysis = new UncertaintyAnalysis(CALCULATOR, 20, 95, 70, 100, 150, 0.5, 3);
+        analysis.setConsumption(Distribution.normal(20, 2));
+        analysis.setTempIn(Distribution.uniform(90, 100));
+        analysis.setRoughness(Distribution.logNormal(0.5, 0.3));
+        analysis.setSumLocalResist(Distribution.triangular(2, 3, 5));
+        analysis.setSeed(42);
+        return analysis;
+    }
+
+    @Test
+    public void fixed() {
+        UncertaintyAnalysis analysis = new UncertaintyAnalysis(CALCULATOR, 20, 95, 70, 100, 150, 0.5, 3);
+        analysis.setSamples(100);
+        analysis.run();
+        PipelineResult r = new PipelineResult();
+        CALCULATOR.calcFormulas(20, 95, 70, 100, 150, 0.5, 3, r);
+        QuantileSketch loss = analysis.getPressureLoss();
+        assertEquals(100, loss.getCount());
+        assertEquals(r.getPressureLossPa(), loss.getValueAt(0.95), 0);
+        assertEquals(r.getPressureLossPa(), loss.getMean(), 1e-12 * r.getPressureLossPa());
+        assertEquals(r.getSpeed(), analysis.getSpeed().getValueAt(0.5), 0);
+        double[] gradient = new double[PipelineSensitivity.FORMULAS_INPUTS];
+        new PipelineSensitivity(CALCULATOR).calcFormulas(20, 95, 70, 100, 150, 0.5, 3, gradient);
+        assertArrayEquals(gradient, analysis.getSensitivity(), 0);
+    }
+
+    @Test
+    public void reproducible() {
+        UncertaintyAnalysis sequential = analysis();
+        sequential.setSamples(50_000);
+        sequential.run();
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            UncertaintyAnalysis parallel = analysis();
+            parallel.setSamples(50_000);
+            parallel.setPool(pool);
+            parallel.run();
+            QuantileSketch a = sequential.getPressureLoss();
+            QuantileSketch b = parallel.getPressureLoss();
+            assertEquals(a.getCount(), b.getCount());
+            assertEquals(sequential.getRejected(), parallel.getRejected());
+            assertEquals(a.getMean(), b.getMean(), 0);
+            assertEquals(a.toString(), b.toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void quantiles() {
+        // Та же выборка, что и в расчёте: блок с генератором split() от затравочного числа
+        int samples = 3000;
+        UncertaintyAnalysis analysis = analysis();
+        analysis.setSamples(samples);
+        analysis.run();
+        SplittableRandom random = new SplittableRandom(42).split();
+        PipelineResult r = new PipelineResult();
+        double[] losses = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            double consumption = Distribution.normal(20, 2).sample(random);
+            double tempIn = Distribution.uniform(90, 100).sample(random);
+            double roughness = Distribution.logNormal(0.5, 0.3).sample(random);
+            double sumLocalResist = Distribution.triangular(2, 3, 5).sample(random);
+            CALCULATOR.calcFormulas(consumption, tempIn, 70, 100, 150, roughness, sumLocalResist, r);
+            losses[i] = r.getPressureLossPa();
+        }
+        Arrays.sort(losses);
+        QuantileSketch loss = analysis.getPressureLoss();
+        assertEquals(0, analysis.getRejected());
+        for (double q : new double[]{0.05, 0.5, 0.95, 0.99}) {
+            double expected = losses[(int) (q * (samples - 1))];
+            assertEquals(expected, loss.getValueAt(q), QuantileSketch.DEFAULT_ACCURACY * expected);
+        }
+    }
+
+    @Test
+    public void rejected() {
+        UncertaintyAnalysis analysis = new UncertaintyAnalysis(CALCULATOR, 20, 95, 70, 100, 150, 1);
+        analysis.setConsumption(Distribution.uniform(-10, 30));
+        analysis.setSamples(10_000);
+        analysis.run();
+        long rejected = analysis.getRejected();
+        assertEquals(10_000, rejected + analysis.getPressureLoss().getCount());
+        assertEquals(2500, rejected, 200);
+        assertEquals(0, analysis.getSensitivity()[PipelineSensitivity.ROUGHNESS], 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void snipRoughness() {
+        new UncertaintyAnalysis(CALCULATOR, 20, 95, 70, 100, 150, 1).setRoughness(Distribution.fixed(0.5));
+    }
+
+    @Test
+    public void materialFactor() {
+        // Множитель 1.1 постоянных A0 и C новых стальных труб увеличивает потери в 1.1^m раз
+        UncertaintyAnalysis analysis = new UncertaintyAnalysis(CALCULATOR, 20, 95, 70, 100, 150, PipeMaterials.NEW_STEEL);
+        analysis.setMaterialFactor(Distribution.fixed(1.1));
+        analysis.setSamples(10);
+        analysis.run();
+        PipelineResult r = new PipelineResult();
+        CALCULATOR.calcSNiP(20, 95, 70, 100, 150, PipeMaterials.NEW_STEEL, r);
+        assertEquals(r.getPressureLossPa() * Math.pow(1.1, 0.226), analysis.getPressureLoss().getValueAt(0.5),
+                QuantileSketch.DEFAULT_ACCURACY * r.getPressureLossPa());
+        analysis.setMaterialFactor(Distribution.uniform(-1, 3));
+        analysis.setSamples(10_000);
+        analysis.run();
+        assertEquals(2500, analysis.getRejected(), 200);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void formulasMaterialFactor() {
+        new UncertaintyAnalysis(CALCULATOR, 20, 95, 70, 100, 150, 0.5, 3).setMaterialFactor(Distribution.fixed(1));
+    }
+
+    @Test
+    public void path() {
+        double[] tempIn = {95, 94, 93};
+        double[] tempOut = {94, 93, 92};
+        double[] diameter = {150, 125, 100};
+        double[] length = {300, 200, 100};
+        double[] roughness = {0.5, 0.5, 1};
+        double[] sumLocalResist = {2, 3, 4};
+        UncertaintyAnalysis analysis = new UncertaintyAnalysis(CALCULATOR, 20, tempIn, tempOut, diameter, length, roughness, sumLocalResist);
+        analysis.setSamples(10);
+        analysis.run();
+        double[] expected = new double[1];
+        new HydraulicCurve(CALCULATOR).calcPathFormulas(new double[]{20}, tempIn, tempOut, diameter, length, roughness, sumLocalResist, expected);
+        assertEquals(expected[0], analysis.getPressureLoss().getValueAt(0.5), QuantileSketch.DEFAULT_ACCURACY * expected[0]);
+        double[] sum = new double[PipelineSensitivity.FORMULAS_INPUTS];
+        double[] gradient = new double[PipelineSensitivity.FORMULAS_INPUTS];
+        PipelineSensitivity sensitivity = new PipelineSensitivity(CALCULATOR);
+        for (int j = 0; j < tempIn.length; j++) {
+            sensitivity.calcFormulas(20, tempIn[j], tempOut[j], diameter[j], length[j], roughness[j], sumLocalResist[j], gradient);
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += gradient[i];
+            }
+        }
+        assertArrayEquals(sum, analysis.getSensitivity(), 0);
+
+        // Разброс шероховатости увеличивает разброс потерь и не нарушает воспроизводимость
+        analysis.setConsumption(Distribution.normal(20, 1));
+        analysis.setRoughnessFactor(Distribution.logNormal(1, 0.5));
+        analysis.setSamples(20_000);
+        analysis.setSeed(7);
+        analysis.run();
+        QuantileSketch sequential = analysis.getPressureLoss();
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            analysis.setPool(pool);
+            analysis.run();
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(sequential.toString(), analysis.getPressureLoss().toString());
+        assertTrue(sequential.getValueAt(0.95) > expected[0]);
+    }
+
+    @Test
+    public void snipPath() {
+        double[] tempIn = {95, 94};
+        double[] tempOut = {94, 93};
+        double[] diameter = {150, 100};
+        double[] length = {300, 100};
+        int[] material = {PipeMaterials.NEW_STEEL, PipeMaterials.PLASTIC};
+        UncertaintyAnalysis analysis = new UncertaintyAnalysis(CALCULATOR, 20, tempIn, tempOut, diameter, length, material);
+        analysis.setMaterialFactor(Distribution.uniform(0.9, 1.3));
+        analysis.setSamples(1000);
+        analysis.run();
+        double[] nominal = new double[1];
+        new HydraulicCurve(CALCULATOR).calcPathSNiP(new double[]{20}, tempIn, tempOut, diameter, length, material, nominal);
+        QuantileSketch loss = analysis.getPressureLoss();
+        assertEquals(0, analysis.getRejected());
+        assertTrue(loss.getValueAt(0.01) > nominal[0] * Math.pow(0.9, 0.226) * (1 - QuantileSketch.DEFAULT_ACCURACY));
+        assertTrue(loss.getValueAt(0.99) < nominal[0] * Math.pow(1.3, 0.226) * (1 + QuantileSketch.DEFAULT_ACCURACY));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void pathDiameter() {
+        new UncertaintyAnalysis(CALCULATOR, 20, new double[]{95}, new double[]{70}, new double[]{100}, new double[]{150}, new int[]{1})
+                .setDiameter(Distribution.fixed(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pathLength() {
+        new UncertaintyAnalysis(CALCULATOR, 20, new double[]{95, 94}, new double[]{70}, new double[]{100}, new double[]{150}, new double[]{0.5}, new double[]{1});
+    }
+
+    @Test
+    public void distributions() {
+        SplittableRandom random = new SplittableRandom(7);
+        Distribution[] distributions = {
+                Distribution.uniform(1, 3),
+                Distribution.normal(5, 2),
+                Distribution.logNormal(2, 0.5),
+                Distribution.triangular(0, 1, 5),
+        };
+        for (Distribution distribution : distributions) {
+            double sum = 0;
+            int n = 200_000;
+            for (int i = 0; i < n; i++) {
+                sum += distribution.sample(random);
+            }
+            assertEquals(distribution.getMean(), sum / n, 0.01 * distribution.getMean());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void triangularMode() {
+        Distribution.triangular(0, 6, 5);
+    }
+}
@@ -0,0 +1,57 @@
+package net.tavda.hydraulic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class WaterPropertiesTest {
+
+    @Test
+    public void exact() {
+        WaterProperties water = WaterProperties.exact();
+        assertEquals(water.viscosity(82.5), 0.0033683851975555555, 0.0);
+        assertEquals(water.density(82.5), 0.9702155, 0.0);
+    }
+
+    @Test
+    public void cache() {
+        WaterProperties water = WaterProperties.cache(4);
+        for (int i = 0; i < 3; i++) {
+            for (double t = -10; t <= 200; t += 0.37) {
+                assertEquals(water.viscosity(t), Hydraulics.viscosity(t), 0.0);
+                assertEquals(water.density(t), Hydraulics.density(t), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void table() {
+        WaterProperties water = WaterProperties.table(0.5);
+        for (double t = 0; t <= 150; t += 0.013) {
+            assertEquals(water.viscosity(t), Hydraulics.viscosity(t), 6e-5 * Hydraulics.viscosity(t));
+            assertEquals(water.density(t), Hydraulics.density(t), 3e-7 * Hydraulics.density(t));
+        }
+        assertEquals(water.viscosity(82.5), Hydraulics.viscosity(82.5), 0.0);
+        assertEquals(water.viscosity(-5), Hydraulics.viscosity(-5), 0.0);
+        assertEquals(water.density(170), Hydraulics.density(170), 0.0);
+    }
+
+    @Test
+    public void pipeline() {
+        HorizontalPipeline exact = new HorizontalPipeline(20, 95, 70, 100, 100, 1, 1.89);
+        HorizontalPipeline cached = new HorizontalPipeline(20, 95, 70, 100, 100, 1, 1.89);
+        cached.setWaterProperties(WaterProperties.cache(16));
+        cached.calcFormulas();
+        assertEquals(cached.getPressureLossPa(), exact.getPressureLossPa(), 0.0);
+        HorizontalPipeline table = new HorizontalPipeline(20, 94, 70.3, 100, 100, 1, 1.89);
+        HorizontalPipeline exactTable = new HorizontalPipeline(20, 94, 70.3, 100, 100, 1, 1.89);
+        table.setWaterProperties(WaterProperties.table(0.1));
+        table.calcFormulas();
+        assertEquals(table.getPressureLossPa(), exactTable.getPressureLossPa(), 1e-5 * exactTable.getPressureLossPa());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tableStep() {
+        WaterProperties.table(0);
+    }
+}
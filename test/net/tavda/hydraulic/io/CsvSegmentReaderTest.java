@@ -0,0 +1,97 @@
+package net.tavda.hydraulic.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CsvSegmentReaderTest {
+    private static CsvSegmentReader reader(String text) throws IOException {
+        return reader(text, ',');
+    }
+
+    private static CsvSegmentReader reader(String text, char separator) throws IOException {
+        return new CsvSegmentReader(Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))), separator);
+    }
+
+    @Test
+    public void formulas() throws IOException {
+        CsvSegmentReader reader = reader("\uFEFFid,length,consumption,tempIn,tempOut,diameter,roughness,sumLocalResist,name\r\n"
+                + "7,100,20,95,70,100,1,1.89,a\r\n"
+                + "\r\n"
+                + "8, 2.5e2 ,-0.5,95.25,70,1E2,.5,0,b\r\n");
+        assertFalse(reader.isSNiP());
+        SegmentChunk chunk = new SegmentChunk(4);
+        assertEquals(2, reader.read(chunk));
+        assertEquals(20, chunk.getConsumption()[0], 0);
+        assertEquals(100, chunk.getLength()[0], 0);
+        assertEquals(1.89, chunk.getSumLocalResist()[0], 0);
+        assertEquals(-0.5, chunk.getConsumption()[1], 0);
+        assertEquals(250, chunk.getLength()[1], 0);
+        assertEquals(95.25, chunk.getTempIn()[1], 0);
+        assertEquals(100, chunk.getDiameter()[1], 0);
+        assertEquals(0.5, chunk.getRoughness()[1], 0);
+        assertEquals(-1, reader.read(chunk));
+    }
+
+    @Test
+    public void snip() throws IOException {
+        CsvSegmentReader reader = reader("consumption;tempIn;tempOut;diameter;length;material\n20;95;70;100;100;11", ';');
+        assertTrue(reader.isSNiP());
+        SegmentChunk chunk = new SegmentChunk(4);
+        assertEquals(1, reader.read(chunk));
+        assertEquals(11, chunk.getMaterial()[0]);
+        assertEquals(100, chunk.getLength()[0], 0);
+        assertEquals(-1, reader.read(chunk));
+    }
+
+    @Test
+    public void numbers() throws IOException {
+        Random random = new Random(1);
+        String[] values = new String[20000];
+        StringBuilder text = new StringBuilder("consumption,tempIn,tempOut,diameter,length,roughness,sumLocalResist\n");
+        for (int i = 0; i < values.length; i++) {
+            double value = Math.scalb(random.nextDouble(), random.nextInt(80) - 40);
+            switch (i % 4) {
+                case 0: values[i] = Double.toString(value); break;
+                case 1: values[i] = String.format("%.3f", value).replace(',', '.'); break;
+                case 2: values[i] = String.format("%.17e", value).replace(',', '.'); break;
+                default: values[i] = Long.toString(random.nextLong()); break;
+            }
+            text.append(values[i]).append(",1,2,3,4,5,6\n");
+        }
+        CsvSegmentReader reader = reader(text.toString());
+        SegmentChunk chunk = new SegmentChunk(1000);
+        int row = 0;
+        int n;
+        while ((n = reader.read(chunk)) >= 0) {
+            for (int i = 0; i < n; i++, row++) {
+                assertEquals(values[row], Double.parseDouble(values[row]), chunk.getConsumption()[i], 0);
+                assertEquals(6, chunk.getSumLocalResist()[i], 0);
+            }
+        }
+        assertEquals(values.length, row);
+    }
+
+    @Test(expected = IOException.class)
+    public void missingColumn() throws IOException {
+        reader("consumption,tempIn,tempOut,diameter,length,roughness\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void badNumber() throws IOException {
+        reader("consumption,tempIn,tempOut,diameter,length,material\n20,95,70,1x0,100,1\n").read(new SegmentChunk(1));
+    }
+
+    @Test(expected = IOException.class)
+    public void missingField() throws IOException {
+        reader("consumption,tempIn,tempOut,diameter,length,material\n20,95,70,100,100\n").read(new SegmentChunk(1));
+    }
+}
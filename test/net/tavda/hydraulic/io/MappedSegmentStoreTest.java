@@ -0,0 +1,159 @@
+package net.tavda.hydraulic.io;
+
+import net.tavda.hydraulic.HorizontalPipeline;
+import net.tavda.hydraulic.PipelineColumns;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedSegmentStoreTest {
+    private static final int SIZE = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static HorizontalPipeline pipeline(int i, boolean snip) {
+        double g = 0.001 * Math.pow(1.01, i);
+        return snip
+                ? new HorizontalPipeline(g, 60 + i % 50, 40 + i % 30, 15 + 5 * (i % 40), 10 + i, i % 12)
+                : new HorizontalPipeline(g, 60 + i % 50, 40 + i % 30, 15 + 5 * (i % 40), 10 + i, 0.01 * (1 + i % 7), 0.5 * (i % 5));
+    }
+
+    private Path fill(boolean snip) throws IOException {
+        Path path = folder.newFile().toPath();
+        try (MappedSegmentStore store = MappedSegmentStore.create(path, SIZE, snip)) {
+            for (int i = 0; i < SIZE; i++) {
+                double g = 0.001 * Math.pow(1.01, i);
+                if (snip) {
+                    store.setSegment(i, g, 60 + i % 50, 40 + i % 30, 15 + 5 * (i % 40), 10 + i, i % 12);
+                } else {
+                    store.setSegment(i, g, 60 + i % 50, 40 + i % 30, 15 + 5 * (i % 40), 10 + i, 0.01 * (1 + i % 7), 0.5 * (i % 5));
+                }
+            }
+            store.force();
+        }
+        return path;
+    }
+
+    @Test
+    public void formulas() throws IOException {
+        check(false);
+    }
+
+    @Test
+    public void snip() throws IOException {
+        check(true);
+    }
+
+    private void check(boolean snip) throws IOException {
+        Path path = fill(snip);
+        try (MappedSegmentStore store = MappedSegmentStore.open(path, false)) {
+            assertEquals(SIZE, store.size());
+            assertEquals(snip, store.isSNiP());
+            assertEquals(SIZE, new SegmentPipeline(128).run(store));
+            store.force();
+        }
+        try (MappedSegmentStore store = MappedSegmentStore.open(path, true)) {
+            PipelineColumns results = new PipelineColumns(SIZE);
+            store.readResults(0, results, SIZE);
+            for (int i = 0; i < SIZE; i++) {
+                HorizontalPipeline p = pipeline(i, snip);
+                assertEquals(15 + 5 * (i % 40), store.getDiameter(i), 0);
+                assertEquals(p.getSpeed(), store.getSpeed(i), 0);
+                assertEquals(p.getPressureLossPa(), store.getPressureLossPa(i), 0);
+                assertEquals(p.getReynoldsNumber(), results.getReynoldsNumber()[i], 0);
+                assertEquals(p.getHydraulicResistance(), results.getHydraulicResistance()[i], 0);
+            }
+        }
+    }
+
+    @Test
+    public void ranges() throws Exception {
+        Path path = fill(false);
+        try (MappedSegmentStore store = MappedSegmentStore.open(path, false)) {
+            new SegmentPipeline(100).run(store);
+            PipelineColumns expected = new PipelineColumns(SIZE);
+            store.readResults(0, expected, SIZE);
+            // Половины считаются в разных потоках своими читателями и писателями
+            Thread second = new Thread(() -> {
+                try {
+                    new SegmentPipeline(64).run(store.reader(SIZE / 2, SIZE), store.writer(SIZE / 2));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            second.start();
+            new SegmentPipeline(64).run(store.reader(0, SIZE / 2), store.writer(0));
+            second.join();
+            PipelineColumns actual = new PipelineColumns(SIZE);
+            store.readResults(0, actual, SIZE);
+            assertArrayEquals(expected.getPressureLossPa(), actual.getPressureLossPa(), 0);
+            assertArrayEquals(expected.getFrictionCoefficient(), actual.getFrictionCoefficient(), 0);
+        }
+    }
+
+    @Test
+    public void readOnly() throws IOException {
+        Path path = fill(false);
+        try (MappedSegmentStore store = MappedSegmentStore.open(path, true)) {
+            assertTrue(store.isReadOnly());
+            try {
+                store.setSegment(0, 1, 95, 70, 100, 100, 1, 1);
+                fail();
+            } catch (IllegalStateException expected) {
+                // только чтение
+            }
+            try {
+                store.writer();
+                fail();
+            } catch (IllegalStateException expected) {
+                // только чтение
+            }
+            assertEquals(0.001, store.getConsumption(0), 0);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void wrongKind() throws IOException {
+        try (MappedSegmentStore store = MappedSegmentStore.create(folder.newFile().toPath(), 10, true)) {
+            store.setSegment(0, 1, 95, 70, 100, 100, 1, 1);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outsideRows() throws IOException {
+        try (MappedSegmentStore store = MappedSegmentStore.create(folder.newFile().toPath(), 10, false)) {
+            store.getSpeed(10);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void truncated() throws IOException {
+        Path path = fill(false);
+        byte[] bytes = Files.readAllBytes(path);
+        Path cut = folder.newFile().toPath();
+        Files.write(cut, Arrays.copyOf(bytes, bytes.length - 8));
+        MappedSegmentStore.open(cut, true);
+    }
+
+    @Test(expected = IOException.class)
+    public void notStore() throws IOException {
+        Path path = folder.newFile().toPath();
+        try (BinarySegmentWriter writer = new BinarySegmentWriter(FileChannel.open(path, StandardOpenOption.WRITE), false)) {
+            writer.write(new SegmentChunk(1), 1);
+        }
+        MappedSegmentStore.open(path, true);
+    }
+}
@@ -0,0 +1,158 @@
+package net.tavda.hydraulic.io;
+
+import net.tavda.hydraulic.FrictionModel;
+import net.tavda.hydraulic.HorizontalPipeline;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SegmentPipelineTest {
+    private static final int SIZE = 1000;
+
+    private static String csv(boolean snip) {
+        StringBuilder text = new StringBuilder(snip
+                ? "consumption,tempIn,tempOut,diameter,length,material\n"
+                : "consumption,tempIn,tempOut,diameter,length,roughness,sumLocalResist\n");
+        for (int i = 0; i < SIZE; i++) {
+            text.append(0.001 * Math.pow(1.01, i)).append(',').append(60 + i % 50).append(',').append(40 + i % 30)
+                    .append(',').append(15 + 5 * (i % 40)).append(',').append(10 + i);
+            if (snip) {
+                text.append(',').append(i % 12);
+            } else {
+                text.append(',').append(0.01 * (1 + i % 7)).append(',').append(0.5 * (i % 5));
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    private static HorizontalPipeline pipeline(int i, boolean snip) {
+        double g = 0.001 * Math.pow(1.01, i);
+        return snip
+                ? new HorizontalPipeline(g, 60 + i % 50, 40 + i % 30, 15 + 5 * (i % 40), 10 + i, i % 12)
+                : new HorizontalPipeline(g, 60 + i % 50, 40 + i % 30, 15 + 5 * (i % 40), 10 + i, 0.01 * (1 + i % 7), 0.5 * (i % 5));
+    }
+
+    private static SegmentReader csvReader(String text) throws IOException {
+        return new CsvSegmentReader(Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))), ',');
+    }
+
+    private static double[] binaryResults(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(BinaryFormat.MAGIC, buffer.getInt());
+        assertEquals(BinaryFormat.VERSION, buffer.getInt());
+        assertEquals(BinaryFormat.RESULTS, buffer.getInt());
+        assertEquals(128, buffer.getInt());
+        double[] values = new double[buffer.remaining() / 8];
+        buffer.asDoubleBuffer().get(values);
+        return values;
+    }
+
+    private static byte[] run(SegmentPipeline pipeline, SegmentReader in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ResultWriter out = new BinaryResultWriter(Channels.newChannel(bytes))) {
+            assertEquals(SIZE, pipeline.run(in, out));
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void formulas() throws IOException {
+        check(false);
+    }
+
+    @Test
+    public void snip() throws IOException {
+        check(true);
+    }
+
+    private void check(boolean snip) throws IOException {
+        SegmentPipeline pipeline = new SegmentPipeline(128);
+        double[] values = binaryResults(run(pipeline, csvReader(csv(snip))));
+        assertEquals(SIZE * 16, values.length);
+        assertEquals(SIZE, pipeline.getRows());
+        for (int i = 0; i < SIZE; i++) {
+            HorizontalPipeline p = pipeline(i, snip);
+            int row = i * 16;
+            assertEquals(p.getAverageTemp(), values[row], 0);
+            assertEquals(p.getSpeed(), values[row + 4], 0);
+            assertEquals(p.getReynoldsNumber(), values[row + 5], 0);
+            assertEquals(p.getFrictionCoefficient(), values[row + 6], 0);
+            assertEquals(p.getPressureLossPa(), values[row + 13], 0);
+            assertEquals(p.getPipelineResistance(), values[row + 14], 0);
+            assertEquals(p.getHydraulicResistance(), values[row + 15], 0);
+        }
+    }
+
+    @Test
+    public void binaryInput() throws IOException {
+        for (boolean snip : new boolean[]{false, true}) {
+            ByteArrayOutputStream segments = new ByteArrayOutputStream();
+            SegmentChunk chunk = new SegmentChunk(300);
+            try (SegmentReader csv = csvReader(csv(snip));
+                 BinarySegmentWriter writer = new BinarySegmentWriter(Channels.newChannel(segments), csv.isSNiP())) {
+                int n;
+                while ((n = csv.read(chunk)) >= 0) {
+                    writer.write(chunk, n);
+                }
+            }
+            assertEquals(16 + SIZE * (snip ? 44 : 56), segments.size());
+            SegmentReader binary = new BinarySegmentReader(Channels.newChannel(new ByteArrayInputStream(segments.toByteArray())));
+            assertEquals(snip, binary.isSNiP());
+            assertArrayEquals(run(new SegmentPipeline(128), csvReader(csv(snip))), run(new SegmentPipeline(), binary));
+        }
+    }
+
+    @Test
+    public void chunkSize() throws IOException {
+        byte[] expected = null;
+        for (int chunkSize : new int[]{1, 7, SIZE, 4096}) {
+            SegmentPipeline pipeline = new SegmentPipeline(chunkSize);
+            pipeline.setFrictionModel(FrictionModel.COLEBROOK_WHITE);
+            byte[] actual = run(pipeline, csvReader(csv(false)));
+            if (expected == null) {
+                expected = actual;
+            } else {
+                assertArrayEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void csvOutput() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ResultWriter out = new CsvResultWriter(Channels.newChannel(bytes), ';')) {
+            new SegmentPipeline().run(csvReader(csv(false)), out);
+        }
+        String[] lines = new String(bytes.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+        assertEquals(SIZE + 1, lines.length);
+        assertEquals("averageTemp", lines[0].split(";")[0]);
+        for (int i = 0; i < SIZE; i++) {
+            String[] fields = lines[i + 1].split(";");
+            assertEquals(16, fields.length);
+            assertEquals(pipeline(i, false).getPressureLossPa(), Double.parseDouble(fields[13]), 0);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void truncated() throws IOException {
+        ByteArrayOutputStream segments = new ByteArrayOutputStream();
+        try (SegmentReader csv = csvReader(csv(false));
+             BinarySegmentWriter writer = new BinarySegmentWriter(Channels.newChannel(segments), false)) {
+            SegmentChunk chunk = new SegmentChunk(SIZE);
+            writer.write(chunk, csv.read(chunk));
+        }
+        byte[] bytes = Arrays.copyOf(segments.toByteArray(), segments.size() - 3);
+        new SegmentPipeline().run(new BinarySegmentReader(Channels.newChannel(new ByteArrayInputStream(bytes))), new BinaryResultWriter(Channels.newChannel(new ByteArrayOutputStream())));
+    }
+}
@@ -0,0 +1,72 @@
+package net.tavda.hydraulic.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NetworkSimulationTest {
+    private static final int STEPS = 48;
+
+    /**
+     * Суточный профиль: отбор от 40% ночью до 100% вечером, температура подачи по отопительному графику
+     */
+    private static double[][] profile(int steps) {
+        double[][] profile = new double[3][steps];
+        for (int s = 0; s < steps; s++) {
+            double hour = s % 24;
+            profile[0][s] = 0.7 - 0.3 * Math.cos((hour - 3) / 24 * 2 * Math.PI);
+            profile[1][s] = 90 + 15 * Math.sin(s * 0.01);
+            profile[2][s] = 60 + 5 * Math.sin(s * 0.01);
+        }
+        return profile;
+    }
+
+    @Test
+    public void run() throws Exception {
+        PipeNetwork network = TestNetworks.ring();
+        double[][] profile = profile(STEPS);
+        NetworkSimulation.Profile scaled = NetworkSimulation.scaled(network, profile[0], profile[1], profile[2]);
+        NetworkSimulation simulation = new NetworkSimulation(network, new NetworkSolver(network));
+        PipeNetwork check = TestNetworks.ring();
+        NetworkSimulation.Profile checkProfile = NetworkSimulation.scaled(check, profile[0], profile[1], profile[2]);
+        int[] next = {0};
+        int failed = simulation.run(STEPS, scaled, (step, solver) -> {
+            assertEquals(next[0]++, step);
+            // Тот же шаг, рассчитанный с нуля
+            checkProfile.apply(step, check);
+            NetworkSolver cold = new NetworkSolver(check);
+            assertTrue(cold.solve());
+            assertArrayEquals(cold.getFlows(), solver.getFlows(), 1e-5);
+            assertArrayEquals(cold.getPressures(), solver.getPressures(), 1e-2);
+            assertEquals(profile[0][step] * 35, network.getDemand()[2], 1e-12);
+            assertEquals(profile[1][step], network.getTempIn()[4], 0);
+        });
+        assertEquals(0, failed);
+        assertEquals(STEPS, next[0]);
+        assertEquals(STEPS, simulation.getSteps());
+        assertEquals(0, simulation.getFailedSteps());
+    }
+
+    @Test
+    public void warmStart() throws Exception {
+        PipeNetwork network = TestNetworks.grid(30);
+        double[][] profile = profile(STEPS);
+        NetworkSimulation simulation = new NetworkSimulation(network, new NetworkSolver(network));
+        simulation.run(STEPS, NetworkSimulation.scaled(network, profile[0], profile[1], profile[2]), (step, solver) -> { });
+        long warm = simulation.getIterations();
+        // С тёплым стартом в среднем около 10 итераций на шаг
+        assertTrue(warm + " iterations", warm <= 12 * STEPS);
+        PipeNetwork coldNetwork = TestNetworks.grid(30);
+        NetworkSimulation.Profile coldProfile = NetworkSimulation.scaled(coldNetwork, profile[0], profile[1], profile[2]);
+        long cold = 0;
+        for (int step = 0; step < STEPS; step++) {
+            coldProfile.apply(step, coldNetwork);
+            NetworkSolver solver = new NetworkSolver(coldNetwork);
+            solver.solve();
+            cold += solver.getIterations();
+        }
+        assertTrue(warm + " >= " + cold, warm < cold);
+    }
+}
@@ -0,0 +1,51 @@
+package net.tavda.hydraulic.network;
+
+import net.tavda.hydraulic.DiameterSizing;
+import net.tavda.hydraulic.HorizontalPipeline;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NetworkSizingTest {
+    @Test
+    public void radial() {
+        PipeNetwork network = new PipeNetwork(4, 3);
+        network.setSegment(0, 0, 1, 95, 70, 50, 300, 0.5, 2);
+        network.setSegment(1, 1, 2, 95, 70, 50, 200, 0.5, 1);
+        network.setSegment(2, 1, 3, 95, 70, 50, 250, 0.5, 1);
+        network.setSource(0, 600000);
+        network.setDemand(2, 40);
+        network.setDemand(3, 15);
+        DiameterSizing sizing = new DiameterSizing();
+        sizing.setMaxSpeed(1.5);
+        sizing.setMaxSpecificLoss(100);
+        NetworkSizing networkSizing = new NetworkSizing(network, new NetworkSolver(network), sizing);
+        assertTrue(networkSizing.size());
+        assertTrue(networkSizing.isFeasible());
+        // Расходы радиальной сети не зависят от диаметров: подбор и проверка
+        assertEquals(2, networkSizing.getRounds());
+        double[] flows = {55, 40, 15};
+        for (int k = 0; k < 3; k++) {
+            assertEquals(sizing.getDiameter(sizing.size(flows[k], 95, 70, network.getLength()[k], 0.5, network.getSumLocalResist()[k])), network.getDiameter()[k], 0);
+        }
+    }
+
+    @Test
+    public void ring() {
+        PipeNetwork network = TestNetworks.ring();
+        DiameterSizing sizing = new DiameterSizing();
+        sizing.setMaxSpeed(1.2);
+        sizing.setMaxSpecificLoss(80);
+        NetworkSolver solver = new NetworkSolver(network);
+        NetworkSizing networkSizing = new NetworkSizing(network, solver, sizing);
+        assertTrue(networkSizing.size());
+        assertTrue(networkSizing.isFeasible());
+        for (int k = 0; k < 5; k++) {
+            HorizontalPipeline pipe = new HorizontalPipeline(Math.abs(solver.getFlows()[k]), 95, 70, network.getDiameter()[k],
+                    network.getLength()[k], 0.5, network.getSumLocalResist()[k]);
+            assertTrue(pipe.getSpeed() <= 1.2);
+            assertTrue(pipe.getPressureFrictionLossPa() / network.getLength()[k] <= 80 * (1 + 1e-12));
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package net.tavda.hydraulic.network;
+
+import net.tavda.hydraulic.CalculationMetrics;
+import net.tavda.hydraulic.FrictionModel;
+import net.tavda.hydraulic.HorizontalPipeline;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static net.tavda.hydraulic.network.TestNetworks.chain;
+import static net.tavda.hydraulic.network.TestNetworks.grid;
+import static net.tavda.hydraulic.network.TestNetworks.ring;
+import static net.tavda.hydraulic.network.TestNetworks.ringWithBranches;
+import static net.tavda.hydraulic.network.TestNetworks.uniformGrid;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NetworkSolverTest {
+
+    @Test
+    public void singlePipe() {
+        PipeNetwork network = new PipeNetwork(2, 1);
+        network.setSegment(0, 0, 1, 95, 70, 100, 100, 1, 1.89);
+        network.setSource(0, 500000);
+        network.setDemand(1, 20);
+        NetworkSolver solver = new NetworkSolver(network);
+        assertTrue(solver.solve());
+        assertFalse(solver.isHardyCross());
+        assertEquals(solver.getFlows()[0], 20, 1e-9);
+        HorizontalPipeline pipe = new HorizontalPipeline(20, 95, 70, 100, 100, 1, 1.89);
+        assertEquals(500000 - solver.getPressures()[1], pipe.getPressureLossPa(), 1e-3);
+    }
+
+    @Test
+    public void parallelPipes() {
+        PipeNetwork network = new PipeNetwork(2, 2);
+        network.setSegment(0, 0, 1, 95, 70, 100, 100, 1, 1.89);
+        network.setSegment(1, 1, 0, 95, 70, 100, 100, 1, 1.89);
+        network.setSource(0, 500000);
+        network.setDemand(1, 30);
+        NetworkSolver solver = new NetworkSolver(network);
+        assertTrue(solver.solve());
+        assertEquals(solver.getFlows()[0], 15, 1e-6);
+        assertEquals(solver.getFlows()[1], -15, 1e-6);
+    }
+
+    @Test
+    public void ringNetwork() {
+        PipeNetwork network = ring();
+        NetworkSolver solver = new NetworkSolver(network);
+        assertTrue(solver.solve());
+        assertFalse(solver.isHardyCross());
+        assertBalanced(network, solver, 1e-6, true);
+    }
+
+    @Test
+    public void hardyCrossFallback() {
+        PipeNetwork network = ring();
+        NetworkSolver newton = new NetworkSolver(network);
+        assertTrue(newton.solve());
+        NetworkSolver solver = new NetworkSolver(network);
+        solver.setMaxIterations(0);
+        solver.setTolerance(1e-9);
+        assertTrue(solver.solve());
+        assertTrue(solver.isHardyCross());
+        assertBalanced(network, solver, 1e-4, true);
+        for (int k = 0; k < network.getSegmentCount(); k++) {
+            assertEquals(solver.getFlows()[k], newton.getFlows()[k], 1e-4);
+        }
+    }
+
+    @Test
+    public void colebrookWhite() {
+        PipeNetwork network = ring();
+        NetworkSolver solver = new NetworkSolver(network);
+        solver.setFrictionModel(FrictionModel.COLEBROOK_WHITE);
+        assertTrue(solver.solve());
+        assertFalse(solver.isHardyCross());
+        assertBalanced(network, solver, 1e-6, false);
+        HorizontalPipeline pipe = new HorizontalPipeline(solver.getFlows()[0], 95, 70, 150, 300, 0.5, 2);
+        pipe.setFrictionModel(FrictionModel.COLEBROOK_WHITE);
+        pipe.calcFormulas();
+        assertEquals(solver.getPressures()[0] - solver.getPressures()[1], pipe.getPressureLossPa(), 1e-4 * pipe.getPressureLossPa());
+    }
+
+    @Test
+    public void warmStart() {
+        PipeNetwork network = ring();
+        NetworkSolver solver = new NetworkSolver(network);
+        assertTrue(solver.solve());
+        int cold = solver.getIterations();
+        network.setDemand(3, 12);
+        assertTrue(solver.solve());
+        assertTrue(solver.getIterations() <= cold);
+        assertBalanced(network, solver, 1e-6, true);
+    }
+
+    @Test
+    public void gridNetwork() {
+        PipeNetwork network = grid(30);
+        NetworkSolver solver = new NetworkSolver(network);
+        assertTrue(solver.solve());
+        assertBalanced(network, solver, 1e-5, true);
+    }
+
+    @Test
+    public void radialScaling() {
+        // Радиальная сеть решается прямым исключением: число итераций не зависит от размера,
+        // а итерация без сопряжённых градиентов пропорциональна числу участков
+        int cold = -1;
+        for (int n = 1000; n <= 16000; n *= 4) {
+            PipeNetwork network = chain(n, 0.01);
+            NetworkSolver solver = new NetworkSolver(network);
+            assertTrue(solver.solve());
+            assertFalse(solver.isHardyCross());
+            assertEquals(0, solver.getLinearIterations());
+            if (cold < 0) {
+                cold = solver.getIterations();
+            }
+            assertEquals(cold, solver.getIterations());
+            assertBalanced(network, solver, 1e-6, true);
+        }
+        assertTrue(cold <= 3);
+    }
+
+    @Test
+    public void ringLinearIterations() {
+        // Сопряжённые градиенты решают только кольцо, радиальные ответвления исключаются
+        NetworkSolver ring = new NetworkSolver(ring());
+        assertTrue(ring.solve());
+        NetworkSolver branches = new NetworkSolver(ringWithBranches());
+        assertTrue(branches.solve());
+        assertSolved(ringWithBranches(), branches);
+        assertTrue(branches.getLinearIterations() <= 3 * branches.getIterations());
+    }
+
+    @Test
+    public void lowLoadGrid() {
+        // При малых отборах расходы в сетке около границ режимов и около нуля, многие участки меняют направление
+        for (int n = 20; n <= 40; n += 20) {
+            for (double demand : new double[]{0.01, 0.05}) {
+                PipeNetwork network = uniformGrid(n, demand);
+                NetworkSolver solver = new NetworkSolver(network);
+                assertTrue(solver.solve());
+                assertFalse(solver.isHardyCross());
+                assertTrue(solver.getIterations() <= 40);
+                assertBalanced(network, solver, 1e-6, true);
+            }
+        }
+    }
+
+    @Test
+    public void parallelMatchesSequential() {
+        PipeNetwork network = grid(30);
+        NetworkSolver sequential = new NetworkSolver(network);
+        assertTrue(sequential.solve());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            NetworkSolver solver = new NetworkSolver(network);
+            solver.setPool(pool);
+            solver.setParallelThreshold(64);
+            assertTrue(solver.solve());
+            assertEquals(solver.getIterations(), sequential.getIterations());
+            assertArrayEquals(solver.getFlows(), sequential.getFlows(), 0.0);
+            assertArrayEquals(solver.getPressures(), sequential.getPressures(), 0.0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void listener() {
+        PipeNetwork network = grid(10);
+        NetworkSolver plain = new NetworkSolver(network);
+        assertTrue(plain.solve());
+        CalculationMetrics metrics = new CalculationMetrics();
+        NetworkSolver solver = new NetworkSolver(network);
+        solver.setListener(metrics);
+        assertTrue(solver.solve());
+        assertArrayEquals(plain.getFlows(), solver.getFlows(), 0.0);
+        assertEquals(1, metrics.getSolves());
+        assertEquals(solver.getIterations(), metrics.getIterations().getMax());
+        // Сопротивления участков пересчитываются пакетом на каждой итерации
+        long segments = metrics.getRegimeCount(CalculationMetrics.LAMINAR) + metrics.getRegimeCount(CalculationMetrics.TRANSITIONAL)
+                + metrics.getRegimeCount(CalculationMetrics.TURBULENT);
+        assertEquals(metrics.getBatchRows(), segments);
+        assertTrue(segments >= (long) solver.getIterations() * network.getSegmentCount());
+    }
+
+    @Test
+    public void updateBranch() {
+        PipeNetwork network = ringWithBranches();
+        NetworkSolver solver = new NetworkSolver(network);
+        assertTrue(solver.solve());
+        double[] ringFlows = Arrays.copyOf(solver.getFlows(), 5);
+        network.setSegment(6, 4, 5, 95, 70, 40, 120, 0.5, 2);
+        solver.segmentChanged(6);
+        assertTrue(solver.update());
+        // Расходы в кольце не зависят от сопротивления ответвления
+        for (int k = 0; k < 5; k++) {
+            assertEquals(solver.getFlows()[k], ringFlows[k], 0.0);
+        }
+        assertSolved(network, solver);
+    }
+
+    @Test
+    public void updateRing() {
+        PipeNetwork network = ringWithBranches();
+        NetworkSolver solver = new NetworkSolver(network);
+        assertTrue(solver.solve());
+        network.setSegment(4, 1, 3, 95, 70, 80, 150, 0.5, 3);
+        solver.segmentChanged(4);
+        assertTrue(solver.update());
+        assertSolved(network, solver);
+    }
+
+    @Test
+    public void repeatedUpdate() {
+        PipeNetwork network = ringWithBranches();
+        NetworkSolver solver = new NetworkSolver(network);
+        assertTrue(solver.solve());
+        // Решатель блока строится один раз и пересчитывается с новыми данными участков и отборами
+        for (int diameter = 60; diameter <= 120; diameter += 20) {
+            network.setSegment(4, 1, 3, 95, 70, diameter, 150, 0.5, 3);
+            solver.segmentChanged(4);
+            network.setDemand(5, diameter / 10.0);
+            solver.demandChanged(5);
+            assertTrue(solver.update());
+            assertSolved(network, solver);
+            NetworkSolver fresh = new NetworkSolver(network);
+            assertTrue(fresh.solve());
+            for (int k = 0; k < network.getSegmentCount(); k++) {
+                assertEquals(fresh.getFlows()[k], solver.getFlows()[k], 1e-4 * Math.max(1, Math.abs(fresh.getFlows()[k])));
+            }
+        }
+    }
+
+    @Test
+    public void updateDemand() {
+        PipeNetwork network = ringWithBranches();
+        NetworkSolver solver = new NetworkSolver(network);
+        assertTrue(solver.solve());
+        network.setDemand(5, 9);
+        solver.demandChanged(5);
+        network.setDemand(6, 1);
+        solver.demandChanged(6);
+        assertTrue(solver.update());
+        assertSolved(network, solver);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void disconnectedNode() {
+        PipeNetwork network = new PipeNetwork(3, 1);
+        network.setSegment(0, 0, 1, 95, 70, 100, 100, 1, 1.89);
+        network.setSource(0, 500000);
+        new NetworkSolver(network);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void noSource() {
+        PipeNetwork network = new PipeNetwork(2, 1);
+        network.setSegment(0, 0, 1, 95, 70, 100, 100, 1, 1.89);
+        new NetworkSolver(network);
+    }
+
+    /**
+     * Сравнение с полным расчётом сети заново
+     */
+    private static void assertSolved(PipeNetwork network, NetworkSolver solver) {
+        NetworkSolver full = new NetworkSolver(network);
+        assertTrue(full.solve());
+        for (int k = 0; k < network.getSegmentCount(); k++) {
+            assertEquals(solver.getFlows()[k], full.getFlows()[k], 1e-5);
+            assertEquals(solver.getSegmentResults().getPressureLossPa()[k], full.getSegmentResults().getPressureLossPa()[k], 1e-2);
+        }
+        for (int i = 0; i < network.getNodeCount(); i++) {
+            assertEquals(solver.getPressures()[i], full.getPressures()[i], 1e-2);
+        }
+        assertBalanced(network, solver, 1e-6, true);
+    }
+
+    /**
+     * Проверка баланса расходов в узлах и, если energy, потерь давления на участках,
+     * кроме участков около границ режимов (Re 2320 и 4000), сопротивление которых решатель может зафиксировать
+     */
+    private static void assertBalanced(PipeNetwork network, NetworkSolver solver, double tolerance, boolean energy) {
+        double[] flows = solver.getFlows();
+        double[] pressures = solver.getPressures();
+        double[] balance = new double[network.getNodeCount()];
+        double total = 0;
+        for (int k = 0; k < network.getSegmentCount(); k++) {
+            int a = network.getFrom()[k];
+            int b = network.getTo()[k];
+            balance[a] -= flows[k];
+            balance[b] += flows[k];
+            total += Math.abs(flows[k]);
+            if (!energy) {
+                continue;
+            }
+            HorizontalPipeline pipe = new HorizontalPipeline(Math.abs(flows[k]), network.getTempIn()[k], network.getTempOut()[k],
+                    network.getDiameter()[k], network.getLength()[k], network.getRoughness()[k], network.getSumLocalResist()[k]);
+            if (nearRegimeBoundary(pipe.getReynoldsNumber())) {
+                continue;
+            }
+            double loss = pressures[a] - pressures[b];
+            assertEquals(Math.abs(loss), pipe.getPressureLossPa(), tolerance * 100 * Math.max(1, pipe.getPressureLossPa()));
+        }
+        for (int i = 0; i < network.getNodeCount(); i++) {
+            if (!network.isSource(i)) {
+                assertEquals(balance[i], network.getDemand()[i], tolerance * total);
+            }
+        }
+    }
+
+    private static boolean nearRegimeBoundary(double reynoldsNumber) {
+        for (double boundary : new double[]{2320, 4000}) {
+            if (reynoldsNumber * 1.25 > boundary && reynoldsNumber < boundary * 1.25) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
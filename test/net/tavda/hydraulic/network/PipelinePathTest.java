@@ -0,0 +1,172 @@
+package net.tavda.hydraulic.network;
+
+import net.tavda.hydraulic.HorizontalPipeline;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PipelinePathTest {
+
+    @Test
+    public void singleSegment() {
+        PipelinePath path = new PipelinePath();
+        int pipe = path.addSegment(95, 70, 100, 100, 1, 1.89);
+        HorizontalPipeline expected = new HorizontalPipeline(20, 95, 70, 100, 100, 1, 1.89);
+        assertEquals(expected.getPressureLossPa(), path.evaluate(pipe, 20), 1e-9 * expected.getPressureLossPa());
+        assertEquals(-expected.getPressureLossPa(), path.evaluate(pipe, -20), 1e-9 * expected.getPressureLossPa());
+        assertTrue(path.isConverged());
+    }
+
+    @Test
+    public void series() {
+        PipelinePath path = new PipelinePath();
+        int a = path.addSegment(95, 70, 100, 100, 1, 1.89);
+        int b = path.addSegment(95, 70, 80, 50, 0.5, 3);
+        int route = path.series(a, b);
+        double expected = new HorizontalPipeline(20, 95, 70, 100, 100, 1, 1.89).getPressureLossPa()
+                + new HorizontalPipeline(20, 95, 70, 80, 50, 0.5, 3).getPressureLossPa();
+        assertEquals(expected, path.evaluate(route, 20), 1e-9 * expected);
+        assertEquals(20, path.getFlow(b), 0.0);
+        assertEquals(path.getPressureLoss(a) + path.getPressureLoss(b), path.getPressureLoss(route), 1e-9 * expected);
+    }
+
+    @Test
+    public void equalParallel() {
+        PipelinePath path = new PipelinePath();
+        int a = path.addSegment(95, 70, 100, 100, 1, 1.89);
+        int b = path.addSegment(95, 70, 100, 100, 1, 1.89);
+        int route = path.parallel(a, b);
+        double loss = path.evaluate(route, 30);
+        assertEquals(15, path.getFlow(a), 1e-9);
+        assertEquals(new HorizontalPipeline(15, 95, 70, 100, 100, 1, 1.89).getPressureLossPa(), loss, 1e-9 * loss);
+        assertEquals(path.getResistance(a) / 4, path.getResistance(route), 1e-9 * path.getResistance(route));
+    }
+
+    @Test
+    public void matchesNetworkSolver() {
+        // Источник 0, две параллельные трубы разного диаметра до узла 1, затем труба до потребителя 2
+        PipeNetwork network = new PipeNetwork(3, 3);
+        network.setSegment(0, 0, 1, 95, 70, 100, 200, 0.5, 2);
+        network.setSegment(1, 0, 1, 95, 70, 50, 120, 0.5, 4);
+        network.setSegment(2, 1, 2, 95, 70, 125, 300, 0.5, 1);
+        network.setSource(0, 500000);
+        network.setDemand(2, 40);
+        NetworkSolver solver = new NetworkSolver(network);
+        solver.setTolerance(1e-10);
+        assertTrue(solver.solve());
+
+        PipelinePath path = new PipelinePath();
+        int a = path.addSegment(95, 70, 100, 200, 0.5, 2);
+        int b = path.addSegment(95, 70, 50, 120, 0.5, 4);
+        int c = path.addSegment(95, 70, 125, 300, 0.5, 1);
+        int route = path.series(path.parallel(a, b), c);
+        path.setTolerance(1e-10);
+        double loss = path.evaluate(route, 40);
+        assertTrue(path.isConverged());
+        assertEquals(500000 - solver.getPressures()[2], loss, 1e-6 * loss);
+        assertEquals(solver.getFlows()[0], path.getFlow(a), 1e-6);
+        assertEquals(solver.getFlows()[1], path.getFlow(b), 1e-6);
+        assertEquals(path.getPressureLoss(a), path.getPressureLoss(b), 1e-6 * path.getPressureLoss(a));
+    }
+
+    @Test
+    public void incrementalSeries() {
+        PipelinePath path = new PipelinePath();
+        int[] segments = new int[1000];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = path.addSegment(95, 70, 100, 10 + i % 50, 0.5, 1);
+        }
+        int route = path.series(segments);
+        double loss = path.evaluate(route, 20);
+        assertEquals(1000, path.getEvaluations());
+        path.evaluate(route, 20);
+        assertEquals(0, path.getEvaluations());
+        path.setSegment(segments[500], 95, 70, 80, 60, 0.5, 1);
+        double changed = path.evaluate(route, 20);
+        assertEquals(1, path.getEvaluations());
+        double expected = loss - new HorizontalPipeline(20, 95, 70, 100, 10, 0.5, 1).getPressureLossPa()
+                + new HorizontalPipeline(20, 95, 70, 80, 60, 0.5, 1).getPressureLossPa();
+        assertEquals(expected, changed, 1e-9 * expected);
+    }
+
+    @Test
+    public void incrementalTree() {
+        // Радиальная трасса: 100 ветвей по 10 участков, попарно соединённых параллельно
+        PipelinePath path = new PipelinePath();
+        int[] branches = new int[100];
+        int first = -1;
+        for (int i = 0; i < branches.length; i++) {
+            int[] chain = new int[10];
+            for (int j = 0; j < chain.length; j++) {
+                chain[j] = path.addSegment(95, 70, 50 + i % 4 * 10, 20 + j, 0.5, 1);
+                first = first < 0 ? chain[j] : first;
+            }
+            branches[i] = path.series(chain);
+        }
+        int[] pairs = new int[50];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = path.parallel(branches[2 * i], branches[2 * i + 1]);
+        }
+        int route = path.series(pairs);
+        double loss = path.evaluate(route, 50);
+        assertTrue(path.isConverged());
+        int full = path.getEvaluations();
+        path.setSegment(first, 95, 70, 60, 25, 0.5, 1);
+        path.evaluate(route, 50);
+        assertTrue(path.isConverged());
+        // Пересчитывается только пара ветвей с изменённым участком
+        assertTrue(path.getEvaluations() < full / 10);
+        assertTrue(path.evaluate(route, 50) != loss);
+    }
+
+    @Test
+    public void subtreeEvaluation() {
+        // Расчёт внутреннего узла не должен скрывать изменения его ветви от расчёта корня
+        double[][] segments = {{95, 70, 80, 100, 0.5, 2}, {95, 70, 50, 120, 0.5, 4}, {95, 70, 100, 200, 0.5, 1}, {95, 70, 125, 300, 0.5, 1}};
+        PipelinePath path = new PipelinePath();
+        int[] nodes = new int[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            double[] s = segments[i];
+            nodes[i] = path.addSegment(s[0], s[1], s[2], s[3], s[4], s[5]);
+        }
+        int branch = path.parallel(nodes[0], nodes[1]);
+        int root = path.series(path.series(branch, nodes[2]), nodes[3]);
+        path.evaluate(root, 20);
+        path.evaluate(nodes[0], 5);
+        path.setSegment(nodes[1], 95, 70, 40, 120, 0.5, 4);
+        double loss = path.evaluate(root, 20);
+        assertTrue(path.getEvaluations() > 0);
+
+        PipelinePath fresh = new PipelinePath();
+        segments[1][2] = 40;
+        for (int i = 0; i < segments.length; i++) {
+            double[] s = segments[i];
+            nodes[i] = fresh.addSegment(s[0], s[1], s[2], s[3], s[4], s[5]);
+        }
+        root = fresh.series(fresh.series(fresh.parallel(nodes[0], nodes[1]), nodes[2]), nodes[3]);
+        double expected = fresh.evaluate(root, 20);
+        assertEquals(expected, loss, 1e-6 * expected);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void joinedTwice() {
+        PipelinePath path = new PipelinePath();
+        int a = path.addSegment(95, 70, 100, 100, 1, 1.89);
+        int b = path.addSegment(95, 70, 100, 100, 1, 1.89);
+        path.series(a, b);
+        path.parallel(a, b);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void junctionIsNotSegment() {
+        PipelinePath path = new PipelinePath();
+        int a = path.addSegment(95, 70, 100, 100, 1, 1.89);
+        path.setSegment(path.series(a), 95, 70, 100, 100, 1, 1.89);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void unknownNode() {
+        new PipelinePath().evaluate(0, 10);
+    }
+}
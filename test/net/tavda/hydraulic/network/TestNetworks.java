@@ -0,0 +1,107 @@
+package net.tavda.hydraulic.network;
+
+/**
+ * Тепловые сети для тестов пакета
+ */
+final class TestNetworks {
+    private TestNetworks() {
+    }
+
+    /**
+     * Кольцо 0-1-2-3-0 с перемычкой 1-3, источник в узле 0
+     */
+    static PipeNetwork ring() {
+        PipeNetwork network = new PipeNetwork(4, 5);
+        network.setSegment(0, 0, 1, 95, 70, 150, 300, 0.5, 2);
+        network.setSegment(1, 1, 2, 95, 70, 100, 200, 0.5, 1);
+        network.setSegment(2, 2, 3, 95, 70, 80, 250, 0.5, 1);
+        network.setSegment(3, 3, 0, 95, 70, 125, 400, 0.5, 2);
+        network.setSegment(4, 1, 3, 95, 70, 50, 150, 0.5, 3);
+        network.setSource(0, 600000);
+        network.setDemand(1, 20);
+        network.setDemand(2, 35);
+        network.setDemand(3, 15);
+        return network;
+    }
+
+    /**
+     * Кольцо с радиальными ответвлениями 2-4-5 и 3-6
+     */
+    static PipeNetwork ringWithBranches() {
+        PipeNetwork network = new PipeNetwork(7, 8);
+        network.setSegment(0, 0, 1, 95, 70, 150, 300, 0.5, 2);
+        network.setSegment(1, 1, 2, 95, 70, 100, 200, 0.5, 1);
+        network.setSegment(2, 2, 3, 95, 70, 80, 250, 0.5, 1);
+        network.setSegment(3, 3, 0, 95, 70, 125, 400, 0.5, 2);
+        network.setSegment(4, 1, 3, 95, 70, 50, 150, 0.5, 3);
+        network.setSegment(5, 2, 4, 95, 70, 80, 100, 0.5, 1);
+        network.setSegment(6, 4, 5, 95, 70, 50, 120, 0.5, 2);
+        network.setSegment(7, 3, 6, 95, 70, 65, 80, 0.5, 1);
+        network.setSource(0, 600000);
+        network.setDemand(1, 20);
+        network.setDemand(2, 35);
+        network.setDemand(3, 15);
+        network.setDemand(4, 5);
+        network.setDemand(5, 6);
+        network.setDemand(6, 4);
+        return network;
+    }
+
+    /**
+     * Квадратная сетка n×n с источниками в противоположных углах
+     */
+    static PipeNetwork grid(int n) {
+        PipeNetwork network = new PipeNetwork(n * n, 2 * n * (n - 1));
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                int node = i * n + j;
+                if (j + 1 < n) {
+                    network.setSegment(k++, node, node + 1, 95, 70, 80 + 20 * ((i + j) % 3), 50, 0.5, 1);
+                }
+                if (i + 1 < n) {
+                    network.setSegment(k++, node, node + n, 95, 70, 80 + 20 * ((i * j) % 3), 50, 0.5, 1);
+                }
+                network.setDemand(node, 0.5 + (node % 7) * 0.1);
+            }
+        }
+        network.setSource(0, 800000);
+        network.setSource(n * n - 1, 790000);
+        return network;
+    }
+
+    /**
+     * Квадратная сетка n×n участков Ду150 с одинаковыми отборами в узлах и источником в углу
+     */
+    static PipeNetwork uniformGrid(int n, double demand) {
+        PipeNetwork network = new PipeNetwork(n * n, 2 * n * (n - 1));
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                int node = i * n + j;
+                if (j + 1 < n) {
+                    network.setSegment(k++, node, node + 1, 95, 70, 150, 50, 0.5, 1);
+                }
+                if (i + 1 < n) {
+                    network.setSegment(k++, node, node + n, 95, 70, 150, 50, 0.5, 1);
+                }
+                network.setDemand(node, demand);
+            }
+        }
+        network.setSource(0, 1000000);
+        return network;
+    }
+
+    /**
+     * Цепочка из n участков Ду300 с одинаковыми отборами в узлах
+     */
+    static PipeNetwork chain(int n, double demand) {
+        PipeNetwork network = new PipeNetwork(n + 1, n);
+        for (int k = 0; k < n; k++) {
+            network.setSegment(k, k, k + 1, 95, 70, 300, 50, 0.5, 1);
+            network.setDemand(k + 1, demand);
+        }
+        network.setSource(0, 1000000);
+        return network;
+    }
+}
@@ -0,0 +1,110 @@
+package net.tavda.hydraulic.service;
+
+import net.tavda.hydraulic.PipeMaterials;
+import net.tavda.hydraulic.PipelineCalculator;
+import net.tavda.hydraulic.PipelineResult;
+import net.tavda.hydraulic.Precision;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CalculationServerTest {
+    private static final PipelineCalculator CALCULATOR = PipelineCalculator.getInstance(Precision.STRICT);
+
+    private ExecutorService executor;
+    private CalculationServer server;
+
+    @Before
+    public void start() throws IOException {
+        executor = Executors.newFixedThreadPool(4);
+        CalculationService service = new CalculationService(CALCULATOR, executor);
+        server = new CalculationServer(service, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), executor);
+    }
+
+    @After
+    public void stop() {
+        server.close();
+        executor.shutdown();
+    }
+
+    private String request(String method, String path, String body, int status) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(status, connection.getResponseCode());
+        try (InputStream in = status == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                response.write(buffer, 0, read);
+            }
+            return new String(response.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static double field(String json, String name) {
+        Map<String, String> fields = CalculationServer.parseJson(json);
+        return Double.parseDouble(fields.get(name));
+    }
+
+    @Test
+    public void formulas() throws IOException {
+        PipelineResult expected = new PipelineResult();
+        CALCULATOR.calcFormulas(20, 95, 70, 100, 150, 0.5, 3, expected);
+        String json = request("GET", "/formulas?consumption=20&tempIn=95&tempOut=70&diameter=100&length=150&roughness=0.5&sumLocalResist=3", null, 200);
+        assertEquals(expected.getPressureLossPa(), field(json, "pressureLossPa"), 0);
+        assertEquals(expected.getSpeed(), field(json, "speed"), 0);
+        json = request("POST", "/formulas", "{\"consumption\": 20, \"tempIn\": 95, \"tempOut\": 70, \"diameter\": 100,\n"
+                + " \"length\": 150, \"roughness\": \"0.5\", \"sumLocalResist\": 3}", 200);
+        assertEquals(expected.getPressureLossPa(), field(json, "pressureLossPa"), 0);
+    }
+
+    @Test
+    public void snip() throws IOException {
+        PipelineResult expected = new PipelineResult();
+        CALCULATOR.calcSNiP(20, 95, 70, 100, 150, PipeMaterials.NEW_CAST_IRON, expected);
+        String json = request("GET", "/snip?consumption=20&tempIn=95&tempOut=70&diameter=100&length=150&material=" + PipeMaterials.NEW_CAST_IRON, null, 200);
+        assertEquals(expected.getPressureLossPa(), field(json, "pressureLossPa"), 0);
+        assertEquals(expected.getHydraulicResistance(), field(json, "hydraulicResistance"), 0);
+    }
+
+    @Test
+    public void errors() throws IOException {
+        assertTrue(request("GET", "/formulas?consumption=20", null, 400).contains("Missing parameter tempIn"));
+        assertTrue(request("GET", "/snip?consumption=20&tempIn=95&tempOut=70&diameter=100&length=150&material=1.5", null, 400).contains("not an integer"));
+        assertTrue(request("GET", "/snip?consumption=20&tempIn=95&tempOut=70&diameter=100&length=150&material=999", null, 400).contains("Unknown material"));
+        assertTrue(request("POST", "/formulas", "[1, 2]", 400).contains("not a JSON object"));
+        assertTrue(request("GET", "/formulas?consumption=x&tempIn=95&tempOut=70&diameter=100&length=150&roughness=0.5&sumLocalResist=3", null, 400).contains("not a number"));
+        request("DELETE", "/formulas", null, 405);
+    }
+
+    @Test
+    public void parseJson() {
+        Map<String, String> fields = CalculationServer.parseJson(" { \"a\" : 1.5e3 , \"b\":\"x\" } ");
+        assertEquals("1.5e3", fields.get("a"));
+        assertEquals("x", fields.get("b"));
+        assertEquals(0, CalculationServer.parseJson("{}").size());
+    }
+}
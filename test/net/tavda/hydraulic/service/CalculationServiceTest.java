@@ -0,0 +1,208 @@
+package net.tavda.hydraulic.service;
+
+import net.tavda.hydraulic.FrictionModel;
+import net.tavda.hydraulic.PipeMaterials;
+import net.tavda.hydraulic.PipelineCalculator;
+import net.tavda.hydraulic.PipelineResult;
+import net.tavda.hydraulic.Precision;
+import net.tavda.hydraulic.WaterProperties;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CalculationServiceTest {
+    private static final PipelineCalculator CALCULATOR = PipelineCalculator.getInstance(Precision.STRICT);
+
+    /**
+     * Исполнитель, задачи которого запускаются вручную
+     */
+    private static final class ManualExecutor implements Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static CalculationRequest formulas(double consumption) {
+        return CalculationRequest.formulas(consumption, 95, 70, 100, 150, 0.5, 3);
+    }
+
+    private static void assertResult(CalculationRequest request, PipelineResult actual) {
+        PipelineResult expected = new PipelineResult();
+        if (request.isSNiP()) {
+            CALCULATOR.calcSNiP(request.getConsumption(), request.getTempIn(), request.getTempOut(), request.getDiameter(), request.getLength(), request.getMaterial(), expected);
+        } else {
+            CALCULATOR.calcFormulas(request.getConsumption(), request.getTempIn(), request.getTempOut(), request.getDiameter(), request.getLength(), request.getRoughness(), request.getSumLocalResist(), expected);
+        }
+        assertEquals(expected.getSpeed(), actual.getSpeed(), 0);
+        assertEquals(expected.getReynoldsNumber(), actual.getReynoldsNumber(), 0);
+        assertEquals(expected.getFrictionCoefficient(), actual.getFrictionCoefficient(), 0);
+        assertEquals(expected.getHydraulicResistance(), actual.getHydraulicResistance(), 0);
+        assertEquals(expected.getPressureLossPa(), actual.getPressureLossPa(), 0);
+    }
+
+    @Test
+    public void coalesce() {
+        ManualExecutor executor = new ManualExecutor();
+        CalculationService service = new CalculationService(CALCULATOR, executor);
+        CompletableFuture<PipelineResult> first = service.submit(formulas(20));
+        CompletableFuture<PipelineResult> second = service.submit(formulas(20));
+        assertNotSame(first, second);
+        // Отмена ожидания одним вызовом не затрагивает другой
+        CompletableFuture<PipelineResult> cancelled = service.submit(formulas(20));
+        assertTrue(cancelled.cancel(false));
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertNotSame(first.join(), second.join());
+        assertResult(formulas(20), first.join());
+        assertResult(formulas(20), second.join());
+        // Изменение результата одним вызовом не затрагивает другой
+        CALCULATOR.calcFormulas(40, 95, 70, 100, 150, 0.5, 3, second.join());
+        assertResult(formulas(20), first.join());
+        assertEquals(3, service.getRequests());
+        assertEquals(2, service.getCoalesced());
+        assertEquals(1, service.getComputed());
+        assertEquals(0, service.getPending());
+        // После расчёта одинаковый запрос считается заново
+        CompletableFuture<PipelineResult> third = service.submit(formulas(20));
+        assertNotEquals(first, third);
+        executor.runAll();
+        assertEquals(2, service.getComputed());
+    }
+
+    @Test
+    public void batch() {
+        ManualExecutor executor = new ManualExecutor();
+        CalculationService service = new CalculationService(CALCULATOR, executor, 1000, 16);
+        List<CalculationRequest> requests = new ArrayList<>();
+        List<CompletableFuture<PipelineResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            // Формулы во всех режимах течения вперемешку с СНиП
+            CalculationRequest request = i % 4 == 3
+                    ? CalculationRequest.snip(1 + i, 95, 70, 100, 150, PipeMaterials.NEW_STEEL)
+                    : formulas(0.05 * (1 + i * i));
+            requests.add(request);
+            futures.add(service.submit(request));
+        }
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals(3, service.getBatches());
+        for (int i = 0; i < requests.size(); i++) {
+            assertTrue(futures.get(i).isDone());
+            assertResult(requests.get(i), futures.get(i).join());
+        }
+    }
+
+    @Test
+    public void implicitFriction() {
+        PipelineCalculator calculator = new PipelineCalculator(Precision.STRICT, WaterProperties.exact(), FrictionModel.COLEBROOK_WHITE);
+        ManualExecutor executor = new ManualExecutor();
+        CalculationService service = new CalculationService(calculator, executor);
+        CompletableFuture<PipelineResult> a = service.submit(formulas(20));
+        CompletableFuture<PipelineResult> b = service.submit(formulas(30));
+        executor.runAll();
+        PipelineResult expected = new PipelineResult();
+        calculator.calcFormulas(30, 95, 70, 100, 150, 0.5, 3, expected);
+        assertEquals(expected.getPressureLossPa(), b.join().getPressureLossPa(), 0);
+        assertTrue(a.join().getPressureLossPa() < b.join().getPressureLossPa());
+    }
+
+    @Test
+    public void backpressure() {
+        ManualExecutor executor = new ManualExecutor();
+        CalculationService service = new CalculationService(CALCULATOR, executor, 2, 16);
+        CompletableFuture<PipelineResult> a = service.submit(formulas(10));
+        CompletableFuture<PipelineResult> b = service.submit(formulas(20));
+        // Одинаковый запрос не занимает места в очереди
+        CompletableFuture<PipelineResult> same = service.submit(formulas(10));
+        assertEquals(1, service.getCoalesced());
+        CompletableFuture<PipelineResult> c = service.submit(formulas(30));
+        assertTrue(c.isCompletedExceptionally());
+        try {
+            c.join();
+            fail();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(1, service.getRejected());
+        executor.runAll();
+        assertFalse(a.isCompletedExceptionally());
+        assertFalse(b.isCompletedExceptionally());
+        assertResult(formulas(10), same.join());
+        assertFalse(service.submit(formulas(30)).isCompletedExceptionally());
+    }
+
+    @Test
+    public void executorRejects() {
+        CalculationService service = new CalculationService(CALCULATOR, task -> {
+            throw new RejectedExecutionException("Shut down");
+        });
+        CompletableFuture<PipelineResult> future = service.submit(formulas(10));
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(0, service.getPending());
+    }
+
+    @Test
+    public void concurrent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            CalculationService service = new CalculationService(CALCULATOR, executor);
+            List<CompletableFuture<PipelineResult>> futures = new ArrayList<>();
+            List<CalculationRequest> requests = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                CalculationRequest request = formulas(1 + i % 100);
+                requests.add(request);
+                futures.add(CompletableFuture.supplyAsync(() -> service.submit(request), clients).thenCompose(f -> f));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertResult(requests.get(i), futures.get(i).get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(20_000, service.getRequests());
+            assertEquals(20_000, service.getCoalesced() + service.getComputed());
+            assertEquals(0, service.getPending());
+        } finally {
+            clients.shutdown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void requestEquality() {
+        assertEquals(formulas(20), formulas(20));
+        assertEquals(formulas(20).hashCode(), formulas(20).hashCode());
+        assertNotEquals(formulas(20), formulas(20.000001));
+        assertNotEquals(CalculationRequest.snip(20, 95, 70, 100, 150, 0), CalculationRequest.snip(20, 95, 70, 100, 150, 1));
+        assertNotEquals(CalculationRequest.formulas(20, 95, 70, 100, 150, 0, 0), CalculationRequest.snip(20, 95, 70, 100, 150, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownMaterial() {
+        CalculationRequest.snip(20, 95, 70, 100, 150, PipeMaterials.size());
+    }
+}
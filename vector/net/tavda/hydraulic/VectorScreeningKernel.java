@@ -0,0 +1,50 @@
+package net.tavda.hydraulic;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Расчёт участков {@link ScreeningBatch} векторами наибольшей длины, поддерживаемой процессором.
+ * Ветви режимов течения заменены масками: к-т трения считается по всем трём формулам и выбирается по числу Рейнольдса.
+ * Остаток пакета короче вектора считается скалярно.
+ * Собирается профилем vector на Java 17+, загружается {@link ScreeningBatch} только при подключённом модуле
+ * jdk.incubator.vector
+ */
+final class VectorScreeningKernel extends ScreeningKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    void calcFormulas(float[] g, float[] t1, float[] t2, float[] d, float[] l, float[] k, float[] z,
+                      int from, int to, float[] speed, float[] pressureLossPa) {
+        int bound = from + SPECIES.loopBound(to - from);
+        FloatVector sixtyFour = FloatVector.broadcast(SPECIES, 64);
+        FloatVector sixtyEight = FloatVector.broadcast(SPECIES, 68);
+        FloatVector nu0 = FloatVector.broadcast(SPECIES, NU_0);
+        FloatVector rho0 = FloatVector.broadcast(SPECIES, RHO_0);
+        int i = from;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector t = FloatVector.fromArray(SPECIES, t1, i).add(FloatVector.fromArray(SPECIES, t2, i)).mul(HALF);
+            FloatVector nu = nu0.div(t.mul(NU_2).add(NU_1).mul(t).add(1));
+            FloatVector rho = rho0.sub(t.mul(RHO_2).add(RHO_1).mul(t));
+            FloatVector di = FloatVector.fromArray(SPECIES, d, i);
+            FloatVector v = FloatVector.fromArray(SPECIES, g, i).mul(SPEED).div(rho.mul(di.mul(di)));
+            FloatVector re = v.mul(di).mul(10).div(nu);
+            FloatVector turbulent = sixtyEight.div(re).add(FloatVector.fromArray(SPECIES, k, i).div(di))
+                    .lanewise(VectorOperators.SQRT).lanewise(VectorOperators.SQRT).mul(ALTSHUL);
+            VectorMask<Float> transitional = re.compare(VectorOperators.LE, TRANSITIONAL);
+            VectorMask<Float> laminar = re.compare(VectorOperators.LE, LAMINAR);
+            FloatVector lambda = turbulent.blend(re.mul(TRANSITIONAL_SLOPE), transitional).blend(sixtyFour.div(re), laminar);
+            v.intoArray(speed, i);
+            FloatVector local = lambda.mul(1000).mul(FloatVector.fromArray(SPECIES, l, i)).div(di).add(FloatVector.fromArray(SPECIES, z, i));
+            v.mul(v).mul(rho).mul(HALF).mul(local).intoArray(pressureLossPa, i);
+        }
+        super.calcFormulas(g, t1, t2, d, l, k, z, i, to, speed, pressureLossPa);
+    }
+
+    @Override
+    int lanes() {
+        return SPECIES.length();
+    }
+}